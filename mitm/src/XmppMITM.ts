@@ -2,6 +2,7 @@ import * as tls from 'node:tls'
 import {ConfigMITM} from './ConfigMITM'
 import * as fs from 'node:fs'
 import * as path from 'node:path'
+import {StringDecoder} from 'node:string_decoder'
 
 /**
  * XmppMITM - TLS proxy for Valorant XMPP traffic.
@@ -59,6 +60,11 @@ export class XmppMITM {
                     socketID: currentSocketID
                 }) + '\n')
 
+                // One decoder per direction: a multi-byte UTF-8 character split across two
+                // TLS chunks is held back until its last byte arrives instead of becoming U+FFFD
+                const incomingDecoder = new StringDecoder('utf8')
+                const outgoingDecoder = new StringDecoder('utf8')
+
                 let preConnectBuffer = Buffer.alloc(0)
                 const riotTLS = tls.connect({
                     host: mapping.riotHost,
@@ -82,7 +88,8 @@ export class XmppMITM {
                     console.log(JSON.stringify({
                         type: 'incoming',
                         time: Date.now(),
-                        data: data.toString()
+                        socketID: currentSocketID,
+                        data: incomingDecoder.write(data)
                     }) + '\n')
                     socket.write(data)
                 })
@@ -122,7 +129,8 @@ export class XmppMITM {
                     console.log(JSON.stringify({
                         type: 'outgoing',
                         time: Date.now(),
-                        data: data.toString()
+                        socketID: currentSocketID,
+                        data: outgoingDecoder.write(data)
                     }) + '\n')
                     if (riotTLS.connecting) {
                         preConnectBuffer = Buffer.concat([preConnectBuffer, data])
@@ -0,0 +1,91 @@
+package com.someone.valvoicebackend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost after parsing: entity unescape, the Chat narration decision
+ * and the XMPP duplicate gate (same fingerprinting as ValVoiceBackend.isDuplicateMessage).
+ *
+ * One message per invocation, cycling through the chat stanzas of IngestCorpus.
+ * The duplicate gate gets unique message ids with every DUPLICATE_EVERY-th one
+ * replayed (reconnect / archive overlap), so it sees a realistic hit/miss mix.
+ *
+ *   mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ChatPathBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatPathBenchmark {
+
+    /** Same sizing and window as the backend's message dedup */
+    private static final int DEDUP_CAPACITY = 512;
+    private static final long DEDUP_WINDOW_MS = 600_000L;
+    private static final int DUPLICATE_EVERY = 10;
+
+    private String[] rawBodies;
+    private Message[] messages;
+    private String[] dedupIds;
+    private DuplicateFilter dedup;
+    private int bodyCursor;
+    private int messageCursor;
+    private int dedupCursor;
+
+    @Setup
+    public void setup() {
+        IngestCorpus corpus = IngestCorpus.load();
+        rawBodies = corpus.rawBodies().toArray(String[]::new);
+
+        List<Message> built = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (String xml : corpus.chat) {
+            ParsedMessage p = XmppStreamParser.parseMessage(xml);
+            if (p != null && p.hasBody()) {
+                built.add(Message.fromParsed(p));
+                String id = ids.size() % DUPLICATE_EVERY == DUPLICATE_EVERY - 1
+                    ? ids.get(ids.size() - 1)
+                    : p.getId() + "#" + ids.size();
+                ids.add(id);
+            }
+        }
+        messages = built.toArray(Message[]::new);
+        dedupIds = ids.toArray(String[]::new);
+        dedup = new DuplicateFilter(DEDUP_CAPACITY, () -> DEDUP_WINDOW_MS);
+    }
+
+    @Benchmark
+    public String unescapeHtml() {
+        String body = rawBodies[bodyCursor];
+        bodyCursor = bodyCursor + 1 == rawBodies.length ? 0 : bodyCursor + 1;
+        return HtmlEscape.unescapeHtml(body);
+    }
+
+    @Benchmark
+    public boolean shouldNarrate() {
+        Message msg = messages[messageCursor];
+        messageCursor = messageCursor + 1 == messages.length ? 0 : messageCursor + 1;
+        return Chat.getInstance().shouldNarrate(msg);
+    }
+
+    @Benchmark
+    public boolean duplicateGate() {
+        String id = dedupIds[dedupCursor];
+        dedupCursor = dedupCursor + 1 == dedupIds.length ? 0 : dedupCursor + 1;
+        return dedup.isDuplicate(DuplicateFilter.fingerprint("id", id));
+    }
+}
@@ -0,0 +1,90 @@
+package com.someone.valvoicebackend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stanza corpus shared by the JMH suites, split by StanzaClassifier kind.
+ *
+ * Default: XmppTrafficCorpus.mixed() (presence-heavy lobby / agent-select traffic
+ * with party, team, whisper, carbon, roster and archive stanzas).
+ *
+ * Real traffic: pass a capture with -Dvalvoice.corpus=path/to/capture.txt (jmh.args:
+ * -jvmArgsAppend -Dvalvoice.corpus=...). Any text file holding the raw MITM stream
+ * works - log lines around the XML are skipped by XmppStanzaFramer exactly as in
+ * production. Kinds the capture lacks are topped up from the synthetic corpus.
+ */
+final class IngestCorpus {
+
+    static final String CORPUS_PROPERTY = "valvoice.corpus";
+
+    private static final int SYNTHETIC_SIZE = 20_000;
+    private static final long SEED = 17L;
+
+    final List<String> chat = new ArrayList<>();
+    final List<String> presence = new ArrayList<>();
+    final List<String> roster = new ArrayList<>();
+    final List<String> archive = new ArrayList<>();
+    /** Every framed stanza in arrival order, whatever its kind (the routing suite's input) */
+    final List<String> stream = new ArrayList<>();
+
+    private IngestCorpus() {
+    }
+
+    static IngestCorpus load() {
+        IngestCorpus corpus = new IngestCorpus();
+        String capture = System.getProperty(CORPUS_PROPERTY);
+        if (capture != null && !capture.isBlank()) {
+            corpus.addCapture(Path.of(capture));
+        }
+        if (corpus.chat.isEmpty() || corpus.presence.isEmpty() || corpus.roster.isEmpty() || corpus.archive.isEmpty()) {
+            IngestCorpus synthetic = new IngestCorpus();
+            XmppTrafficCorpus.mixed(SYNTHETIC_SIZE, SEED).forEach(synthetic::add);
+            if (corpus.chat.isEmpty()) corpus.chat.addAll(synthetic.chat);
+            if (corpus.presence.isEmpty()) corpus.presence.addAll(synthetic.presence);
+            if (corpus.roster.isEmpty()) corpus.roster.addAll(synthetic.roster);
+            if (corpus.archive.isEmpty()) corpus.archive.addAll(synthetic.archive);
+            if (corpus.stream.isEmpty()) corpus.stream.addAll(synthetic.stream);
+        }
+        return corpus;
+    }
+
+    private void addCapture(Path file) {
+        String text;
+        try {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read corpus " + file, e);
+        }
+        new XmppStanzaFramer().feed(text, this::add);
+    }
+
+    private void add(String xml) {
+        stream.add(xml);
+        switch (StanzaClassifier.classify(xml)) {
+            case MESSAGE, CARBON -> chat.add(xml);
+            case PRESENCE -> presence.add(xml);
+            case ROSTER_IQ -> roster.add(xml);
+            case ARCHIVE -> archive.add(xml);
+            default -> { }
+        }
+    }
+
+    /** Chat bodies exactly as they appear on the wire (entities still escaped), for the unescape suite. */
+    List<String> rawBodies() {
+        List<String> bodies = new ArrayList<>(chat.size());
+        for (String xml : chat) {
+            int start = xml.indexOf("<body>");
+            int end = xml.indexOf("</body>", start + 1);
+            if (start >= 0 && end > start) {
+                bodies.add(xml.substring(start + "<body>".length(), end));
+            }
+        }
+        return bodies;
+    }
+}
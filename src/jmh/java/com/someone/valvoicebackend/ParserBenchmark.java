@@ -0,0 +1,87 @@
+package com.someone.valvoicebackend;
+
+import com.someone.valvoicebackend.config.ConfigManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stanza parsing cost per stanza: XmppStreamParser, Message construction and the roster IQ.
+ *
+ * Each invocation handles ONE stanza, cycling through the corpus (IngestCorpus),
+ * so the score is directly ns/stanza and -prof gc's gc.alloc.rate.norm is B/stanza.
+ * fastTokenizer switches ValVoiceConfig.fastXmppTokenizer exactly as in production.
+ *
+ *   mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ParserBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fastTokenizer;
+
+    private String[] messages;
+    private String[] presences;
+    private String[] rosters;
+    private int messageCursor;
+    private int presenceCursor;
+    private int rosterCursor;
+
+    @Setup
+    public void setup() {
+        ConfigManager.get().fastXmppTokenizer = fastTokenizer;
+        IngestCorpus corpus = IngestCorpus.load();
+        List<String> withArchive = new ArrayList<>(corpus.chat);
+        withArchive.addAll(corpus.archive);
+        messages = withArchive.toArray(String[]::new);
+        presences = corpus.presence.toArray(String[]::new);
+        rosters = corpus.roster.toArray(String[]::new);
+    }
+
+    private String nextMessage() {
+        String xml = messages[messageCursor];
+        messageCursor = messageCursor + 1 == messages.length ? 0 : messageCursor + 1;
+        return xml;
+    }
+
+    @Benchmark
+    public List<ParsedMessage> parseMessages() {
+        return XmppStreamParser.parseMessages(nextMessage());
+    }
+
+    @Benchmark
+    public String extractPresencePayload() {
+        String xml = presences[presenceCursor];
+        presenceCursor = presenceCursor + 1 == presences.length ? 0 : presenceCursor + 1;
+        return XmppStreamParser.extractPresencePayload(xml);
+    }
+
+    @Benchmark
+    public Message newMessage() {
+        return new Message(nextMessage());
+    }
+
+    @Benchmark
+    public int parseRosterIq() {
+        String xml = rosters[rosterCursor];
+        rosterCursor = rosterCursor + 1 == rosters.length ? 0 : rosterCursor + 1;
+        return Roster.getInstance().parseRosterIq(xml);
+    }
+}
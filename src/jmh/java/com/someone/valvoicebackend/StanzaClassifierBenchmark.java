@@ -0,0 +1,65 @@
+package com.someone.valvoicebackend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stanza routing cost: the legacy toLowerCase() check chain vs StanzaClassifier.
+ *
+ * Each invocation routes ONE stanza from IngestCorpus.stream (every kind, in arrival
+ * order), so the score is ns/stanza and -prof gc's gc.alloc.rate.norm is B/stanza.
+ *
+ *   mvn -Pbenchmarks test-compile exec:exec -Djmh.args="StanzaClassifierBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StanzaClassifierBenchmark {
+
+    private String[] stanzas;
+    private Roster roster;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        stanzas = IngestCorpus.load().stream.toArray(String[]::new);
+        roster = Roster.getInstance();
+    }
+
+    private String next() {
+        String xml = stanzas[cursor];
+        cursor = cursor + 1 == stanzas.length ? 0 : cursor + 1;
+        return xml;
+    }
+
+    /** The routing order ChatDataHandler used before StanzaClassifier */
+    @Benchmark
+    public int legacyCheckChain() {
+        String xml = next();
+        if (XmppStreamParser.isPresenceStanza(xml)) return 1;
+        if (roster.isRosterIq(xml)) return 2;
+        if (XmppStreamParser.isIqStanza(xml)) {
+            return XmppStreamParser.isArchiveStanza(xml) ? 3 : XmppStreamParser.containsMessageWithBody(xml) ? 4 : 5;
+        }
+        if (XmppStreamParser.isArchiveStanza(xml)) return 6;
+        return XmppStreamParser.containsMessageWithBody(xml) ? 7 : 8;
+    }
+
+    @Benchmark
+    public StanzaClassifier.StanzaKind classify() {
+        return StanzaClassifier.classify(next());
+    }
+}
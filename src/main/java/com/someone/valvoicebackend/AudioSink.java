@@ -0,0 +1,41 @@
+package com.someone.valvoicebackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * AudioSink - Plays a synthesized audio stream for VoiceGenerator.
+ *
+ * Production: LineAudioSink (MP3 / L16 decoded onto one long-lived system audio line).
+ * Headless / tests: SimulatedAudioSink (consumes the stream, takes as long as the audio lasts).
+ */
+public interface AudioSink {
+
+    /**
+     * Playback progress callbacks. VoiceGenerator presses PTT in playbackStarted()
+     * and releases it in playbackFinished().
+     */
+    interface Listener {
+        /** The first audio reached the output */
+        void playbackStarted();
+
+        /** The last audio was played (not called if play() throws before starting) */
+        void playbackFinished();
+    }
+
+    /**
+     * Play the stream to its end on the calling thread.
+     *
+     * @param audio       Encoded audio (read until EOF, not closed)
+     * @param contentType MIME type reported by the synthesizer
+     * @throws IOException if the format is unsupported or the stream/device fails
+     */
+    void play(InputStream audio, String contentType, Listener listener) throws IOException;
+
+    /**
+     * Cut off the playback in progress (narration preemption), from any thread: play()
+     * returns early without calling playbackFinished(). No effect when nothing is playing.
+     */
+    default void stop() {
+    }
+}
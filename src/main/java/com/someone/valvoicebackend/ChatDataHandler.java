@@ -1,5 +1,6 @@
 package com.someone.valvoicebackend;
 
+import com.someone.valvoicebackend.config.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +25,12 @@ public class ChatDataHandler {
     private volatile String selfDisplayName = null; // Phase 2.2: Display name for OCR self-message ownership
     private final List<Consumer<String>> selfIdListeners = new CopyOnWriteArrayList<>();
 
+    // === OCR DUPLICATE SUPPRESSION ===
+    // The OCR sidecar re-reads a chat line on every frame while it stays on screen.
+    private static final int OCR_DEDUP_CAPACITY = 256;
+    private final DuplicateFilter ocrDedup = new DuplicateFilter(OCR_DEDUP_CAPACITY,
+        () -> ConfigManager.get().ocrDedupWindowSeconds * 1000L);
+
     // === PHASE 5: EVENT-DRIVEN UI ===
     // Stats update callback - allows decoupling from direct UI controller references.
     // Set by ValVoiceController during initialization.
@@ -38,12 +45,33 @@ public class ChatDataHandler {
         void onStatsUpdated(long messagesSent, long charactersSent);
     }
 
+    // === NARRATION SINK ===
+    // Where dispatched narrations go. null = VoiceGenerator (XTTS / SAPI, PTT, audio).
+    // MitmReplay installs a counting sink so captures replay headless.
+    private volatile NarrationSink narrationSink = null;
+
+    /**
+     * Receives every narration that passed the filter chain.
+     * Called on a CompletableFuture worker thread - implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface NarrationSink {
+        void narrate(String text, long correlationId);
+    }
+
     private ChatDataHandler() {}
 
     public static ChatDataHandler getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * Get the OCR duplicate filter (hit rate for diagnostics).
+     */
+    public DuplicateFilter getOcrDedup() {
+        return ocrDedup;
+    }
+
     /**
      * Set the stats update callback (Phase 5: Event-Driven UI).
      * Called by ValVoiceController during initialization to receive stats updates.
@@ -55,6 +83,16 @@ public class ChatDataHandler {
         logger.debug("[ChatDataHandler] Stats callback {}", callback != null ? "registered" : "cleared");
     }
 
+    /**
+     * Replace the narration target (MitmReplay counting sink).
+     *
+     * @param sink Receives dispatched narrations, or null to restore VoiceGenerator
+     */
+    public void setNarrationSink(NarrationSink sink) {
+        this.narrationSink = sink;
+        logger.info("[ChatDataHandler] Narration sink {}", sink != null ? "replaced" : "restored to VoiceGenerator");
+    }
+
     /**
      * Initialize from Riot lockfile
      * @param lockfilePath path to the lockfile
@@ -265,6 +303,8 @@ public class ChatDataHandler {
         }
 
         Chat chat = Chat.getInstance();
+        long correlationId = message.getCorrelationId();
+        PipelineEvents.FilterVerdict verdict = PipelineEvents.beginFilters();
 
         // Log message details
         String msgType = message.getMessageType();
@@ -273,34 +313,33 @@ public class ChatDataHandler {
         String userId = message.getUserId();
         String fromAttr = message.getFrom();  // AUTHORITATIVE sender identity source
 
-        logger.info("┌─ Processing message ─────────────────");
-        logger.info("│ Type: {} | Own: {} | UserId: {} | Content: '{}'",
-                   msgType, isOwn, userId,
-                   content != null ? (content.length() > 30 ? content.substring(0, 27) + "..." : content) : "(null)");
-        logger.info("│ From (authoritative): {}", fromAttr);
-        logger.info("│ Chat States:");
-        logger.info("│   - Disabled: {}", chat.isDisabled());
-        logger.info("│   - Self State: {}", chat.isSelfState());
-        logger.info("│   - Private State (Whisper): {}", chat.isPrivateState());
-        logger.info("│   - Party State: {}", chat.isPartyState());
-        logger.info("│   - Team State: {}", chat.isTeamState());
-        logger.info("│   - All State: {}", chat.isAllState());
-        logger.info("│   - User Ignored: {}", chat.isIgnoredPlayerID(userId));
-        logger.info("│ Self ID: {}", selfId);
+        // Per-message decisions go to the diagnostic ring; the detailed state box is
+        // only formatted when DEBUG is enabled (see logback.xml)
+        if (logger.isDebugEnabled()) {
+            logger.debug("┌─ Processing message: type={} own={} userId={} from={} content='{}'",
+                msgType, isOwn, userId, fromAttr,
+                content != null ? (content.length() > 30 ? content.substring(0, 27) + "..." : content) : "(null)");
+            logger.debug("│ Chat States: disabled={} self={} whisper={} party={} team={} all={} ignored={} selfId={}",
+                chat.isDisabled(), chat.isSelfState(), chat.isPrivateState(), chat.isPartyState(),
+                chat.isTeamState(), chat.isAllState(), chat.isIgnoredPlayerID(userId), selfId);
+        }
 
         // Safety check: null message type means we couldn't classify the message
         if (msgType == null) {
-            logger.warn("└─ ⚠️ FILTERED: Message type is null (could not classify from JID)");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.NULL_TYPE, fromAttr);
+            logger.debug("└─ ⚠️ FILTERED: Message type is null (could not classify from JID)");
             return;
         }
 
         // Skip if disabled or player is ignored
         if (chat.isDisabled()) {
-            logger.info("└─ ❌ FILTERED: Chat is disabled");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.DISABLED, fromAttr);
+            logger.debug("└─ ❌ FILTERED: Chat is disabled");
             return;
         }
         if (chat.isIgnoredPlayerID(message.getUserId())) {
-            logger.info("└─ ❌ FILTERED: Player is ignored");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.IGNORED, fromAttr);
+            logger.debug("└─ ❌ FILTERED: Player is ignored");
             return;
         }
 
@@ -333,7 +372,6 @@ public class ChatDataHandler {
         logger.debug("│ [SELF-ONLY DEBUG] senderPuuid={} localUserPuuid={}",
                     senderPuuid.isEmpty() ? "(empty)" : senderPuuid,
                     localUserPuuid != null ? localUserPuuid : "(null)");
-        logger.info("│ Sender PUUID (from 'from' attribute): {}", senderPuuid.isEmpty() ? "(not extractable)" : senderPuuid);
 
         // ═══════════════════════════════════════════════════════════════════════
         // VOICE INJECTOR GUARD CLAUSE (per spec)
@@ -341,15 +379,15 @@ public class ChatDataHandler {
 
         // Safety: if identity not captured yet, do nothing
         if (localUserPuuid == null || localUserPuuid.isEmpty()) {
-            logger.warn("│ ⚠️ WARNING: localUserPuuid not captured yet - cannot verify sender identity");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.NO_IDENTITY, fromAttr);
             logger.warn("└─ ❌ FILTERED (SELF-ONLY): Identity not yet established - dropping message for safety");
             return;
         }
 
         // Safety: if sender PUUID could not be extracted, drop for safety
         if (senderPuuid.isEmpty()) {
-            logger.warn("│ ⚠️ WARNING: Could not extract sender PUUID from 'from' attribute");
-            logger.warn("└─ ❌ FILTERED (SELF-ONLY): Cannot extract sender PUUID - dropping for safety");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.NO_SENDER, fromAttr);
+            logger.warn("└─ ❌ FILTERED (SELF-ONLY): Cannot extract sender PUUID from 'from' attribute - dropping for safety");
             return;
         }
 
@@ -357,16 +395,13 @@ public class ChatDataHandler {
         if (!localUserPuuid.equalsIgnoreCase(senderPuuid)) {
             // CRITICAL: Sender is NOT the local user - DROP this message
             // Teammates' messages are logged but NEVER narrated (Voice Injector behavior)
-            logger.info("└─ ❌ FILTERED (SELF-ONLY): Sender '{}' != Self '{}' - not narrating teammate's message",
-                       senderPuuid.substring(0, Math.min(8, senderPuuid.length())) + "...",
-                       localUserPuuid.substring(0, Math.min(8, localUserPuuid.length())) + "...");
-            logger.debug("│ [SELF-ONLY DEBUG] Full comparison: sender='{}' self='{}' match=false",
+            drop(verdict, correlationId, DiagnosticRing.Verdict.NOT_SELF, fromAttr);
+            logger.debug("└─ ❌ FILTERED (SELF-ONLY): Full comparison: sender='{}' self='{}' match=false",
                         senderPuuid, localUserPuuid);
             return;
         }
 
         // ✅ Sender IS the local user - proceed with channel filter
-        logger.info("│ ✅ SELF-ONLY: Sender matches local user PUUID");
         logger.debug("│ [SELF-ONLY DEBUG] Full comparison: sender='{}' self='{}' match=true",
                     senderPuuid, localUserPuuid);
 
@@ -384,14 +419,16 @@ public class ChatDataHandler {
 
         // WHISPER is never narrated in VN standard flow
         if (Chat.TYPE_WHISPER.equals(msgType)) {
-            logger.info("└─ ❌ FILTERED (CHANNEL): WHISPER is not narrated in VN standard flow");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.WHISPER, fromAttr);
+            logger.debug("└─ ❌ FILTERED (CHANNEL): WHISPER is not narrated in VN standard flow");
             return;
         }
 
         // PARTY channel check
         if (Chat.TYPE_PARTY.equals(msgType)) {
             if (!chat.isPartyState()) {
-                logger.info("└─ ❌ FILTERED: PARTY but partyState=false");
+                drop(verdict, correlationId, DiagnosticRing.Verdict.CHANNEL_OFF, fromAttr);
+                logger.debug("└─ ❌ FILTERED: PARTY but partyState=false");
                 return;
             }
             // PARTY allowed, continue to TTS
@@ -400,7 +437,8 @@ public class ChatDataHandler {
         // TEAM channel check
         else if (Chat.TYPE_TEAM.equals(msgType)) {
             if (!chat.isTeamState()) {
-                logger.info("└─ ❌ FILTERED: TEAM but teamState=false");
+                drop(verdict, correlationId, DiagnosticRing.Verdict.CHANNEL_OFF, fromAttr);
+                logger.debug("└─ ❌ FILTERED: TEAM but teamState=false");
                 return;
             }
             // TEAM allowed, continue to TTS
@@ -409,7 +447,8 @@ public class ChatDataHandler {
         // ALL channel check
         else if (Chat.TYPE_ALL.equals(msgType)) {
             if (!chat.isAllState()) {
-                logger.info("└─ ❌ FILTERED: ALL but allState=false");
+                drop(verdict, correlationId, DiagnosticRing.Verdict.CHANNEL_OFF, fromAttr);
+                logger.debug("└─ ❌ FILTERED: ALL but allState=false");
                 return;
             }
             // ALL allowed, continue to TTS
@@ -417,6 +456,7 @@ public class ChatDataHandler {
 
         // Unknown message type - drop for safety
         else {
+            drop(verdict, correlationId, DiagnosticRing.Verdict.UNKNOWN_CHANNEL, fromAttr);
             logger.warn("└─ ❌ FILTERED (CHANNEL): Unknown message type '{}' - dropping for safety", msgType);
             return;
         }
@@ -441,19 +481,27 @@ public class ChatDataHandler {
         // If clutchMode is ENABLED AND currentState is INGAME → silently drop narration
         // ═══════════════════════════════════════════════════════════════════════════
         if (GameStateManager.getInstance().shouldSuppressNarration()) {
-            GameStateManager.GameState currentState = GameStateManager.getInstance().getCurrentState();
-            logger.info("└─ ❌ FILTERED (SMART MUTE): clutchMode=ON, state={} - suppressing narration", currentState);
-            logger.debug("│ [SMART MUTE DEBUG] Message would have been narrated but clutch mode suppressed it");
+            drop(verdict, correlationId, DiagnosticRing.Verdict.SMART_MUTE, fromAttr);
+            logger.debug("└─ ❌ FILTERED (SMART MUTE): clutchMode=ON, state={} - suppressing narration",
+                GameStateManager.getInstance().getCurrentState());
+            return;
+        }
+
+        // Backpressure: the narration queue is full and would reject this one
+        if (!isNarrationQueueAccepting(msgType)) {
+            drop(verdict, correlationId, DiagnosticRing.Verdict.OVERFLOW, fromAttr);
+            logger.debug("└─ ❌ FILTERED (BACKPRESSURE): narration queue full - dropping newest");
             return;
         }
 
-        logger.info("└─ ✅ PASSED ALL FILTERS (SELF-ONLY MODE) - Proceeding to TTS");
+        logger.debug("└─ ✅ PASSED ALL FILTERS (SELF-ONLY MODE) - Proceeding to TTS");
 
         // Clean and narrate - handle null content
         String cleanContent = content != null ? content.replace("/", "").replace("\\", "") : "";
 
         // Safety check: only proceed if content is non-empty
         if (cleanContent.isEmpty()) {
+            drop(verdict, correlationId, DiagnosticRing.Verdict.EMPTY, fromAttr);
             logger.debug("TTS skipped: empty content after cleaning");
             return;
         }
@@ -471,8 +519,16 @@ public class ChatDataHandler {
             ttsContent = Roster.getInstance().formatTtsMessage(senderPuuid, cleanContent);
         }
 
-        logger.info("🔊 TTS DISPATCH: type={} content='{}'", msgType,
-            ttsContent.length() > 40 ? ttsContent.substring(0, 37) + "..." : ttsContent);
+        PipelineEvents.filterVerdict(verdict, correlationId, DiagnosticRing.Stage.CHAT_FILTER, DiagnosticRing.Verdict.PASS);
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED,
+            correlationId, fromAttr, ttsContent.length());
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.countVerdict(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED);
+        metrics.ingestToDispatch().recordSince(message.getReceivedNanos());
+        if (logger.isDebugEnabled()) {
+            logger.debug("🔊 TTS DISPATCH: type={} content='{}'", msgType,
+                ttsContent.length() > 40 ? ttsContent.substring(0, 37) + "..." : ttsContent);
+        }
 
         // Create a copy of the message with the formatted TTS content
         final Message ttsMessage = new Message(message, ttsContent);
@@ -482,13 +538,22 @@ public class ChatDataHandler {
         // This maintains backend UI-agnostic design (Phase 5 Event-Driven UI).
         java.util.concurrent.CompletableFuture.runAsync(() -> {
             try {
-                if (VoiceGenerator.isInitialized()) {
-                    VoiceGenerator.getInstance().queueNarration(ttsMessage);
+                NarrationSink sink = narrationSink;
+                if (sink != null) {
+                    sink.narrate(ttsMessage.getContent(), correlationId);
+                } else if (VoiceGenerator.isInitialized()) {
+                    if (!VoiceGenerator.getInstance().queueNarration(ttsMessage)) {
+                        rejectedByQueue(correlationId, fromAttr);
+                    }
                 } else {
                     logger.warn("VoiceGenerator not initialized - cannot narrate message");
                 }
             } catch (Exception e) {
                 logger.error("Failed to narrate: {}", e.getMessage());
+                DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.FAILED,
+                    correlationId, fromAttr, 0);
+                PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.FAILED);
+                DiagnosticRing.getInstance().dumpOnError("TTS dispatch failed");
             }
         });
 
@@ -505,6 +570,28 @@ public class ChatDataHandler {
         }
     }
 
+    /** Backpressure signal from VoiceGenerator (a replacement narration sink is never full). */
+    private boolean isNarrationQueueAccepting(String channel) {
+        return narrationSink != null || !VoiceGenerator.isInitialized()
+            || VoiceGenerator.getInstance().isAcceptingNarrations(channel);
+    }
+
+    /** The queue filled up between the backpressure check and the dispatch. */
+    private static void rejectedByQueue(long correlationId, String subject) {
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.OVERFLOW,
+            correlationId, subject, 0);
+        PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.OVERFLOW);
+        logger.debug("TTS dispatch rejected: narration queue full");
+    }
+
+    /** Record a filter drop in the diagnostic ring and as a JFR verdict event (no formatting, no I/O). */
+    private static void drop(PipelineEvents.FilterVerdict event, long correlationId,
+                             DiagnosticRing.Verdict verdict, String subject) {
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.CHAT_FILTER, verdict, correlationId, subject, 0);
+        PipelineEvents.filterVerdict(event, correlationId, DiagnosticRing.Stage.CHAT_FILTER, verdict);
+        PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.CHAT_FILTER, verdict);
+    }
+
     private void updateUI(Chat chat) {
         // === PHASE 5: EVENT-DRIVEN UI ===
         // Use callback instead of direct ValVoiceController reference.
@@ -560,11 +647,11 @@ public class ChatDataHandler {
      *
      * Filter chain:
      *  1. Null / blank guard
-     *  2. Chat globally disabled guard
+     *  2. Chat globally disabled guard, then OCR duplicate gate
      *  3. Channel filter (PARTY / TEAM / ALL based on Chat state flags)
-     *  4. GameState smart-mute gate (clutch mode)
+     *  4. GameState smart-mute gate (clutch mode), narration queue backpressure
      *  5. Content cleaning (slash strip, truncate)
-     *  6. TTS dispatch via VoiceGenerator.queueNarration(String)
+     *  6. TTS dispatch via VoiceGenerator.queueNarration(String, long, String), lane from msg.channel()
      *  7. Stats update via existing statsCallback
      *
      * Phase 0 (OCR migration): Added first; XMPP message() pipeline removed separately
@@ -576,7 +663,21 @@ public class ChatDataHandler {
         if (msg == null || msg.body() == null || msg.body().isBlank()) return;
 
         Chat chat = Chat.getInstance();
-        if (chat.isDisabled()) return;
+        // OCR lines start their own PipelineEvents correlation (and ingest clock) here
+        long receivedNanos = System.nanoTime();
+        long correlationId = PipelineEvents.nextId();
+        PipelineEvents.FilterVerdict verdict = PipelineEvents.beginFilters();
+        if (chat.isDisabled()) {
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.DISABLED, msg);
+            return;
+        }
+
+        // Duplicate gate: same channel + sender + text inside the OCR window
+        if (ocrDedup.isDuplicate(DuplicateFilter.fingerprint(msg.channel(), msg.name(), msg.body()))) {
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.DUPLICATE, msg);
+            logger.debug("[OCR] Dropping duplicate line: channel={} body='{}'", msg.channel(), msg.body());
+            return;
+        }
 
         // ═══════════════════════════════════════════════════════════════════════
         // VOICE INJECTOR MODE: SELF-ONLY NARRATION GUARD (OCR Parity)
@@ -586,9 +687,9 @@ public class ChatDataHandler {
         if (!msg.ownMessage()) {
             // CRITICAL: Sender is NOT the local user - DROP this message
             // Teammates' messages are logged but NEVER narrated (Voice Injector behavior)
-            logger.info("└─ ❌ FILTERED (SELF-ONLY): OCR Sender '{}' != Self '{}' - not narrating teammate's message",
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.NOT_SELF, msg);
+            logger.debug("└─ ❌ FILTERED (SELF-ONLY): OCR Sender '{}' != Self '{}' - not narrating teammate's message",
                     msg.name(), selfDisplayName != null ? selfDisplayName : "(null)");
-            logger.debug("│ [SELF-ONLY DEBUG] OCR Full comparison match=false");
             return;
         }
 
@@ -603,54 +704,87 @@ public class ChatDataHandler {
             default      -> false;
         };
         if (!allowed) {
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.CHANNEL_OFF, msg);
             logger.debug("[OCR] Filtered channel={}: {}", msg.channel(), msg.body());
             return;
         }
 
         // Clutch mode gate
         if (GameStateManager.getInstance().shouldSuppressNarration()) {
-            logger.info("[OCR] Clutch mode suppressed (state={})",
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.SMART_MUTE, msg);
+            logger.debug("[OCR] Clutch mode suppressed (state={})",
                 GameStateManager.getInstance().getCurrentState());
             return;
         }
 
+        // Backpressure: the narration queue is full and would reject this line
+        if (!isNarrationQueueAccepting(msg.channel())) {
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.OVERFLOW, msg);
+            logger.debug("[OCR] Narration queue full - dropping line: {}", msg.body());
+            return;
+        }
+
         // Content cleaning
         String body = msg.body().replace("/", "").replace("\\", "").trim();
-        if (body.isBlank()) return;
+        if (body.isBlank()) {
+            ocrDrop(verdict, correlationId, DiagnosticRing.Verdict.EMPTY, msg);
+            return;
+        }
         if (body.length() > 300) body = body.substring(0, 300);
 
-        logger.info("TTS [OCR] channel={} name={} body='{}'",
-            msg.channel(), msg.name(),
-            body.length() > 40 ? body.substring(0, 37) + "..." : body);
+        PipelineEvents.filterVerdict(verdict, correlationId, DiagnosticRing.Stage.OCR_FILTER, DiagnosticRing.Verdict.PASS);
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED,
+            correlationId, msg.name(), body.length());
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.countVerdict(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED);
+        metrics.ingestToDispatch().recordSince(receivedNanos);
+        if (logger.isDebugEnabled()) {
+            logger.debug("TTS [OCR] channel={} name={} body='{}'",
+                msg.channel(), msg.name(),
+                body.length() > 40 ? body.substring(0, 37) + "..." : body);
+        }
 
         final String ttsText = body;
         CompletableFuture.runAsync(() -> {
             try {
-                if (VoiceGenerator.isInitialized()) {
+                NarrationSink sink = narrationSink;
+                if (sink != null) {
+                    sink.narrate(ttsText, correlationId);
+                } else if (VoiceGenerator.isInitialized()) {
                     // ═══════════════════════════════════════════════════════════════
                     // PHASE B DIAGNOSTICS: TTS DISPATCH WIRETAP
                     // Proves the complete chain:
                     //   OcrChatClient → ChatDataHandler → VoiceGenerator
                     // If own=false appears here, a gate bypass exists.
+                    // The DISPATCHED ring entry above is the always-on record;
+                    // the full box is only formatted at DEBUG.
                     // ═══════════════════════════════════════════════════════════════
-                    logger.info(
-                        "\n=== TTS DISPATCH ===\n" +
-                        "OWN      : {}\n" +
-                        "CHANNEL  : {}\n" +
-                        "NAME     : '{}'\n" +
-                        "BODY     : '{}'\n" +
-                        "TTS TEXT : '{}'\n" +
-                        "====================",
-                        msg.ownMessage(),
-                        msg.channel(),
-                        msg.name(),
-                        msg.body(),
-                        ttsText
-                    );
-                    VoiceGenerator.getInstance().queueNarration(ttsText);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(
+                            "\n=== TTS DISPATCH ===\n" +
+                            "OWN      : {}\n" +
+                            "CHANNEL  : {}\n" +
+                            "NAME     : '{}'\n" +
+                            "BODY     : '{}'\n" +
+                            "TTS TEXT : '{}'\n" +
+                            "====================",
+                            msg.ownMessage(),
+                            msg.channel(),
+                            msg.name(),
+                            msg.body(),
+                            ttsText
+                        );
+                    }
+                    if (!VoiceGenerator.getInstance().queueNarration(ttsText, correlationId, msg.channel())) {
+                        rejectedByQueue(correlationId, msg.name());
+                    }
                 }
             } catch (Exception e) {
                 logger.error("[OCR] TTS dispatch failed", e);
+                DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.FAILED,
+                    correlationId, msg.name(), 0);
+                PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.FAILED);
+                DiagnosticRing.getInstance().dumpOnError("OCR TTS dispatch failed");
             }
         });
 
@@ -662,6 +796,14 @@ public class ChatDataHandler {
         }
     }
 
+    /** OCR counterpart of drop(): the sender name is the subject. */
+    private static void ocrDrop(PipelineEvents.FilterVerdict event, long correlationId,
+                                DiagnosticRing.Verdict verdict, OcrMessage msg) {
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.OCR_FILTER, verdict, correlationId, msg.name(), 0);
+        PipelineEvents.filterVerdict(event, correlationId, DiagnosticRing.Stage.OCR_FILTER, verdict);
+        PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.OCR_FILTER, verdict);
+    }
+
     public void clearListeners() {
         selfIdListeners.clear();
     }
@@ -0,0 +1,96 @@
+package com.someone.valvoicebackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CountingPttSink - Headless PttSink: records presses, releases and hold time instead of typing.
+ * The System.nanoTime() of every press and release is kept, so tests can order them against
+ * SimulatedAudioSink.getPlaybacks().
+ *
+ * Used by MitmReplay --tts and the VoiceGenerator tests to check PTT timing
+ * (key held exactly around playback, never left down).
+ *
+ * Thread-safety: all methods are safe from any thread.
+ */
+public final class CountingPttSink implements PttSink {
+
+    private final AtomicLong presses = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+    private final AtomicLong heldNanos = new AtomicLong();
+    private final LatencyHistogram holds = new LatencyHistogram();
+    private volatile long pressedAtNanos = 0;
+    private volatile int lastKeyCode = 0;
+    private final List<Long> pressTimes = new ArrayList<>();
+    private final List<Long> releaseTimes = new ArrayList<>();
+
+    @Override
+    public void press(int keyCode) {
+        lastKeyCode = keyCode;
+        long now = System.nanoTime();
+        synchronized (pressTimes) {
+            pressTimes.add(now);
+        }
+        pressedAtNanos = now;
+        presses.incrementAndGet();
+    }
+
+    @Override
+    public void release(int keyCode) {
+        long now = System.nanoTime();
+        synchronized (releaseTimes) {
+            releaseTimes.add(now);
+        }
+        long pressedAt = pressedAtNanos;
+        if (pressedAt != 0) {
+            long held = now - pressedAt;
+            heldNanos.addAndGet(held);
+            holds.recordNanos(held);
+            pressedAtNanos = 0;
+        }
+        releases.incrementAndGet();
+    }
+
+    public long getPresses() {
+        return presses.get();
+    }
+
+    public long getReleases() {
+        return releases.get();
+    }
+
+    /** @return true while a press has not been released */
+    public boolean isHeld() {
+        return presses.get() > releases.get();
+    }
+
+    /** @return Key code of the most recent press (0 = none yet) */
+    public int getLastKeyCode() {
+        return lastKeyCode;
+    }
+
+    /** @return Total time the key was held down, in ns */
+    public long getHeldNanos() {
+        return heldNanos.get();
+    }
+
+    /** @return System.nanoTime() of each press, in order */
+    public List<Long> getPressNanos() {
+        synchronized (pressTimes) {
+            return List.copyOf(pressTimes);
+        }
+    }
+
+    /** @return System.nanoTime() of each release, in order */
+    public List<Long> getReleaseNanos() {
+        synchronized (releaseTimes) {
+            return List.copyOf(releaseTimes);
+        }
+    }
+
+    /** @return Per-press hold durations */
+    public LatencyHistogram getHolds() {
+        return holds;
+    }
+}
@@ -0,0 +1,255 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DiagnosticRing - Always-on, in-memory flight recorder for chat pipeline decisions.
+ *
+ * Every stage of the ingest path (stanza parse, timestamp / duplicate gates, the
+ * ChatDataHandler filter chain, OCR lines, TTS dispatch) records WHAT it decided
+ * here instead of writing a formatted INFO box per message. Recording stores a
+ * few primitives and one existing String reference into a preallocated slot:
+ * no formatting, no allocation, no I/O, no lock.
+ *
+ * The ring is turned into text only when it is dumped:
+ * - on demand via dumpToLog()
+ * - on error via dumpOnError() (rate-limited, so an error storm logs one dump)
+ *
+ * Layout: parallel arrays indexed by (sequence & mask). Each slot carries a
+ * version word (seqlock): writers mark the slot busy, write the fields, then
+ * publish the sequence; readers discard slots whose version changed under them.
+ *
+ * Thread-safety: Lock-free; any number of recording threads, dumps from any thread.
+ */
+public final class DiagnosticRing {
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticRing.class);
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    /** Minimum spacing between two error-triggered dumps */
+    private static final long ERROR_DUMP_INTERVAL_MS = 30_000;
+    /** Longest subject printed per entry (JIDs are ~80 chars) */
+    private static final int MAX_SUBJECT_LENGTH = 96;
+
+    private static final DiagnosticRing INSTANCE = new DiagnosticRing(DEFAULT_CAPACITY);
+
+    /** Pipeline stage that made the decision. */
+    public enum Stage {
+        XMPP_MESSAGE,
+        XMPP_GATE,
+        CHAT_FILTER,
+        OCR_LINE,
+        OCR_FILTER,
+        TTS_DISPATCH,
+        TTS_QUEUE,
+        ERROR
+    }
+
+    /** What the stage decided. */
+    public enum Verdict {
+        RECEIVED,
+        PASS,
+        HISTORICAL,
+        DUPLICATE,
+        NULL_TYPE,
+        DISABLED,
+        IGNORED,
+        NO_IDENTITY,
+        NO_SENDER,
+        NOT_SELF,
+        WHISPER,
+        CHANNEL_OFF,
+        UNKNOWN_CHANNEL,
+        SMART_MUTE,
+        EMPTY,
+        OCR_PRIMARY,
+        DISPATCHED,
+        OVERFLOW,
+        EXPIRED,
+        PREEMPTED,
+        CANCELLED,
+        FAILED
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Verdict[] VERDICTS = Verdict.values();
+
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    /** Per slot: 0 = never written, -1 = being written, else sequence + 1 */
+    private final AtomicLongArray versions;
+    private final long[] nanos;
+    private final long[] keys;
+    private final long[] values;
+    private final byte[] stages;
+    private final byte[] verdicts;
+    private final Object[] subjects;
+
+    /** Wall clock / nanoTime pair used to print entry times without storing both */
+    private final long baseWallMillis = System.currentTimeMillis();
+    private final long baseNanos = System.nanoTime();
+
+    private final AtomicLong lastErrorDumpMillis = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param capacity Entries kept (rounded up to a power of two)
+     */
+    DiagnosticRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.versions = new AtomicLongArray(size);
+        this.nanos = new long[size];
+        this.keys = new long[size];
+        this.values = new long[size];
+        this.stages = new byte[size];
+        this.verdicts = new byte[size];
+        this.subjects = new Object[size];
+    }
+
+    public static DiagnosticRing getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record one decision. Never blocks, never throws, never allocates.
+     *
+     * @param stage   Stage that decided
+     * @param verdict What it decided
+     * @param key     PipelineEvents correlation id (OCR lines: sidecar sequence), 0 if none
+     * @param subject Existing string identifying the message (JID, sender name); stored by reference
+     * @param value   Stage-specific number (body length, queue depth, ...)
+     */
+    public void record(Stage stage, Verdict verdict, long key, String subject, long value) {
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq & mask);
+        versions.set(slot, -1);
+        VarHandle.storeStoreFence();
+        nanos[slot] = System.nanoTime();
+        keys[slot] = key;
+        values[slot] = value;
+        stages[slot] = (byte) stage.ordinal();
+        verdicts[slot] = (byte) verdict.ordinal();
+        subjects[slot] = subject;
+        versions.set(slot, seq + 1);
+    }
+
+    /** @return Total decisions recorded since start (including overwritten ones) */
+    public long getRecorded() {
+        return sequence.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * One decoded ring entry.
+     *
+     * @param sequence   Global record number (gaps mean the entry was overwritten or torn)
+     * @param wallMillis Epoch millis the decision was recorded
+     * @param subject    The recorded subject, or null
+     */
+    public record Entry(long sequence, long wallMillis, long nanos, Stage stage, Verdict verdict,
+                        long key, String subject, long value) {
+    }
+
+    /**
+     * Copy the current contents, oldest first. Slots being rewritten during the copy are skipped.
+     */
+    public List<Entry> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - (mask + 1));
+        List<Entry> entries = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            long version = versions.get(slot);
+            if (version != seq + 1) continue;
+            long n = nanos[slot];
+            long key = keys[slot];
+            long value = values[slot];
+            int stage = stages[slot];
+            int verdict = verdicts[slot];
+            Object subject = subjects[slot];
+            VarHandle.loadLoadFence();
+            if (versions.get(slot) != version) continue;
+            long wall = baseWallMillis + TimeUnit.NANOSECONDS.toMillis(n - baseNanos);
+            entries.add(new Entry(seq, wall, n, STAGES[stage], VERDICTS[verdict], key,
+                subject != null ? subject.toString() : null, value));
+        }
+        return entries;
+    }
+
+    /**
+     * Write the ring to the log as one multi-line INFO entry.
+     *
+     * @param reason Why the dump was taken (printed in the header)
+     */
+    public void dumpToLog(String reason) {
+        logger.info("{}", format(reason));
+    }
+
+    /**
+     * Write the ring to the log at WARN after an error, at most once per ERROR_DUMP_INTERVAL_MS.
+     *
+     * @param reason What failed (printed in the header)
+     * @return true if a dump was written
+     */
+    public boolean dumpOnError(String reason) {
+        long now = System.currentTimeMillis();
+        long last = lastErrorDumpMillis.get();
+        if (last != Long.MIN_VALUE && now - last < ERROR_DUMP_INTERVAL_MS) {
+            return false;
+        }
+        if (!lastErrorDumpMillis.compareAndSet(last, now)) {
+            return false;
+        }
+        try {
+            logger.warn("{}", format(reason));
+        } catch (Exception e) {
+            // Diagnostics must never make an error worse
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Render the ring as text (header + one line per entry, oldest first).
+     */
+    public String format(String reason) {
+        List<Entry> entries = snapshot();
+        StringBuilder sb = new StringBuilder(64 + entries.size() * 96);
+        sb.append("[DIAGNOSTIC RING] ").append(reason != null ? reason : "dump")
+            .append(" - last ").append(entries.size()).append(" of ").append(getRecorded()).append(" decisions");
+        long previousNanos = entries.isEmpty() ? 0 : entries.get(0).nanos();
+        ZoneId zone = ZoneId.systemDefault();
+        for (Entry e : entries) {
+            LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(e.wallMillis()), zone);
+            sb.append('\n').append(time)
+                .append(" +").append(TimeUnit.NANOSECONDS.toMicros(e.nanos() - previousNanos)).append("us ")
+                .append(e.stage()).append(' ').append(e.verdict());
+            if (e.key() != 0) {
+                sb.append(" key=").append(Long.toHexString(e.key()));
+            }
+            if (e.value() != 0) {
+                sb.append(" value=").append(e.value());
+            }
+            if (e.subject() != null) {
+                String subject = e.subject();
+                sb.append(" subject=")
+                    .append(subject.length() > MAX_SUBJECT_LENGTH ? subject.substring(0, MAX_SUBJECT_LENGTH) + "..." : subject);
+            }
+            previousNanos = e.nanos();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.someone.valvoicebackend;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * DuplicateFilter - Lock-free, time-windowed duplicate suppression on 64-bit fingerprints.
+ *
+ * Replaces the synchronized access-ordered LinkedHashMap keyed by
+ * "hash:" + from.hashCode() + ":" + body.hashCode(): that allocated two Strings
+ * per message, serialized every caller on one lock, and a 32-bit body hash
+ * collision could silently drop a real message.
+ *
+ * Behaviour:
+ * - Fingerprints are 64-bit hashes computed over the key parts in place (no
+ *   concatenation); see fingerprint()
+ * - Entries live in a fixed ring written in insertion order, so a lookup walks
+ *   back from the newest entry and stops once it reaches expired ones
+ * - An entry expires after the window (read from the supplier on every call, so
+ *   config changes apply immediately) or when the ring wraps over it
+ * - Hit rate is counted for diagnostics / metrics
+ *
+ * Thread-safety: Lock-free. Concurrent FIRST sightings of the same fingerprint
+ * may both pass; every later sighting inside the window is a duplicate.
+ */
+public final class DuplicateFilter {
+
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+    private static final long MIX2 = 0xC2B2AE3D27D4EB4FL;
+    /** Consecutive empty/expired slots after which a lookup stops walking back */
+    private static final int MAX_STALE_RUN = 8;
+
+    private final int mask;
+    private final AtomicLongArray fingerprints;
+    /** nanoTime of insertion per slot; 0 = empty */
+    private final AtomicLongArray stamps;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final LongSupplier windowMillis;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param capacity     Max fingerprints remembered (rounded up to a power of two)
+     * @param windowMillis Time-to-live of a fingerprint in ms, read on every call
+     */
+    public DuplicateFilter(int capacity, LongSupplier windowMillis) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.fingerprints = new AtomicLongArray(size);
+        this.stamps = new AtomicLongArray(size);
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Record a fingerprint and report whether it was already seen inside the window.
+     *
+     * @return true if this is a duplicate (caller should drop the message)
+     */
+    public boolean isDuplicate(long fingerprint) {
+        return isDuplicate(fingerprint, System.nanoTime());
+    }
+
+    boolean isDuplicate(long fingerprint, long nowNanos) {
+        lookups.increment();
+        long windowNanos = Math.max(0, windowMillis.getAsLong()) * 1_000_000L;
+        int head = cursor.get();
+        int staleRun = 0;
+        for (int k = 1; k <= mask + 1; k++) {
+            int slot = (head - k) & mask;
+            long stamp = stamps.get(slot);
+            if (stamp == 0 || nowNanos - stamp > windowNanos) {
+                // Older slots were written earlier, so they are expired as well. A short run is
+                // tolerated: a concurrent writer may have claimed a slot without filling it yet.
+                if (++staleRun >= MAX_STALE_RUN) break;
+                continue;
+            }
+            staleRun = 0;
+            if (fingerprints.get(slot) == fingerprint) {
+                hits.increment();
+                return true;
+            }
+        }
+
+        int slot = cursor.getAndIncrement() & mask;
+        fingerprints.set(slot, fingerprint);
+        stamps.set(slot, nowNanos == 0 ? 1 : nowNanos);
+        return false;
+    }
+
+    /** Forget every fingerprint (counters are kept). */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            stamps.set(i, 0);
+        }
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** @return Fraction of lookups that were duplicates (0 when nothing was checked yet) */
+    public double getHitRate() {
+        long total = lookups.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    // ========== Fingerprints ==========
+
+    /** 64-bit fingerprint of one key part (null hashes like ""). */
+    public static long fingerprint(CharSequence part) {
+        return finish(mix(MIX, part));
+    }
+
+    /** 64-bit fingerprint of two key parts; ("ab","c") and ("a","bc") differ. */
+    public static long fingerprint(CharSequence a, CharSequence b) {
+        return finish(mix(mix(MIX, a), b));
+    }
+
+    /** 64-bit fingerprint of three key parts. */
+    public static long fingerprint(CharSequence a, CharSequence b, CharSequence c) {
+        return finish(mix(mix(mix(MIX, a), b), c));
+    }
+
+    private static long mix(long h, CharSequence part) {
+        int len = part == null ? 0 : part.length();
+        // Two independent lanes (even / odd chars) halve the multiply latency chain.
+        // Each step is a bijection of the lane state, so inputs of equal length that
+        // differ in a single char can never collide.
+        long even = h;
+        long odd = h ^ MIX2;
+        int i = 0;
+        for (; i + 1 < len; i += 2) {
+            even = (even ^ part.charAt(i)) * MIX;
+            odd = (odd ^ part.charAt(i + 1)) * MIX2;
+        }
+        if (i < len) {
+            even = (even ^ part.charAt(i)) * MIX;
+        }
+        // Length acts as the separator between parts
+        return ((even ^ Long.rotateLeft(odd, 31)) ^ len) * MIX;
+    }
+
+    /** MurmurHash3 fmix64 finalizer: spreads every input bit over the result. */
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87d3L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
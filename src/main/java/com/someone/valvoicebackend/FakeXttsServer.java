@@ -0,0 +1,312 @@
+package com.someone.valvoicebackend;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FakeXttsServer - Stand-in for the local XTTS server with controllable synthesis speed and faults.
+ *
+ *   POST http://127.0.0.1:{port}/speak   {"agent": ..., "text": ..., "language": ...}
+ *
+ * Answers with silent audio whose length follows the text (Options.charsPerSecond), streamed as
+ * MP3 (MPEG-1 Layer III frames, 128 kbit/s) or raw PCM ("audio/L16; rate=24000; channels=1"):
+ * - ttfbMillis:      delay before the response headers / first audio chunk
+ * - realTimeFactor:  audio seconds produced per wall second (3 = 3x faster than playback, 0 = instant)
+ * - failureRate:     fraction of requests answered with HTTP 500 (after the TTFB delay)
+ * - dropRate:        fraction of responses cut off halfway (connection closed before Content-Length)
+ * - seed:            fault injection is reproducible per seed
+ *
+ * Point ValVoiceConfig.xttsUrl (or an HttpSpeechSynthesizer) at getUrl() to load- and latency-test
+ * VoiceGenerator headless. Standalone:
+ *
+ *   java -cp valvoice.jar com.someone.valvoicebackend.FakeXttsServer --port 5005 --ttfb 300 --rtf 2 --fail-rate 0.05
+ *
+ * PHASE 1 SECURITY: bound to the loopback address only.
+ *
+ * Thread-safety: start()/stop() are synchronized; requests are served concurrently on daemon threads.
+ */
+public final class FakeXttsServer {
+    private static final Logger logger = LoggerFactory.getLogger(FakeXttsServer.class);
+
+    public static final String PATH = "/speak";
+    public static final String MP3_CONTENT_TYPE = "audio/mpeg";
+    public static final int PCM_SAMPLE_RATE = 24_000;
+    public static final String PCM_CONTENT_TYPE = "audio/L16; rate=" + PCM_SAMPLE_RATE + "; channels=1";
+
+    /** MPEG-1 Layer III, 128 kbit/s, 44.1 kHz, mono, no CRC: 417-byte frames of 1152 samples */
+    private static final byte[] MP3_FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0xC0};
+    private static final int MP3_FRAME_BYTES = 417;
+    private static final long MP3_FRAME_NANOS = TimeUnit.SECONDS.toNanos(1152) / 44_100;
+    /** 20 ms of 16-bit mono PCM */
+    private static final int PCM_CHUNK_BYTES = PCM_SAMPLE_RATE / 50 * 2;
+    private static final long PCM_CHUNK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long MIN_AUDIO_MILLIS = 300;
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+
+    public enum Format { MP3, PCM }
+
+    /** Synthesis behaviour. Mutable between requests (tests may change faults mid-run). */
+    public static final class Options {
+        public volatile Format format = Format.MP3;
+        public volatile long ttfbMillis = 200;
+        public volatile double realTimeFactor = 4.0;
+        public volatile double charsPerSecond = 15.0;
+        public volatile double failureRate = 0.0;
+        public volatile double dropRate = 0.0;
+        public volatile long seed = 42;
+    }
+
+    private final Options options;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeXttsServer(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    /**
+     * Bind to 127.0.0.1:port and start serving.
+     *
+     * @param port TCP port (0 = any free port)
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        HttpServer created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        created.createContext(PATH, this::handle);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-xtts-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        created.setExecutor(executor);
+        created.start();
+        server = created;
+        logger.info("[FAKE-XTTS] Serving {} on {}", options.format, getUrl());
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    /** @return Bound port, or -1 when not running */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    /** @return The /speak URL to hand to HttpSpeechSynthesizer / ValVoiceConfig.xttsUrl */
+    public String getUrl() {
+        return "http://127.0.0.1:" + getPort() + PATH;
+    }
+
+    public Options getOptions() {
+        return options;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /** @return Requests answered with HTTP 500 */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /** @return Responses cut off mid-stream */
+    public long getDrops() {
+        return drops.get();
+    }
+
+    /** @return Responses streamed to the end */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /** @return Highest number of requests served at the same time */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /** @return Audio length the server synthesizes for {@code chars} characters of text, in ns */
+    public long audioNanosFor(int chars) {
+        double cps = options.charsPerSecond > 0 ? options.charsPerSecond : 15.0;
+        long millis = Math.max(MIN_AUDIO_MILLIS, (long) (chars * 1000 / cps));
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /** @return One frame of MP3 silence (zero side info: every granule decodes to silence) */
+    static byte[] mp3SilenceFrame() {
+        byte[] frame = new byte[MP3_FRAME_BYTES];
+        System.arraycopy(MP3_FRAME_HEADER, 0, frame, 0, MP3_FRAME_HEADER.length);
+        return frame;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int active = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(active, Math::max);
+        try (exchange) {
+            if (!PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String text = readText(exchange.getRequestBody());
+            if (text == null) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            requests.incrementAndGet();
+            long receivedNanos = System.nanoTime();
+
+            boolean fail;
+            boolean drop;
+            synchronized (random) {
+                fail = random.nextDouble() < options.failureRate;
+                drop = random.nextDouble() < options.dropRate;
+            }
+            parkUntil(receivedNanos + TimeUnit.MILLISECONDS.toNanos(options.ttfbMillis));
+            if (fail) {
+                failures.incrementAndGet();
+                byte[] body = "{\"error\":\"injected failure\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+            stream(exchange, text.length(), drop);
+        } catch (IOException e) {
+            // Client went away (timeout / cancelled) - nothing to report back
+            logger.debug("[FAKE-XTTS] Request aborted: {}", e.getMessage());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void stream(HttpExchange exchange, int chars, boolean drop) throws IOException {
+        boolean mp3 = options.format == Format.MP3;
+        byte[] chunk = mp3 ? mp3SilenceFrame() : new byte[PCM_CHUNK_BYTES];
+        long chunkNanos = mp3 ? MP3_FRAME_NANOS : PCM_CHUNK_NANOS;
+        long chunks = Math.max(1, (audioNanosFor(chars) + chunkNanos - 1) / chunkNanos);
+        long cutAt = drop ? chunks / 2 : chunks;
+        double rtf = options.realTimeFactor;
+
+        exchange.getResponseHeaders().set("Content-Type", mp3 ? MP3_CONTENT_TYPE : PCM_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, chunks * chunk.length);
+        OutputStream out = exchange.getResponseBody();
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < cutAt; i++) {
+            if (rtf > 0 && i > 0) {
+                parkUntil(startNanos + (long) (i * chunkNanos / rtf));
+            }
+            out.write(chunk);
+            out.flush();
+            bytesSent.addAndGet(chunk.length);
+        }
+        if (drop) {
+            // Closing before Content-Length is reached resets the connection: a premature EOF for the client
+            drops.incrementAndGet();
+            logger.debug("[FAKE-XTTS] Dropped response after {}/{} chunks", cutAt, chunks);
+            return;
+        }
+        completed.incrementAndGet();
+    }
+
+    /** @return The "text" of a /speak request, or null if the body is not a JSON object with text */
+    private static String readText(InputStream body) throws IOException {
+        byte[] raw = body.readNBytes(MAX_REQUEST_BYTES);
+        try {
+            JsonElement json = JsonParser.parseString(new String(raw, StandardCharsets.UTF_8));
+            if (!json.isJsonObject()) {
+                return null;
+            }
+            JsonObject obj = json.getAsJsonObject();
+            return obj.has("text") && obj.get("text").isJsonPrimitive() ? obj.get("text").getAsString() : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static void parkUntil(long dueNanos) {
+        long now;
+        while ((now = System.nanoTime()) < dueNanos) {
+            LockSupport.parkNanos(dueNanos - now);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        int port = 5005;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : "";
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--format" -> options.format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+                    case "--ttfb" -> options.ttfbMillis = Long.parseLong(value);
+                    case "--rtf" -> options.realTimeFactor = Double.parseDouble(value);
+                    case "--cps" -> options.charsPerSecond = Double.parseDouble(value);
+                    case "--fail-rate" -> options.failureRate = Double.parseDouble(value);
+                    case "--drop-rate" -> options.dropRate = Double.parseDouble(value);
+                    case "--seed" -> options.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException(args[i]);
+                }
+                i++;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: FakeXttsServer [--port 5005] [--format mp3|pcm] [--ttfb ms] [--rtf x]"
+                + " [--cps chars/s] [--fail-rate 0..1] [--drop-rate 0..1] [--seed n]");
+            System.exit(2);
+            return;
+        }
+        FakeXttsServer server = new FakeXttsServer(options);
+        server.start(port);
+        System.out.println("Fake XTTS listening on " + server.getUrl() + " (Ctrl+C to stop)");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,30 @@
+package com.someone.valvoicebackend;
+
+import java.util.List;
+
+/**
+ * FallbackSynthesizer - The engine VoiceGenerator speaks with when XTTS is off or failing.
+ *
+ * Production: InbuiltVoiceSynthesizer (Windows SAPI through a persistent PowerShell).
+ * Unlike SpeechSynthesizer it plays the audio itself: speak() blocks until finished,
+ * while VoiceGenerator holds PTT around the call.
+ */
+public interface FallbackSynthesizer {
+
+    /** @return true if speak() can be used */
+    boolean isReady();
+
+    /**
+     * Speak text and return once playback finished.
+     *
+     * @param rate UI rate scale (0-100)
+     */
+    void speak(String voice, String text, short rate);
+
+    /** Cut the speak() in progress short, from any thread (no-op if idle or not supported). */
+    default void cancel() {
+    }
+
+    /** @return Installed voice names */
+    List<String> getAvailableVoices();
+}
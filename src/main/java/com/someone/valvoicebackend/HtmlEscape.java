@@ -8,7 +8,9 @@ package com.someone.valvoicebackend;
  * HTML UNESCAPING HAPPENS EXACTLY ONCE - This is the SINGLE point of unescaping.
  *
  * Call sites (AUTHORITATIVE LIST):
- * - Message.java constructor: body content is unescaped ONCE during parsing
+ * - None on the XMPP chat path: XmppStreamParser's StAX reader decodes XML
+ *   entities once, and Message is built from that result (no second pass).
+ *   Use this only for text that did not come through an XML parser.
  *
  * IMPORTANT: Do NOT call unescapeHtml() multiple times on the same content.
  * Double-unescaping would convert &amp;lt; → &lt; → <, which is incorrect.
@@ -0,0 +1,301 @@
+package com.someone.valvoicebackend;
+
+import com.google.gson.Gson;
+import com.someone.valvoicebackend.config.ConfigManager;
+import com.someone.valvoicebackend.config.ValVoiceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * HttpSpeechSynthesizer - XTTS over HTTP: POST {agent, text, language} JSON, stream the audio body.
+ *
+ * PHASE 1 SECURITY: Chat text is sent to the endpoint, so only loopback URLs are accepted
+ * (forLoopback() falls back to DEFAULT_URL otherwise).
+ *
+ * Engine health: every request reports to an XttsCircuitBreaker. While it is open isReady()
+ * is false (VoiceGenerator narrates with SAPI) and a TCP probe of the engine port brings it
+ * back. A request gives up when no audio arrives within the breaker's adaptive first-byte
+ * timeout - for the response headers, the first body byte and any later stall - so a hung
+ * engine costs at most that long instead of the old 120 s request timeout.
+ *
+ * Thread-safety: synthesize() may be called from any thread.
+ */
+public final class HttpSpeechSynthesizer implements SpeechSynthesizer {
+    private static final Logger logger = LoggerFactory.getLogger(HttpSpeechSynthesizer.class);
+    private static final Gson GSON = new Gson();
+
+    public static final String DEFAULT_URL = "http://127.0.0.1:5005/speak";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final int PROBE_CONNECT_TIMEOUT_MILLIS = 300;
+    private static final long WATCHDOG_PERIOD_MILLIS = 100;
+    private static final long DEFAULT_FIRST_BYTE_TIMEOUT_MILLIS = 10_000;
+    /** Closes response bodies that stopped delivering audio */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "xtts-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final String DEFAULT_CONTENT_TYPE = "audio/mpeg";
+
+    private final URI endpoint;
+    private final BooleanSupplier ready;
+    private final XttsCircuitBreaker breaker;
+    private final HttpClient httpClient;
+
+    public HttpSpeechSynthesizer(URI endpoint, BooleanSupplier ready, Runnable onUnreachable) {
+        this(endpoint, ready, onUnreachable, () -> { });
+    }
+
+    /**
+     * @param endpoint      XTTS /speak URL
+     * @param ready         Engine readiness (ValVoiceBackend.isEngineReady in production)
+     * @param onUnreachable Called when the circuit breaker opens (ValVoiceBackend.markDegraded)
+     * @param onRecovered   Called when it closes again (ValVoiceBackend.setEngineReady)
+     */
+    public HttpSpeechSynthesizer(URI endpoint, BooleanSupplier ready, Runnable onUnreachable, Runnable onRecovered) {
+        this.endpoint = endpoint;
+        this.ready = ready;
+        ValVoiceConfig config = ConfigManager.get();
+        long maxFirstByteMillis = config != null
+            ? TimeUnit.SECONDS.toMillis(config.xttsFirstByteTimeoutSeconds)
+            : DEFAULT_FIRST_BYTE_TIMEOUT_MILLIS;
+        this.breaker = new XttsCircuitBreaker(this::probe, maxFirstByteMillis, new XttsCircuitBreaker.Listener() {
+            @Override
+            public void opened(String reason) {
+                onUnreachable.run();
+            }
+
+            @Override
+            public void closed() {
+                onRecovered.run();
+            }
+        });
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    }
+
+    /**
+     * Create a synthesizer for a configured URL, rejecting anything that is not loopback.
+     */
+    public static HttpSpeechSynthesizer forLoopback(String url, BooleanSupplier ready, Runnable onUnreachable) {
+        return forLoopback(url, ready, onUnreachable, () -> { });
+    }
+
+    /**
+     * Create a synthesizer for a configured URL, rejecting anything that is not loopback.
+     */
+    public static HttpSpeechSynthesizer forLoopback(String url, BooleanSupplier ready, Runnable onUnreachable,
+                                                    Runnable onRecovered) {
+        URI endpoint = URI.create(DEFAULT_URL);
+        if (url != null && !url.isBlank()) {
+            try {
+                URI configured = URI.create(url.trim());
+                String host = configured.getHost();
+                if (!"http".equalsIgnoreCase(configured.getScheme()) || host == null) {
+                    logger.warn("[XTTS] Ignoring xttsUrl {} - expected http://127.0.0.1:{port}/speak", url);
+                } else if (!InetAddress.getByName(host).isLoopbackAddress()) {
+                    logger.warn("[XTTS] Ignoring non-loopback xttsUrl {} - chat text must not leave this machine", url);
+                } else {
+                    endpoint = configured;
+                }
+            } catch (IllegalArgumentException | IOException e) {
+                logger.warn("[XTTS] Ignoring invalid xttsUrl {}: {}", url, e.getMessage());
+            }
+        }
+        return new HttpSpeechSynthesizer(endpoint, ready, onUnreachable, onRecovered);
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    /** @return Engine health (state, adaptive first-byte timeout) */
+    public XttsCircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready.getAsBoolean() && breaker.isAvailable();
+    }
+
+    /** Half-open probe: does anything accept connections on the engine port? */
+    private boolean probe() {
+        int port = endpoint.getPort() > 0 ? endpoint.getPort() : 80;
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(endpoint.getHost(), port), PROBE_CONNECT_TIMEOUT_MILLIS);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Speech synthesize(String voice, String text, String language) throws IOException, InterruptedException {
+        if (!breaker.tryAcquire()) {
+            throw new IOException("XTTS circuit open");
+        }
+        long timeoutMillis = breaker.firstByteTimeoutMillis();
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(endpoint)
+            .timeout(Duration.ofMillis(timeoutMillis))
+            .header("Content-Type", "application/json; charset=utf-8")
+            .header("Accept", DEFAULT_CONTENT_TYPE)
+            .POST(HttpRequest.BodyPublishers.ofString(buildJsonPayload(voice, text, language)))
+            .build();
+
+        long sentNanos = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (ConnectException e) {
+            logger.error("[XTTS] Endpoint {} unreachable - marking engine as DEGRADED", endpoint);
+            breaker.recordFailure("unreachable", true);
+            throw e;
+        } catch (HttpTimeoutException e) {
+            breaker.recordFailure("no response in " + timeoutMillis + " ms", false);
+            throw e;
+        } catch (IOException e) {
+            breaker.recordFailure(e.toString(), false);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            breaker.recordAbandoned();
+            throw e;
+        }
+
+        if (response.statusCode() != 200) {
+            try (InputStream ignored = response.body()) {
+                // Close the response stream before surfacing the failure.
+            }
+            breaker.recordFailure("HTTP " + response.statusCode(), false);
+            throw new IOException("XTTS request failed with status: " + response.statusCode());
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse(DEFAULT_CONTENT_TYPE);
+        return new Speech(new MonitoredBody(response.body(), sentNanos, timeoutMillis), contentType);
+    }
+
+    /**
+     * Response body that reports its outcome to the breaker (success at EOF, failure on a
+     * broken stream) and is closed by the watchdog when no audio arrives for timeoutMillis.
+     * A close() by the reader before EOF (cancelled narration) is not held against the engine.
+     */
+    private final class MonitoredBody extends FilterInputStream {
+        private final long sentNanos;
+        private final long timeoutNanos;
+        private final ScheduledFuture<?> watchdog;
+        private volatile long lastProgressNanos;
+        private volatile boolean stalled = false;
+        private volatile long firstByteNanos = 0;
+        private boolean reported = false;
+
+        MonitoredBody(InputStream body, long sentNanos, long timeoutMillis) {
+            super(body);
+            this.sentNanos = sentNanos;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.lastProgressNanos = sentNanos;
+            this.watchdog = WATCHDOG.scheduleWithFixedDelay(this::checkStall,
+                WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n;
+            try {
+                n = super.read(b, off, len);
+            } catch (IOException e) {
+                if (stalled) {
+                    HttpTimeoutException timeout = new HttpTimeoutException(
+                        "XTTS sent no audio for " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                    report(false, timeout.getMessage());
+                    throw timeout;
+                }
+                report(false, e.toString());
+                throw e;
+            }
+            long now = System.nanoTime();
+            lastProgressNanos = now;
+            if (n > 0 && firstByteNanos == 0) {
+                firstByteNanos = now;
+            } else if (n < 0) {
+                report(true, null);
+            }
+            return n;
+        }
+
+        private void checkStall() {
+            if (System.nanoTime() - lastProgressNanos > timeoutNanos) {
+                stalled = true;
+                watchdog.cancel(false);
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    logger.debug("[XTTS] Closing stalled response failed: {}", e.getMessage());
+                }
+            }
+        }
+
+        private synchronized void report(boolean success, String reason) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            watchdog.cancel(false);
+            long firstByte = firstByteNanos;
+            if (success) {
+                breaker.recordSuccess((firstByte != 0 ? firstByte : System.nanoTime()) - sentNanos);
+            } else if (reason != null) {
+                breaker.recordFailure(reason, false);
+            } else if (firstByte != 0) {
+                // Closed by the reader mid-stream: the engine was delivering
+                breaker.recordSuccess(firstByte - sentNanos);
+            } else {
+                breaker.recordAbandoned();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            report(false, null);
+            super.close();
+        }
+    }
+
+    private static String buildJsonPayload(String voice, String text, String language) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("agent", voice);
+        payload.put("text", text);
+        payload.put("language", language);
+        return GSON.toJson(payload);
+    }
+}
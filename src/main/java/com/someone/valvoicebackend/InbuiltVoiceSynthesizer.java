@@ -1,5 +1,7 @@
 package com.someone.valvoicebackend;
 
+import com.someone.valvoicebackend.config.ConfigManager;
+import com.someone.valvoicebackend.config.ValVoiceConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,14 +20,22 @@ import java.util.List;
 /**
  * Persistent Windows SAPI wrapper backed by a long-lived PowerShell process.
  * Handles voice enumeration, native speech execution, and SoundVolumeView PID routing.
+ *
+ * Speech runs as SpeakAsync polled every 20 ms for a cancel flag file, so cancel() can cut
+ * it short without killing the session (a new process would have to be re-routed to CABLE Input).
  */
-public class InbuiltVoiceSynthesizer {
+public class InbuiltVoiceSynthesizer implements FallbackSynthesizer {
     private static final Logger logger = LoggerFactory.getLogger(InbuiltVoiceSynthesizer.class);
 
     private static final String VOICES_SENTINEL = "END_OF_VOICES";
+    private static final int CANCEL_POLL_MILLIS = 20;
 
     private final Object powershellLock = new Object();
     private final List<String> voices = new ArrayList<>();
+    // Created by cancel(), polled and removed by the PowerShell speak loop
+    private final Path cancelFlag = Paths.get(System.getProperty("java.io.tmpdir"),
+        "valvoice-sapi-cancel-" + ProcessHandle.current().pid());
+    private volatile boolean speaking;
 
     private Process powershellProcess;
     private PrintWriter powershellWriter;
@@ -184,14 +194,21 @@ public class InbuiltVoiceSynthesizer {
         }
     }
 
+    @Override
+    public void speak(String voice, String text, short rate) {
+        speakInbuiltVoice(voice, text, rate);
+    }
+
     public void speakInbuiltVoice(String voice, String text, short rate) {
         if (!isReady() || text == null || text.isBlank()) {
             return;
         }
 
         short sapiRate = (short) (rate / 10.0 - 10);
+        int sapiVolume = sapiVolume();
         String escapedVoice = escapePowerShellString(voice);
         String escapedText = escapePowerShellString(text);
+        String escapedFlag = escapePowerShellString(cancelFlag.toString());
         String sentinel = "END_OF_SPEAK_" + System.nanoTime();
 
         String command =
@@ -199,11 +216,20 @@ public class InbuiltVoiceSynthesizer {
             "$speaker = New-Object System.Speech.Synthesis.SpeechSynthesizer; " +
             "$speaker.SelectVoice('" + escapedVoice + "'); " +
             "$speaker.Rate = " + sapiRate + "; " +
-            "$speaker.Speak('" + escapedText + "'); " +
+            "$speaker.Volume = " + sapiVolume + "; " +
+            "$prompt = $speaker.SpeakAsync('" + escapedText + "'); " +
+            "while (-not $prompt.IsCompleted) { " +
+            "if (Test-Path -LiteralPath '" + escapedFlag + "') { $speaker.SpeakAsyncCancelAll() }; " +
+            "Start-Sleep -Milliseconds " + CANCEL_POLL_MILLIS + " }; " +
+            "Remove-Item -LiteralPath '" + escapedFlag + "' -ErrorAction SilentlyContinue; " +
+            "$speaker.Dispose(); " +
             "Write-Output '" + sentinel + "'";
 
         synchronized (powershellLock) {
             try {
+                // A cancel() that arrived after the last speak finished must not cut this one
+                Files.deleteIfExists(cancelFlag);
+                speaking = true;
                 powershellWriter.println(command);
                 String line;
                 while ((line = powershellReader.readLine()) != null) {
@@ -213,10 +239,39 @@ public class InbuiltVoiceSynthesizer {
                 }
             } catch (IOException e) {
                 logger.error("[SAPI] Failed to execute inbuilt voice speak command", e);
+            } finally {
+                speaking = false;
             }
         }
     }
 
+    /**
+     * Stop the speech in progress within one poll interval. Does not take powershellLock
+     * (speakInbuiltVoice holds it until the speech ends).
+     */
+    @Override
+    public void cancel() {
+        if (!speaking) {
+            return;
+        }
+        try {
+            Files.write(cancelFlag, new byte[0]);
+            logger.debug("[SAPI] Speech cancelled");
+        } catch (IOException e) {
+            logger.warn("[SAPI] Could not signal speech cancel: {}", e.getMessage());
+        }
+    }
+
+    /** ValVoiceConfig.playbackVolume as SAPI's 0..100 volume. */
+    private static int sapiVolume() {
+        ValVoiceConfig config = ConfigManager.get();
+        double volume = config != null ? config.playbackVolume : 1.0;
+        if (Double.isNaN(volume)) {
+            volume = 1.0;
+        }
+        return (int) Math.round(Math.max(0.0, Math.min(1.0, volume)) * 100);
+    }
+
     private String escapePowerShellString(String value) {
         if (value == null) {
             return "";
@@ -224,10 +279,12 @@ public class InbuiltVoiceSynthesizer {
         return value.replace("'", "''");
     }
 
+    @Override
     public List<String> getAvailableVoices() {
         return Collections.unmodifiableList(new ArrayList<>(voices));
     }
 
+    @Override
     public boolean isReady() {
         return powershellProcess != null
             && powershellProcess.isAlive()
@@ -0,0 +1,157 @@
+package com.someone.valvoicebackend;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram - Fixed-bucket, allocation-free latency histogram (HdrHistogram-style).
+ *
+ * Values are recorded in microseconds into log-linear buckets: every power of
+ * two is split into SUB_BUCKETS linear sub-buckets, so any recorded value is
+ * reported within 12.5% of its true value. The range is 0 µs to ~2 minutes;
+ * larger values land in the last bucket.
+ *
+ * Recording is one index computation plus a few atomic adds - no allocation,
+ * no lock - so it is always on.
+ *
+ * Thread-safety: Lock-free; record() and the readers may run concurrently
+ * (a read racing a record may see the count before the bucket, never a torn value).
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Highest power of two tracked: 2^27 µs ≈ 134 s */
+    private static final int MAX_EXPONENT = 27;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record one latency.
+     *
+     * @param nanos Duration in nanoseconds (negative values count as 0)
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        counts.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /** Record the time elapsed since startNanos (a System.nanoTime() value; 0 = unknown, ignored). */
+    public void recordSince(long startNanos) {
+        if (startNanos != 0) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSumMicros() {
+        return sumMicros.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * @param quantile 0.0 .. 1.0
+     * @return Upper bound of the bucket holding that quantile, in µs (0 when empty)
+     */
+    public long getQuantileMicros(double quantile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /** @return Quantile in milliseconds (for display) */
+    public double getQuantileMillis(double quantile) {
+        return getQuantileMicros(quantile) / 1_000.0;
+    }
+
+    /**
+     * Number of recorded values below 2^exponent µs (cumulative, for Prometheus "le" buckets).
+     *
+     * @param exponent 0 .. MAX_EXPONENT (values past 2^MAX_EXPONENT µs share the last bucket and only count towards +Inf)
+     */
+    public long getCountBelowPowerOfTwo(int exponent) {
+        int end = exponent <= SUB_BITS
+            ? 1 << exponent
+            : Math.min(BUCKETS, (exponent - SUB_BITS + 1) * SUB_BUCKETS);
+        long seen = 0;
+        for (int i = 0; i < end; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    /** @return Highest exponent getCountBelowPowerOfTwo() resolves exactly */
+    public static int maxExponent() {
+        return MAX_EXPONENT;
+    }
+
+    /** Forget every recorded value. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sumMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    // ========== Bucket layout ==========
+
+    /**
+     * Values below SUB_BUCKETS map 1:1; above, bucket = (exponent group, top SUB_BITS
+     * bits below the leading one).
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Largest value (µs) that maps to bucket i. */
+    static long upperBoundOf(int i) {
+        if (i < SUB_BUCKETS) {
+            return i;
+        }
+        int exponent = i / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = i % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+            getCount(), getQuantileMillis(0.50), getQuantileMillis(0.95), getQuantileMillis(0.99),
+            getMaxMicros() / 1_000.0);
+    }
+}
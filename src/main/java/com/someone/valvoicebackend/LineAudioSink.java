@@ -0,0 +1,402 @@
+package com.someone.valvoicebackend;
+
+import dev.mccue.jlayer.decoder.Bitstream;
+import dev.mccue.jlayer.decoder.Decoder;
+import dev.mccue.jlayer.decoder.Header;
+import dev.mccue.jlayer.decoder.JavaLayerException;
+import dev.mccue.jlayer.decoder.SampleBuffer;
+import com.someone.valvoicebackend.config.ConfigManager;
+import com.someone.valvoicebackend.config.ValVoiceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+
+/**
+ * LineAudioSink - Long-lived playback engine on one Java Sound SourceDataLine.
+ *
+ * Opening a line costs tens of milliseconds and a burst of silence, so the line is opened
+ * once (16-bit PCM in the device's format, LINE_BUFFER_MILLIS of buffer) and stays open and
+ * started between utterances; back-to-back narrations are written to it with no reopen gap.
+ * Each utterance goes decode → process → line, block by block on reused buffers:
+ * - decode  : audio/mpeg via JLayer Bitstream / Decoder (one MP3 frame per block),
+ *             audio/L16; rate=R; channels=C as sent (big-endian)
+ * - process : PcmProcessor - channels and rate to the line's format, playbackVolume, limiter
+ * so the line never changes format and the OS mixer never converts mid-stream.
+ *
+ * Listener callbacks follow the line's positions rather than the decoder: playbackStarted()
+ * right before the first PCM is written, playbackFinished() once the line's frame position
+ * has reached the last frame written, i.e. when the audio has actually been played.
+ *
+ * stop() flushes the line (discarding what is buffered) and play() returns after the block
+ * being written - within one MP3 frame.
+ *
+ * Thread-safety: play() from one thread at a time (VoiceGenerator's tts-speaker), stop() from any.
+ */
+public final class LineAudioSink implements AudioSink, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LineAudioSink.class);
+
+    /** Stream format when the content type does not say (XTTS output) */
+    static final AudioFormat DEFAULT_FORMAT = new AudioFormat(24_000f, 16, 1, true, false);
+    static final int LINE_BUFFER_MILLIS = 100;
+    private static final int L16_BLOCK_BYTES = 4_096;
+    /** Extra wait for the device to play out the written frames before giving up on it */
+    private static final long PLAYOUT_SLACK_MILLIS = 500;
+
+    /** Creates the (not yet opened) line for a format; AudioSystem in production. */
+    @FunctionalInterface
+    interface LineProvider {
+        SourceDataLine get(AudioFormat format) throws LineUnavailableException;
+    }
+
+    private final LineProvider provider;
+    private final AudioFormat outputFormat;
+    private final PcmProcessor processor;
+    // Open line and the frames written to it since it was opened (play() thread; stop() reads line)
+    private volatile SourceDataLine line = null;
+    private long framesWritten = 0;
+    private long opens = 0;
+    private byte[] bytes = new byte[0];
+    private volatile boolean stopRequested = false;
+
+    /** System audio device in ValVoiceConfig's output format, volume and limiter setting. */
+    public LineAudioSink() {
+        this(AudioSystem::getSourceDataLine, configuredFormat(), LineAudioSink::configuredVolume, configuredLimiter());
+    }
+
+    /**
+     * @param outputFormat Line format: 16-bit signed little-endian, any rate / channel count
+     * @param volume       Gain (0..1) read once per block
+     */
+    LineAudioSink(LineProvider provider, AudioFormat outputFormat, DoubleSupplier volume, boolean limiter) {
+        this.provider = provider;
+        this.outputFormat = outputFormat;
+        this.processor = new PcmProcessor((int) outputFormat.getSampleRate(), outputFormat.getChannels(),
+            volume, limiter);
+    }
+
+    private static AudioFormat configuredFormat() {
+        ValVoiceConfig config = ConfigManager.get();
+        int rate = config != null && config.audioOutputSampleRate > 0 ? config.audioOutputSampleRate : 48_000;
+        int channels = config != null && config.audioOutputChannels > 0 ? config.audioOutputChannels : 2;
+        return new AudioFormat(rate, 16, channels, true, false);
+    }
+
+    private static double configuredVolume() {
+        ValVoiceConfig config = ConfigManager.get();
+        return config != null ? config.playbackVolume : 1.0;
+    }
+
+    private static boolean configuredLimiter() {
+        ValVoiceConfig config = ConfigManager.get();
+        return config == null || config.playbackLimiter;
+    }
+
+    @Override
+    public void play(InputStream audio, String contentType, Listener listener) throws IOException {
+        stopRequested = false;
+        processor.reset();
+        PcmDecoder decoder = isMpeg(contentType) ? new Mp3Decoder(audio) : l16Decoder(audio, contentType);
+        try {
+            boolean started = false;
+            int n;
+            while ((n = decoder.decode()) >= 0) {
+                if (stopRequested) {
+                    cutOff();
+                    return;
+                }
+                if (n == 0) {
+                    continue;
+                }
+                int count = processor.process(decoder.buffer(), n, decoder.sampleRate(), decoder.channels());
+                if (count == 0) {
+                    continue;
+                }
+                SourceDataLine out = openLine();
+                if (!started) {
+                    started = true;
+                    listener.playbackStarted();
+                }
+                write(out, processor.output(), count);
+            }
+            if (!started) {
+                return;
+            }
+            if (!awaitPlayed()) {
+                cutOff();
+                return;
+            }
+            listener.playbackFinished();
+        } finally {
+            decoder.close();
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopRequested = true;
+        SourceDataLine out = line;
+        if (out != null) {
+            // Unblocks a write() waiting for buffer space and drops what was not played yet
+            out.flush();
+        }
+    }
+
+    /** Close the line (application exit). The next play() opens a new one. */
+    @Override
+    public synchronized void close() {
+        SourceDataLine out = line;
+        line = null;
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    /** @return Times a line was opened (1 unless close() was called) */
+    public long getOpens() {
+        return opens;
+    }
+
+    /** The open line, opened in outputFormat on first use. */
+    private synchronized SourceDataLine openLine() throws IOException {
+        SourceDataLine out = line;
+        if (out != null) {
+            return out;
+        }
+        try {
+            SourceDataLine opened = provider.get(outputFormat);
+            opened.open(outputFormat, bufferBytes(outputFormat));
+            opened.start();
+            framesWritten = 0;
+            opens++;
+            line = opened;
+            logger.info("[LineAudioSink] Opened output line {} ({} ms buffer)", outputFormat, LINE_BUFFER_MILLIS);
+            return opened;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("Audio output line unavailable for " + outputFormat, e);
+        }
+    }
+
+    private static int bufferBytes(AudioFormat format) {
+        int frames = (int) (format.getSampleRate() * LINE_BUFFER_MILLIS / 1000);
+        return frames * format.getFrameSize();
+    }
+
+    /** Write {@code count} interleaved samples as little-endian 16-bit PCM. Blocks while the line buffer is full. */
+    private void write(SourceDataLine out, short[] samples, int count) {
+        int length = count * 2;
+        if (bytes.length < length) {
+            bytes = new byte[length];
+        }
+        for (int i = 0, j = 0; i < count; i++, j += 2) {
+            short s = samples[i];
+            bytes[j] = (byte) s;
+            bytes[j + 1] = (byte) (s >> 8);
+        }
+        int written = out.write(bytes, 0, length);
+        framesWritten += written / (2L * outputFormat.getChannels());
+    }
+
+    /**
+     * Wait until the line has played every frame written so far.
+     *
+     * @return false if stop() was called meanwhile
+     */
+    private boolean awaitPlayed() {
+        SourceDataLine out = line;
+        if (out == null) {
+            return true;
+        }
+        float rate = out.getFormat().getSampleRate();
+        long remaining = framesWritten - out.getLongFramePosition();
+        long deadline = System.nanoTime() + (long) (remaining * 1e9 / rate)
+            + TimeUnit.MILLISECONDS.toNanos(PLAYOUT_SLACK_MILLIS);
+        while (out.getLongFramePosition() < framesWritten) {
+            if (stopRequested) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                logger.debug("[LineAudioSink] Line position stuck at {} of {} frames",
+                    out.getLongFramePosition(), framesWritten);
+                break;
+            }
+            LockSupport.parkNanos(Math.min(deadline - now, TimeUnit.MILLISECONDS.toNanos(5)));
+        }
+        return true;
+    }
+
+    /** Stopped: drop whatever is still buffered and count the frames written from where playback is. */
+    private void cutOff() {
+        SourceDataLine out = line;
+        if (out != null) {
+            out.flush();
+            framesWritten = out.getLongFramePosition();
+        }
+    }
+
+    static boolean isMpeg(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("audio/mpeg") || type.startsWith("audio/mp3");
+    }
+
+    private static PcmDecoder l16Decoder(InputStream audio, String contentType) throws IOException {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (!type.startsWith("audio/l16")) {
+            throw new IOException("Unsupported audio format: " + contentType);
+        }
+        int rate = (int) DEFAULT_FORMAT.getSampleRate();
+        int channels = DEFAULT_FORMAT.getChannels();
+        for (String part : type.split(";")) {
+            String p = part.trim();
+            try {
+                if (p.startsWith("rate=")) {
+                    rate = Integer.parseInt(p.substring(5).trim());
+                } else if (p.startsWith("channels=")) {
+                    channels = Integer.parseInt(p.substring(9).trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad audio parameters: " + contentType, e);
+            }
+        }
+        return new L16Decoder(audio, rate, channels);
+    }
+
+    /** One utterance decoded to 16-bit interleaved PCM, block by block, into a reused buffer. */
+    private interface PcmDecoder {
+        /** @return Samples decoded into buffer() (0 = none this block), -1 at the end of the stream */
+        int decode() throws IOException;
+
+        short[] buffer();
+
+        int sampleRate();
+
+        int channels();
+
+        void close();
+    }
+
+    /** MP3 through JLayer, one frame per block; the Decoder reuses its SampleBuffer. */
+    private static final class Mp3Decoder implements PcmDecoder {
+        private final Bitstream bitstream;
+        private final Decoder decoder = new Decoder();
+        private short[] buffer = new short[0];
+        private int sampleRate = (int) DEFAULT_FORMAT.getSampleRate();
+        private int channels = DEFAULT_FORMAT.getChannels();
+
+        Mp3Decoder(InputStream audio) {
+            this.bitstream = new Bitstream(audio);
+        }
+
+        @Override
+        public int decode() throws IOException {
+            try {
+                Header header = bitstream.readFrame();
+                if (header == null) {
+                    return -1;
+                }
+                try {
+                    SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                    buffer = output.getBuffer();
+                    sampleRate = output.getSampleFrequency();
+                    channels = output.getChannelCount();
+                    return output.getBufferLength();
+                } finally {
+                    bitstream.closeFrame();
+                }
+            } catch (JavaLayerException | RuntimeException e) {
+                throw new IOException("MP3 decoding failed", e);
+            }
+        }
+
+        @Override
+        public short[] buffer() {
+            return buffer;
+        }
+
+        @Override
+        public int sampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public int channels() {
+            return channels;
+        }
+
+        @Override
+        public void close() {
+            try {
+                bitstream.close();
+            } catch (JavaLayerException e) {
+                logger.debug("[LineAudioSink] Closing MP3 bitstream failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Raw big-endian 16-bit PCM; a sample split across reads is carried over. */
+    private static final class L16Decoder implements PcmDecoder {
+        private final InputStream audio;
+        private final int sampleRate;
+        private final int channels;
+        private final byte[] raw = new byte[L16_BLOCK_BYTES];
+        private final short[] buffer = new short[L16_BLOCK_BYTES / 2];
+        private int carried = 0;
+
+        L16Decoder(InputStream audio, int sampleRate, int channels) {
+            this.audio = audio;
+            this.sampleRate = sampleRate;
+            this.channels = Math.max(1, channels);
+        }
+
+        @Override
+        public int decode() throws IOException {
+            int n = audio.read(raw, carried, raw.length - carried);
+            if (n < 0) {
+                return -1;
+            }
+            int available = carried + n;
+            // Whole frames only, so every block starts on channel 0
+            int frameBytes = 2 * channels;
+            int usable = available - available % frameBytes;
+            for (int i = 0, j = 0; j < usable; i++, j += 2) {
+                buffer[i] = (short) ((raw[j] << 8) | (raw[j + 1] & 0xFF));
+            }
+            carried = available - usable;
+            System.arraycopy(raw, usable, raw, 0, carried);
+            return usable / 2;
+        }
+
+        @Override
+        public short[] buffer() {
+            return buffer;
+        }
+
+        @Override
+        public int sampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public int channels() {
+            return channels;
+        }
+
+        @Override
+        public void close() {
+            // The caller owns the stream
+        }
+    }
+}
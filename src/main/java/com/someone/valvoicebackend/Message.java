@@ -3,9 +3,6 @@ package com.someone.valvoicebackend;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Represents a single Valorant XMPP chat message parsed from the raw XML stanza.
  * <p>
@@ -13,14 +10,16 @@ import java.util.regex.Pattern;
  * <p>
  * Responsibilities:
  *  - Extract attributes (from / jid, type)
- *  - Extract and HTML-unescape the body text
+ *  - Carry the entity-decoded body text
  *  - Classify the chat channel (PARTY / TEAM / ALL / WHISPER)
  *  - Determine if the message was authored by the local player (isOwnMessage)
  *
+ * Built from the single XmppStreamParser pass (ParsedMessage) - the XML is not
+ * re-scanned with regexes and the body is not unescaped a second time.
+ *
  * PHASE 1 SECURITY HARDENING (VN-Parity):
  * - Input length validation
- * - Defensive try/catch for all regex operations
- * - HTML unescaping happens exactly once (via HtmlEscape.unescapeHtml)
+ * - Entity decoding happens exactly once (in the StAX reader)
  * - Malformed input results in null/safe-default values, never crashes
  */
 public class Message {
@@ -32,19 +31,6 @@ public class Message {
     /** Max length for raw XML input (must match XmppStreamParser) */
     private static final int MAX_XML_LENGTH = 32 * 1024;
 
-    /** Max length for extracted body content */
-    private static final int MAX_BODY_LENGTH = 8 * 1024;
-
-    // Precompiled patterns - support BOTH single and double quotes (Riot uses both)
-    private static final Pattern TYPE_PATTERN = Pattern.compile("type=['\"]([^'\"]*)['\"]", Pattern.CASE_INSENSITIVE);
-    private static final Pattern BODY_PATTERN = Pattern.compile("<body>(.*?)</body>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern JID_PATTERN = Pattern.compile("jid=['\"]([^'\"]*)['\"]", Pattern.CASE_INSENSITIVE);
-    private static final Pattern FROM_PATTERN = Pattern.compile("from=['\"]([^'\"]*)['\"]", Pattern.CASE_INSENSITIVE);
-
-    // Carbon copy detection patterns (for extracting inner message 'to' attribute)
-    private static final Pattern INNER_MESSAGE_PATTERN = Pattern.compile("<forwarded[^>]*>\\s*<message([^>]*)>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern TO_PATTERN = Pattern.compile("to=['\"]([^'\"]*)['\"]", Pattern.CASE_INSENSITIVE);
-
     private final String content;     // The (unescaped) message content
     private final String id;          // Full JID (user@server/resource) or fallback '@'
     private final String userId;      // Portion before '@' of the JID
@@ -53,33 +39,47 @@ public class Message {
     private final String fromJid;     // Raw 'from' attribute - AUTHORITATIVE sender identity (ValorantNarrator reference)
 
     private PlayerAccount sender;     // The player account associated with this message
+    private long correlationId;       // PipelineEvents id of the stanza this came from (0 = unknown)
+    private long receivedNanos;       // System.nanoTime() the carrying MITM line arrived (0 = unknown)
 
     /**
      * Parse XMPP message stanza into Message object.
-     * MATCHES ValorantNarrator's Message constructor exactly.
+     * MATCHES ValorantNarrator's Message constructor semantics.
+     *
+     * Convenience entry point: parses with XmppStreamParser.parseMessage() and
+     * delegates to fromParsed(ParsedMessage). The chat path already holds a
+     * ParsedMessage and should use that factory directly.
      *
      * PHASE 1 SECURITY HARDENING:
      * - Input length validation (drops oversized payloads)
-     * - Defensive try/catch for regex operations (malformed = safe defaults)
-     * - HTML unescaping happens exactly ONCE via HtmlEscape.unescapeHtml()
+     * - Malformed XML results in safe defaults, never crashes
+     */
+    public Message(String xml) {
+        this(parseForConstructor(xml));
+    }
+
+    /**
+     * Build a Message from the single StAX pass (no regex re-scan, no second unescape).
      *
      * CARBON COPY HANDLING:
      * When you send a message, Valorant echoes it back as a carbon copy with:
      *   - Outer message: from = your JID
      *   - Inner message (inside <forwarded>): to = actual destination (party/team room)
      * For carbon copies, we use the inner 'to' attribute for classification.
+     *
+     * @param parsed Result of XmppStreamParser.parseMessage(), or null for safe defaults
+     * @return Message built from the parsed fields, never null
      */
-    public Message(String xml) {
-        // === PHASE 1 SECURITY: Null check ===
-        if (xml == null) {
-            throw new IllegalArgumentException("xml cannot be null");
-        }
+    public static Message fromParsed(ParsedMessage parsed) {
+        return new Message(parsed);
+    }
 
-        // === PHASE 1 SECURITY: Input length cap ===
-        if (xml.length() > MAX_XML_LENGTH) {
-            logger.warn("[SECURITY] Message XML exceeds max length: {} > {}, using truncated parse",
-                       xml.length(), MAX_XML_LENGTH);
-            // Use safe defaults for oversized input
+    /**
+     * Private so that new Message(null) keeps resolving to the String constructor.
+     */
+    private Message(ParsedMessage parsed) {
+        if (parsed == null) {
+            // Oversized or malformed input: safe defaults
             this.content = null;
             this.id = "@";
             this.userId = "";
@@ -89,82 +89,26 @@ public class Message {
             return;
         }
 
-        // === DEFENSIVE PARSING: Wrap all regex operations in try/catch ===
-        String extractedId = "@";
-        String extractedTypeAttr = null;
-        String extractedFromAttr = null;
-        String extractedBody = null;
-        String extractedFromJid = null;
-
-        try {
-            Matcher typeMatcher = TYPE_PATTERN.matcher(xml);
-            Matcher bodyMatcher = BODY_PATTERN.matcher(xml);
-            Matcher jidMatcher = JID_PATTERN.matcher(xml);
-            Matcher fromMatcher = FROM_PATTERN.matcher(xml);
-
-            // Extract ID: prefer jid attribute, fallback to from attribute
-            // ValorantNarrator: id = jidMatcher.find() ? jidMatcher.group(1) : fromMatcher.find() ? fromMatcher.group(1) : "@";
-            extractedId = jidMatcher.find() ? jidMatcher.group(1) : (fromMatcher.find() ? fromMatcher.group(1) : "@");
-
-            // Extract 'type' attribute value (e.g., chat, groupchat)
-            extractedTypeAttr = typeMatcher.find() ? typeMatcher.group(1) : null;
-
-            // Re-match from for message classification (ValorantNarrator resets and re-matches)
-            fromMatcher = FROM_PATTERN.matcher(xml);
-            extractedFromAttr = fromMatcher.find() ? fromMatcher.group(1) : null;
-
-            // Carbon copy handling: Valorant sends carbon copies for messages YOU send.
-            // The outer 'from' is your JID, but the inner <message to="..."> has the actual destination.
-            // If that destination is a MUC room (ares-parties, ares-pregame, ares-coregame),
-            // we override 'from' with 'to' so getMessageType() classifies correctly.
-            if (xml.contains("urn:xmpp:carbons:2")) {
-                Matcher innerMsgMatcher = INNER_MESSAGE_PATTERN.matcher(xml);
-                if (innerMsgMatcher.find()) {
-                    String innerMsgAttrs = innerMsgMatcher.group(1);
-                    Matcher toMatcher = TO_PATTERN.matcher(innerMsgAttrs);
-                    if (toMatcher.find()) {
-                        String innerTo = toMatcher.group(1);
-                        // Only override if 'to' points to a MUC room
-                        if (innerTo.contains("ares-parties") ||
-                            innerTo.contains("ares-pregame") ||
-                            innerTo.contains("ares-coregame")) {
-                            logger.debug("🔄 Carbon copy detected - overriding 'from' with inner 'to': '{}'", innerTo);
-                            extractedFromAttr = innerTo;
-                        }
-                    }
-                }
-            }
-
-            // STORE RAW 'from' ATTRIBUTE - This is AUTHORITATIVE for sender identity (ValorantNarrator reference)
-            // For carbon copies, fromAttr may have been overridden with inner 'to' for classification,
-            // but we need the ORIGINAL 'from' for sender identity. Re-extract it.
-            Matcher originalFromMatcher = FROM_PATTERN.matcher(xml);
-            extractedFromJid = originalFromMatcher.find() ? originalFromMatcher.group(1) : null;
-
-            // Extract body content
-            if (bodyMatcher.find()) {
-                String rawBody = bodyMatcher.group(1);
-                // === PHASE 1 SECURITY: Body length cap ===
-                if (rawBody != null && rawBody.length() > MAX_BODY_LENGTH) {
-                    logger.warn("[SECURITY] Message body exceeds max length: {} > {}, truncating",
-                               rawBody.length(), MAX_BODY_LENGTH);
-                    rawBody = rawBody.substring(0, MAX_BODY_LENGTH);
-                }
-                // === HTML UNESCAPING: Happens exactly ONCE here ===
-                // HtmlEscape.unescapeHtml() handles &amp; &lt; &gt; &quot; &#39; and numeric entities
-                // This is the ONLY place unescaping occurs - no double-unescape risk
-                extractedBody = HtmlEscape.unescapeHtml(rawBody);
-            }
-
-        } catch (Exception e) {
-            // === PHASE 1 SECURITY: Fail-safe on malformed input ===
-            logger.warn("[SECURITY] Regex parsing failed (malformed XML?): {}", e.getMessage());
-            // Continue with safe defaults - do not crash
+        // Extract ID: prefer jid attribute, fallback to from attribute
+        // ValorantNarrator: id = jidMatcher.find() ? jidMatcher.group(1) : fromMatcher.find() ? fromMatcher.group(1) : "@";
+        String extractedId = parsed.getJid() != null ? parsed.getJid()
+            : (parsed.getFrom() != null ? parsed.getFrom() : "@");
+
+        // STORE RAW 'from' ATTRIBUTE - This is AUTHORITATIVE for sender identity (ValorantNarrator reference)
+        String extractedFromAttr = parsed.getFrom();
+        this.fromJid = extractedFromAttr;
+
+        // Carbon copy handling: if the forwarded destination is a MUC room
+        // (ares-parties, ares-pregame, ares-coregame), classify by it instead of 'from'.
+        String innerTo = parsed.getCarbonTo();
+        if (innerTo != null && (innerTo.contains("ares-parties") ||
+                                innerTo.contains("ares-pregame") ||
+                                innerTo.contains("ares-coregame"))) {
+            logger.debug("🔄 Carbon copy detected - overriding 'from' with inner 'to': '{}'", innerTo);
+            extractedFromAttr = innerTo;
         }
 
-        // Assign parsed values
-        id = extractedId != null ? extractedId : "@";
-        this.fromJid = extractedFromJid;
+        id = extractedId;
 
         // Classify message type using from attribute - DOMAIN FIRST, TYPE SECOND (ValorantNarrator way)
         // Safety: if fromAttr is null, we cannot classify the message
@@ -172,24 +116,40 @@ public class Message {
             logger.warn("⚠️ Message has no 'from' attribute - cannot classify");
             messageType = null;
         } else {
-            messageType = getMessageType(extractedFromAttr, extractedTypeAttr);
+            messageType = getMessageType(extractedFromAttr, parsed.getType());
         }
 
-        // Store content (already HTML-unescaped above)
-        content = extractedBody;
+        // Body was entity-decoded exactly once by the StAX reader
+        content = parsed.getBody();
 
         // Extract userId (portion before '@')
-        userId = id.split("@")[0];
+        int at = id.indexOf('@');
+        userId = at >= 0 ? id.substring(0, at) : id;
 
         // Determine if this is our own message (legacy - ChatDataHandler uses extractPuuid now)
         String selfId = ChatDataHandler.getInstance().getSelfId();
         ownMessage = selfId != null && selfId.equalsIgnoreCase(userId);
 
+        if (logger.isDebugEnabled()) {
+            logger.debug("📝 Parsed Message: type={} userId={} own={} from='{}' body='{}'",
+                messageType, userId, ownMessage, this.fromJid,
+                content != null ? (content.length() > 50 ? content.substring(0, 47) + "..." : content) : "(null)");
+        }
+    }
 
-        // Log parsed message for debugging
-        logger.info("📝 Parsed Message: type={} userId={} own={} from='{}' body='{}'",
-            messageType, userId, ownMessage, this.fromJid,
-            content != null ? (content.length() > 50 ? content.substring(0, 47) + "..." : content) : "(null)");
+    private static ParsedMessage parseForConstructor(String xml) {
+        // === PHASE 1 SECURITY: Null check ===
+        if (xml == null) {
+            throw new IllegalArgumentException("xml cannot be null");
+        }
+
+        // === PHASE 1 SECURITY: Input length cap ===
+        if (xml.length() > MAX_XML_LENGTH) {
+            logger.warn("[SECURITY] Message XML exceeds max length: {} > {}, using safe defaults",
+                       xml.length(), MAX_XML_LENGTH);
+            return null;
+        }
+        return XmppStreamParser.parseMessage(xml);
     }
 
     /**
@@ -203,6 +163,8 @@ public class Message {
         this.content = newContent;
         this.sender = original.sender;
         this.fromJid = original.fromJid;
+        this.correlationId = original.correlationId;
+        this.receivedNanos = original.receivedNanos;
     }
 
     /**
@@ -297,6 +259,38 @@ public class Message {
         return this.sender;
     }
 
+    /**
+     * Sets the PipelineEvents correlation id (JFR events of this message share it)
+     * @param correlationId The id assigned when the stanza was classified
+     */
+    public void setCorrelationId(long correlationId) {
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * Gets the PipelineEvents correlation id
+     * @return The id, or 0 if the message did not come through the stanza pipeline
+     */
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * Sets when the MITM line carrying this message arrived (ingest latency metrics)
+     * @param receivedNanos System.nanoTime() at arrival
+     */
+    public void setReceivedNanos(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * Gets when the MITM line carrying this message arrived
+     * @return System.nanoTime() at arrival, or 0 if unknown
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
     /**
      * Gets the display name for this message
      * @return The display name from the player account if available, otherwise the userId
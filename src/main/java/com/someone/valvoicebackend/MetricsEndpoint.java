@@ -0,0 +1,114 @@
+package com.someone.valvoicebackend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MetricsEndpoint - Loopback-only HTTP endpoint serving PipelineMetrics in Prometheus text format.
+ *
+ *   GET http://127.0.0.1:{port}/metrics
+ *
+ * PHASE 1 SECURITY:
+ * - Bound to the loopback address only; never reachable from the network
+ * - Read-only: GET/HEAD on /metrics, everything else is 404/405
+ * - Serves counters and latencies only - no message content, names or PUUIDs
+ *
+ * Fail-safe: if the port is taken the endpoint stays off (logged), the app keeps running.
+ *
+ * Thread-safety: start()/stop() are synchronized; requests are served on one daemon thread.
+ */
+public final class MetricsEndpoint {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+
+    private static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PipelineMetrics metrics;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsEndpoint(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Bind to 127.0.0.1:port and start serving.
+     *
+     * @param port TCP port (0 = any free port)
+     * @return true if the endpoint is running
+     */
+    public synchronized boolean start(int port) {
+        if (server != null) {
+            return true;
+        }
+        try {
+            HttpServer created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            created.createContext(PATH, this::handle);
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "metrics-http");
+                t.setDaemon(true);
+                return t;
+            });
+            created.setExecutor(executor);
+            created.start();
+            server = created;
+            logger.info("[METRICS] Serving Prometheus metrics on http://127.0.0.1:{}{}", getPort(), PATH);
+            return true;
+        } catch (IOException e) {
+            logger.warn("[METRICS] Could not bind 127.0.0.1:{} - metrics endpoint disabled: {}", port, e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+        logger.debug("[METRICS] Endpoint stopped");
+    }
+
+    /** @return Bound port, or -1 when not running */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, head ? -1 : body.length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.debug("[METRICS] Scrape failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.someone.valvoicebackend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * MitmCaptureReader - Plays a MitmCaptureWriter capture back as the MITM's stdout.
+ *
+ * The reader yields the recorded JSON lines (newline-terminated), so a plain
+ * MitmEventDecoder on top of it drives the exact production decode/dispatch path.
+ * Each line is released on the capture's own schedule divided by the speed factor:
+ * - speed 1.0: real time (login bursts arrive exactly as recorded)
+ * - speed N:   N× faster
+ * - speed 0:   as fast as the consumer reads (throughput runs)
+ *
+ * While replaying it tracks:
+ * - captureClockMillis(): the recorded wall clock of the line being consumed
+ *   (ValVoiceBackend judges message stamps against it instead of this machine's clock)
+ * - getLag(): how late each line was handed out vs. its schedule (consumer falling behind)
+ *
+ * Thread-safety: read() from one thread; the getters are safe from any thread.
+ */
+public final class MitmCaptureReader extends Reader {
+
+    private final BufferedReader in;
+    private final Path file;
+    private final double speed;
+    private final long captureStartMillis;
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private long replayStartNanos = 0;
+    private long captureMicros = 0;
+    private volatile long clockMillis;
+    private volatile long lines = 0;
+
+    private String current = null;
+    private int currentPos = 0;
+
+    /**
+     * @param file  Capture written by MitmCaptureWriter (.gz is decompressed)
+     * @param speed Replay speed factor (1 = real time, N = N× faster, 0 = no pacing)
+     * @throws IOException if the file is unreadable or not a capture
+     */
+    public MitmCaptureReader(Path file, double speed) throws IOException {
+        this.file = file;
+        this.speed = speed;
+        InputStream stream = Files.newInputStream(file);
+        if (MitmCaptureWriter.isGzip(file)) {
+            stream = new GZIPInputStream(stream, 64 * 1024);
+        }
+        this.in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 64 * 1024);
+        String header = in.readLine();
+        if (header == null || !header.startsWith(MitmCaptureWriter.HEADER_PREFIX)) {
+            in.close();
+            throw new IOException("Not a ValVoice MITM capture: " + file);
+        }
+        try {
+            this.captureStartMillis = Long.parseLong(header.substring(MitmCaptureWriter.HEADER_PREFIX.length()).trim());
+        } catch (NumberFormatException e) {
+            in.close();
+            throw new IOException("Bad capture header in " + file + ": " + header);
+        }
+        this.clockMillis = captureStartMillis;
+    }
+
+    /** @return Epoch millis the capture was started */
+    public long getCaptureStartMillis() {
+        return captureStartMillis;
+    }
+
+    /** @return Recorded wall clock of the most recently released line */
+    public long captureClockMillis() {
+        return clockMillis;
+    }
+
+    /** @return Recorded time covered by the lines released so far, in µs */
+    public long getCaptureElapsedMicros() {
+        return captureMicros;
+    }
+
+    /** @return Lines released so far */
+    public long getLines() {
+        return lines;
+    }
+
+    /** @return Release lateness per line (meaningless with speed 0) */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    @Override
+    public int read(char[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (current == null || currentPos >= current.length()) {
+            if (!nextLine()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, current.length() - currentPos);
+        current.getChars(currentPos, currentPos + n, buf, off);
+        currentPos += n;
+        return n;
+    }
+
+    private boolean nextLine() throws IOException {
+        String raw;
+        do {
+            raw = in.readLine();
+            if (raw == null) {
+                return false;
+            }
+        } while (raw.isEmpty() || raw.charAt(0) == '#');
+
+        int space = raw.indexOf(' ');
+        if (space <= 0) {
+            throw new IOException("Malformed capture line " + (lines + 1) + " in " + file);
+        }
+        long delta;
+        try {
+            delta = Long.parseLong(raw, 0, space, 10);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed capture line " + (lines + 1) + " in " + file);
+        }
+        captureMicros += Math.max(0, delta);
+
+        long now = System.nanoTime();
+        if (replayStartNanos == 0) {
+            replayStartNanos = now;
+        }
+        if (speed > 0) {
+            long due = replayStartNanos + (long) (TimeUnit.MICROSECONDS.toNanos(captureMicros) / speed);
+            while (now < due) {
+                LockSupport.parkNanos(due - now);
+                now = System.nanoTime();
+            }
+            lag.recordNanos(now - due);
+        }
+
+        clockMillis = captureStartMillis + TimeUnit.MICROSECONDS.toMillis(captureMicros);
+        lines++;
+        current = raw.substring(space + 1) + '\n';
+        currentPos = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MitmCaptureWriter - Records the MITM proxy's JSON event stream to a capture file
+ * for MitmCaptureReader / MitmReplay.
+ *
+ * Format (UTF-8 text, gzip-compressed when the file name ends in .gz):
+ *   #valvoice-mitm-capture v1 start={epochMillis}
+ *   {micros since previous line} {JSON event line exactly as printed by the MITM}
+ *   ...
+ *
+ * Only well-formed JSON event lines are recorded (incoming / outgoing / open-* /
+ * close-* / error ...); bridge log lines and presence noise are not.
+ *
+ * PHASE 1 SECURITY: A capture holds chat text and the RSO-PAS login token from
+ * "outgoing" auth. It is written only when ValVoiceConfig.mitmCaptureFile is set,
+ * stops at MAX_CAPTURE_CHARS, and must never be shared.
+ *
+ * Fail-safe: the first I/O error closes the capture (logged); MITM handling continues.
+ *
+ * Thread-safety: NOT thread-safe. Installed as the LineTap of the single mitm-io decoder.
+ */
+public final class MitmCaptureWriter implements MitmEventDecoder.LineTap, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MitmCaptureWriter.class);
+
+    static final String HEADER_PREFIX = "#valvoice-mitm-capture v1 start=";
+
+    /** Stop recording after this many chars (a long session with presence floods stays well below) */
+    private static final long MAX_CAPTURE_CHARS = 512L * 1024 * 1024;
+    /** Flush at most this often, so a crash loses at most ~1s of capture */
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path file;
+    private Writer out;
+    private long lastLineNanos;
+    private long lastFlushNanos;
+    private long charsWritten;
+    private long linesWritten;
+
+    private MitmCaptureWriter(Path file, Writer out) {
+        this.file = file;
+        this.out = out;
+        this.lastLineNanos = System.nanoTime();
+        this.lastFlushNanos = lastLineNanos;
+    }
+
+    /**
+     * Create (or truncate) a capture file and write its header.
+     *
+     * @throws IOException if the file cannot be created
+     */
+    public static MitmCaptureWriter open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        OutputStream stream = Files.newOutputStream(file);
+        if (isGzip(file)) {
+            // syncFlush: flush() pushes everything written so far through the deflater
+            stream = new GZIPOutputStream(stream, 64 * 1024, true);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(HEADER_PREFIX + System.currentTimeMillis() + "\n");
+        logger.warn("[CAPTURE] Recording MITM events to {} - contains chat text and login tokens, do not share", file);
+        return new MitmCaptureWriter(file, writer);
+    }
+
+    static boolean isGzip(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    @Override
+    public void onJsonLine(char[] buf, int offset, int length) {
+        Writer w = out;
+        if (w == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        try {
+            w.write(Long.toString(TimeUnit.NANOSECONDS.toMicros(now - lastLineNanos)));
+            w.write(' ');
+            w.write(buf, offset, length);
+            w.write('\n');
+            lastLineNanos = now;
+            linesWritten++;
+            charsWritten += length + 12;
+            if (charsWritten > MAX_CAPTURE_CHARS) {
+                logger.warn("[CAPTURE] {} reached {} chars - recording stopped", file, MAX_CAPTURE_CHARS);
+                close();
+            } else if (now - lastFlushNanos > FLUSH_INTERVAL_NANOS) {
+                w.flush();
+                lastFlushNanos = now;
+            }
+        } catch (IOException e) {
+            logger.warn("[CAPTURE] Write to {} failed - recording stopped: {}", file, e.getMessage());
+            close();
+        }
+    }
+
+    /** @return JSON event lines recorded so far */
+    public long getLinesWritten() {
+        return linesWritten;
+    }
+
+    @Override
+    public void close() {
+        Writer w = out;
+        if (w == null) {
+            return;
+        }
+        out = null;
+        try {
+            w.close();
+        } catch (IOException e) {
+            logger.debug("[CAPTURE] Close failed: {}", e.getMessage());
+        }
+        logger.info("[CAPTURE] Closed {} ({} events)", file, linesWritten);
+    }
+}
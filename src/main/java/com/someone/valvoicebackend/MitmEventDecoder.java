@@ -0,0 +1,433 @@
+package com.someone.valvoicebackend;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MitmEventDecoder - Streaming decoder for the MITM proxy's stdout.
+ *
+ * XmppMITM.ts prints one JSON object per line, mixed with plain-text log lines
+ * (stderr is merged into stdout). Building a Gson tree for every line is wasted
+ * work: the hot events ("incoming"/"outgoing") only need type, socketID and data.
+ *
+ * Behaviour:
+ * - Lines are assembled in a reused char[] (no String per line)
+ * - Non-JSON lines are rejected on their first char; presence noise is detected
+ *   in place and never turned into a String unless the handler asks for it
+ * - "incoming"/"outgoing": a shallow scan locates the three fields, and only the
+ *   "data" value is unescaped - into a reused StringBuilder handed out as CharSequence
+ * - Every other (rare) control event falls back to a Gson JsonObject
+ *
+ * PHASE 1 SECURITY: Lines longer than MAX_LINE_CHARS are skipped up to the next
+ * newline instead of growing the buffer without bound.
+ *
+ * Thread-safety: NOT thread-safe. Owned by the single mitm-io reader thread.
+ */
+public final class MitmEventDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(MitmEventDecoder.class);
+
+    /** Max chars per stdout line (large roster chunks stay well below this) */
+    static final int MAX_LINE_CHARS = 1024 * 1024;
+
+    public static final String TYPE_INCOMING = "incoming";
+    public static final String TYPE_OUTGOING = "outgoing";
+
+    /**
+     * Receives decoded events. CharSequence arguments are views into reused
+     * buffers and are only valid until the callback returns.
+     */
+    public interface Handler {
+        /** Hot path: "incoming"/"outgoing" payload. socketID is 0 when absent. */
+        void onData(String type, int socketID, CharSequence data);
+
+        /** Any other JSON event, decoded as a full tree. */
+        void onEvent(String type, JsonObject obj);
+
+        /** Non-JSON (or malformed JSON) output line. */
+        void onRawLine(CharSequence line, boolean presence);
+    }
+
+    /**
+     * Sees every well-formed JSON event line before it is dispatched (MitmCaptureWriter).
+     * buf is the reused line buffer - copy or write it out before returning.
+     */
+    @FunctionalInterface
+    public interface LineTap {
+        void onJsonLine(char[] buf, int offset, int length);
+    }
+
+    private final Reader reader;
+    private final char[] readBuf = new char[8192];
+    private int readPos = 0;
+    private int readLen = 0;
+
+    private char[] line = new char[8192];
+    private int lineLen = 0;
+    private boolean skippingOversized = false;
+
+    private final StringBuilder dataBuf = new StringBuilder(8192);
+    private LineTap lineTap;
+
+    // Shallow-scan results for the current line (offsets into line[])
+    private int typeStart, typeEnd;
+    private int dataStart, dataEnd;
+    private boolean dataEscaped;
+    private int socketID;
+
+    private long linesDecoded = 0;
+    private long treeFallbacks = 0;
+
+    public MitmEventDecoder(InputStream in) {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /** Decode from an existing Reader (tests, MitmCaptureReader replay). */
+    public MitmEventDecoder(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Install a tap that sees each JSON event line (null removes it).
+     * Must be set before the first next() - the decoder is single-threaded.
+     */
+    public void setLineTap(LineTap tap) {
+        this.lineTap = tap;
+    }
+
+    /**
+     * Read and dispatch the next line.
+     *
+     * @return false at end of stream
+     */
+    public boolean next(Handler handler) throws IOException {
+        if (!readLine()) {
+            return false;
+        }
+        dispatch(handler);
+        return true;
+    }
+
+    /** @return Lines decoded so far */
+    public long getLinesDecoded() {
+        return linesDecoded;
+    }
+
+    /** @return Lines that needed a full Gson tree */
+    public long getTreeFallbacks() {
+        return treeFallbacks;
+    }
+
+    // ========== Line assembly ==========
+
+    private boolean readLine() throws IOException {
+        lineLen = 0;
+        while (true) {
+            if (readPos >= readLen) {
+                readLen = reader.read(readBuf, 0, readBuf.length);
+                readPos = 0;
+                if (readLen <= 0) {
+                    readLen = 0;
+                    // Flush a final unterminated line
+                    boolean hasLine = lineLen > 0 && !skippingOversized;
+                    skippingOversized = false;
+                    return hasLine;
+                }
+            }
+
+            int start = readPos;
+            while (readPos < readLen && readBuf[readPos] != '\n') {
+                readPos++;
+            }
+            appendToLine(start, readPos);
+
+            if (readPos < readLen) {
+                readPos++; // consume '\n'
+                if (skippingOversized) {
+                    skippingOversized = false;
+                    lineLen = 0;
+                    continue;
+                }
+                return true;
+            }
+        }
+    }
+
+    private void appendToLine(int from, int to) {
+        int n = to - from;
+        if (n <= 0 || skippingOversized) {
+            return;
+        }
+        if (lineLen + n > MAX_LINE_CHARS) {
+            logger.warn("[SECURITY] Skipping oversized MITM line (> {} chars)", MAX_LINE_CHARS);
+            skippingOversized = true;
+            lineLen = 0;
+            return;
+        }
+        if (lineLen + n > line.length) {
+            char[] grown = new char[Math.min(MAX_LINE_CHARS, Math.max(line.length * 2, lineLen + n))];
+            System.arraycopy(line, 0, grown, 0, lineLen);
+            line = grown;
+        }
+        System.arraycopy(readBuf, from, line, lineLen, n);
+        lineLen += n;
+    }
+
+    // ========== Dispatch ==========
+
+    private void dispatch(Handler handler) {
+        int start = 0;
+        int end = lineLen;
+        while (start < end && line[start] <= ' ') start++;
+        while (end > start && line[end - 1] <= ' ') end--;
+        if (start == end) {
+            return;
+        }
+        linesDecoded++;
+
+        if (line[start] != '{' || !scanObject(start, end)) {
+            handler.onRawLine(CharBuffer.wrap(line, start, end - start), containsPresence(start, end));
+            return;
+        }
+
+        if (lineTap != null) {
+            lineTap.onJsonLine(line, start, end - start);
+        }
+
+        String type = internType();
+        if (type != null && dataStart >= 0) {
+            dataBuf.setLength(0);
+            if (dataEscaped) {
+                if (!unescape(dataStart, dataEnd, dataBuf)) {
+                    handler.onRawLine(CharBuffer.wrap(line, start, end - start), false);
+                    return;
+                }
+            } else {
+                dataBuf.append(line, dataStart, dataEnd - dataStart);
+            }
+            handler.onData(type, socketID, dataBuf);
+            return;
+        }
+
+        // Rare control events: build the tree
+        treeFallbacks++;
+        try {
+            JsonElement parsed = JsonParser.parseString(new String(line, start, end - start));
+            JsonObject obj = parsed.getAsJsonObject();
+            String t = obj.has("type") && !obj.get("type").isJsonNull() ? obj.get("type").getAsString() : "";
+            handler.onEvent(t, obj);
+        } catch (Exception e) {
+            handler.onRawLine(CharBuffer.wrap(line, start, end - start), containsPresence(start, end));
+        }
+    }
+
+    /** Map the scanned type value onto a constant, or null when it is not a data event. */
+    private String internType() {
+        if (typeStart < 0) return null;
+        if (regionEquals(typeStart, typeEnd, TYPE_INCOMING)) return TYPE_INCOMING;
+        if (regionEquals(typeStart, typeEnd, TYPE_OUTGOING)) return TYPE_OUTGOING;
+        return null;
+    }
+
+    // ========== Shallow JSON scan ==========
+
+    /**
+     * Walk the top-level members of the object in line[start, end), recording
+     * the raw extents of "type" and "data" and the integer "socketID".
+     * Nested values are skipped without decoding.
+     *
+     * @return false if the line is not a well-formed single object
+     */
+    private boolean scanObject(int start, int end) {
+        typeStart = typeEnd = dataStart = dataEnd = -1;
+        dataEscaped = false;
+        socketID = 0;
+
+        int i = skipWs(start + 1, end);
+        if (i < end && line[i] == '}') {
+            return skipWs(i + 1, end) == end;
+        }
+        while (i < end) {
+            if (line[i] != '"') return false;
+            int keyStart = i + 1;
+            int keyEnd = skipString(i, end);
+            if (keyEnd < 0) return false;
+            i = skipWs(keyEnd + 1, end);
+            if (i >= end || line[i] != ':') return false;
+            i = skipWs(i + 1, end);
+            if (i >= end) return false;
+
+            int valueEnd;
+            if (line[i] == '"') {
+                valueEnd = skipString(i, end);
+                if (valueEnd < 0) return false;
+                if (regionEquals(keyStart, keyEnd, "type")) {
+                    typeStart = i + 1;
+                    typeEnd = valueEnd;
+                } else if (regionEquals(keyStart, keyEnd, "data")) {
+                    dataStart = i + 1;
+                    dataEnd = valueEnd;
+                    dataEscaped = indexOf('\\', dataStart, dataEnd) >= 0;
+                }
+                valueEnd++;
+            } else if (line[i] == '{' || line[i] == '[') {
+                valueEnd = skipNested(i, end);
+                if (valueEnd < 0) return false;
+            } else {
+                valueEnd = i;
+                while (valueEnd < end && line[valueEnd] != ',' && line[valueEnd] != '}'
+                        && line[valueEnd] > ' ') {
+                    valueEnd++;
+                }
+                if (regionEquals(keyStart, keyEnd, "socketID")) {
+                    socketID = parseInt(i, valueEnd);
+                }
+            }
+
+            i = skipWs(valueEnd, end);
+            if (i >= end) return false;
+            if (line[i] == ',') {
+                i = skipWs(i + 1, end);
+            } else if (line[i] == '}') {
+                return skipWs(i + 1, end) == end;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** @return index of the closing quote of the string opening at i, or -1 */
+    private int skipString(int i, int end) {
+        for (int j = i + 1; j < end; j++) {
+            char c = line[j];
+            if (c == '\\') {
+                j++;
+            } else if (c == '"') {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /** @return index one past the bracket that closes the object/array opening at i, or -1 */
+    private int skipNested(int i, int end) {
+        int depth = 0;
+        for (int j = i; j < end; j++) {
+            char c = line[j];
+            if (c == '"') {
+                j = skipString(j, end);
+                if (j < 0) return -1;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) return j + 1;
+            }
+        }
+        return -1;
+    }
+
+    private int skipWs(int i, int end) {
+        while (i < end && line[i] <= ' ') i++;
+        return i;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private int parseInt(int from, int to) {
+        int value = 0;
+        boolean negative = false;
+        int i = from;
+        if (i < to && line[i] == '-') {
+            negative = true;
+            i++;
+        }
+        for (; i < to; i++) {
+            char c = line[i];
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean regionEquals(int from, int to, String literal) {
+        int n = to - from;
+        if (n != literal.length()) return false;
+        for (int i = 0; i < n; i++) {
+            if (line[from + i] != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Case-insensitive in-place search for "presence" (no lowercased copy). */
+    private boolean containsPresence(int from, int to) {
+        final String needle = "presence";
+        int last = to - needle.length();
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int k = 0; k < needle.length(); k++) {
+                if (Character.toLowerCase(line[i + k]) != needle.charAt(k)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Decode JSON string escapes from line[from, to) into out.
+     *
+     * @return false on a malformed escape
+     */
+    private boolean unescape(int from, int to, StringBuilder out) {
+        int i = from;
+        while (i < to) {
+            int slash = indexOf('\\', i, to);
+            if (slash < 0) {
+                out.append(line, i, to - i);
+                return true;
+            }
+            out.append(line, i, slash - i);
+            if (slash + 1 >= to) return false;
+            char e = line[slash + 1];
+            switch (e) {
+                case '"', '\\', '/' -> out.append(e);
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                case 't' -> out.append('\t');
+                case 'u' -> {
+                    if (slash + 6 > to) return false;
+                    int cp = 0;
+                    for (int k = slash + 2; k < slash + 6; k++) {
+                        int d = Character.digit(line[k], 16);
+                        if (d < 0) return false;
+                        cp = (cp << 4) | d;
+                    }
+                    out.append((char) cp);
+                    i = slash + 6;
+                    continue;
+                }
+                default -> {
+                    return false;
+                }
+            }
+            i = slash + 2;
+        }
+        return true;
+    }
+}
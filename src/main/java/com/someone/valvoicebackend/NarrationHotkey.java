@@ -0,0 +1,196 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * NarrationHotkey - Global skip / flush key for narration (ValVoiceConfig.skipNarrationKey).
+ *
+ * Valorant has focus while the key is needed, so a JavaFX key handler never sees it. Java has
+ * no global keyboard hook of its own; like the SAPI voice this runs a small PowerShell helper
+ * that polls user32 GetAsyncKeyState every 30 ms and prints one line per key press:
+ *   key          → VoiceGenerator.cancelCurrent()  (skip the narration playing, release PTT)
+ *   Shift + key  → VoiceGenerator.flush()          (also drop everything queued)
+ * Polling only reads the key state - the key still reaches the game. A repeat of the same
+ * event within DEBOUNCE_MILLIS (key bounce, an impatient double tap) is ignored, so one press
+ * never skips two narrations; Shift + key right after a skip still flushes.
+ *
+ * Windows only; start() is a no-op elsewhere or when the key is "" / unknown.
+ */
+public final class NarrationHotkey implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NarrationHotkey.class);
+
+    private static final int POLL_MILLIS = 30;
+    static final long DEBOUNCE_MILLIS = 250;
+    private static final String SKIP = "SKIP";
+    private static final String FLUSH = "FLUSH";
+    /** Windows virtual-key codes of the named (non letter / digit / F-key) keys */
+    private static final Map<String, Integer> NAMED_KEYS = Map.ofEntries(
+        Map.entry("PAUSE", 0x13),
+        Map.entry("SCROLL_LOCK", 0x91),
+        Map.entry("INSERT", 0x2D),
+        Map.entry("DELETE", 0x2E),
+        Map.entry("HOME", 0x24),
+        Map.entry("END", 0x23),
+        Map.entry("PAGE_UP", 0x21),
+        Map.entry("PAGE_DOWN", 0x22));
+
+    private final String keyName;
+    private final Runnable skip;
+    private final Runnable flush;
+    private final LongSupplier nanoClock;
+    // Last event acted on and when (nanoClock); reader thread only
+    private String lastEvent = null;
+    private long lastEventNanos = 0;
+    private volatile Process process;
+
+    public NarrationHotkey(String keyName, VoiceGenerator voiceGenerator) {
+        this(keyName, voiceGenerator::cancelCurrent, voiceGenerator::flush, System::nanoTime);
+    }
+
+    /** Test constructor: skip / flush actions and the debounce clock. */
+    NarrationHotkey(String keyName, Runnable skip, Runnable flush, LongSupplier nanoClock) {
+        this.keyName = keyName;
+        this.skip = skip;
+        this.flush = flush;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Map a key name to its Windows virtual-key code: "A".."Z", "0".."9", "F1".."F24",
+     * "NUMPAD0".."NUMPAD9", the NAMED_KEYS (case-insensitive) or a raw code "0x01".."0xFE"
+     * for keys without a name here (mouse side buttons, media keys).
+     *
+     * @return the virtual-key code, or -1 if the name is blank or unknown
+     */
+    static int virtualKey(String name) {
+        if (name == null || name.isBlank()) {
+            return -1;
+        }
+        String upper = name.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+        if (upper.length() == 1) {
+            char c = upper.charAt(0);
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                return c;
+            }
+            return -1;
+        }
+        try {
+            if (upper.matches("0X[0-9A-F]{1,2}")) {
+                int vk = Integer.parseInt(upper.substring(2), 16);
+                return vk >= 0x01 && vk <= 0xFE ? vk : -1;
+            }
+            if (upper.matches("F\\d{1,2}")) {
+                int n = Integer.parseInt(upper.substring(1));
+                return n >= 1 && n <= 24 ? 0x70 + n - 1 : -1;
+            }
+            if (upper.matches("NUMPAD\\d")) {
+                return 0x60 + Integer.parseInt(upper.substring(6));
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return NAMED_KEYS.getOrDefault(upper, -1);
+    }
+
+    /** Start watching the key. Failures are logged; narration works without the hotkey. */
+    public synchronized void start() {
+        if (process != null) {
+            return;
+        }
+        int vk = virtualKey(keyName);
+        if (vk < 0) {
+            if (keyName != null && !keyName.isBlank()) {
+                logger.warn("[NarrationHotkey] Unknown key '{}' - skip hotkey disabled", keyName);
+            }
+            return;
+        }
+        if (!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win")) {
+            logger.debug("[NarrationHotkey] Not on Windows - skip hotkey disabled");
+            return;
+        }
+        try {
+            ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-NoProfile", "-Command", "-");
+            pb.redirectErrorStream(true);
+            Process started = pb.start();
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(started.getOutputStream()), true);
+            // One line: -Command - runs each stdin line as it arrives
+            writer.println(
+                "Add-Type -Namespace ValVoice -Name Keys -MemberDefinition " +
+                "'[DllImport(\"user32.dll\")] public static extern short GetAsyncKeyState(int vKey);'; " +
+                "$down = $false; " +
+                "while ($true) { " +
+                "$now = ([ValVoice.Keys]::GetAsyncKeyState(" + vk + ") -band 0x8000) -ne 0; " +
+                "if ($now -and -not $down) { " +
+                "if (([ValVoice.Keys]::GetAsyncKeyState(0x10) -band 0x8000) -ne 0) { [Console]::Out.WriteLine('" + FLUSH + "') } " +
+                "else { [Console]::Out.WriteLine('" + SKIP + "') }; [Console]::Out.Flush() }; " +
+                "$down = $now; Start-Sleep -Milliseconds " + POLL_MILLIS + " }");
+            process = started;
+            Thread reader = new Thread(() -> readEvents(started), "narration-hotkey");
+            reader.setDaemon(true);
+            reader.start();
+            logger.info("[NarrationHotkey] Skip narration: {} (Shift+{} flushes the queue)", keyName, keyName);
+        } catch (IOException e) {
+            logger.warn("[NarrationHotkey] Could not start the key watcher: {}", e.getMessage());
+        }
+    }
+
+    private void readEvents(Process watcher) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(watcher.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                dispatch(line.trim());
+            }
+        } catch (IOException e) {
+            logger.debug("[NarrationHotkey] Key watcher stream closed: {}", e.getMessage());
+        }
+        if (process == watcher) {
+            logger.warn("[NarrationHotkey] Key watcher exited - skip hotkey disabled");
+        }
+    }
+
+    /** Act on one line of watcher output (anything else, e.g. PowerShell errors, is logged). */
+    void dispatch(String event) {
+        if (!SKIP.equals(event) && !FLUSH.equals(event)) {
+            if (!event.isEmpty()) {
+                logger.debug("[NarrationHotkey] {}", event);
+            }
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (event.equals(lastEvent) && now - lastEventNanos < TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS)) {
+            logger.debug("[NarrationHotkey] {} ignored (debounce)", event);
+            return;
+        }
+        lastEvent = event;
+        lastEventNanos = now;
+        try {
+            if (SKIP.equals(event)) {
+                skip.run();
+            } else {
+                flush.run();
+            }
+        } catch (Exception e) {
+            logger.warn("[NarrationHotkey] Cancel failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        Process watcher = process;
+        process = null;
+        if (watcher != null && watcher.isAlive()) {
+            watcher.destroy();
+        }
+    }
+}
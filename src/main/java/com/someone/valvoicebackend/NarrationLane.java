@@ -0,0 +1,47 @@
+package com.someone.valvoicebackend;
+
+/**
+ * NarrationLane - Priority of a narration in the NarrationQueue, from its chat channel
+ * and the game state at arrival.
+ *
+ *   TEAM while INGAME          → URGENT  (in-round callout: the round will not wait)
+ *   ALL / WHISPER              → LOW
+ *   everything else            → NORMAL  (PARTY, TEAM in agent select, UI samples)
+ *
+ * OCR lines carry the sidecar's "TEAM" / "ALL" / "PARTY" channel, which are the Chat.TYPE_*
+ * strings, so they share the lanes of the XMPP messages they were read from.
+ *
+ * Declared highest first: the tts-speaker always takes from the highest non-empty lane,
+ * and (with narrationPreemption) an arrival that outranks the playing narration cuts it off.
+ */
+public enum NarrationLane {
+    URGENT,
+    NORMAL,
+    LOW;
+
+    private static final NarrationLane[] LANES = values();
+
+    /**
+     * @param channel Chat.TYPE_* (null / unknown = NORMAL)
+     * @param state   Game state when the message arrived
+     */
+    public static NarrationLane of(String channel, GameStateManager.GameState state) {
+        if (Chat.TYPE_TEAM.equals(channel)) {
+            return state == GameStateManager.GameState.INGAME ? URGENT : NORMAL;
+        }
+        if (Chat.TYPE_ALL.equals(channel) || Chat.TYPE_WHISPER.equals(channel)) {
+            return LOW;
+        }
+        return NORMAL;
+    }
+
+    /** @return true if this lane is served before {@code other} */
+    public boolean outranks(NarrationLane other) {
+        return ordinal() < other.ordinal();
+    }
+
+    /** @return All lanes, highest priority first (shared array, do not modify) */
+    static NarrationLane[] lanes() {
+        return LANES;
+    }
+}
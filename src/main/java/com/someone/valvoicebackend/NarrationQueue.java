@@ -0,0 +1,281 @@
+package com.someone.valvoicebackend;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * NarrationQueue - Bounded priority queue between narration submit and the tts-speaker thread.
+ *
+ * A narration that is read out tens of seconds late is worse than one that is not read
+ * at all (the round has moved on), so instead of an unbounded executor queue:
+ * - lanes:     one FIFO per NarrationLane; take() serves the highest non-empty lane, so an
+ *              in-round TEAM callout overtakes PARTY chatter queued in the menus
+ * - capacity:  at most N narrations wait across all lanes; when full, the oldest narration
+ *              of the lowest lane below the arrival goes first, otherwise DropPolicy decides
+ *              (OLDEST: evict the head of the arrival's lane / NEWEST: reject the arrival)
+ * - deadline:  a narration that cannot START within the deadline of its arrival is
+ *              dropped when it reaches the head (and purged on the next offer)
+ * Together they bound the latency from arrival to playback start by the deadline.
+ *
+ * Dropped items are handed to the DropListener (outside the lock) so the owner can
+ * release whatever they hold. wouldAccept() is the backpressure signal for producers;
+ * removeIf() / clear() withdraw queued items on request (skip hotkey, cancel API).
+ *
+ * Thread-safety: Any number of producers, one consumer (take()); getters from any thread.
+ */
+public final class NarrationQueue<E> {
+
+    /** Who is dropped when a narration arrives at a full queue and no lower lane has one to spare. */
+    public enum DropPolicy {
+        /** Evict the narration waiting longest (chat spam: the newest message matters most) */
+        OLDEST,
+        /** Reject the arriving narration (keep what is already queued) */
+        NEWEST
+    }
+
+    /** Why an item was dropped. */
+    public enum DropReason {
+        OVERFLOW,
+        EXPIRED,
+        /** Withdrawn by removeIf() / clear() */
+        CANCELLED
+    }
+
+    /** Receives dropped items; called without the queue lock held, on the offering / taking thread. */
+    @FunctionalInterface
+    public interface DropListener<E> {
+        void dropped(E item, DropReason reason, long waitedNanos);
+    }
+
+    private record Entry<E>(E item, long arrivalNanos) {
+    }
+
+    private record Dropped<E>(E item, DropReason reason, long waitedNanos) {
+    }
+
+    private static final NarrationLane[] LANES = NarrationLane.lanes();
+
+    /** One FIFO per lane, by NarrationLane ordinal; guarded by {@code lock} */
+    private final List<ArrayDeque<Entry<E>>> lanes = new ArrayList<>(LANES.length);
+    private final Object lock = new Object();
+    private int size = 0;
+    private final int capacity;
+    private final long deadlineNanos;
+    private final DropPolicy policy;
+    private final DropListener<E> listener;
+
+    private final LongAdder overflowDrops = new LongAdder();
+    private final LongAdder expiredDrops = new LongAdder();
+    private final LongAdder cancelledDrops = new LongAdder();
+    private final LatencyHistogram wait = new LatencyHistogram();
+    private final LatencyHistogram[] laneWait = new LatencyHistogram[LANES.length];
+
+    /**
+     * @param capacity       Narrations allowed to wait (≥ 1)
+     * @param deadlineMillis Max time from arrival to take() (0 = no deadline)
+     * @param policy         Drop policy when full
+     * @param listener       Receives every dropped item
+     */
+    public NarrationQueue(int capacity, long deadlineMillis, DropPolicy policy, DropListener<E> listener) {
+        this.capacity = Math.max(1, capacity);
+        this.deadlineNanos = deadlineMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : Long.MAX_VALUE;
+        this.policy = policy != null ? policy : DropPolicy.OLDEST;
+        this.listener = listener;
+        for (int i = 0; i < LANES.length; i++) {
+            lanes.add(new ArrayDeque<>());
+            laneWait[i] = new LatencyHistogram();
+        }
+    }
+
+    /** Queue an item in the NORMAL lane. */
+    public boolean offer(E item, long arrivalNanos) {
+        return offer(item, NarrationLane.NORMAL, arrivalNanos);
+    }
+
+    /**
+     * Queue an item.
+     *
+     * @param arrivalNanos System.nanoTime() the narration arrived (the deadline counts from here)
+     * @return false if the item was rejected (queue full); it was handed to the listener
+     */
+    public boolean offer(E item, NarrationLane lane, long arrivalNanos) {
+        List<Dropped<E>> dropped = new ArrayList<>(2);
+        boolean accepted = true;
+        synchronized (lock) {
+            long now = System.nanoTime();
+            // Purge expired entries first, they should not cost anyone a place
+            for (ArrayDeque<Entry<E>> queue : lanes) {
+                queue.removeIf(e -> {
+                    if (now - e.arrivalNanos() > deadlineNanos) {
+                        dropped.add(new Dropped<>(e.item(), DropReason.EXPIRED, now - e.arrivalNanos()));
+                        size--;
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            if (size >= capacity) {
+                ArrayDeque<Entry<E>> victims = victimLane(lane);
+                if (victims == null) {
+                    dropped.add(new Dropped<>(item, DropReason.OVERFLOW, 0));
+                    accepted = false;
+                } else {
+                    Entry<E> oldest = victims.pollFirst();
+                    size--;
+                    dropped.add(new Dropped<>(oldest.item(), DropReason.OVERFLOW, now - oldest.arrivalNanos()));
+                }
+            }
+            if (accepted) {
+                lanes.get(lane.ordinal()).addLast(new Entry<>(item, arrivalNanos));
+                size++;
+                lock.notifyAll();
+            }
+        }
+        fire(dropped);
+        return accepted;
+    }
+
+    /** Lane to evict from for an arrival in {@code lane} at a full queue, or null to reject the arrival. Holds lock. */
+    private ArrayDeque<Entry<E>> victimLane(NarrationLane lane) {
+        for (int i = LANES.length - 1; i > lane.ordinal(); i--) {
+            if (!lanes.get(i).isEmpty()) {
+                return lanes.get(i);
+            }
+        }
+        ArrayDeque<Entry<E>> own = lanes.get(lane.ordinal());
+        return policy == DropPolicy.OLDEST && !own.isEmpty() ? own : null;
+    }
+
+    /**
+     * Wait for the next item of the highest non-empty lane whose deadline has not passed;
+     * expired items are dropped on the way.
+     */
+    public E take() throws InterruptedException {
+        while (true) {
+            Entry<E> entry = null;
+            int lane = 0;
+            synchronized (lock) {
+                while (size == 0) {
+                    lock.wait();
+                }
+                for (; lane < LANES.length; lane++) {
+                    entry = lanes.get(lane).pollFirst();
+                    if (entry != null) {
+                        break;
+                    }
+                }
+                size--;
+            }
+            long waited = System.nanoTime() - entry.arrivalNanos();
+            if (waited > deadlineNanos) {
+                fire(List.of(new Dropped<>(entry.item(), DropReason.EXPIRED, waited)));
+                continue;
+            }
+            wait.recordNanos(waited);
+            laneWait[lane].recordNanos(waited);
+            return entry.item();
+        }
+    }
+
+    /**
+     * Withdraw every queued item matching the filter; each is handed to the listener as CANCELLED.
+     *
+     * @return Number of items removed
+     */
+    public int removeIf(Predicate<? super E> filter) {
+        List<Dropped<E>> dropped = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.nanoTime();
+            for (ArrayDeque<Entry<E>> queue : lanes) {
+                queue.removeIf(e -> {
+                    if (filter.test(e.item())) {
+                        dropped.add(new Dropped<>(e.item(), DropReason.CANCELLED, now - e.arrivalNanos()));
+                        size--;
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+        fire(dropped);
+        return dropped.size();
+    }
+
+    /** Withdraw everything queued (CANCELLED). @return Number of items removed */
+    public int clear() {
+        return removeIf(item -> true);
+    }
+
+    /** @return false if an offer in {@code lane} would currently be rejected */
+    public boolean wouldAccept(NarrationLane lane) {
+        synchronized (lock) {
+            return size < capacity || victimLane(lane) != null;
+        }
+    }
+
+    /** @return true if the next offer would drop something */
+    public boolean isFull() {
+        synchronized (lock) {
+            return size >= capacity;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    public int size(NarrationLane lane) {
+        synchronized (lock) {
+            return lanes.get(lane.ordinal()).size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public DropPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getOverflowDrops() {
+        return overflowDrops.sum();
+    }
+
+    public long getExpiredDrops() {
+        return expiredDrops.sum();
+    }
+
+    public long getCancelledDrops() {
+        return cancelledDrops.sum();
+    }
+
+    /** @return Arrival → take() for the items that were taken */
+    public LatencyHistogram getWait() {
+        return wait;
+    }
+
+    /** @return Arrival → take() for the items of one lane */
+    public LatencyHistogram getWait(NarrationLane lane) {
+        return laneWait[lane.ordinal()];
+    }
+
+    private void fire(List<Dropped<E>> dropped) {
+        for (Dropped<E> d : dropped) {
+            switch (d.reason()) {
+                case OVERFLOW -> overflowDrops.increment();
+                case EXPIRED -> expiredDrops.increment();
+                case CANCELLED -> cancelledDrops.increment();
+            }
+            if (listener != null) {
+                listener.dropped(d.item(), d.reason(), d.waitedNanos());
+            }
+        }
+    }
+}
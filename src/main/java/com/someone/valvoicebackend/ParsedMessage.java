@@ -7,6 +7,9 @@ package com.someone.valvoicebackend;
  * This DTO carries extracted fields from XmppStreamParser to business logic,
  * eliminating the need for regex-based extraction in ValVoiceBackend.
  *
+ * It is the single parse result for the chat path: Message is built directly
+ * from it (see Message.fromParsed(ParsedMessage)), so the XML is scanned exactly once.
+ *
  * ValorantNarrator Reference: Clean separation between parsing and business logic.
  */
 public class ParsedMessage {
@@ -17,7 +20,8 @@ public class ParsedMessage {
     private final String stamp;     // 'stamp' attribute - timestamp for historical detection
     private final String body;      // <body> element content
     private final String jid;       // 'jid' attribute (if present)
-    private final String rawXml;    // Original XML for Message constructor
+    private final String carbonTo;  // Carbon copy: inner <forwarded><message to=...> destination
+    private final String rawXml;    // Original XML (diagnostics only)
 
     private ParsedMessage(Builder builder) {
         this.from = builder.from;
@@ -27,6 +31,7 @@ public class ParsedMessage {
         this.stamp = builder.stamp;
         this.body = builder.body;
         this.jid = builder.jid;
+        this.carbonTo = builder.carbonTo;
         this.rawXml = builder.rawXml;
     }
 
@@ -38,6 +43,7 @@ public class ParsedMessage {
     public String getStamp() { return stamp; }
     public String getBody() { return body; }
     public String getJid() { return jid; }
+    public String getCarbonTo() { return carbonTo; }
     public String getRawXml() { return rawXml; }
 
     // Convenience methods
@@ -75,6 +81,7 @@ public class ParsedMessage {
         private String stamp;
         private String body;
         private String jid;
+        private String carbonTo;
         private String rawXml;
 
         public Builder from(String from) { this.from = from; return this; }
@@ -84,6 +91,7 @@ public class ParsedMessage {
         public Builder stamp(String stamp) { this.stamp = stamp; return this; }
         public Builder body(String body) { this.body = body; return this; }
         public Builder jid(String jid) { this.jid = jid; return this; }
+        public Builder carbonTo(String carbonTo) { this.carbonTo = carbonTo; return this; }
         public Builder rawXml(String rawXml) { this.rawXml = rawXml; return this; }
 
         public ParsedMessage build() {
@@ -0,0 +1,168 @@
+package com.someone.valvoicebackend;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * PcmProcessor - Converts decoded PCM blocks to the output line's format for LineAudioSink.
+ *
+ * Each block of 16-bit interleaved samples goes through:
+ * 1. channels : to the output channel count (mono duplicated, down-mix to mono averaged)
+ * 2. rate     : linear interpolation to the output rate; the fractional read position and the
+ *               last input frame carry over to the next block, so block boundaries are seamless
+ * 3. gain     : volume read once per block - a change applies from the next block on
+ * 4. limiter  : optional peak limiter (instant attack, RELEASE_MILLIS release) instead of clipping
+ *
+ * All work happens on primitive buffers kept across blocks and utterances; they only grow,
+ * so once the largest block has been seen nothing is allocated per block.
+ *
+ * Thread-safety: one thread at a time (LineAudioSink.play()).
+ */
+final class PcmProcessor {
+
+    /** Highest output magnitude the limiter lets through */
+    static final double LIMIT = 0.98 * Short.MAX_VALUE;
+    static final double RELEASE_MILLIS = 50;
+
+    private final int outputRate;
+    private final int outputChannels;
+    private final DoubleSupplier volume;
+    private final boolean limiter;
+    private final double releasePerSample;
+
+    // Input format of the current utterance (0 = not seen yet)
+    private int inputRate = 0;
+    private int inputChannels = 0;
+    private double step = 1.0;
+    // Input frames converted to the output channel count; frame 0 is the last frame of the previous block
+    private float[] frames = new float[0];
+    private short[] output = new short[0];
+    // Read position in frames[] (in frames) for the next output frame
+    private double position = 1.0;
+    private double limiterGain = 1.0;
+
+    /**
+     * @param volume  Gain in 0..1, read once per block (values outside are clamped, NaN = 1)
+     * @param limiter Apply the peak limiter
+     */
+    PcmProcessor(int outputRate, int outputChannels, DoubleSupplier volume, boolean limiter) {
+        if (outputRate <= 0 || outputChannels <= 0) {
+            throw new IllegalArgumentException("Bad output format: " + outputRate + " Hz x" + outputChannels);
+        }
+        this.outputRate = outputRate;
+        this.outputChannels = outputChannels;
+        this.volume = volume;
+        this.limiter = limiter;
+        this.releasePerSample = 1.0 / (outputRate * outputChannels * RELEASE_MILLIS / 1000);
+    }
+
+    /** Start of a new utterance: drop the resampler carry-over and limiter state. */
+    void reset() {
+        inputRate = 0;
+        inputChannels = 0;
+        limiterGain = 1.0;
+    }
+
+    /**
+     * Convert one block.
+     *
+     * @param samples  Interleaved input samples (whole frames)
+     * @param count    Samples used in {@code samples}
+     * @param rate     Input sample rate
+     * @param channels Input channel count
+     * @return Interleaved output samples now in output()
+     */
+    int process(short[] samples, int count, int rate, int channels) {
+        if (rate != inputRate || channels != inputChannels) {
+            inputRate = rate;
+            inputChannels = channels;
+            step = (double) rate / outputRate;
+            position = 1.0;
+        }
+        int n = count / channels;
+        int m = outputChannels;
+        int needed = (n + 1) * m;
+        if (frames.length < needed) {
+            float[] grown = new float[needed];
+            System.arraycopy(frames, 0, grown, 0, Math.min(frames.length, m));
+            frames = grown;
+        }
+        convertChannels(samples, n, channels);
+
+        double gain = volume.getAsDouble();
+        gain = Double.isNaN(gain) ? 1.0 : Math.max(0.0, Math.min(1.0, gain));
+
+        int produced = 0;
+        if (rate == outputRate) {
+            ensureOutput(n * m);
+            for (int i = m; i < needed; i++) {
+                output[produced++] = emit(frames[i], gain);
+            }
+            return produced;
+        }
+        ensureOutput(((int) Math.ceil(n / step) + 1) * m);
+        while (position < n) {
+            int index = (int) position;
+            float frac = (float) (position - index);
+            int a = index * m;
+            int b = a + m;
+            for (int c = 0; c < m; c++) {
+                float value = frames[a + c] + (frames[b + c] - frames[a + c]) * frac;
+                output[produced++] = emit(value, gain);
+            }
+            position += step;
+        }
+        position -= n;
+        // This block's last frame is the next block's frame 0
+        System.arraycopy(frames, n * m, frames, 0, m);
+        return produced;
+    }
+
+    /** @return Buffer holding the last process() result (reused: valid until the next call) */
+    short[] output() {
+        return output;
+    }
+
+    /** Input frames 0..n-1 → frames[1..n] with outputChannels each. */
+    private void convertChannels(short[] samples, int n, int channels) {
+        int m = outputChannels;
+        for (int f = 0; f < n; f++) {
+            int src = f * channels;
+            int dst = (f + 1) * m;
+            if (channels == m) {
+                for (int c = 0; c < m; c++) {
+                    frames[dst + c] = samples[src + c];
+                }
+            } else if (m == 1) {
+                float sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    sum += samples[src + c];
+                }
+                frames[dst] = sum / channels;
+            } else {
+                // Mono duplicated to every channel; extra input channels dropped
+                for (int c = 0; c < m; c++) {
+                    frames[dst + c] = samples[src + Math.min(c, channels - 1)];
+                }
+            }
+        }
+    }
+
+    private void ensureOutput(int samples) {
+        if (output.length < samples) {
+            output = new short[samples];
+        }
+    }
+
+    private short emit(float value, double gain) {
+        double v = value * gain;
+        if (limiter) {
+            // Gain that keeps this sample at LIMIT: drop to it at once, recover towards it slowly
+            double magnitude = Math.abs(v);
+            double ceiling = magnitude > LIMIT ? LIMIT / magnitude : 1.0;
+            limiterGain = Math.min(ceiling, limiterGain + releasePerSample);
+            v *= limiterGain;
+        }
+        long rounded = Math.round(v);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+    }
+}
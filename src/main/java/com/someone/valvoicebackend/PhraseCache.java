@@ -0,0 +1,405 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * PhraseCache - Synthesized XTTS audio of short, recurring callouts ("rotate B", "one left", "nice").
+ *
+ * Keyed by (agent voice, language, normalized text): trimmed, whitespace collapsed, lower case.
+ * Two tiers:
+ * - Memory: LRU bounded by total audio bytes; filled by VoiceGenerator teeing the XTTS stream
+ *   while it plays. A hit replays the bytes without any request.
+ * - Disk: entries that were hit at least once ("hot") are written to {dir}/{sha256}.phrase
+ *   (temp file + atomic rename; Main.cleanupTempCacheFiles removes stale .tmp files) and read
+ *   back through a memory-mapped FileChannel on a memory miss, surviving restarts.
+ *   Bounded by total file bytes, oldest first out.
+ *
+ * Only phrases up to MAX_PHRASE_CHARS are cached; long chat lines rarely repeat.
+ *
+ * Fail-safe: disk errors are logged at DEBUG and the entry stays memory-only.
+ *
+ * Thread-safety: get()/put() from any thread; disk writes run on one daemon thread.
+ */
+public final class PhraseCache {
+    private static final Logger logger = LoggerFactory.getLogger(PhraseCache.class);
+
+    /** Longest normalized phrase worth caching */
+    public static final int MAX_PHRASE_CHARS = 80;
+    /** Largest single entry (a few seconds of MP3 is ~50 KB) */
+    static final int MAX_ENTRY_BYTES = 2 * 1024 * 1024;
+
+    private static final String SUFFIX = ".phrase";
+    private static final int MAGIC = 0x56565043; // "VVPC"
+    private static final byte VERSION = 1;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Cached audio of one phrase. The array is shared: never modify it. */
+    public record Entry(String contentType, byte[] audio) {
+    }
+
+    private static final class Cached {
+        final Entry entry;
+        int hits = 0;
+        boolean persisted;
+
+        Cached(Entry entry, boolean persisted) {
+            this.entry = entry;
+            this.persisted = persisted;
+        }
+    }
+
+    private final long memoryLimit;
+    private final long diskLimit;
+    private final Path dir;
+    private final ExecutorService diskWriter;
+
+    /** Access-ordered: eldest = least recently used */
+    private final LinkedHashMap<String, Cached> memory = new LinkedHashMap<>(64, 0.75f, true);
+    /** File name → size, in write order (eldest evicted first) */
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>();
+    private long memoryBytes = 0;
+    private long diskBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param memoryLimit Max audio bytes held in memory
+     * @param dir         Disk tier directory, or null for memory only
+     * @param diskLimit   Max bytes of .phrase files in dir
+     */
+    public PhraseCache(long memoryLimit, Path dir, long diskLimit) {
+        this.memoryLimit = memoryLimit;
+        this.diskLimit = diskLimit;
+        this.dir = dir;
+        if (dir != null) {
+            this.diskWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "phrase-cache-io");
+                t.setDaemon(true);
+                return t;
+            });
+            indexDisk();
+        } else {
+            this.diskWriter = null;
+        }
+    }
+
+    /** @return Normalized text used in keys */
+    public static String normalize(String text) {
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /** @return true if the phrase is short enough to cache */
+    public static boolean isCacheable(String text) {
+        return text != null && !text.isBlank() && text.trim().length() <= MAX_PHRASE_CHARS;
+    }
+
+    /** @return Cache key of a phrase */
+    public static String key(String voice, String language, String text) {
+        return voice + '\u0000' + language + '\u0000' + normalize(text);
+    }
+
+    /**
+     * Look a phrase up: memory first, then the memory-mapped disk tier (promoted to memory on hit).
+     *
+     * @return The cached audio, or null on a miss
+     */
+    public Entry get(String key) {
+        synchronized (this) {
+            Cached cached = memory.get(key);
+            if (cached != null) {
+                cached.hits++;
+                hits.increment();
+                if (!cached.persisted && dir != null) {
+                    cached.persisted = true;
+                    persist(key, cached.entry);
+                }
+                return cached.entry;
+            }
+        }
+        Entry fromDisk = dir != null ? readDisk(key) : null;
+        if (fromDisk == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        diskHits.increment();
+        synchronized (this) {
+            insert(key, new Cached(fromDisk, true));
+        }
+        return fromDisk;
+    }
+
+    /**
+     * Store the complete audio of a phrase (first synthesis). Oversized entries are ignored.
+     */
+    public void put(String key, String contentType, byte[] audio) {
+        put(key, contentType, audio, false);
+    }
+
+    /**
+     * Store the complete audio of a phrase.
+     *
+     * @param hot Persist to the disk tier right away (pre-warmed callouts) instead of on the first hit
+     * @return false if the audio was empty or too large to cache
+     */
+    public boolean put(String key, String contentType, byte[] audio, boolean hot) {
+        if (audio == null || audio.length == 0 || audio.length > MAX_ENTRY_BYTES || audio.length > memoryLimit) {
+            return false;
+        }
+        Entry entry = new Entry(contentType, audio);
+        boolean persist = hot && dir != null;
+        synchronized (this) {
+            insert(key, new Cached(entry, persist));
+        }
+        if (persist) {
+            persist(key, entry);
+        }
+        return true;
+    }
+
+    /** @return true if the phrase is in memory or on disk (no hit/miss accounting) */
+    public boolean contains(String key) {
+        synchronized (this) {
+            if (memory.containsKey(key)) {
+                return true;
+            }
+            return dir != null && disk.containsKey(fileName(key));
+        }
+    }
+
+    private void insert(String key, Cached cached) {
+        Cached previous = memory.put(key, cached);
+        if (previous != null) {
+            memoryBytes -= previous.entry.audio().length;
+            cached.persisted |= previous.persisted;
+        }
+        memoryBytes += cached.entry.audio().length;
+        Iterator<Map.Entry<String, Cached>> it = memory.entrySet().iterator();
+        while (memoryBytes > memoryLimit && it.hasNext()) {
+            Map.Entry<String, Cached> eldest = it.next();
+            if (eldest.getValue() == cached) {
+                continue;
+            }
+            memoryBytes -= eldest.getValue().entry.audio().length;
+            it.remove();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // DISK TIER
+    // ═══════════════════════════════════════════════════════════════
+
+    static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private void indexDisk() {
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.createDirectories(dir);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparing(PhraseCache::lastModified));
+            for (Path file : files) {
+                long size = Files.size(file);
+                disk.put(file.getFileName().toString(), size);
+                diskBytes += size;
+            }
+            evictDisk();
+            logger.debug("[PhraseCache] {} phrases ({} KB) on disk in {}", disk.size(), diskBytes / 1024, dir);
+        } catch (IOException e) {
+            logger.debug("[PhraseCache] Disk tier index failed: {}", e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Entry readDisk(String key) {
+        String name = fileName(key);
+        synchronized (this) {
+            if (!disk.containsKey(name)) {
+                return null;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(dir.resolve(name), StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt() != MAGIC || map.get() != VERSION) {
+                return null;
+            }
+            String contentType = readString(map);
+            String storedKey = readString(map);
+            if (!key.equals(storedKey)) {
+                return null; // hash collision
+            }
+            byte[] audio = new byte[map.getInt()];
+            map.get(audio);
+            return new Entry(contentType, audio);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.debug("[PhraseCache] Could not read {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer map) {
+        byte[] bytes = new byte[map.getShort() & 0xFFFF];
+        map.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void persist(String key, Entry entry) {
+        diskWriter.execute(() -> {
+            String name = fileName(key);
+            Path target = dir.resolve(name);
+            Path tmp = dir.resolve(name + ".tmp");
+            try {
+                try (OutputStream file = Files.newOutputStream(tmp);
+                     DataOutputStream out = new DataOutputStream(file)) {
+                    out.writeInt(MAGIC);
+                    out.writeByte(VERSION);
+                    writeString(out, entry.contentType());
+                    writeString(out, key);
+                    out.writeInt(entry.audio().length);
+                    out.write(entry.audio());
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                long size = Files.size(target);
+                synchronized (this) {
+                    Long previous = disk.remove(name);
+                    diskBytes += size - (previous != null ? previous : 0);
+                    disk.put(name, size);
+                }
+                evictDisk();
+            } catch (IOException e) {
+                logger.debug("[PhraseCache] Could not persist {}: {}", name, e.getMessage());
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // Removed by Main.cleanupTempCacheFiles on the next start
+                }
+            }
+        });
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private void evictDisk() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskBytes > diskLimit && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String name : evicted) {
+            try {
+                Files.deleteIfExists(dir.resolve(name));
+            } catch (IOException e) {
+                // Windows keeps recently mapped files locked until the mapping is collected
+                logger.debug("[PhraseCache] Could not evict {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /** Wait for pending disk writes (tests, shutdown). */
+    void flush() throws InterruptedException {
+        if (diskWriter != null) {
+            try {
+                diskWriter.submit(() -> { }).get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // STATS
+    // ═══════════════════════════════════════════════════════════════
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** @return Hits served from the disk tier */
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** @return hits / lookups (0 before the first lookup) */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized int getMemoryEntries() {
+        return memory.size();
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public synchronized int getDiskEntries() {
+        return disk.size();
+    }
+}
@@ -0,0 +1,271 @@
+package com.someone.valvoicebackend;
+
+import com.someone.valvoicebackend.config.ConfigManager;
+import com.someone.valvoicebackend.config.ValVoiceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * PhraseWarmer - Pre-synthesizes the configured callout list (ValVoiceConfig.prewarmPhrases)
+ * into the PhraseCache for the current agent voice, so their first use in a round plays at once.
+ *
+ * Runs on one MIN_PRIORITY daemon thread and only while everything is idle:
+ * - VoiceGenerator has nothing queued or playing
+ * - the game is in MENUS (gameIdle), XTTS is enabled and the engine is ready
+ * Real narration cancels the in-flight warm-up request immediately (VoiceGenerator.speakVoice
+ * calls onNarration()); the phrase is retried at the next idle moment. Changing the voice
+ * (VoiceGenerator.setCurrentVoice) restarts the list for the new voice.
+ *
+ * Warmed phrases are stored hot, i.e. written to the disk tier right away; phrases already
+ * cached (memory or disk) are skipped, so a restart costs no requests.
+ *
+ * Fail-safe: synthesis errors are logged at DEBUG. A phrase whose request failed, or whose audio
+ * the cache would not take (empty, oversized), is given up until the voice, language or phrase
+ * list changes - it is not re-sent to XTTS on every idle pass.
+ *
+ * Thread-safety: onNarration()/rewarm()/stop() may be called from any thread.
+ */
+public final class PhraseWarmer {
+    private static final Logger logger = LoggerFactory.getLogger(PhraseWarmer.class);
+
+    /** How often idle conditions are re-checked */
+    private static final long IDLE_POLL_MILLIS = 1000;
+    /** Back-off after a failed warm-up request */
+    private static final long FAILURE_BACKOFF_MILLIS = 30_000;
+    /** How often a fully warmed list is re-read for config edits */
+    private static final long CONFIG_POLL_MILLIS = 30_000;
+
+    private final VoiceGenerator voiceGenerator;
+    private final SpeechSynthesizer speech;
+    private final PhraseCache cache;
+    private final Supplier<List<String>> phrases;
+    private final BooleanSupplier gameIdle;
+    private final Object lock = new Object();
+    private final AtomicLong warmed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    private Thread worker;
+    private volatile boolean stopped = false;
+    private volatile boolean warming = false;
+    private volatile SpeechSynthesizer.Speech inFlight = null;
+    /** Bumped by rewarm(): a pass for an older generation stops */
+    private final AtomicLong generation = new AtomicLong();
+    /** Cache keys given up for givenUpFor (worker thread only) */
+    private final Set<String> givenUp = new HashSet<>();
+    private WarmSettings givenUpFor = null;
+
+    /** What a pass warms for; a change forgets the given-up phrases */
+    private record WarmSettings(long generation, String voice, String language, List<String> phrases) {
+    }
+
+    /**
+     * @param phrases  Callouts to warm (read on every pass, so config edits apply)
+     * @param gameIdle true while warming may use XTTS (game state MENUS in production)
+     */
+    public PhraseWarmer(VoiceGenerator voiceGenerator, SpeechSynthesizer speech, PhraseCache cache,
+                        Supplier<List<String>> phrases, BooleanSupplier gameIdle) {
+        this.voiceGenerator = voiceGenerator;
+        this.speech = speech;
+        this.cache = cache;
+        this.phrases = phrases;
+        this.gameIdle = gameIdle;
+    }
+
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::run, "phrase-warmer");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        onNarration();
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /** Real narration arrived: abort the warm-up request in flight, if any. */
+    public void onNarration() {
+        if (!warming) {
+            return;
+        }
+        SpeechSynthesizer.Speech current = inFlight;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // Reader sees the failure and gives the phrase up
+            }
+        }
+        Thread w = worker;
+        if (w != null) {
+            w.interrupt();
+        }
+    }
+
+    /** The voice (or phrase list) changed: warm everything again for the new settings. */
+    public void rewarm() {
+        generation.incrementAndGet();
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /** @return Phrases synthesized into the cache so far */
+    public long getWarmed() {
+        return warmed.get();
+    }
+
+    /** @return Warm-ups aborted by real narration */
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    /** @return Phrases given up (failed or not cacheable) for the current settings */
+    public int getGivenUp() {
+        synchronized (givenUp) {
+            return givenUp.size();
+        }
+    }
+
+    private boolean isIdle() {
+        ValVoiceConfig config = ConfigManager.get();
+        return config != null && config.xttsEnabled
+            && voiceGenerator.getPendingNarrations() == 0 && !voiceGenerator.isBusy()
+            && gameIdle.getAsBoolean() && speech.isReady();
+    }
+
+    private void run() {
+        while (!stopped) {
+            try {
+                long pass = generation.get();
+                String voice = voiceGenerator.getCurrentVoice();
+                String language = voiceGenerator.getLanguage();
+                List<String> list = new ArrayList<>(phrases.get());
+                WarmSettings settings = new WarmSettings(pass, voice, language, list);
+                synchronized (givenUp) {
+                    if (!settings.equals(givenUpFor)) {
+                        givenUp.clear();
+                        givenUpFor = settings;
+                    }
+                }
+                List<String> todo = new ArrayList<>();
+                for (String phrase : list) {
+                    if (!PhraseCache.isCacheable(phrase)) {
+                        continue;
+                    }
+                    String key = PhraseCache.key(voice, language, phrase);
+                    if (!isGivenUp(key) && !cache.contains(key)) {
+                        todo.add(phrase);
+                    }
+                }
+                if (todo.isEmpty()) {
+                    synchronized (lock) {
+                        if (pass == generation.get()) {
+                            lock.wait(CONFIG_POLL_MILLIS);
+                        }
+                    }
+                    continue;
+                }
+                logger.debug("[PhraseWarmer] {} phrases to warm for voice {}", todo.size(), voice);
+                for (String phrase : todo) {
+                    while (!isIdle() && pass == generation.get()) {
+                        Thread.sleep(IDLE_POLL_MILLIS);
+                    }
+                    if (pass != generation.get() || stopped) {
+                        break;
+                    }
+                    if (!warm(voice, language, phrase)) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Cancelled by real narration (or stop): re-check from the top
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private boolean isGivenUp(String key) {
+        synchronized (givenUp) {
+            return givenUp.contains(key);
+        }
+    }
+
+    private void giveUp(String key) {
+        synchronized (givenUp) {
+            givenUp.add(key);
+        }
+    }
+
+    /**
+     * Synthesize one phrase into the cache.
+     *
+     * @return false if the pass should restart (cancelled or failed)
+     */
+    private boolean warm(String voice, String language, String phrase) throws InterruptedException {
+        String key = PhraseCache.key(voice, language, phrase);
+        warming = true;
+        try (SpeechSynthesizer.Speech result = speech.synthesize(voice, phrase, language)) {
+            inFlight = result;
+            ByteArrayOutputStream audio = new ByteArrayOutputStream(32 * 1024);
+            InputStream in = result.audio();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk, 0, chunk.length)) >= 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                audio.write(chunk, 0, n);
+                if (audio.size() > PhraseCache.MAX_ENTRY_BYTES) {
+                    break; // not a callout; the cache rejects it below
+                }
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!cache.put(key, result.contentType(), audio.toByteArray(), true)) {
+                giveUp(key);
+                logger.debug("[PhraseWarmer] '{}' not cacheable ({} bytes) - skipped", phrase, audio.size());
+                return true;
+            }
+            warmed.incrementAndGet();
+            logger.debug("[PhraseWarmer] Warmed '{}' ({} bytes)", phrase, audio.size());
+            return true;
+        } catch (InterruptedException e) {
+            cancelled.incrementAndGet();
+            logger.debug("[PhraseWarmer] Warm-up of '{}' cancelled by narration", phrase);
+            return false;
+        } catch (IOException e) {
+            if (!stopped && Thread.interrupted()) {
+                // Stream closed by onNarration()
+                cancelled.incrementAndGet();
+                logger.debug("[PhraseWarmer] Warm-up of '{}' cancelled by narration", phrase);
+                return false;
+            }
+            logger.debug("[PhraseWarmer] Warm-up of '{}' failed: {}", phrase, e.getMessage());
+            giveUp(key);
+            Thread.sleep(FAILURE_BACKOFF_MILLIS);
+            return false;
+        } finally {
+            inFlight = null;
+            warming = false;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.someone.valvoicebackend;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PipelineEvents - JDK Flight Recorder events from "chat stanza arrived" to "PTT pressed".
+ *
+ * Every stage of one narration carries the same correlationId, so a recording
+ * can be grouped by it to see where the latency a user feels is spent:
+ *
+ *   LineReceived (lineId)          mitm-io: MITM line with incoming XMPP data
+ *   StanzaClassified (lineId → id) mitm-io: StanzaClassifier route of one framed stanza
+ *   MessageParsed                  mitm-io: StAX parse (duration)
+ *   FilterVerdict                  gates in ValVoiceBackend and ChatDataHandler (duration = filter time)
+ *   TtsQueued                      submit → tts-speaker picks it up (duration = queue wait)
+ *   XttsRequestSent                tts-speaker: HTTP request to the XTTS server
+ *   XttsFirstByte                  first audio byte read (duration = time to first byte)
+ *   PlaybackStarted                AudioSink playbackStarted / SAPI fallback start
+ *   PttPressed / PttReleased       Robot key press / release (release duration = key held)
+ *
+ * The OCR path starts at FilterVerdict with its own correlation id.
+ *
+ * Events cost nothing beyond a flag check when no recording is running. To record:
+ *   java -XX:StartFlightRecording=filename=valvoice.jfr,settings=profile ...
+ *   jfr print --categories ValVoice valvoice.jfr
+ *
+ * Thread-safety: Event objects are thread-confined until committed; helpers are stateless.
+ */
+public final class PipelineEvents {
+
+    private static final String CATEGORY = "ValVoice";
+    private static final String SUBCATEGORY = "Chat Pipeline";
+
+    private static final AtomicLong ids = new AtomicLong();
+
+    private PipelineEvents() {
+    }
+
+    /** @return A new correlation / line id (never 0; 0 means "unknown") */
+    public static long nextId() {
+        return ids.incrementAndGet();
+    }
+
+    // ========== Event types ==========
+
+    @Name("com.someone.valvoice.LineReceived")
+    @Label("Line Received")
+    @Description("MITM line carrying incoming XMPP data read on mitm-io")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    static final class LineReceived extends Event {
+        @Label("Line Id")
+        long lineId;
+        @Label("Socket Id")
+        int socketId;
+        @Label("Length")
+        @DataAmount(DataAmount.BYTES)
+        long length;
+    }
+
+    @Name("com.someone.valvoice.StanzaClassified")
+    @Label("Stanza Classified")
+    @Description("Route chosen for one framed stanza")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    static final class StanzaClassified extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Line Id")
+        @Description("Line that completed the stanza")
+        long lineId;
+        @Label("Kind")
+        String kind;
+        @Label("Length")
+        @DataAmount(DataAmount.BYTES)
+        long length;
+    }
+
+    @Name("com.someone.valvoice.MessageParsed")
+    @Label("Message Parsed")
+    @Description("StAX parse of a message stanza")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    public static final class MessageParsed extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Messages")
+        int messages;
+    }
+
+    @Name("com.someone.valvoice.FilterVerdict")
+    @Label("Filter Verdict")
+    @Description("Decision of the narration filter chain; duration covers the filters evaluated")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    public static final class FilterVerdict extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Stage")
+        String stage;
+        @Label("Verdict")
+        String verdict;
+    }
+
+    @Name("com.someone.valvoice.TtsQueued")
+    @Label("TTS Queued")
+    @Description("Narration waiting on the tts-speaker executor; duration is the queue wait")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    public static final class TtsQueued extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Characters")
+        int characters;
+    }
+
+    @Name("com.someone.valvoice.XttsRequestSent")
+    @Label("XTTS Request Sent")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    static final class XttsRequestSent extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Characters")
+        int characters;
+    }
+
+    @Name("com.someone.valvoice.XttsFirstByte")
+    @Label("XTTS First Byte")
+    @Description("First audio byte read; duration is the time since the request was sent")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    public static final class XttsFirstByte extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Status")
+        int status;
+    }
+
+    @Name("com.someone.valvoice.PlaybackStarted")
+    @Label("Playback Started")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    static final class PlaybackStarted extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Engine")
+        String engine;
+    }
+
+    @Name("com.someone.valvoice.PttPressed")
+    @Label("PTT Pressed")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    static final class PttPressed extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Key Code")
+        int keyCode;
+    }
+
+    @Name("com.someone.valvoice.PttReleased")
+    @Label("PTT Released")
+    @Description("Push-to-talk key released; duration is how long it was held")
+    @Category({CATEGORY, SUBCATEGORY})
+    @StackTrace(false)
+    public static final class PttReleased extends Event {
+        @Label("Correlation Id")
+        long correlationId;
+        @Label("Key Code")
+        int keyCode;
+    }
+
+    // ========== Instant events ==========
+
+    /**
+     * @return The new line id (allocated even when not recording, so stanza events can refer to it)
+     */
+    public static long lineReceived(int socketId, int length) {
+        long lineId = nextId();
+        LineReceived e = new LineReceived();
+        if (e.isEnabled()) {
+            e.lineId = lineId;
+            e.socketId = socketId;
+            e.length = length;
+            e.commit();
+        }
+        return lineId;
+    }
+
+    public static void stanzaClassified(long correlationId, long lineId, StanzaClassifier.StanzaKind kind, int length) {
+        StanzaClassified e = new StanzaClassified();
+        if (e.isEnabled()) {
+            e.correlationId = correlationId;
+            e.lineId = lineId;
+            e.kind = kind.name();
+            e.length = length;
+            e.commit();
+        }
+    }
+
+    /** Begin timing a parse; commit with messageParsed(). */
+    public static MessageParsed beginParse() {
+        MessageParsed e = new MessageParsed();
+        e.begin();
+        return e;
+    }
+
+    public static void messageParsed(MessageParsed e, long correlationId, int messages) {
+        if (e.shouldCommit()) {
+            e.correlationId = correlationId;
+            e.messages = messages;
+            e.commit();
+        }
+    }
+
+    /** Begin timing a filter chain; commit with filterVerdict(). */
+    public static FilterVerdict beginFilters() {
+        FilterVerdict e = new FilterVerdict();
+        e.begin();
+        return e;
+    }
+
+    public static void filterVerdict(FilterVerdict e, long correlationId,
+                                     DiagnosticRing.Stage stage, DiagnosticRing.Verdict verdict) {
+        if (e.shouldCommit()) {
+            e.correlationId = correlationId;
+            e.stage = stage.name();
+            e.verdict = verdict.name();
+            e.commit();
+        }
+    }
+
+    /** Begin the queue-wait span when the narration is submitted; commit with ttsDequeued(). */
+    public static TtsQueued ttsQueued(long correlationId, int characters) {
+        TtsQueued e = new TtsQueued();
+        e.correlationId = correlationId;
+        e.characters = characters;
+        e.begin();
+        return e;
+    }
+
+    public static void ttsDequeued(TtsQueued e) {
+        if (e.shouldCommit()) {
+            e.commit();
+        }
+    }
+
+    /** Commit the request event and begin the time-to-first-byte span. */
+    public static XttsFirstByte xttsRequestSent(long correlationId, int characters) {
+        XttsRequestSent e = new XttsRequestSent();
+        if (e.isEnabled()) {
+            e.correlationId = correlationId;
+            e.characters = characters;
+            e.commit();
+        }
+        XttsFirstByte firstByte = new XttsFirstByte();
+        firstByte.correlationId = correlationId;
+        firstByte.begin();
+        return firstByte;
+    }
+
+    public static void xttsFirstByte(XttsFirstByte e, int status) {
+        if (e.shouldCommit()) {
+            e.status = status;
+            e.commit();
+        }
+    }
+
+    public static void playbackStarted(long correlationId, String engine) {
+        PlaybackStarted e = new PlaybackStarted();
+        if (e.isEnabled()) {
+            e.correlationId = correlationId;
+            e.engine = engine;
+            e.commit();
+        }
+    }
+
+    /** Commit the press event and begin the key-held span. */
+    public static PttReleased pttPressed(long correlationId, int keyCode) {
+        PttPressed e = new PttPressed();
+        if (e.isEnabled()) {
+            e.correlationId = correlationId;
+            e.keyCode = keyCode;
+            e.commit();
+        }
+        PttReleased released = new PttReleased();
+        released.correlationId = correlationId;
+        released.keyCode = keyCode;
+        released.begin();
+        return released;
+    }
+
+    public static void pttReleased(PttReleased e) {
+        if (e != null && e.shouldCommit()) {
+            e.commit();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.someone.valvoicebackend;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * PipelineMetrics - Always-on latency histograms and counters for the narration pipeline.
+ *
+ * Latencies (LatencyHistogram, fixed buckets, no allocation):
+ * - ingestToDispatch:    MITM line / OCR line received → ChatDataHandler TTS dispatch
+ * - dispatchToFirstByte: VoiceGenerator submit → first XTTS audio byte (includes the wait for a lookahead slot)
+ * - firstByteToPlayback: first XTTS audio byte → AudioSink playbackStarted (includes the wait for
+ *                        the previous utterance to finish, i.e. how far synthesis ran ahead)
+ * - utterance:           playback start → playback finished (XTTS and SAPI)
+ *
+ * Counters: every filter verdict by (stage, verdict) - including TTS_QUEUE overflow /
+ * deadline drops - utterances waiting to play,
+ * XTTS vs SAPI utterances (SAPI fallback rate), XTTS failures. Other components
+ * register extra gauges (dedup hit rate, clock skew, ...) with registerGauge().
+ *
+ * Exposed in Prometheus text format by MetricsEndpoint and in the controller's stats panel.
+ *
+ * Thread-safety: Lock-free; recorded from the ingest, TTS and playback threads.
+ */
+public final class PipelineMetrics {
+
+    private static final DiagnosticRing.Stage[] STAGES = DiagnosticRing.Stage.values();
+    private static final DiagnosticRing.Verdict[] VERDICTS = DiagnosticRing.Verdict.values();
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    private final LatencyHistogram ingestToDispatch = new LatencyHistogram();
+    private final LatencyHistogram dispatchToFirstByte = new LatencyHistogram();
+    private final LatencyHistogram firstByteToPlayback = new LatencyHistogram();
+    private final LatencyHistogram utterance = new LatencyHistogram();
+
+    /** [stage][verdict] */
+    private final LongAdder[][] verdicts = new LongAdder[STAGES.length][VERDICTS.length];
+    private final AtomicInteger ttsQueueDepth = new AtomicInteger();
+    private final LongAdder xttsUtterances = new LongAdder();
+    private final LongAdder sapiUtterances = new LongAdder();
+    private final LongAdder xttsFailures = new LongAdder();
+
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    private record Gauge(String name, String help, DoubleSupplier value) {
+    }
+
+    PipelineMetrics() {
+        for (int s = 0; s < STAGES.length; s++) {
+            for (int v = 0; v < VERDICTS.length; v++) {
+                verdicts[s][v] = new LongAdder();
+            }
+        }
+    }
+
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // ========== Recording ==========
+
+    public LatencyHistogram ingestToDispatch() {
+        return ingestToDispatch;
+    }
+
+    public LatencyHistogram dispatchToFirstByte() {
+        return dispatchToFirstByte;
+    }
+
+    public LatencyHistogram firstByteToPlayback() {
+        return firstByteToPlayback;
+    }
+
+    public LatencyHistogram utterance() {
+        return utterance;
+    }
+
+    /** Count one filter / gate decision. */
+    public void countVerdict(DiagnosticRing.Stage stage, DiagnosticRing.Verdict verdict) {
+        verdicts[stage.ordinal()][verdict.ordinal()].increment();
+    }
+
+    /** An utterance (narration segment) was submitted for playback. */
+    public void ttsSubmitted() {
+        ttsQueueDepth.incrementAndGet();
+    }
+
+    /** The tts-speaker picked an utterance up, or the narration queue dropped it. */
+    public void ttsStarted() {
+        ttsQueueDepth.decrementAndGet();
+    }
+
+    public void xttsUtterance() {
+        xttsUtterances.increment();
+    }
+
+    public void sapiUtterance() {
+        sapiUtterances.increment();
+    }
+
+    public void xttsFailure() {
+        xttsFailures.increment();
+    }
+
+    /**
+     * Register an extra gauge exported alongside the pipeline metrics.
+     *
+     * @param name  Prometheus metric name (valvoice_ prefix recommended)
+     * @param help  One-line description
+     * @param value Read on every scrape (must be cheap and must not throw)
+     */
+    public void registerGauge(String name, String help, DoubleSupplier value) {
+        gauges.removeIf(g -> g.name().equals(name));
+        gauges.add(new Gauge(name, help, value));
+    }
+
+    // ========== Reading ==========
+
+    public long getVerdictCount(DiagnosticRing.Stage stage, DiagnosticRing.Verdict verdict) {
+        return verdicts[stage.ordinal()][verdict.ordinal()].sum();
+    }
+
+    /** @return Messages dropped by any filter or gate (every verdict except RECEIVED / PASS / DISPATCHED) */
+    public long getTotalDrops() {
+        long total = 0;
+        for (int s = 0; s < STAGES.length; s++) {
+            for (int v = 0; v < VERDICTS.length; v++) {
+                if (isDrop(VERDICTS[v])) {
+                    total += verdicts[s][v].sum();
+                }
+            }
+        }
+        return total;
+    }
+
+    public int getTtsQueueDepth() {
+        return Math.max(0, ttsQueueDepth.get());
+    }
+
+    public long getXttsUtterances() {
+        return xttsUtterances.sum();
+    }
+
+    public long getSapiUtterances() {
+        return sapiUtterances.sum();
+    }
+
+    public long getXttsFailures() {
+        return xttsFailures.sum();
+    }
+
+    /** @return SAPI utterances / all utterances (0 before the first one) */
+    public double getSapiFallbackRate() {
+        long sapi = sapiUtterances.sum();
+        long total = sapi + xttsUtterances.sum();
+        return total == 0 ? 0.0 : (double) sapi / total;
+    }
+
+    private static boolean isDrop(DiagnosticRing.Verdict verdict) {
+        return verdict != DiagnosticRing.Verdict.RECEIVED
+            && verdict != DiagnosticRing.Verdict.PASS
+            && verdict != DiagnosticRing.Verdict.DISPATCHED;
+    }
+
+    // ========== Prometheus text format ==========
+
+    /**
+     * Render every metric in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder(8 * 1024);
+        histogram(sb, "valvoice_ingest_to_dispatch_seconds",
+            "Chat line received to TTS dispatch", ingestToDispatch);
+        histogram(sb, "valvoice_dispatch_to_first_byte_seconds",
+            "TTS submit to first XTTS audio byte (includes queue wait)", dispatchToFirstByte);
+        histogram(sb, "valvoice_first_byte_to_playback_seconds",
+            "First XTTS audio byte to playback start", firstByteToPlayback);
+        histogram(sb, "valvoice_utterance_seconds",
+            "Playback start to playback finished", utterance);
+
+        sb.append("# HELP valvoice_filter_verdicts_total Pipeline filter and gate decisions\n")
+            .append("# TYPE valvoice_filter_verdicts_total counter\n");
+        for (int s = 0; s < STAGES.length; s++) {
+            for (int v = 0; v < VERDICTS.length; v++) {
+                long n = verdicts[s][v].sum();
+                if (n == 0) continue;
+                sb.append("valvoice_filter_verdicts_total{stage=\"").append(STAGES[s].name())
+                    .append("\",verdict=\"").append(VERDICTS[v].name()).append("\"} ").append(n).append('\n');
+            }
+        }
+
+        gauge(sb, "valvoice_tts_queue_depth", "Utterances waiting for the tts-speaker", getTtsQueueDepth());
+        counter(sb, "valvoice_xtts_utterances_total", "Utterances played through XTTS", getXttsUtterances());
+        counter(sb, "valvoice_sapi_utterances_total", "Utterances played through the SAPI fallback", getSapiUtterances());
+        counter(sb, "valvoice_xtts_failures_total", "XTTS requests that failed", getXttsFailures());
+        gauge(sb, "valvoice_sapi_fallback_ratio", "SAPI utterances / all utterances", getSapiFallbackRate());
+
+        for (Gauge g : gauges) {
+            double value;
+            try {
+                value = g.value().getAsDouble();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            gauge(sb, g.name(), g.help(), value);
+        }
+        return sb.toString();
+    }
+
+    private static void histogram(StringBuilder sb, String name, String help, LatencyHistogram h) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+            .append("# TYPE ").append(name).append(" histogram\n");
+        // Power-of-two bucket bounds from 1ms to ~134s (sub-buckets are aggregated)
+        for (int exponent = 10; exponent <= LatencyHistogram.maxExponent(); exponent++) {
+            sb.append(name).append("_bucket{le=\"").append(number((1L << exponent) / 1e6)).append("\"} ")
+                .append(h.getCountBelowPowerOfTwo(exponent)).append('\n');
+        }
+        long count = h.getCount();
+        sb.append(name).append("_bucket{le=\"+Inf\"} ").append(count).append('\n')
+            .append(name).append("_sum ").append(number(h.getSumMicros() / 1e6)).append('\n')
+            .append(name).append("_count ").append(count).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+            .append("# TYPE ").append(name).append(" counter\n")
+            .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+            .append("# TYPE ").append(name).append(" gauge\n")
+            .append(name).append(' ').append(number(value)).append('\n');
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
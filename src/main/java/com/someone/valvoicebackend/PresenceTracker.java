@@ -0,0 +1,449 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * PresenceTracker - Own-PUUID presence fast path.
+ *
+ * Every friend's presence carries a Base64 JSON &lt;p&gt; payload, but only the
+ * local player's sessionLoopState / provisioningFlow drive GameStateManager.
+ * Decoding and tree-parsing every friend's payload was the main background CPU
+ * cost with a large friends list. This class does the cheap checks first:
+ *
+ * 1. Root 'from' JID is compared (in place) against ChatDataHandler.getSelfId();
+ *    friends' presences are dropped before any tokenizing or decoding
+ * 2. The raw &lt;p&gt; text last seen from each own JID is kept and compared in
+ *    place (exact, no hashing); an unchanged payload is skipped without
+ *    tokenizing or decoding
+ * 3. Changed payloads are Base64-decoded into a reused byte[] and the two
+ *    top-level fields are pulled out with a shallow JSON scan (no Gson tree)
+ *
+ * Presences are dropped while the own PUUID is still unknown: a friend's state
+ * must never drive the local game state.
+ *
+ * Thread-safety: NOT thread-safe. Owned by the single mitm-io reader thread.
+ */
+public final class PresenceTracker {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceTracker.class);
+
+    /** Payloads kept per sender JID (own resources only; oldest slot reused when full) */
+    private static final int MAX_TRACKED_JIDS = 8;
+
+    private static final byte[] KEY_SESSION_LOOP_STATE = "sessionLoopState".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_PROVISIONING_FLOW = "provisioningFlow".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BASE64_VALUES = new byte[128];
+    static {
+        java.util.Arrays.fill(BASE64_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final XmppFastTokenizer tokenizer = new XmppFastTokenizer();
+    // Last payload per own JID (parallel arrays: at most a handful of own resources)
+    private final String[] trackedJids = new String[MAX_TRACKED_JIDS];
+    private final String[] lastPayloads = new String[MAX_TRACKED_JIDS];
+    private int nextSlot = 0;
+    private byte[] decoded = new byte[4096];
+    private final StringBuilder valueBuf = new StringBuilder(32);
+
+    // Root 'from' attribute extents of the current stanza
+    private int fromStart, fromEnd;
+
+    // Shallow JSON scan results
+    private String sessionLoopState;
+    private String provisioningFlow;
+
+    private long presencesSeen = 0;
+    private long skippedNotSelf = 0;
+    private long skippedUnchanged = 0;
+    private long payloadsDecoded = 0;
+
+    /**
+     * Handle one framed &lt;presence&gt; stanza.
+     *
+     * @param xml Complete presence stanza
+     * @return true if GameStateManager was updated from this stanza
+     */
+    public boolean onPresence(String xml) {
+        // === PHASE 1 SECURITY: Defensive entry guard ===
+        if (xml == null || xml.isEmpty()) {
+            return false;
+        }
+        presencesSeen++;
+
+        // === 1. OWN-PUUID GATE (before any decoding) ===
+        String selfId = ChatDataHandler.getInstance().getSelfId();
+        if (selfId == null || selfId.isEmpty()) {
+            skippedNotSelf++;
+            logger.debug("[PRESENCE] Own PUUID not known yet, ignoring presence");
+            return false;
+        }
+        if (!findRootFrom(xml) || !localPartEquals(xml, fromStart, fromEnd, selfId)) {
+            skippedNotSelf++;
+            return false;
+        }
+
+        // === 2. CHANGE CHECK (raw <p> text vs last payload from this JID) ===
+        int slot = findSlot(xml);
+        int open = xml.indexOf("<p>");
+        int close = open >= 0 ? xml.indexOf("</p>", open + 3) : -1;
+        if (slot >= 0 && close >= 0) {
+            String previous = lastPayloads[slot];
+            int n = close - (open + 3);
+            if (previous != null && previous.length() == n && xml.regionMatches(open + 3, previous, 0, n)) {
+                skippedUnchanged++;
+                return false;
+            }
+        }
+
+        // === 3. LOCATE PAYLOAD ===
+        char[] chars;
+        int start;
+        int end;
+        if (XmppStreamParser.isFastTokenizerEnabled()
+                && xml.length() <= XmppStreamParser.MAX_STANZA_LENGTH
+                && tokenizer.tokenizePresence(xml)) {
+            if (!tokenizer.has(XmppFastTokenizer.PRESENCE_PAYLOAD)) {
+                logger.debug("[PRESENCE] Stanza has no <p> payload, ignoring");
+                return false;
+            }
+            chars = tokenizer.window();
+            start = tokenizer.start(XmppFastTokenizer.PRESENCE_PAYLOAD);
+            end = tokenizer.end(XmppFastTokenizer.PRESENCE_PAYLOAD);
+            // === PHASE 1 SECURITY: Presence payload length cap ===
+            if (end - start > XmppStreamParser.MAX_PRESENCE_PAYLOAD_LENGTH) {
+                logger.warn("[SECURITY] Dropping oversized presence payload: length={} exceeds max={}",
+                           end - start, XmppStreamParser.MAX_PRESENCE_PAYLOAD_LENGTH);
+                return false;
+            }
+        } else {
+            // Fallback: XmppStreamParser applies its own length caps and StAX/regex recovery
+            String payload = XmppStreamParser.extractPresencePayload(xml);
+            if (payload == null || payload.isEmpty()) {
+                logger.debug("[PRESENCE] Could not extract <p> payload");
+                return false;
+            }
+            chars = payload.toCharArray();
+            start = 0;
+            end = chars.length;
+        }
+        int rawStart = start;
+        int rawEnd = end;
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        if (start == end) {
+            return false;
+        }
+
+        // === 4. DECODE + SHALLOW JSON SCAN ===
+        int decodedLength = decodeBase64(chars, start, end);
+        if (decodedLength < 0) {
+            logger.debug("[PRESENCE] Failed to decode Base64 payload (malformed)");
+            return false;
+        }
+        payloadsDecoded++;
+        if (!scanPayload(decodedLength)) {
+            logger.debug("[PRESENCE] Failed to parse presence payload (dropped)");
+            return false;
+        }
+
+        // Remember the raw text only when it is exactly what the change check compares
+        if (close >= 0 && close - (open + 3) == rawEnd - rawStart) {
+            if (slot < 0) {
+                slot = nextSlot;
+                nextSlot = (nextSlot + 1) % MAX_TRACKED_JIDS;
+                trackedJids[slot] = xml.substring(fromStart, fromEnd);
+            }
+            lastPayloads[slot] = new String(chars, rawStart, rawEnd - rawStart);
+        }
+
+        if (sessionLoopState == null) {
+            logger.debug("[PRESENCE] JSON payload does not contain sessionLoopState");
+            return false;
+        }
+        logger.debug("[PRESENCE] sessionLoopState={} provisioningFlow={}", sessionLoopState, provisioningFlow);
+        GameStateManager.getInstance().updateFromPresencePayload(sessionLoopState, provisioningFlow);
+        return true;
+    }
+
+    /**
+     * Forget all remembered payloads so the next own presence is decoded again.
+     */
+    public void reset() {
+        java.util.Arrays.fill(trackedJids, null);
+        java.util.Arrays.fill(lastPayloads, null);
+        nextSlot = 0;
+    }
+
+    public long getPresencesSeen() {
+        return presencesSeen;
+    }
+
+    public long getSkippedNotSelf() {
+        return skippedNotSelf;
+    }
+
+    public long getSkippedUnchanged() {
+        return skippedUnchanged;
+    }
+
+    public long getPayloadsDecoded() {
+        return payloadsDecoded;
+    }
+
+    // ========== Internal: XML ==========
+
+    /**
+     * Locate the root start tag's 'from' attribute value. Sets fromStart/fromEnd.
+     */
+    private boolean findRootFrom(String xml) {
+        int len = xml.length();
+        int i = xml.indexOf('<');
+        if (i < 0) return false;
+        for (i++; i < len; i++) {
+            char c = xml.charAt(i);
+            if (c == '>') return false;
+            if (c == '"' || c == '\'') {
+                int close = xml.indexOf(c, i + 1);
+                if (close < 0) return false;
+                i = close;
+                continue;
+            }
+            if ((c == 'f' || c == 'F') && Character.isWhitespace(xml.charAt(i - 1))
+                    && StanzaClassifier.regionMatchesIgnoreCase(xml, i, "from")) {
+                int j = i + 4;
+                while (j < len && Character.isWhitespace(xml.charAt(j))) j++;
+                if (j >= len || xml.charAt(j) != '=') continue;
+                j++;
+                while (j < len && Character.isWhitespace(xml.charAt(j))) j++;
+                if (j >= len) return false;
+                char q = xml.charAt(j);
+                if (q != '"' && q != '\'') return false;
+                int close = xml.indexOf(q, j + 1);
+                if (close < 0) return false;
+                fromStart = j + 1;
+                fromEnd = close;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The JID local part (before '@') equals selfId, ignoring case. */
+    private static boolean localPartEquals(String xml, int start, int end, String selfId) {
+        int n = selfId.length();
+        if (start + n >= end || xml.charAt(start + n) != '@') return false;
+        return xml.regionMatches(true, start, selfId, 0, n);
+    }
+
+    /** @return slot holding the current root 'from' JID, or -1 */
+    private int findSlot(String xml) {
+        int n = fromEnd - fromStart;
+        for (int i = 0; i < MAX_TRACKED_JIDS; i++) {
+            String jid = trackedJids[i];
+            if (jid != null && jid.length() == n && xml.regionMatches(fromStart, jid, 0, n)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ========== Internal: Base64 ==========
+
+    /**
+     * Decode standard Base64 (with optional padding) into the reused buffer.
+     *
+     * @return Number of decoded bytes, or -1 if the input is not valid Base64
+     */
+    private int decodeBase64(char[] chars, int start, int end) {
+        while (end > start && chars[end - 1] == '=') end--;
+        int n = end - start;
+        if (n % 4 == 1) return -1;
+        int outLen = n / 4 * 3 + Math.max(0, n % 4 - 1);
+        if (decoded.length < outLen) {
+            decoded = new byte[Math.max(outLen, decoded.length * 2)];
+        }
+        byte[] out = decoded;
+        int o = 0;
+        int i = start;
+        int fullEnd = start + (n & ~3);
+        for (; i < fullEnd; i += 4) {
+            int v = value(chars[i]) << 18 | value(chars[i + 1]) << 12 | value(chars[i + 2]) << 6 | value(chars[i + 3]);
+            if (v < 0) return -1;
+            out[o] = (byte) (v >> 16);
+            out[o + 1] = (byte) (v >> 8);
+            out[o + 2] = (byte) v;
+            o += 3;
+        }
+        int rest = end - i;
+        if (rest > 0) {
+            int v = value(chars[i]) << 18 | value(chars[i + 1]) << 12 | (rest == 3 ? value(chars[i + 2]) << 6 : 0);
+            if (v < 0) return -1;
+            out[o++] = (byte) (v >> 16);
+            if (rest == 3) out[o++] = (byte) (v >> 8);
+        }
+        return o;
+    }
+
+    /** Base64 digit value, or a negative int that keeps the combined word negative */
+    private static int value(char c) {
+        return c < 128 ? BASE64_VALUES[c] : -1;
+    }
+
+    // ========== Internal: JSON ==========
+
+    /**
+     * Shallow scan of the top-level JSON object for sessionLoopState / provisioningFlow.
+     * Other values (including nested objects/arrays) are skipped without decoding.
+     *
+     * @return false if the payload is not a well-formed JSON object at the top level
+     */
+    private boolean scanPayload(int len) {
+        sessionLoopState = null;
+        provisioningFlow = null;
+        byte[] b = decoded;
+        int i = skipWs(b, 0, len);
+        if (i >= len || b[i] != '{') return false;
+        i = skipWs(b, i + 1, len);
+        if (i < len && b[i] == '}') return true;
+
+        while (i < len) {
+            if (b[i] != '"') return false;
+            int keyStart = i + 1;
+            int keyEnd = skipString(b, i, len);
+            if (keyEnd < 0) return false;
+            i = skipWs(b, keyEnd + 1, len);
+            if (i >= len || b[i] != ':') return false;
+            i = skipWs(b, i + 1, len);
+            if (i >= len) return false;
+
+            int target = 0;
+            if (regionEquals(b, keyStart, keyEnd, KEY_SESSION_LOOP_STATE)) target = 1;
+            else if (regionEquals(b, keyStart, keyEnd, KEY_PROVISIONING_FLOW)) target = 2;
+
+            int valueEnd;
+            if (b[i] == '"') {
+                valueEnd = skipString(b, i, len);
+                if (valueEnd < 0) return false;
+                if (target != 0) {
+                    String value = decodeString(b, i + 1, valueEnd);
+                    if (target == 1) sessionLoopState = value;
+                    else provisioningFlow = value;
+                }
+                i = valueEnd + 1;
+            } else {
+                i = skipValue(b, i, len);
+                if (i < 0) return false;
+            }
+
+            i = skipWs(b, i, len);
+            if (i >= len) return false;
+            if (b[i] == '}') return true;
+            if (b[i] != ',') return false;
+            i = skipWs(b, i + 1, len);
+        }
+        return false;
+    }
+
+    /** @return index of the closing quote of the string starting at 'quote', or -1 */
+    private static int skipString(byte[] b, int quote, int len) {
+        for (int i = quote + 1; i < len; i++) {
+            byte c = b[i];
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Skip a non-string value (number, literal, object, array). @return index after it, or -1 */
+    private static int skipValue(byte[] b, int i, int len) {
+        int depth = 0;
+        for (; i < len; i++) {
+            byte c = b[i];
+            if (c == '"') {
+                i = skipString(b, i, len);
+                if (i < 0) return -1;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) return i;
+                if (--depth == 0) return i + 1;
+            } else if (depth == 0 && (c == ',' || c <= ' ')) {
+                return i;
+            }
+        }
+        return depth == 0 ? i : -1;
+    }
+
+    private String decodeString(byte[] b, int start, int end) {
+        int esc = -1;
+        for (int i = start; i < end; i++) {
+            if (b[i] == '\\') {
+                esc = i;
+                break;
+            }
+        }
+        if (esc < 0) {
+            return new String(b, start, end - start, StandardCharsets.UTF_8);
+        }
+        // Rare: escaped value. Decode escapes; the field values we read are ASCII.
+        valueBuf.setLength(0);
+        valueBuf.append(new String(b, start, esc - start, StandardCharsets.UTF_8));
+        for (int i = esc; i < end; i++) {
+            char c = (char) (b[i] & 0xFF);
+            if (c != '\\' || i + 1 >= end) {
+                valueBuf.append(c);
+                continue;
+            }
+            char e = (char) b[++i];
+            switch (e) {
+                case 'n' -> valueBuf.append('\n');
+                case 't' -> valueBuf.append('\t');
+                case 'r' -> valueBuf.append('\r');
+                case 'b' -> valueBuf.append('\b');
+                case 'f' -> valueBuf.append('\f');
+                case 'u' -> {
+                    int cp = i + 4 < end ? hex4(b, i + 1) : -1;
+                    if (cp < 0) return null;
+                    valueBuf.append((char) cp);
+                    i += 4;
+                }
+                default -> valueBuf.append(e);
+            }
+        }
+        return valueBuf.toString();
+    }
+
+    /** @return value of 4 hex digits at i, or -1 */
+    private static int hex4(byte[] b, int i) {
+        int v = 0;
+        for (int k = i; k < i + 4; k++) {
+            int d = Character.digit((char) b[k], 16);
+            if (d < 0) return -1;
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    private static int skipWs(byte[] b, int i, int len) {
+        while (i < len && (b[i] == ' ' || b[i] == '\n' || b[i] == '\r' || b[i] == '\t')) i++;
+        return i;
+    }
+
+    private static boolean regionEquals(byte[] b, int start, int end, byte[] literal) {
+        if (end - start != literal.length) return false;
+        for (int k = 0; k < literal.length; k++) {
+            if (b[start + k] != literal[k]) return false;
+        }
+        return true;
+    }
+}
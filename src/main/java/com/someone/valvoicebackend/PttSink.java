@@ -0,0 +1,19 @@
+package com.someone.valvoicebackend;
+
+/**
+ * PttSink - Where VoiceGenerator's Push-to-Talk key presses go.
+ *
+ * Production: RobotPttSink (java.awt.Robot, reaches Valorant as a real key event).
+ * Headless / tests: CountingPttSink.
+ *
+ * VoiceGenerator guarantees press/release pairing (one key held at a time);
+ * implementations only have to deliver the events.
+ */
+public interface PttSink {
+
+    /** Press and hold the key (java.awt.event.KeyEvent code). */
+    void press(int keyCode);
+
+    /** Release a key previously passed to press(). */
+    void release(int keyCode);
+}
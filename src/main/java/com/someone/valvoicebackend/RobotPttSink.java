@@ -0,0 +1,38 @@
+package com.someone.valvoicebackend;
+
+import java.awt.AWTException;
+import java.awt.Robot;
+
+/**
+ * RobotPttSink - Push-to-Talk through java.awt.Robot (OS-level key events).
+ */
+public final class RobotPttSink implements PttSink {
+
+    private final Robot robot;
+
+    /**
+     * @throws IllegalStateException if the platform has no Robot support (headless)
+     */
+    public RobotPttSink() {
+        try {
+            this.robot = new Robot();
+            this.robot.setAutoDelay(0);
+        } catch (AWTException e) {
+            throw new IllegalStateException("Unable to initialize java.awt.Robot for Push-to-Talk", e);
+        }
+    }
+
+    @Override
+    public void press(int keyCode) {
+        synchronized (robot) {
+            robot.keyPress(keyCode);
+        }
+    }
+
+    @Override
+    public void release(int keyCode) {
+        synchronized (robot) {
+            robot.keyRelease(keyCode);
+        }
+    }
+}
@@ -6,8 +6,6 @@ import org.slf4j.LoggerFactory;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Roster - Manages PUUID to Player Name mapping for TTS announcements.
@@ -27,8 +25,19 @@ import java.util.regex.Pattern;
  *   </query>
  * </iq>
  *
+ * Roster pushes (deltas) use the same shape with type="set":
+ * <iq type="set" id="...">
+ *   <query xmlns="jabber:iq:riotgames:roster">
+ *     <item jid="PUUID@domain" subscription="remove"/>   (friend removed)
+ *     <item jid="PUUID@domain" name="NewName" .../>      (friend added / renamed)
+ *   </query>
+ * </iq>
+ *
+ * Parsing is a single streaming pass over the stanza (no regexes): each
+ * &lt;item&gt; start tag is tokenized once and applied as soon as it closes.
+ *
  * Usage:
- * - Call parseRosterIq(xml) when receiving roster IQ packets
+ * - Call parseRosterIq(xml) when receiving roster IQ packets (result or push)
  * - Call getPlayerName(puuid) to look up display name for TTS
  */
 public class Roster {
@@ -43,46 +52,8 @@ public class Roster {
     // Roster namespace used by Riot XMPP
     public static final String ROSTER_NAMESPACE = "jabber:iq:riotgames:roster";
 
-    // Pattern to detect roster IQ result packets
-    private static final Pattern ROSTER_IQ_PATTERN = Pattern.compile(
-        "<iq[^>]*type=['\"]result['\"][^>]*>.*?<query[^>]*xmlns=['\"]" +
-        Pattern.quote(ROSTER_NAMESPACE) + "['\"][^>]*>.*?</query>.*?</iq>",
-        Pattern.CASE_INSENSITIVE | Pattern.DOTALL
-    );
-
-    // Pattern to extract roster items: <item jid="PUUID@domain" name="PlayerName" .../>
-    // Handles both self-closing and regular tags
-    private static final Pattern ROSTER_ITEM_PATTERN = Pattern.compile(
-        "<item\\s+[^>]*jid=['\"]([^'\"@]+)@[^'\"]*['\"][^>]*name=['\"]([^'\"]+)['\"][^>]*/?>",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    // Alternative pattern where name comes before jid
-    private static final Pattern ROSTER_ITEM_PATTERN_ALT = Pattern.compile(
-        "<item\\s+[^>]*name=['\"]([^'\"]+)['\"][^>]*jid=['\"]([^'\"@]+)@[^'\"]*['\"][^>]*/?>",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    // Pattern to extract game_name and game_tag from roster item
-    // <item ... game_name="Jett" game_tag="NA1" .../>
-    private static final Pattern GAME_NAME_PATTERN = Pattern.compile(
-        "game_name=['\"]([^'\"]+)['\"]",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    private static final Pattern GAME_TAG_PATTERN = Pattern.compile(
-        "game_tag=['\"]([^'\"]+)['\"]",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    // Pattern to find <item ...> or <item ... /> tags (used by fallback parser)
-    private static final Pattern ITEM_TAG_PATTERN = Pattern.compile("<item\\s+([^>]*?)/?>");
-
-    // Pattern to extract jid (PUUID@domain) from item attributes (used by fallback parser)
-    private static final Pattern JID_PATTERN = Pattern.compile("jid=['\"]([^'\"@]+)@[^'\"]*['\"]");
-
-    // Pattern to extract name attribute excluding game_name (used by fallback parser)
-    private static final Pattern NAME_ATTR_PATTERN = Pattern.compile("(?<!game_)name=['\"]([^'\"]+)['\"]");
+    /** PHASE 1 SECURITY: Max items applied from a single roster IQ */
+    private static final int MAX_ROSTER_ITEMS = 5000;
 
     private Roster() {
         logger.info("[Roster] Initialized - ready to track player names");
@@ -94,6 +65,8 @@ public class Roster {
 
     /**
      * Check if the given XML contains a roster IQ packet.
+     * Only full roster results are detected here; routing uses StanzaClassifier,
+     * which also accepts roster pushes.
      *
      * @param xml Raw XMPP stanza XML
      * @return true if this is a roster IQ result packet
@@ -114,113 +87,109 @@ public class Roster {
     }
 
     /**
-     * Parse a roster IQ packet and update the PUUID→Name mapping.
+     * Parse a roster IQ packet (full result or push) and update the PUUID→Name mapping.
      *
-     * @param xml The roster IQ result XML
-     * @return Number of roster entries parsed and added/updated
+     * Display name preference per item: game_name attribute, then a non-empty
+     * name attribute, then the name of the &lt;id&gt; child element.
+     * Items with subscription="remove" in a push drop the player from the map.
+     *
+     * @param xml The roster IQ XML (type="result" or type="set")
+     * @return Number of roster entries added, updated or removed
      */
     public int parseRosterIq(String xml) {
         if (xml == null || xml.isEmpty()) {
             return 0;
         }
 
-        if (!isRosterIq(xml)) {
+        TagScanner scanner = new TagScanner(xml);
+        if (!scanner.next() || scanner.isEnd || !scanner.nameIs("iq")) {
             logger.debug("[Roster] Not a roster IQ packet, skipping");
             return 0;
         }
+        boolean push;
+        if (scanner.attrEquals("type", "result")) {
+            push = false;
+        } else if (scanner.attrEquals("type", "set")) {
+            push = true;
+        } else {
+            logger.debug("[Roster] IQ is neither result nor set, skipping");
+            return 0;
+        }
 
-        logger.info("╔══════════════════════════════════════════════════════════════╗");
-        logger.info("║ ROSTER IQ RECEIVED (Phase 3)                                 ║");
-        logger.info("╚══════════════════════════════════════════════════════════════╝");
-
-        // Log a preview of the XML for debugging
-        String preview = xml.length() > 500 ? xml.substring(0, 500) + "..." : xml;
-        logger.debug("[Roster] Raw XML preview: {}", preview);
+        if (!push) {
+            logger.info("╔══════════════════════════════════════════════════════════════╗");
+            logger.info("║ ROSTER IQ RECEIVED (Phase 3)                                 ║");
+            logger.info("╚══════════════════════════════════════════════════════════════╝");
+        }
 
         int count = 0;
+        int items = 0;
+        boolean inRosterQuery = false;
+        boolean rosterSeen = false;
 
-        // Try primary pattern: jid before name
-        Matcher matcher = ROSTER_ITEM_PATTERN.matcher(xml);
-        while (matcher.find()) {
-            // PHASE 1 SECURITY: Defensive null checks before accessing groups
-            String puuid = null;
-            String name = null;
-            String itemXml = null;
-            try {
-                puuid = matcher.group(1);
-                name = matcher.group(2);
-                itemXml = matcher.group(0);
-            } catch (Exception e) {
-                logger.debug("[Roster] Regex group extraction failed (malformed item dropped): {}", e.getMessage());
-                continue;
-            }
+        // Current <item> being assembled
+        boolean inItem = false;
+        String puuid = null;
+        String name = null;
+        String subscription = null;
 
-            // Try to get game_name for more accurate display name
-            String displayName = extractBestDisplayName(itemXml, name);
+        try {
+            while (scanner.next()) {
+                if (scanner.isEnd) {
+                    if (inItem && scanner.nameIs("item")) {
+                        count += applyItem(puuid, name, subscription, push);
+                        inItem = false;
+                    } else if (scanner.nameIs("query")) {
+                        inRosterQuery = false;
+                    }
+                    continue;
+                }
 
-            if (puuid != null && !puuid.isEmpty() && displayName != null && !displayName.isEmpty()) {
-                String oldName = puuidToName.put(puuid, displayName);
-                if (oldName == null) {
-                    logger.info("│ [+] NEW: {} → '{}'", abbreviatePuuid(puuid), displayName);
-                } else if (!oldName.equals(displayName)) {
-                    logger.info("│ [~] UPD: {} → '{}' (was '{}')", abbreviatePuuid(puuid), displayName, oldName);
+                if (scanner.nameIs("query")) {
+                    inRosterQuery = scanner.attrEqualsIgnoreCase("xmlns", ROSTER_NAMESPACE);
+                    rosterSeen |= inRosterQuery;
+                } else if (inRosterQuery && scanner.nameIs("item")) {
+                    if (++items > MAX_ROSTER_ITEMS) {
+                        logger.warn("[SECURITY] Roster IQ exceeds {} items, ignoring the rest", MAX_ROSTER_ITEMS);
+                        break;
+                    }
+                    puuid = puuidFromJid(scanner.attr("jid"));
+                    name = scanner.attr("game_name");
+                    if (name == null || name.isEmpty()) {
+                        name = scanner.attr("name");
+                    }
+                    subscription = scanner.attr("subscription");
+                    if (scanner.selfClosing) {
+                        count += applyItem(puuid, name, subscription, push);
+                    } else {
+                        inItem = true;
+                    }
+                } else if (inItem && scanner.nameIs("id") && (name == null || name.isEmpty())) {
+                    // Riot roster items carry the Riot ID as <id name="GameName" tagline="TAG"/>
+                    name = scanner.attr("name");
                 }
-                count++;
             }
+        } catch (Exception e) {
+            // PHASE 1 SECURITY: Fail-safe - keep whatever was applied before the error
+            logger.debug("[Roster] Streaming parse stopped on malformed input: {}", e.getMessage());
         }
 
-        // Try alternative pattern: name before jid
-        matcher = ROSTER_ITEM_PATTERN_ALT.matcher(xml);
-        while (matcher.find()) {
-            // PHASE 1 SECURITY: Defensive null checks before accessing groups
-            String name = null;
-            String puuid = null;
-            String itemXml = null;
-            try {
-                name = matcher.group(1);
-                puuid = matcher.group(2);
-                itemXml = matcher.group(0);
-            } catch (Exception e) {
-                logger.debug("[Roster] Alt regex group extraction failed (malformed item dropped): {}", e.getMessage());
-                continue;
-            }
-
-            // Try to get game_name for more accurate display name
-            String displayName = extractBestDisplayName(itemXml, name);
-
-            if (puuid != null && !puuid.isEmpty() && displayName != null && !displayName.isEmpty()) {
-                // Only add if not already present (primary pattern takes precedence)
-                if (!puuidToName.containsKey(puuid)) {
-                    puuidToName.put(puuid, displayName);
-                    logger.info("│ [+] NEW (alt): {} → '{}'", abbreviatePuuid(puuid), displayName);
-                    count++;
-                }
-            }
+        if (!rosterSeen) {
+            logger.debug("[Roster] Not a roster IQ packet, skipping");
+            return 0;
         }
 
-        if (count > 0) {
+        if (push) {
+            logger.info("[Roster] Roster push applied: {} change(s), roster now {} player(s)", count, puuidToName.size());
+        } else if (count > 0) {
             logger.info("├──────────────────────────────────────────────────────────────");
             logger.info("│ Roster now contains {} player(s)", puuidToName.size());
             logger.info("└──────────────────────────────────────────────────────────────");
         } else {
-            // If no items found with primary patterns, try fallback extraction
-            logger.debug("[Roster] Primary patterns found 0 items, trying fallback extraction");
-            count = parseRosterItemsFallback(xml);
-            if (count > 0) {
-                logger.info("├──────────────────────────────────────────────────────────────");
-                logger.info("│ Roster now contains {} player(s) (via fallback)", puuidToName.size());
-                logger.info("└──────────────────────────────────────────────────────────────");
-            } else {
-                logger.warn("[Roster] No roster items found in IQ packet - check XML format");
-                // Log first <item> if present for debugging
-                int itemStart = xml.indexOf("<item");
-                if (itemStart >= 0) {
-                    int itemEnd = xml.indexOf(">", itemStart);
-                    if (itemEnd > itemStart) {
-                        String sampleItem = xml.substring(itemStart, Math.min(itemEnd + 1, itemStart + 200));
-                        logger.warn("[Roster] Sample <item>: {}", sampleItem);
-                    }
-                }
+            logger.warn("[Roster] No roster items found in IQ packet - check XML format");
+            int itemStart = xml.indexOf("<item");
+            if (itemStart >= 0) {
+                logger.warn("[Roster] Sample <item>: {}", xml.substring(itemStart, Math.min(xml.length(), itemStart + 200)));
             }
         }
 
@@ -228,105 +197,165 @@ public class Roster {
     }
 
     /**
-     * Fallback parser for roster items using individual attribute extraction.
-     * Used when primary regex patterns fail due to unexpected attribute ordering.
+     * Apply one parsed roster item to the map.
      *
-     * PHASE 1 SECURITY: Entire method wrapped in defensive try/catch.
-     * Malformed items are silently dropped (logged at DEBUG).
+     * @return 1 if the item was applied (added, updated or removed), else 0
      */
-    private int parseRosterItemsFallback(String xml) {
-        int count = 0;
-
-        try {
-            // Reuse pre-compiled pattern for <item ...> tags (performance: no Pattern.compile in loop)
-            Matcher itemMatcher = ITEM_TAG_PATTERN.matcher(xml);
+    private int applyItem(String puuid, String name, String subscription, boolean push) {
+        if (puuid == null || puuid.isEmpty()) {
+            return 0;
+        }
+        if ("remove".equalsIgnoreCase(subscription)) {
+            String removed = puuidToName.remove(puuid);
+            if (removed != null) {
+                logger.info("│ [-] DEL: {} (was '{}')", abbreviatePuuid(puuid), removed);
+                return 1;
+            }
+            return 0;
+        }
+        if (name == null || name.isEmpty()) {
+            return 0;
+        }
+        String oldName = puuidToName.put(puuid, name);
+        if (oldName == null) {
+            logger.info("│ [+] NEW{}: {} → '{}'", push ? " (push)" : "", abbreviatePuuid(puuid), name);
+        } else if (!oldName.equals(name)) {
+            logger.info("│ [~] UPD{}: {} → '{}' (was '{}')", push ? " (push)" : "", abbreviatePuuid(puuid), name, oldName);
+        }
+        return 1;
+    }
 
-            while (itemMatcher.find()) {
-                try {
-                    String attrs = itemMatcher.group(1);
-                    if (attrs == null) continue;
+    /** PUUID is the local part of the item JID ("PUUID@domain"); null if there is no '@'. */
+    private static String puuidFromJid(String jid) {
+        if (jid == null) return null;
+        int at = jid.indexOf('@');
+        return at > 0 ? jid.substring(0, at) : null;
+    }
 
-                    // Extract jid (PUUID@domain) using pre-compiled pattern
-                    Matcher jidMatcher = JID_PATTERN.matcher(attrs);
-                    String puuid = jidMatcher.find() ? jidMatcher.group(1) : null;
+    /**
+     * Minimal forward-only tag tokenizer used by parseRosterIq.
+     * Each call to next() advances to the next start or end tag and tokenizes its
+     * attributes once; text, comments, CDATA and processing instructions are skipped.
+     */
+    private static final class TagScanner {
+        private static final int MAX_ATTRS = 16;
+
+        private final String xml;
+        private final int length;
+        private int pos = 0;
+
+        boolean isEnd;
+        boolean selfClosing;
+        private int nameStart, nameEnd;
+        private int attrCount;
+        private final int[] attrs = new int[MAX_ATTRS * 4]; // nameStart, nameEnd, valueStart, valueEnd
+
+        TagScanner(String xml) {
+            this.xml = xml;
+            this.length = xml.length();
+        }
 
-                    if (puuid == null || puuid.isEmpty()) continue;
+        boolean next() {
+            while (true) {
+                int lt = xml.indexOf('<', pos);
+                if (lt < 0 || lt + 1 >= length) return false;
+                char c = xml.charAt(lt + 1);
+                if (c == '!' || c == '?') {
+                    String close = xml.startsWith("<![CDATA[", lt) ? "]]>" : xml.startsWith("<!--", lt) ? "-->" : ">";
+                    int end = xml.indexOf(close, lt + 2);
+                    if (end < 0) return false;
+                    pos = end + close.length();
+                    continue;
+                }
 
-                    // Extract game_name first (preferred)
-                    String displayName = null;
-                    Matcher gameNameMatcher = GAME_NAME_PATTERN.matcher(attrs);
-                    if (gameNameMatcher.find()) {
-                        displayName = gameNameMatcher.group(1);
+                isEnd = c == '/';
+                selfClosing = false;
+                attrCount = 0;
+                int i = isEnd ? lt + 2 : lt + 1;
+                nameStart = i;
+                while (i < length && isNameChar(xml.charAt(i))) i++;
+                nameEnd = i;
+
+                while (i < length) {
+                    char a = xml.charAt(i);
+                    if (a == '>') {
+                        pos = i + 1;
+                        return true;
                     }
-
-                    // Fallback to name attribute using pre-compiled pattern
-                    if (displayName == null || displayName.isEmpty()) {
-                        Matcher nameMatcher = NAME_ATTR_PATTERN.matcher(attrs);
-                        if (nameMatcher.find()) {
-                            displayName = nameMatcher.group(1);
-                        }
+                    if (a == '/' && i + 1 < length && xml.charAt(i + 1) == '>') {
+                        selfClosing = true;
+                        pos = i + 2;
+                        return true;
                     }
-
-                    if (displayName != null && !displayName.isEmpty() && !puuidToName.containsKey(puuid)) {
-                        puuidToName.put(puuid, displayName);
-                        logger.info("│ [+] NEW (fallback): {} → '{}'", abbreviatePuuid(puuid), displayName);
-                        count++;
+                    if (!isNameChar(a)) {
+                        i++;
+                        continue;
+                    }
+                    int an = i;
+                    while (i < length && isNameChar(xml.charAt(i))) i++;
+                    int ae = i;
+                    while (i < length && Character.isWhitespace(xml.charAt(i))) i++;
+                    if (i >= length || xml.charAt(i) != '=') continue;
+                    i++;
+                    while (i < length && Character.isWhitespace(xml.charAt(i))) i++;
+                    if (i >= length) return false;
+                    char q = xml.charAt(i);
+                    if (q != '"' && q != '\'') continue;
+                    int vs = i + 1;
+                    int ve = xml.indexOf(q, vs);
+                    if (ve < 0) return false;
+                    if (attrCount < MAX_ATTRS) {
+                        int k = attrCount * 4;
+                        attrs[k] = an;
+                        attrs[k + 1] = ae;
+                        attrs[k + 2] = vs;
+                        attrs[k + 3] = ve;
+                        attrCount++;
                     }
-                } catch (Exception e) {
-                    // PHASE 1 SECURITY: Malformed item dropped, continue to next
-                    logger.debug("[Roster] Fallback item extraction failed (dropped): {}", e.getMessage());
+                    i = ve + 1;
                 }
+                return false;
             }
-        } catch (Exception e) {
-            // PHASE 1 SECURITY: Fail-safe on any parsing error
-            logger.debug("[Roster] Fallback parser failed (dropped): {}", e.getMessage());
         }
 
-        return count;
-    }
+        boolean nameIs(String lowerName) {
+            return regionIs(nameStart, nameEnd, lowerName);
+        }
 
-    /**
-     * Extract the best display name from a roster item.
-     * Prefers game_name over the standard name attribute.
-     *
-     * PHASE 1 SECURITY: Wrapped in defensive try/catch. Returns fallbackName on error.
-     *
-     * @param itemXml The <item .../> XML fragment
-     * @param fallbackName The name attribute value as fallback
-     * @return The best display name to use
-     */
-    private String extractBestDisplayName(String itemXml, String fallbackName) {
-        // PHASE 1 SECURITY: Guard against null input
-        if (itemXml == null || itemXml.isEmpty()) {
-            return fallbackName;
+        /** Attribute value (entity-decoded), or null if absent. */
+        String attr(String lowerName) {
+            int k = find(lowerName);
+            if (k < 0) return null;
+            String raw = xml.substring(attrs[k + 2], attrs[k + 3]);
+            return raw.indexOf('&') >= 0 ? HtmlEscape.unescapeHtml(raw) : raw;
         }
 
-        try {
-            // Try to extract game_name (preferred - this is the in-game display name)
-            Matcher gameNameMatcher = GAME_NAME_PATTERN.matcher(itemXml);
-            if (gameNameMatcher.find()) {
-                String gameName = gameNameMatcher.group(1);
-                if (gameName != null && !gameName.isEmpty()) {
-                    // Optionally append game_tag if present
-                    Matcher gameTagMatcher = GAME_TAG_PATTERN.matcher(itemXml);
-                    if (gameTagMatcher.find()) {
-                        String gameTag = gameTagMatcher.group(1);
-                        if (gameTag != null && !gameTag.isEmpty()) {
-                            // Return "Name#TAG" format for full identification
-                            // But for TTS, just the name is cleaner
-                            logger.debug("[Roster] Found game_name='{}' game_tag='{}'", gameName, gameTag);
-                        }
-                    }
-                    return gameName;
-                }
+        boolean attrEquals(String lowerName, String value) {
+            int k = find(lowerName);
+            return k >= 0 && attrs[k + 3] - attrs[k + 2] == value.length()
+                && xml.startsWith(value, attrs[k + 2]);
+        }
+
+        boolean attrEqualsIgnoreCase(String lowerName, String value) {
+            int k = find(lowerName);
+            return k >= 0 && attrs[k + 3] - attrs[k + 2] == value.length()
+                && xml.regionMatches(true, attrs[k + 2], value, 0, value.length());
+        }
+
+        private int find(String lowerName) {
+            for (int k = 0; k < attrCount * 4; k += 4) {
+                if (regionIs(attrs[k], attrs[k + 1], lowerName)) return k;
             }
-        } catch (Exception e) {
-            // PHASE 1 SECURITY: Fail-safe, return fallback
-            logger.debug("[Roster] extractBestDisplayName failed: {}", e.getMessage());
+            return -1;
+        }
+
+        private boolean regionIs(int s, int e, String lowerName) {
+            return e - s == lowerName.length() && xml.regionMatches(true, s, lowerName, 0, lowerName.length());
         }
 
-        // Fallback to standard name attribute
-        return fallbackName;
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '-' || c == '.';
+        }
     }
 
     /**
@@ -0,0 +1,189 @@
+package com.someone.valvoicebackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SimulatedAudioSink - Headless AudioSink: consumes the stream and takes as long as playing it would.
+ *
+ * playbackStarted() fires on the first byte (LineAudioSink writes after decoding the first frame);
+ * playbackFinished() fires when both the stream ended and the audio's duration elapsed since then,
+ * so a synthesizer slower than real time stretches the utterance exactly like the real device would.
+ *
+ * Duration is derived from the content type:
+ * - audio/L16; rate=R; channels=C : bytes / (R * C * 2)
+ * - audio/mpeg                    : bytes * 8 / bitrate of the first frame header (128 kbit/s if unparsable)
+ *
+ * stop() ends the play() in progress at once (preemption); it is counted in getStopped().
+ * Every play() that started is kept as a Playback (first byte / end System.nanoTime(), bytes,
+ * cut off or not) for tests that order playback against CountingPttSink presses.
+ *
+ * Thread-safety: play() from one thread at a time, stop() from any; counters are approximate totals.
+ */
+public final class SimulatedAudioSink implements AudioSink {
+
+    private static final int DEFAULT_MP3_BITRATE = 128_000;
+    /** MPEG-1 Layer III bitrates in kbit/s by header index */
+    private static final int[] MPEG1_L3_KBPS = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 0};
+
+    private final boolean realTime;
+    private volatile long utterances;
+    private volatile long bytes;
+    private volatile long audioNanos;
+    private volatile long stops;
+    private volatile boolean stopRequested = false;
+    private volatile Thread playing = null;
+    private final List<Playback> playbacks = new ArrayList<>();
+
+    /**
+     * One play() that received audio.
+     *
+     * @param startNanos System.nanoTime() of the first byte (playbackStarted())
+     * @param endNanos   System.nanoTime() when it finished or was cut off
+     * @param bytes      Audio consumed
+     * @param stopped    true if stop() cut it off
+     */
+    public record Playback(long startNanos, long endNanos, long bytes, boolean stopped) {
+    }
+
+    /**
+     * @param realTime true: return after the audio's duration; false: return as soon as the stream ended
+     */
+    public SimulatedAudioSink(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    @Override
+    public void play(InputStream audio, String contentType, Listener listener) throws IOException {
+        stopRequested = false;
+        playing = Thread.currentThread();
+        try {
+            playStream(audio, contentType, listener);
+        } finally {
+            playing = null;
+        }
+    }
+
+    private void playStream(InputStream audio, String contentType, Listener listener) throws IOException {
+        byte[] buf = new byte[8192];
+        byte[] header = new byte[4];
+        int headerLen = 0;
+        long total = 0;
+        long startNanos = 0;
+        int n;
+        while ((n = audio.read(buf, 0, buf.length)) >= 0) {
+            if (n == 0) {
+                continue;
+            }
+            if (startNanos == 0) {
+                startNanos = System.nanoTime();
+                listener.playbackStarted();
+            }
+            if (stopRequested) {
+                stopped(startNanos, total);
+                return;
+            }
+            for (int i = 0; i < n && headerLen < header.length; i++) {
+                header[headerLen++] = buf[i];
+            }
+            total += n;
+        }
+        if (startNanos == 0) {
+            return;
+        }
+
+        long duration = durationNanos(contentType, total, header, headerLen);
+        if (realTime) {
+            long due = startNanos + duration;
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                if (stopRequested) {
+                    stopped(startNanos, total);
+                    return;
+                }
+                LockSupport.parkNanos(due - now);
+            }
+        }
+        synchronized (this) {
+            utterances++;
+            bytes += total;
+            audioNanos += duration;
+            playbacks.add(new Playback(startNanos, System.nanoTime(), total, false));
+        }
+        listener.playbackFinished();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = playing;
+        if (thread != null) {
+            stopRequested = true;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private synchronized void stopped(long startNanos, long total) {
+        stops++;
+        playbacks.add(new Playback(startNanos, System.nanoTime(), total, true));
+    }
+
+    /** @return Playback duration of {@code length} bytes of audio of the given type */
+    static long durationNanos(String contentType, long length, byte[] header, int headerLen) {
+        String type = contentType == null ? "audio/mpeg" : contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("audio/l16")) {
+            int rate = intParam(type, "rate", 24_000);
+            int channels = intParam(type, "channels", 1);
+            return TimeUnit.SECONDS.toNanos(length) / Math.max(1, rate * channels * 2L);
+        }
+        int bitrate = DEFAULT_MP3_BITRATE;
+        if (headerLen >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFE) == 0xFA) {
+            int kbps = MPEG1_L3_KBPS[(header[2] >> 4) & 0x0F];
+            if (kbps > 0) {
+                bitrate = kbps * 1000;
+            }
+        }
+        return TimeUnit.SECONDS.toNanos(length * 8) / bitrate;
+    }
+
+    private static int intParam(String type, String name, int fallback) {
+        for (String part : type.split(";")) {
+            String p = part.trim();
+            if (p.startsWith(name + "=")) {
+                try {
+                    return Integer.parseInt(p.substring(name.length() + 1).trim());
+                } catch (NumberFormatException e) {
+                    return fallback;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    /** @return play() calls cut off by stop() */
+    public long getStopped() {
+        return stops;
+    }
+
+    /** @return Every play() that received audio, in order */
+    public synchronized List<Playback> getPlaybacks() {
+        return List.copyOf(playbacks);
+    }
+
+    public long getUtterances() {
+        return utterances;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** @return Total simulated audio played, in ns */
+    public long getAudioNanos() {
+        return audioNanos;
+    }
+}
@@ -0,0 +1,146 @@
+package com.someone.valvoicebackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+/**
+ * SpeechBuffer - In-memory audio of one utterance, filled by the synthesis stage while
+ * the playback stage may already be reading it.
+ *
+ * The XTTS response is drained into the buffer as fast as the server produces it, so a
+ * look-ahead utterance is complete (or nearly) by the time its turn to play comes; the
+ * utterance at the head of the queue still streams, reading blocks until more audio
+ * arrives, the stream is finished, or it failed.
+ *
+ * Thread-safety: one writer (synthesis thread), one reader (tts-speaker); all methods synchronized.
+ */
+final class SpeechBuffer {
+
+    /** Refuse absurd responses (~10 min of 24 kHz PCM); XTTS MP3 runs ~16 KB per second of speech */
+    static final int MAX_BYTES = 32 * 1024 * 1024;
+
+    private final String contentType;
+    private byte[] data = new byte[16 * 1024];
+    private int size = 0;
+    private boolean finished = false;
+    private boolean discarded = false;
+    private IOException failure = null;
+
+    SpeechBuffer(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /** @return A finished buffer over already complete audio (PhraseCache hit); the array is not copied */
+    static SpeechBuffer completed(String contentType, byte[] audio) {
+        SpeechBuffer buffer = new SpeechBuffer(contentType);
+        buffer.data = audio;
+        buffer.size = audio.length;
+        buffer.finished = true;
+        return buffer;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Append audio from the synthesizer.
+     *
+     * @throws IOException if the reader discarded the buffer or MAX_BYTES is exceeded (stop downloading)
+     */
+    synchronized void write(byte[] buf, int off, int len) throws IOException {
+        if (discarded) {
+            throw new IOException("Speech discarded");
+        }
+        if ((long) size + len > MAX_BYTES) {
+            throw new IOException("Speech exceeds " + MAX_BYTES + " bytes");
+        }
+        if (size + len > data.length) {
+            data = Arrays.copyOf(data, Math.max(size + len, Math.min(MAX_BYTES, data.length * 2)));
+        }
+        System.arraycopy(buf, off, data, size, len);
+        size += len;
+        notifyAll();
+    }
+
+    /** The synthesizer delivered the whole utterance. */
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    /** The synthesizer failed mid-stream: the reader gets the exception once it consumed what arrived. */
+    synchronized void fail(IOException e) {
+        if (!finished) {
+            failure = e;
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    /** Playback gave up on this utterance: drop the audio and make the writer stop. */
+    synchronized void discard() {
+        discarded = true;
+        finished = true;
+        data = new byte[0];
+        size = 0;
+        notifyAll();
+    }
+
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /** @return A reader over the buffered audio that blocks while more is on its way */
+    InputStream newInputStream() {
+        return new InputStream() {
+            private int pos = 0;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buf, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                synchronized (SpeechBuffer.this) {
+                    while (pos >= size && !finished) {
+                        try {
+                            SpeechBuffer.this.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted waiting for speech");
+                        }
+                    }
+                    if (pos >= size) {
+                        if (failure != null) {
+                            throw new IOException("XTTS stream failed: " + failure.getMessage(), failure);
+                        }
+                        return -1;
+                    }
+                    int n = Math.min(len, size - pos);
+                    System.arraycopy(data, pos, buf, off, n);
+                    pos += n;
+                    return n;
+                }
+            }
+
+            @Override
+            public int available() {
+                synchronized (SpeechBuffer.this) {
+                    return Math.max(0, size - pos);
+                }
+            }
+        };
+    }
+}
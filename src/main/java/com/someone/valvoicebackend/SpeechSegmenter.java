@@ -0,0 +1,113 @@
+package com.someone.valvoicebackend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SpeechSegmenter - Splits long narrations at sentence / clause boundaries so XTTS can
+ * synthesize the pieces in parallel and playback can start after the first (short) one.
+ *
+ * XTTS time-to-first-byte grows with input length; a 300-char chat line synthesized
+ * whole takes several times longer to start than a callout.
+ *
+ * Rules:
+ * - Texts up to MIN_SPLIT_CHARS stay whole
+ * - Split after sentence ends (. ! ? …) followed by whitespace, so "2.5" stays whole
+ * - The first segment is kept short (FIRST_SEGMENT_CHARS): it is split further at clause
+ *   marks (, ; : –) so the first audio arrives quickly
+ * - Other segments up to MAX_SEGMENT_CHARS; longer runs split at clause marks, then at spaces
+ * - Fragments under MIN_SEGMENT_CHARS are merged into a neighbour (choppy prosody otherwise)
+ *
+ * Stateless; thread-safe.
+ */
+public final class SpeechSegmenter {
+
+    static final int MIN_SPLIT_CHARS = 80;
+    static final int FIRST_SEGMENT_CHARS = 60;
+    static final int MAX_SEGMENT_CHARS = 140;
+    static final int MIN_SEGMENT_CHARS = 20;
+
+    private SpeechSegmenter() {
+    }
+
+    /**
+     * @return The segments in speaking order (a single element if the text is short); trimmed, non-empty
+     */
+    public static List<String> split(String text) {
+        String trimmed = text.trim();
+        if (trimmed.length() <= MIN_SPLIT_CHARS) {
+            return List.of(trimmed);
+        }
+
+        List<String> pieces = new ArrayList<>();
+        for (String sentence : splitAfter(trimmed, ".!?…")) {
+            int limit = pieces.isEmpty() ? FIRST_SEGMENT_CHARS : MAX_SEGMENT_CHARS;
+            if (sentence.length() <= limit) {
+                pieces.add(sentence);
+                continue;
+            }
+            for (String clause : splitAfter(sentence, ",;:–—")) {
+                int clauseLimit = pieces.isEmpty() ? FIRST_SEGMENT_CHARS : MAX_SEGMENT_CHARS;
+                splitAtSpaces(clause, clauseLimit, pieces);
+            }
+        }
+        return merge(pieces);
+    }
+
+    /** Split after any of {@code marks} that is followed by whitespace (the mark stays with its text). */
+    private static List<String> splitAfter(String text, String marks) {
+        List<String> out = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length() - 1; i++) {
+            if (marks.indexOf(text.charAt(i)) >= 0 && Character.isWhitespace(text.charAt(i + 1))) {
+                addTrimmed(out, text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        addTrimmed(out, text.substring(start));
+        return out;
+    }
+
+    /** Hard split at the last space before the limit (a word longer than the limit stays whole). */
+    private static void splitAtSpaces(String text, int limit, List<String> out) {
+        String rest = text;
+        while (rest.length() > limit) {
+            int cut = rest.lastIndexOf(' ', limit);
+            if (cut <= 0) {
+                cut = rest.indexOf(' ', limit);
+                if (cut < 0) {
+                    break;
+                }
+            }
+            addTrimmed(out, rest.substring(0, cut));
+            rest = rest.substring(cut + 1);
+            limit = MAX_SEGMENT_CHARS;
+        }
+        addTrimmed(out, rest);
+    }
+
+    /** Merge fragments under MIN_SEGMENT_CHARS into the previous (or, for the first, the next) segment. */
+    private static List<String> merge(List<String> pieces) {
+        List<String> out = new ArrayList<>();
+        for (String piece : pieces) {
+            if (!out.isEmpty()) {
+                int last = out.size() - 1;
+                String previous = out.get(last);
+                boolean joinable = previous.length() + 1 + piece.length() <= (last == 0 ? FIRST_SEGMENT_CHARS : MAX_SEGMENT_CHARS);
+                if (joinable && (piece.length() < MIN_SEGMENT_CHARS || previous.length() < MIN_SEGMENT_CHARS)) {
+                    out.set(last, previous + " " + piece);
+                    continue;
+                }
+            }
+            out.add(piece);
+        }
+        return out;
+    }
+
+    private static void addTrimmed(List<String> out, String piece) {
+        String trimmed = piece.trim();
+        if (!trimmed.isEmpty()) {
+            out.add(trimmed);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.someone.valvoicebackend;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * SpeechSynthesizer - The neural TTS engine VoiceGenerator streams audio from.
+ *
+ * Production: HttpSpeechSynthesizer against the local XTTS server (ValVoiceConfig.xttsUrl).
+ * Headless / tests: the same class pointed at FakeXttsServer.
+ *
+ * A failed synthesize() makes VoiceGenerator fall back to its FallbackSynthesizer.
+ */
+public interface SpeechSynthesizer {
+
+    /** @return true if requests should be attempted at all (engine process up) */
+    boolean isReady();
+
+    /**
+     * Request speech. Returns once the response headers arrived; the audio is
+     * streamed from the returned body while it is still being synthesized.
+     *
+     * @throws IOException on connection failure or a non-success response
+     */
+    Speech synthesize(String voice, String text, String language) throws IOException, InterruptedException;
+
+    /**
+     * A streaming synthesis result. The caller must close it.
+     *
+     * @param audio       Encoded audio as it arrives
+     * @param contentType MIME type of the audio ("audio/mpeg", "audio/L16; rate=24000; channels=1" ...)
+     */
+    record Speech(InputStream audio, String contentType) implements Closeable {
+        @Override
+        public void close() throws IOException {
+            audio.close();
+        }
+    }
+}
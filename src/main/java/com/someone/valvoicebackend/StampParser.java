@@ -0,0 +1,148 @@
+package com.someone.valvoicebackend;
+
+/**
+ * StampParser - Fixed-layout, allocation-free parser for XMPP message stamps.
+ *
+ * The timestamp gate sees a stamp on every archived and live message, and
+ * archive replays at login stamp every message. Trying a list of
+ * DateTimeFormatters and catching the failures cost several exceptions per
+ * stamp. This parser reads the digits in place instead.
+ *
+ * Accepted layouts (stamps without an offset are UTC - Riot sends UTC):
+ * - yyyy-MM-dd HH:mm:ss            (Riot)
+ * - yyyy-MM-dd HH:mm:ss.SSS        (Riot, 1-9 fraction digits accepted)
+ * - yyyy-MM-ddTHH:mm[:ss[.f]]      (ISO-8601 / XEP-0082)
+ * - any of the above + Z, +HH:mm, +HHmm or +HH
+ *
+ * Fractions beyond milliseconds are truncated, as Instant.toEpochMilli() does.
+ *
+ * Thread-safety: Stateless, safe from any thread.
+ */
+public final class StampParser {
+
+    /** Returned for anything that is not a valid stamp */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private StampParser() {
+    }
+
+    /**
+     * Parse a stamp to epoch milliseconds (UTC).
+     *
+     * @param stamp Stamp attribute value (may be null)
+     * @return Epoch millis, or INVALID - never throws
+     */
+    public static long parseEpochMillis(CharSequence stamp) {
+        if (stamp == null) return INVALID;
+        int len = stamp.length();
+        // Shortest valid form: yyyy-MM-ddTHH:mm (16 chars)
+        if (len < 16 || len > 40) return INVALID;
+
+        int year = digits(stamp, 0, 4);
+        if (year < 0 || stamp.charAt(4) != '-') return INVALID;
+        int month = digits(stamp, 5, 2);
+        if (month < 1 || month > 12 || stamp.charAt(7) != '-') return INVALID;
+        int day = digits(stamp, 8, 2);
+        if (day < 1 || day > daysInMonth(year, month)) return INVALID;
+
+        char sep = stamp.charAt(10);
+        if (sep != ' ' && sep != 'T' && sep != 't') return INVALID;
+
+        int hour = digits(stamp, 11, 2);
+        if (hour < 0 || hour > 23 || stamp.charAt(13) != ':') return INVALID;
+        int minute = digits(stamp, 14, 2);
+        if (minute < 0 || minute > 59) return INVALID;
+
+        int i = 16;
+        int second = 0;
+        int millis = 0;
+        if (i < len && stamp.charAt(i) == ':') {
+            second = digits(stamp, i + 1, 2);
+            if (second < 0 || second > 59) return INVALID;
+            i += 3;
+
+            if (i < len && stamp.charAt(i) == '.') {
+                int fracStart = ++i;
+                while (i < len && isDigit(stamp.charAt(i))) {
+                    int pos = i - fracStart;
+                    if (pos < 3) {
+                        millis = millis * 10 + (stamp.charAt(i) - '0');
+                    }
+                    i++;
+                }
+                int fracDigits = i - fracStart;
+                if (fracDigits == 0 || fracDigits > 9) return INVALID;
+                for (int k = fracDigits; k < 3; k++) millis *= 10;
+            }
+        }
+
+        long offsetMillis = 0;
+        if (i < len) {
+            char z = stamp.charAt(i);
+            if (z == 'Z' || z == 'z') {
+                i++;
+            } else if (z == '+' || z == '-') {
+                int oh = digits(stamp, i + 1, 2);
+                if (oh < 0 || oh > 18) return INVALID;
+                i += 3;
+                int om = 0;
+                if (i < len) {
+                    if (stamp.charAt(i) == ':') i++;
+                    om = digits(stamp, i, 2);
+                    if (om < 0 || om > 59) return INVALID;
+                    i += 2;
+                }
+                offsetMillis = (oh * 3_600_000L + om * 60_000L) * (z == '-' ? -1 : 1);
+            } else {
+                return INVALID;
+            }
+        }
+        if (i != len) return INVALID;
+
+        long epochDay = epochDay(year, month, day);
+        long timeOfDay = hour * 3_600_000L + minute * 60_000L + second * 1_000L + millis;
+        return epochDay * MILLIS_PER_DAY + timeOfDay - offsetMillis;
+    }
+
+    // ========== Internal ==========
+
+    /** @return value of count decimal digits at from, or -1 */
+    private static int digits(CharSequence s, int from, int count) {
+        if (from + count > s.length()) return -1;
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /** Days since 1970-01-01 for a proleptic Gregorian date (civil-from-days inverse). */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468L;
+    }
+}
@@ -0,0 +1,201 @@
+package com.someone.valvoicebackend;
+
+/**
+ * StanzaClassifier - Single-pass, copy-free routing classifier for framed XMPP stanzas.
+ *
+ * Replaces the chain of isPresenceStanza / Roster.isRosterIq / isIqStanza /
+ * isArchiveStanza / containsMessageWithBody checks, each of which lowercased the
+ * whole stanza and scanned it again. This walks the stanza once, matching names
+ * and namespaces case-insensitively in place.
+ *
+ * Classification is by root element (XmppStanzaFramer guarantees one top-level
+ * stanza per call). Routing decisions mirror the previous check order:
+ * - PRESENCE:  root &lt;presence&gt;
+ * - ROSTER_IQ: root &lt;iq type="result"&gt; or roster push &lt;iq type="set"&gt; carrying jabber:iq:riotgames:roster
+ * - ARCHIVE:   archive namespace anywhere, or an &lt;iq&gt; wrapping messages with bodies
+ * - IQ_OTHER:  any other &lt;iq&gt; (no chat content)
+ * - CARBON:    &lt;message&gt; with a body, wrapped in a carbons &lt;forwarded&gt; envelope
+ * - MESSAGE:   &lt;message&gt; with a body
+ * - OTHER:     everything else (bodiless messages, chat states, stream noise)
+ */
+public final class StanzaClassifier {
+
+    public enum StanzaKind {
+        PRESENCE,
+        ROSTER_IQ,
+        ARCHIVE,
+        IQ_OTHER,
+        CARBON,
+        MESSAGE,
+        OTHER;
+
+        /** @return true if this stanza carries live chat content for the message pipeline */
+        public boolean isChat() {
+            return this == MESSAGE || this == CARBON;
+        }
+    }
+
+    private static final String RIOT_NS_PREFIX = "jabber:iq:riotgames:";
+    private static final String CARBONS_NS = "urn:xmpp:carbons";
+
+    private static final int ROOT_OTHER = 0;
+    private static final int ROOT_PRESENCE = 1;
+    private static final int ROOT_IQ = 2;
+    private static final int ROOT_MESSAGE = 3;
+
+    private StanzaClassifier() {
+    }
+
+    /**
+     * Classify one complete stanza.
+     *
+     * @param xml Framed stanza (leading whitespace / XML declaration tolerated)
+     * @return Stanza kind, never null
+     */
+    public static StanzaKind classify(CharSequence xml) {
+        if (xml == null) return StanzaKind.OTHER;
+        int len = xml.length();
+
+        int root = ROOT_OTHER;
+        boolean rootSeen = false;
+        boolean iqRosterType = false;
+        boolean hasMessage = false;
+        boolean hasBody = false;
+        boolean hasForwarded = false;
+        boolean hasCarbonsNs = false;
+        boolean hasRosterNs = false;
+        boolean hasArchiveNs = false;
+
+        for (int i = 0; i < len; i++) {
+            char c = xml.charAt(i);
+
+            if (c == '<') {
+                if (i + 1 >= len) break;
+                char n = xml.charAt(i + 1);
+                if (n == '/' || n == '?' || n == '!') continue;
+
+                int nameStart = i + 1;
+                if (!rootSeen) {
+                    rootSeen = true;
+                    if (tagIs(xml, nameStart, "presence")) {
+                        root = ROOT_PRESENCE;
+                        // Presence is routed on its root alone - no need to scan the payload
+                        break;
+                    } else if (tagIs(xml, nameStart, "iq")) {
+                        root = ROOT_IQ;
+                        iqRosterType = rootTypeIs(xml, nameStart + 2, "result")
+                            || rootTypeIs(xml, nameStart + 2, "set");
+                    } else if (tagIs(xml, nameStart, "message")) {
+                        root = ROOT_MESSAGE;
+                        hasMessage = true;
+                    }
+                } else if (tagIs(xml, nameStart, "message")) {
+                    hasMessage = true;
+                } else if (tagIs(xml, nameStart, "body")) {
+                    hasBody = true;
+                } else if (tagIs(xml, nameStart, "forwarded")) {
+                    hasForwarded = true;
+                }
+            } else if ((c == 'j' || c == 'J') && regionMatchesIgnoreCase(xml, i, RIOT_NS_PREFIX)) {
+                int suffix = i + RIOT_NS_PREFIX.length();
+                if (regionMatchesIgnoreCase(xml, suffix, "archive")) {
+                    hasArchiveNs = true;
+                } else if (regionMatchesIgnoreCase(xml, suffix, "roster")) {
+                    hasRosterNs = true;
+                }
+                i = suffix - 1;
+            } else if ((c == 'u' || c == 'U') && regionMatchesIgnoreCase(xml, i, CARBONS_NS)) {
+                hasCarbonsNs = true;
+                i += CARBONS_NS.length() - 1;
+            }
+        }
+
+        if (root == ROOT_PRESENCE) {
+            return StanzaKind.PRESENCE;
+        }
+        if (root == ROOT_IQ) {
+            if (iqRosterType && hasRosterNs) return StanzaKind.ROSTER_IQ;
+            if (hasArchiveNs || (hasMessage && hasBody)) return StanzaKind.ARCHIVE;
+            return StanzaKind.IQ_OTHER;
+        }
+        if (hasArchiveNs) {
+            return StanzaKind.ARCHIVE;
+        }
+        if (hasMessage && hasBody) {
+            return (hasForwarded || hasCarbonsNs) ? StanzaKind.CARBON : StanzaKind.MESSAGE;
+        }
+        return StanzaKind.OTHER;
+    }
+
+    // ========== Internal ==========
+
+    /** Tag name at from equals name (case-insensitive) and is followed by a name terminator. */
+    private static boolean tagIs(CharSequence xml, int from, String name) {
+        if (!regionMatchesIgnoreCase(xml, from, name)) return false;
+        int end = from + name.length();
+        if (end >= xml.length()) return true;
+        char t = xml.charAt(end);
+        return t == '>' || t == '/' || t == ' ' || t == '\t' || t == '\r' || t == '\n';
+    }
+
+    /** Scan the root start tag from 'from' for a type attribute equal to value. */
+    private static boolean rootTypeIs(CharSequence xml, int from, String value) {
+        int len = xml.length();
+        for (int i = from; i < len; i++) {
+            char c = xml.charAt(i);
+            if (c == '>') return false;
+            if (c == '"' || c == '\'') {
+                // Skip attribute values so "type" inside a value never matches
+                int close = i + 1;
+                while (close < len && xml.charAt(close) != c) close++;
+                i = close;
+                continue;
+            }
+            if ((c == 't' || c == 'T') && regionMatchesIgnoreCase(xml, i, "type")
+                    && i > 0 && Character.isWhitespace(xml.charAt(i - 1))) {
+                int j = i + 4;
+                while (j < len && Character.isWhitespace(xml.charAt(j))) j++;
+                if (j >= len || xml.charAt(j) != '=') continue;
+                j++;
+                while (j < len && Character.isWhitespace(xml.charAt(j))) j++;
+                if (j >= len) return false;
+                char q = xml.charAt(j);
+                if (q != '"' && q != '\'') return false;
+                int vEnd = j + 1 + value.length();
+                return vEnd < len && xml.charAt(vEnd) == q
+                        && regionMatchesIgnoreCase(xml, j + 1, value);
+            }
+        }
+        return false;
+    }
+
+    /** Case-insensitive match of an ASCII lowercase literal at offset, without copying. */
+    static boolean regionMatchesIgnoreCase(CharSequence xml, int offset, String lowerLiteral) {
+        int n = lowerLiteral.length();
+        if (offset < 0 || offset + n > xml.length()) return false;
+        for (int k = 0; k < n; k++) {
+            char a = xml.charAt(offset + k);
+            char b = lowerLiteral.charAt(k);
+            if (a != b && Character.toLowerCase(a) != b) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Case-insensitive indexOf for an ASCII lowercase literal, without copying.
+     *
+     * @return index of the first match at or after from, or -1
+     */
+    static int indexOfIgnoreCase(CharSequence xml, String lowerLiteral, int from) {
+        int last = xml.length() - lowerLiteral.length();
+        char first = lowerLiteral.charAt(0);
+        for (int i = Math.max(0, from); i <= last; i++) {
+            char c = xml.charAt(i);
+            if ((c == first || Character.toLowerCase(c) == first)
+                    && regionMatchesIgnoreCase(xml, i, lowerLiteral)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,167 @@
+package com.someone.valvoicebackend;
+
+import com.someone.valvoicebackend.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TimestampGate - Drops historical (archived / replayed) messages by their stamp,
+ * and measures the server-to-local clock offset from live traffic.
+ *
+ * A message is historical when its stamp is older than appStartTime minus the
+ * grace period. The grace period exists to absorb clock skew between the Riot
+ * chat server and this machine. A fixed 60s window is too long when the clocks
+ * agree (old messages from the last minute leak through), and too short when
+ * the server clock is far behind (live messages get dropped).
+ *
+ * Skew measurement:
+ * - offset = local receive time - server stamp, recorded for every message
+ *   stamped after appStartTime (those are live, or replayed after a reconnect)
+ * - Replays and network delay only ever ADD to the offset, so the minimum over
+ *   the last SKEW_WINDOW samples is the skew estimate (NTP-style min filter)
+ * - Once MIN_SKEW_SAMPLES are in, the grace period becomes
+ *   clamp(estimate + SKEW_MARGIN_MS, MIN_GRACE_MS, MAX_GRACE_MS);
+ *   until then (or with ValVoiceConfig.adaptiveTimestampGrace off) the default applies
+ * - A gate built with measureSkew = false (MitmReplay) never records samples: offsets
+ *   computed from a recorded clock say nothing about this machine, and a capture taken
+ *   across a reconnect could otherwise widen the grace up to MAX_GRACE_MS
+ *
+ * Thread-safety: isHistorical() is called from the single mitm-io thread;
+ * the getters are safe from any thread.
+ */
+public final class TimestampGate {
+    private static final Logger logger = LoggerFactory.getLogger(TimestampGate.class);
+
+    /** Samples kept for the min filter */
+    private static final int SKEW_WINDOW = 32;
+    /** Samples required before the measured grace replaces the default */
+    private static final int MIN_SKEW_SAMPLES = 3;
+    /** Headroom added on top of the measured offset (delivery jitter) */
+    private static final long SKEW_MARGIN_MS = 5_000;
+    private static final long MIN_GRACE_MS = 5_000;
+    private static final long MAX_GRACE_MS = 10 * 60_000;
+    /** Only log grace changes larger than this */
+    private static final long GRACE_LOG_THRESHOLD_MS = 1_000;
+
+    private final long appStartTime;
+    private final long defaultGraceMs;
+    private final boolean measureSkew;
+
+    private final long[] offsets = new long[SKEW_WINDOW];
+    private int offsetCount = 0;
+    private int nextOffset = 0;
+
+    private volatile long lastOffsetMs = 0;
+    private volatile long estimatedSkewMs = 0;
+    private volatile long effectiveGraceMs;
+    private volatile long skewSamples = 0;
+    private volatile long unparseableStamps = 0;
+
+    /**
+     * @param appStartTime   Epoch millis the backend started (messages before it are history)
+     * @param defaultGraceMs Grace period used until enough skew samples are measured
+     */
+    public TimestampGate(long appStartTime, long defaultGraceMs) {
+        this(appStartTime, defaultGraceMs, true);
+    }
+
+    /**
+     * @param measureSkew false for a fixed grace period: stamps are still judged, but no
+     *                    clock offset is recorded (replayed captures)
+     */
+    public TimestampGate(long appStartTime, long defaultGraceMs, boolean measureSkew) {
+        this.appStartTime = appStartTime;
+        this.defaultGraceMs = defaultGraceMs;
+        this.effectiveGraceMs = defaultGraceMs;
+        this.measureSkew = measureSkew;
+    }
+
+    /**
+     * Decide whether a stamped message is historical, recording the clock offset on the way.
+     *
+     * @param stamp           The stamp attribute value (may be null)
+     * @param receivedAtMillis Local epoch millis the stanza was received
+     * @return true if the message is historical and should be dropped
+     */
+    public boolean isHistorical(String stamp, long receivedAtMillis) {
+        if (stamp == null || stamp.isEmpty()) {
+            // No stamp = live message, not historical
+            return false;
+        }
+
+        long messageEpochMillis = StampParser.parseEpochMillis(stamp);
+        if (messageEpochMillis == StampParser.INVALID) {
+            // If we can't parse the stamp, assume it's historical to be safe
+            unparseableStamps++;
+            logger.debug("[TIMESTAMP GATE] Unparseable stamp '{}', treating as historical", stamp);
+            return true;
+        }
+
+        if (measureSkew && messageEpochMillis > appStartTime) {
+            recordOffset(receivedAtMillis - messageEpochMillis);
+        }
+
+        long grace = effectiveGraceMs;
+        if (messageEpochMillis < (appStartTime - grace)) {
+            logger.debug("[TIMESTAMP GATE] Historical: stamp={} < (appStart={} - grace={})",
+                stamp, appStartTime, grace);
+            return true;
+        }
+        return false;
+    }
+
+    /** @return Grace period currently applied (measured, or the default) */
+    public long getEffectiveGraceMs() {
+        return effectiveGraceMs;
+    }
+
+    /** @return Min-filtered server-to-local offset in ms (positive = server clock behind), 0 before any sample */
+    public long getEstimatedSkewMs() {
+        return estimatedSkewMs;
+    }
+
+    /** @return Offset of the most recent sample in ms */
+    public long getLastOffsetMs() {
+        return lastOffsetMs;
+    }
+
+    public long getSkewSamples() {
+        return skewSamples;
+    }
+
+    public long getUnparseableStamps() {
+        return unparseableStamps;
+    }
+
+    // ========== Internal ==========
+
+    private void recordOffset(long offset) {
+        offsets[nextOffset] = offset;
+        nextOffset = (nextOffset + 1) % SKEW_WINDOW;
+        if (offsetCount < SKEW_WINDOW) offsetCount++;
+        lastOffsetMs = offset;
+        skewSamples++;
+
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < offsetCount; i++) {
+            min = Math.min(min, offsets[i]);
+        }
+        estimatedSkewMs = min;
+
+        if (offsetCount < MIN_SKEW_SAMPLES) {
+            return;
+        }
+        long grace = Math.max(MIN_GRACE_MS, Math.min(MAX_GRACE_MS, min + SKEW_MARGIN_MS));
+        if (!ConfigManager.get().adaptiveTimestampGrace) {
+            logger.debug("[TIMESTAMP GATE] Measured clock offset {} ms (suggested grace {} ms, adaptive grace off)",
+                min, grace);
+            return;
+        }
+        long previous = effectiveGraceMs;
+        effectiveGraceMs = grace;
+        if (Math.abs(grace - previous) > GRACE_LOG_THRESHOLD_MS) {
+            logger.info("[TIMESTAMP GATE] Measured clock offset {} ms → grace {} ms (default {} ms)",
+                min, grace, defaultGraceMs);
+        }
+    }
+}
@@ -7,99 +7,339 @@ package com.someone.valvoicebackend;
 //   INGAME                             → teamPttKey
 // In ACCESSIBILITY mode, the legacy single global key is used.
 
-import com.google.gson.Gson;
 import com.someone.valvoicebackend.config.ConfigManager;
 import com.someone.valvoicebackend.config.ValVoiceConfig;
 import com.someone.valvoicegui.Main;
 import com.someone.valvoicegui.ValVoiceBackend;
-import dev.mccue.jlayer.decoder.JavaLayerException;
-import dev.mccue.jlayer.player.FactoryRegistry;
-import dev.mccue.jlayer.player.advanced.AdvancedPlayer;
-import dev.mccue.jlayer.player.advanced.PlaybackEvent;
-import dev.mccue.jlayer.player.advanced.PlaybackListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.AWTException;
-import java.awt.Robot;
 import java.awt.event.KeyEvent;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.ConnectException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Duration;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Coordinates TTS playback and Push-to-Talk automation.
  * Handles key press/release timing for Valorant voice chat.
  *
+ * Two-stage narration pipeline:
+ * - Synthesis (tts-synth-*): XTTS requests are sent in lane / queue order as soon as one of
+ *   ttsLookahead slots is free and drained into an in-memory SpeechBuffer, so the next
+ *   callout is synthesizing while the current one plays. An utterance the speaker is already
+ *   waiting for never waits for a slot held by audio queued behind it.
+ * - Playback (tts-speaker): strictly FIFO, one utterance at a time; starts streaming from
+ *   the buffer as soon as its first byte arrived, falls back to SAPI if synthesis failed.
+ * A slot is freed when its utterance finished playing, bounding memory and XTTS load.
+ * Narrations wait for the speaker in a bounded NarrationQueue (narrationQueueCapacity,
+ * narrationDeadlineSeconds, narrationDropPolicy): under chat spam stale narrations are
+ * dropped, together with their slots and buffers, instead of being read out late.
+ * The queue has a NarrationLane per priority (channel + game state at arrival): an in-round
+ * TEAM callout overtakes queued PARTY chatter and, with narrationPreemption, cuts off a
+ * lower-lane narration that is playing (AudioSink.stop(), PTT released, rest skipped).
+ * The same cut-off backs the cancel API - cancelCurrent(), flush(), cancel(correlationId) -
+ * bound to the skipNarrationKey hotkey: it also aborts the in-flight XTTS responses and
+ * the SAPI speech, and releases PTT at once.
+ * Long narrations are split by SpeechSegmenter into sentence / clause segments that go
+ * through the pipeline as consecutive utterances: synthesized in parallel, played in order,
+ * PTT held from the first segment to the last.
+ * Short phrases are teed into the PhraseCache while they stream; a cache hit skips
+ * synthesis (and the slot) entirely and plays from memory.
+ *
+ * Synthesis, audio output and PTT go through the Sinks interfaces, so the same
+ * queueing / fallback / PTT logic runs headless against FakeXttsServer,
+ * SimulatedAudioSink and CountingPttSink (MitmReplay --tts, VoiceGeneratorTest).
+ *
  * VN-parity: Uses Main.getProperties() for Java Properties-based persistence.
  */
 public class VoiceGenerator {
     private static final Logger logger = LoggerFactory.getLogger(VoiceGenerator.class);
-    private static final Gson GSON = new Gson();
     private static VoiceGenerator instance;
 
     private static final int DEFAULT_KEY = KeyEvent.VK_V;
-    private static final String XTTS_API_URL = "http://127.0.0.1:5005/speak";
-    private static final Duration XTTS_CONNECT_TIMEOUT = Duration.ofSeconds(5);
-    private static final Duration XTTS_REQUEST_TIMEOUT = Duration.ofSeconds(120);
     private static final String DEFAULT_LANGUAGE = "en";
+    private static final int MAX_LOOKAHEAD = 8;
+    private static final int MAX_QUEUE_CAPACITY = 64;
+    private static final long SLOT_POLL_MILLIS = 20;
+    /** Synthesis order: lane first, then submit order */
+    private static final Comparator<Utterance> SYNTH_ORDER =
+        Comparator.comparing((Utterance u) -> u.narration.lane).thenComparingLong(u -> u.sequence);
+
+    /**
+     * Everything VoiceGenerator talks to outside the JVM.
+     *
+     * @param speech   Neural TTS (XTTS)
+     * @param audio    Output for the neural TTS stream
+     * @param ptt      Push-to-Talk key events
+     * @param fallback Self-playing fallback voice (SAPI)
+     * @param cache    XTTS audio of recurring phrases, or null for none
+     */
+    public record Sinks(SpeechSynthesizer speech, AudioSink audio, PttSink ptt, FallbackSynthesizer fallback,
+                        PhraseCache cache) {
+
+        public Sinks(SpeechSynthesizer speech, AudioSink audio, PttSink ptt, FallbackSynthesizer fallback) {
+            this(speech, audio, ptt, fallback, null);
+        }
 
-    private final Robot robot;
-    private final InbuiltVoiceSynthesizer synthesizer;
-    private final HttpClient xttsHttpClient;
+        /**
+         * Production wiring: XTTS at ValVoiceConfig.xttsUrl gated by the backend's engine state,
+         * LineAudioSink on the system audio device, java.awt.Robot and the given SAPI synthesizer.
+         */
+        public static Sinks system(InbuiltVoiceSynthesizer synthesizer) {
+            ValVoiceConfig config = ConfigManager.get();
+            SpeechSynthesizer speech = HttpSpeechSynthesizer.forLoopback(
+                config != null ? config.xttsUrl : null,
+                () -> ValVoiceBackend.getInstance().isEngineReady(),
+                () -> ValVoiceBackend.getInstance().markDegraded(),
+                () -> ValVoiceBackend.getInstance().setEngineReady());
+            // VoiceGenerator owns the full PTT lifecycle for XTTS and fallback playback.
+            synthesizer.setPttEnabled(false);
+            return new Sinks(speech, new LineAudioSink(), new RobotPttSink(), synthesizer, systemCache(config));
+        }
+
+        /** Phrase cache in %LOCALAPPDATA%\ValVoice\cache (next to config.json), or null if disabled */
+        private static PhraseCache systemCache(ValVoiceConfig config) {
+            if (config == null || !config.phraseCacheEnabled) {
+                return null;
+            }
+            long mb = 1024L * 1024;
+            Path dir = config.phraseCacheDiskMb > 0
+                ? ConfigManager.getConfigPath().getParent().resolve("cache")
+                : null;
+            return new PhraseCache(Math.max(1, config.phraseCacheMemoryMb) * mb, dir,
+                Math.max(0, config.phraseCacheDiskMb) * mb);
+        }
+    }
+
+    private final SpeechSynthesizer speech;
+    private final AudioSink audioSink;
+    private final PttSink pttSink;
+    private final FallbackSynthesizer synthesizer;
+    private final PhraseCache phraseCache;
+    // Background pre-synthesis of prewarmPhrases (null = off); cancelled by real narration
+    private volatile PhraseWarmer phraseWarmer = null;
+    // Narrations submitted and not yet finished playing
+    private final AtomicInteger pendingNarrations = new AtomicInteger();
     private final AtomicBoolean pttPressed = new AtomicBoolean(false);
     private final AtomicInteger activePttKeyCode = new AtomicInteger(DEFAULT_KEY);
-    // Single-threaded executor ensures strict FIFO ordering - no overlapping speech
-    private final ExecutorService ttsExecutor = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "tts-speaker");
+    // Narrations waiting for the single tts-speaker thread (strict FIFO - no overlapping speech)
+    private final NarrationQueue<Narration> narrationQueue;
+    // Utterances waiting for synthesis; tts-synth-scheduler hands them out in SYNTH_ORDER
+    private final PriorityBlockingQueue<Utterance> synthQueue = new PriorityBlockingQueue<>(16, SYNTH_ORDER);
+    private final AtomicLong utteranceSequence = new AtomicLong();
+    // Utterance the tts-speaker is blocked on (waiting for its first XTTS byte), or null
+    private volatile Utterance awaited = null;
+    // Runs the XTTS requests; at most ttsLookahead at a time (bounded by the slots)
+    private final AtomicInteger synthThreads = new AtomicInteger();
+    private final ExecutorService synthExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "tts-synth-" + synthThreads.incrementAndGet());
         t.setDaemon(true);
         return t;
     });
+    // Lookahead slots: taken in synthesis order before synthesis, freed after playback
+    private final Semaphore lookahead;
+    // Keeps synthesis sequence numbers and the narration queue in the same order when narrations arrive concurrently
+    private final Object enqueueLock = new Object();
     private int keyEvent = DEFAULT_KEY;
     private boolean pttEnabled = true;
     private String currentVoice = "Microsoft Zira Desktop";
     private short currentVoiceRate = 50;
     private volatile boolean isSpeaking = false;
+    // PipelineEvents correlation of the narration being spoken (tts-speaker thread) and its PTT hold span
+    private volatile long speakingCorrelationId = 0;
+    private volatile PipelineEvents.PttReleased pttHold = null;
+    // Narration the tts-speaker is playing (null = idle); target of preemption and cancelCurrent()
+    private volatile Narration playing = null;
+    private final Thread schedulerThread;
+    private final Thread speakerThread;
+    // shutdown() called: new narrations are rejected
+    private volatile boolean shutDown = false;
+
+    /** One narration moving through synthesis → playback. */
+    private static final class Utterance {
+        final String voice;
+        final String text;
+        final short rate;
+        final long correlationId;
+        final PipelineEvents.TtsQueued queued;
+        // PipelineMetrics clocks (System.nanoTime(), 0 = not reached)
+        final long submitNanos = System.nanoTime();
+        volatile long firstByteNanos = 0;
+        volatile long playbackStartNanos = 0;
+        // Completed by the synthesis stage: the (possibly still filling) buffer,
+        // null when routed straight to the fallback voice, or the XTTS failure
+        final CompletableFuture<SpeechBuffer> speech = new CompletableFuture<>();
+        volatile boolean holdsSlot = false;
+        // PhraseCache key when the text is short enough to cache (null = not cacheable)
+        String cacheKey = null;
+        // More segments of the same narration follow: keep PTT held after this one
+        final boolean continued;
+        private final AtomicBoolean slotReleased = new AtomicBoolean(false);
+        final Narration narration;
+        final long sequence;
+        // XTTS language, set once routed to synthesis (tts-synth-scheduler only)
+        String language = null;
+        // XTTS response being drained (closed to abort it), or null
+        volatile SpeechSynthesizer.Speech response = null;
+        // Being spoken by the fallback synthesizer
+        volatile boolean fallbackPlaying = false;
+
+        Utterance(Narration narration, long sequence, String voice, String text, short rate, long correlationId,
+                  boolean continued) {
+            this.narration = narration;
+            this.sequence = sequence;
+            this.voice = voice;
+            this.text = text;
+            this.rate = rate;
+            this.correlationId = correlationId;
+            this.continued = continued;
+            this.queued = PipelineEvents.ttsQueued(correlationId, text.length());
+        }
+    }
+
+    /** One message as queued for the speaker: its segments are played back to back. */
+    private static final class Narration {
+        final List<Utterance> segments = new ArrayList<>(1);
+        final long correlationId;
+        final NarrationLane lane;
+        final long arrivalNanos = System.nanoTime();
+        // Cut off (preempted or cancelled): stop playing, skip the remaining segments
+        volatile boolean stopped = false;
+
+        Narration(long correlationId, NarrationLane lane) {
+            this.correlationId = correlationId;
+            this.lane = lane;
+        }
+    }
 
-    private VoiceGenerator(InbuiltVoiceSynthesizer synthesizer) {
-        this.synthesizer = synthesizer;
-        this.robot = createRobot();
-        this.xttsHttpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_1_1)
-            .connectTimeout(XTTS_CONNECT_TIMEOUT)
-            .followRedirects(HttpClient.Redirect.NEVER)
-            .build();
+    VoiceGenerator(Sinks sinks) {
+        this.speech = sinks.speech();
+        this.audioSink = sinks.audio();
+        this.pttSink = sinks.ptt();
+        this.synthesizer = sinks.fallback();
+        this.phraseCache = sinks.cache();
+        ValVoiceConfig config = ConfigManager.get();
+        int slots = config != null ? config.ttsLookahead : 2;
+        this.lookahead = new Semaphore(Math.max(1, Math.min(MAX_LOOKAHEAD, slots)), true);
+        this.narrationQueue = new NarrationQueue<>(
+            config != null ? Math.min(MAX_QUEUE_CAPACITY, config.narrationQueueCapacity) : 6,
+            config != null ? TimeUnit.SECONDS.toMillis(Math.max(0, config.narrationDeadlineSeconds)) : 8_000,
+            config != null && "NEWEST".equalsIgnoreCase(config.narrationDropPolicy)
+                ? NarrationQueue.DropPolicy.NEWEST
+                : NarrationQueue.DropPolicy.OLDEST,
+            this::narrationDropped);
         loadConfig();
-        // VoiceGenerator now owns the full PTT lifecycle for XTTS and fallback playback.
-        this.synthesizer.setPttEnabled(false);
+        schedulerThread = new Thread(this::synthSchedulerLoop, "tts-synth-scheduler");
+        schedulerThread.setDaemon(true);
+        schedulerThread.start();
+        speakerThread = new Thread(this::speakerLoop, "tts-speaker");
+        speakerThread.setDaemon(true);
+        speakerThread.start();
         logger.info("VoiceGenerator initialized - keybind={}, PTT={}",
             KeyEvent.getKeyText(keyEvent), pttEnabled);
     }
 
     public static synchronized void initialize(InbuiltVoiceSynthesizer synthesizer) {
+        initialize(Sinks.system(synthesizer));
+    }
+
+    /**
+     * Initialize with custom sinks (headless replay / load tests).
+     */
+    public static synchronized void initialize(Sinks sinks) {
         if (instance == null) {
-            instance = new VoiceGenerator(synthesizer);
+            instance = new VoiceGenerator(sinks);
+            instance.registerGauges(PipelineMetrics.getInstance());
+            instance.startPhraseWarmer(sinks);
         }
     }
 
+    private void startPhraseWarmer(Sinks sinks) {
+        ValVoiceConfig config = ConfigManager.get();
+        if (phraseCache == null || config == null || !config.prewarmEnabled) {
+            return;
+        }
+        PhraseWarmer warmer = new PhraseWarmer(this, sinks.speech(), phraseCache,
+            () -> {
+                ValVoiceConfig current = ConfigManager.get();
+                return current != null && current.prewarmPhrases != null ? current.prewarmPhrases : List.of();
+            },
+            () -> GameStateManager.getInstance().getCurrentState() == GameStateManager.GameState.MENUS);
+        phraseWarmer = warmer;
+        warmer.start();
+    }
+
+    private void registerGauges(PipelineMetrics metrics) {
+        NarrationQueue<Narration> queue = narrationQueue;
+        metrics.registerGauge("valvoice_narration_queue_depth", "Narrations waiting for the tts-speaker",
+            queue::size);
+        metrics.registerGauge("valvoice_narration_queue_capacity", "Narrations allowed to wait before dropping",
+            queue::getCapacity);
+        metrics.registerGauge("valvoice_narration_queue_wait_p99_seconds",
+            "99th percentile of narration arrival to playback pickup", () -> queue.getWait().getQuantileMillis(0.99) / 1000.0);
+        for (NarrationLane lane : NarrationLane.values()) {
+            String suffix = lane.name().toLowerCase(Locale.ROOT);
+            metrics.registerGauge("valvoice_narration_queue_wait_p50_seconds_" + suffix,
+                "Median narration arrival to playback pickup, " + lane + " lane",
+                () -> queue.getWait(lane).getQuantileMillis(0.50) / 1000.0);
+            metrics.registerGauge("valvoice_narration_queue_wait_p99_seconds_" + suffix,
+                "99th percentile of narration arrival to playback pickup, " + lane + " lane",
+                () -> queue.getWait(lane).getQuantileMillis(0.99) / 1000.0);
+        }
+        if (speech instanceof HttpSpeechSynthesizer http) {
+            XttsCircuitBreaker breaker = http.getCircuitBreaker();
+            metrics.registerGauge("valvoice_xtts_circuit_state", "XTTS circuit breaker: 0 closed, 1 half-open, 2 open",
+                () -> switch (breaker.getState()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                });
+            metrics.registerGauge("valvoice_xtts_first_byte_timeout_seconds",
+                "Adaptive wait for XTTS audio before falling back to SAPI", () -> breaker.firstByteTimeoutMillis() / 1000.0);
+        }
+        PhraseCache cache = phraseCache;
+        if (cache == null) {
+            return;
+        }
+        metrics.registerGauge("valvoice_phrase_cache_hit_ratio", "Phrase cache hits per XTTS lookup",
+            cache::getHitRatio);
+        metrics.registerGauge("valvoice_phrase_cache_memory_bytes", "Audio bytes held in the in-memory phrase cache",
+            cache::getMemoryBytes);
+        metrics.registerGauge("valvoice_phrase_cache_disk_bytes", "Bytes of phrase cache files on disk",
+            cache::getDiskBytes);
+    }
+
+    /** @return The bounded narration queue in front of the tts-speaker (depth, drops, wait) */
+    NarrationQueue<?> getNarrationQueue() {
+        return narrationQueue;
+    }
+
+    /** @return The phrase cache, or null if disabled */
+    public PhraseCache getPhraseCache() {
+        return phraseCache;
+    }
+
     public static VoiceGenerator getInstance() {
         if (instance == null) {
             throw new IllegalStateException("VoiceGenerator not initialized");
@@ -113,71 +353,532 @@ public class VoiceGenerator {
 
     /**
      * Speak text with PTT automation.
-     * XTTS is streamed directly from the HTTP response into JLayer with event-driven
-     * PTT synchronized to playbackStarted()/playbackFinished().
+     * XTTS is streamed directly from the synthesizer's response into the AudioSink with
+     * event-driven PTT synchronized to playbackStarted()/playbackFinished().
      */
     public void speakVoice(String voice, String text, short rate) {
-        if (text == null || text.isBlank()) return;
+        speakVoice(voice, text, rate, 0, null);
+    }
+
+    /**
+     * Backpressure signal for producers (ChatDataHandler): the narration queue is full and
+     * would reject the next narration of this channel, so it can be dropped at the source.
+     *
+     * @param channel Chat.TYPE_* of the message (null = NORMAL lane)
+     * @return false if speakVoice() would currently reject the narration
+     */
+    public boolean isAcceptingNarrations(String channel) {
+        return !shutDown && narrationQueue.wouldAccept(laneFor(channel));
+    }
+
+    /** @return false if speakVoice() would currently reject a NORMAL-lane narration */
+    public boolean isAcceptingNarrations() {
+        return isAcceptingNarrations(null);
+    }
+
+    private static NarrationLane laneFor(String channel) {
+        return NarrationLane.of(channel, GameStateManager.getInstance().getCurrentState());
+    }
+
+    /**
+     * Speak text with PTT automation, tagging the JFR pipeline events with a correlation id.
+     *
+     * @param correlationId PipelineEvents id of the originating chat message (0 = none)
+     * @return false if the narration was rejected by the full queue
+     */
+    public boolean speakVoice(String voice, String text, short rate, long correlationId) {
+        return speakVoice(voice, text, rate, correlationId, null);
+    }
+
+    /**
+     * Speak text with PTT automation in the NarrationLane of its chat channel.
+     *
+     * @param correlationId PipelineEvents id of the originating chat message (0 = none)
+     * @param channel       Chat.TYPE_* of the message, picks the NarrationLane (null = NORMAL)
+     * @return false if the narration was rejected by the full queue
+     */
+    public boolean speakVoice(String voice, String text, short rate, long correlationId, String channel) {
+        if (shutDown || text == null || text.isBlank()) return false;
 
         String narrationText = text.trim();
 
         logger.debug("Narrating: '{}' (voice={})",
             narrationText.length() > 50 ? narrationText.substring(0, 47) + "..." : narrationText, voice);
 
-        // Submit to single-threaded executor for strict FIFO ordering
-        ttsExecutor.submit(() -> {
-            isSpeaking = true;
+        ValVoiceConfig config = ConfigManager.get();
+        List<String> segments = config == null || config.sentenceSegmentation
+            ? SpeechSegmenter.split(narrationText)
+            : List.of(narrationText);
+        PhraseWarmer warmer = phraseWarmer;
+        if (warmer != null) {
+            warmer.onNarration();
+        }
+        Narration narration = new Narration(correlationId, laneFor(channel));
+        synchronized (enqueueLock) {
+            for (int i = 0; i < segments.size(); i++) {
+                narration.segments.add(
+                    new Utterance(narration, utteranceSequence.incrementAndGet(), voice, segments.get(i), rate,
+                        correlationId, i < segments.size() - 1));
+                pendingNarrations.incrementAndGet();
+                PipelineMetrics.getInstance().ttsSubmitted();
+            }
+            if (!narrationQueue.offer(narration, narration.lane, narration.arrivalNanos)) {
+                return false;
+            }
+            synthQueue.addAll(narration.segments);
+        }
+        preemptFor(narration);
+        return true;
+    }
+
+    /**
+     * Cut off the playing narration if the arrival outranks it (narrationPreemption).
+     * Playback stops at once, PTT is released by the tts-speaker and the remaining
+     * segments are skipped; the arrival is next in line.
+     */
+    private void preemptFor(Narration arrival) {
+        ValVoiceConfig config = ConfigManager.get();
+        Narration current = playing;
+        if (config == null || !config.narrationPreemption || current == null
+            || !arrival.lane.outranks(current.lane) || !cutOff(current)) {
+            return;
+        }
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.PREEMPTED,
+            current.correlationId, arrival.lane.name(), arrival.correlationId);
+        PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.PREEMPTED);
+        logger.debug("[VoiceGenerator] {} narration preempts the playing {} narration", arrival.lane, current.lane);
+    }
+
+    /**
+     * Skip the narration that is playing: audio stops within one frame, PTT is released
+     * immediately and its remaining segments are not played. The queue moves on.
+     *
+     * @return false if nothing was playing
+     */
+    public boolean cancelCurrent() {
+        Narration current = playing;
+        if (current == null || !cutOff(current)) {
+            return false;
+        }
+        recordCancelled(current, 0);
+        releasePtt();
+        logger.info("[VoiceGenerator] Narration skipped");
+        return true;
+    }
+
+    /**
+     * Drop every queued narration and skip the one playing.
+     *
+     * @return Number of narrations cancelled
+     */
+    public int flush() {
+        // Queue first, so the speaker does not pick up the next one
+        int cancelled = narrationQueue.clear();
+        if (cancelCurrent()) {
+            cancelled++;
+        }
+        logger.info("[VoiceGenerator] Narration queue flushed ({} cancelled)", cancelled);
+        return cancelled;
+    }
+
+    /**
+     * Stop the pipeline for good: queued narrations are dropped, the playing one is cut off
+     * (PTT released), the phrase warmer stops and the tts-speaker, tts-synth-scheduler and
+     * synthesis threads end. Later narrations are rejected.
+     */
+    public void shutdown() {
+        shutDown = true;
+        PhraseWarmer warmer = phraseWarmer;
+        if (warmer != null) {
+            warmer.stop();
+        }
+        flush();
+        schedulerThread.interrupt();
+        speakerThread.interrupt();
+        synthExecutor.shutdownNow();
+        releasePtt();
+        logger.info("[VoiceGenerator] Shut down");
+    }
+
+    /**
+     * Cancel the narration of one chat message, queued or playing.
+     *
+     * @param correlationId PipelineEvents id the message was queued with (Message.getCorrelationId())
+     * @return false if no such narration is queued or playing
+     */
+    public boolean cancel(long correlationId) {
+        if (correlationId == 0) {
+            return false;
+        }
+        boolean cancelled = narrationQueue.removeIf(n -> n.correlationId == correlationId) > 0;
+        Narration current = playing;
+        if (current != null && current.correlationId == correlationId) {
+            cancelled |= cancelCurrent();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Mark a playing narration stopped and cut its audio off wherever it is: segments waiting
+     * for their first XTTS byte stop waiting, XTTS responses are aborted, the sink stops and
+     * SAPI speech is cancelled. The tts-speaker releases PTT and skips the rest.
+     *
+     * @return false if it had already been cut off
+     */
+    private boolean cutOff(Narration narration) {
+        synchronized (narration) {
+            if (narration.stopped) {
+                return false;
+            }
+            narration.stopped = true;
+        }
+        boolean fallback = false;
+        for (Utterance utterance : narration.segments) {
+            utterance.speech.complete(null);
+            closeResponse(utterance);
+            fallback |= utterance.fallbackPlaying;
+        }
+        audioSink.stop();
+        if (fallback) {
+            synthesizer.cancel();
+        }
+        return true;
+    }
+
+    private void recordCancelled(Narration narration, long waitedNanos) {
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.CANCELLED,
+            narration.correlationId, narration.lane.name(), TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+        PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.CANCELLED);
+    }
+
+    /** Abort the utterance's XTTS response: a blocked read fails and synthesis ends. */
+    private static void closeResponse(Utterance utterance) {
+        SpeechSynthesizer.Speech response = utterance.response;
+        if (response != null) {
             try {
-                ValVoiceConfig config = ConfigManager.get();
-                boolean xttsEnabled = config != null && config.xttsEnabled;
-                boolean engineReady = ValVoiceBackend.getInstance().isEngineReady();
-                boolean sapiFallbackEnabled = config == null || config.sapiFallbackEnabled;
-                boolean useXtts = xttsEnabled && engineReady;
-
-                logger.debug("[VoiceGenerator] Routing Check xttsEnabled={} engineReady={} sapiFallbackEnabled={} useXtts={}",
-                    xttsEnabled, engineReady, sapiFallbackEnabled, useXtts);
-
-                if (useXtts) {
-                    try {
-                        streamXttsVoice(voice, narrationText, resolveLanguage(config));
-                        return;
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        logger.warn("[VoiceGenerator] XTTS streaming interrupted");
-                        return;
-                    } catch (IOException e) {
-                        logger.warn("[VoiceGenerator] XTTS request failed, falling back to inbuilt synthesizer: {}",
-                            e.getMessage());
+                response.close();
+            } catch (IOException e) {
+                logger.debug("[VoiceGenerator] Closing aborted XTTS response failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Playback stage driver, on tts-speaker: take narrations in lane / FIFO order and play
+     * their segments back to back (PTT stays held across segments).
+     */
+    private void speakerLoop() {
+        while (true) {
+            Narration narration;
+            try {
+                narration = narrationQueue.take();
+            } catch (InterruptedException e) {
+                if (!shutDown) {
+                    logger.warn("[VoiceGenerator] tts-speaker interrupted - narration stopped");
+                }
+                return;
+            }
+            playing = narration;
+            try {
+                for (Utterance utterance : narration.segments) {
+                    if (narration.stopped) {
+                        discard(utterance);
+                    } else {
+                        play(utterance);
                     }
                 }
+            } finally {
+                playing = null;
+            }
+        }
+    }
 
-                if (!sapiFallbackEnabled) {
-                    logger.warn("[VoiceGenerator] XTTS unavailable and SAPI fallback disabled - dropping narration");
-                    return;
+    /**
+     * NarrationQueue drop: the narration will never play. Stop its synthesis and free
+     * its lookahead slots and buffers.
+     */
+    private void narrationDropped(Narration narration, NarrationQueue.DropReason reason, long waitedNanos) {
+        if (reason == NarrationQueue.DropReason.CANCELLED) {
+            recordCancelled(narration, waitedNanos);
+        } else {
+            DiagnosticRing.Verdict verdict = reason == NarrationQueue.DropReason.EXPIRED
+                ? DiagnosticRing.Verdict.EXPIRED
+                : DiagnosticRing.Verdict.OVERFLOW;
+            DiagnosticRing.getInstance().record(DiagnosticRing.Stage.TTS_QUEUE, verdict, narration.correlationId,
+                narration.lane.name(), TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+            PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.TTS_QUEUE, verdict);
+        }
+        logger.debug("[VoiceGenerator] {} narration dropped ({}) after {} ms in queue", narration.lane, reason,
+            TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+        for (Utterance utterance : narration.segments) {
+            discard(utterance);
+        }
+    }
+
+    /** Retire an utterance that will not be played (dropped, preempted or cancelled narration). */
+    private void discard(Utterance utterance) {
+        // Not synthesized yet: nothing will be. Already buffering: the response is aborted.
+        utterance.speech.complete(null);
+        closeResponse(utterance);
+        utterance.speech.thenAccept(buffer -> {
+            if (buffer != null) {
+                buffer.discard();
+            }
+        });
+        releaseSlot(utterance);
+        PipelineMetrics.getInstance().ttsStarted();
+        pendingNarrations.decrementAndGet();
+    }
+
+    /** Free the utterance's lookahead slot, once, if it took one. */
+    private void releaseSlot(Utterance utterance) {
+        if (utterance.holdsSlot && utterance.slotReleased.compareAndSet(false, true)) {
+            lookahead.release();
+        }
+    }
+
+    /**
+     * Synthesis stage driver, on tts-synth-scheduler: route each utterance and, for XTTS,
+     * wait for a lookahead slot and start the request.
+     */
+    private void synthSchedulerLoop() {
+        while (true) {
+            Utterance utterance;
+            try {
+                utterance = synthQueue.take();
+            } catch (InterruptedException e) {
+                if (!shutDown) {
+                    logger.warn("[VoiceGenerator] tts-synth-scheduler interrupted - synthesis stopped");
                 }
+                return;
+            }
+            if (utterance.language == null && !route(utterance)) {
+                continue;
+            }
+            if (acquireSlot(utterance)) {
+                synthExecutor.execute(() -> synthesize(utterance, utterance.language));
+            }
+        }
+    }
 
-                if (!synthesizer.isReady()) {
-                    logger.warn("InbuiltVoiceSynthesizer not ready - cannot fall back");
+    /**
+     * Decide where the utterance's audio comes from: the phrase cache, the fallback voice
+     * (speech completed with null) or XTTS.
+     *
+     * @return true if it needs an XTTS request
+     */
+    private boolean route(Utterance utterance) {
+        ValVoiceConfig config = ConfigManager.get();
+        boolean xttsEnabled = config != null && config.xttsEnabled;
+        boolean engineReady = speech.isReady();
+        boolean useXtts = xttsEnabled && engineReady;
+
+        logger.debug("[VoiceGenerator] Routing Check xttsEnabled={} engineReady={} useXtts={}",
+            xttsEnabled, engineReady, useXtts);
+
+        if (utterance.speech.isDone()) {
+            // Dropped or preempted before its turn
+            return false;
+        }
+        String language = resolveLanguage(config);
+        if (xttsEnabled && phraseCache != null && PhraseCache.isCacheable(utterance.text)) {
+            // Cached XTTS audio plays even while the engine is down
+            utterance.cacheKey = PhraseCache.key(utterance.voice, language, utterance.text);
+            PhraseCache.Entry cached = phraseCache.get(utterance.cacheKey);
+            if (cached != null) {
+                utterance.firstByteNanos = System.nanoTime();
+                PipelineMetrics.getInstance().dispatchToFirstByte().recordSince(utterance.submitNanos);
+                utterance.speech.complete(SpeechBuffer.completed(cached.contentType(), cached.audio()));
+                return false;
+            }
+        }
+
+        if (!useXtts) {
+            utterance.speech.complete(null);
+            return false;
+        }
+        utterance.language = language;
+        return true;
+    }
+
+    /**
+     * Wait for a lookahead slot. Gives way (re-queues the utterance) when a higher-lane one
+     * arrives meanwhile, and goes ahead without a slot when the speaker is already waiting
+     * for it - every slot may be held by lower-lane audio that only plays after it.
+     *
+     * @return true to start the request now
+     */
+    private boolean acquireSlot(Utterance utterance) {
+        try {
+            while (!lookahead.tryAcquire(SLOT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (utterance.speech.isDone()) {
+                    return false;
+                }
+                if (awaited == utterance) {
+                    return true;
+                }
+                Utterance head = synthQueue.peek();
+                if (head != null && SYNTH_ORDER.compare(head, utterance) < 0) {
+                    synthQueue.add(utterance);
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            utterance.speech.complete(null);
+            return false;
+        }
+        utterance.holdsSlot = true;
+        if (utterance.speech.isDone()) {
+            // Dropped / preempted while waiting for the slot (the drop may have missed holdsSlot)
+            releaseSlot(utterance);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Send the XTTS request and drain the response into a SpeechBuffer, publishing the
+     * buffer at the first response so playback can stream the head of the queue.
+     */
+    private void synthesize(Utterance utterance, String language) {
+        PipelineEvents.XttsFirstByte firstByte = PipelineEvents.xttsRequestSent(utterance.correlationId, utterance.text.length());
+        SpeechBuffer buffer = null;
+        try (SpeechSynthesizer.Speech response = speech.synthesize(utterance.voice, utterance.text, language)) {
+            buffer = new SpeechBuffer(response.contentType());
+            utterance.response = response;
+            if (!utterance.speech.complete(buffer)) {
+                // Dropped / preempted before the response arrived: it will not be played
+                releaseSlot(utterance);
+                return;
+            }
+            ByteArrayOutputStream tee = utterance.cacheKey != null ? new ByteArrayOutputStream(32 * 1024) : null;
+            InputStream audio = response.audio();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = audio.read(chunk, 0, chunk.length)) >= 0) {
+                if (n == 0) {
+                    continue;
+                }
+                if (utterance.firstByteNanos == 0) {
+                    PipelineEvents.xttsFirstByte(firstByte, 200);
+                    utterance.firstByteNanos = System.nanoTime();
+                    PipelineMetrics.getInstance().dispatchToFirstByte().recordSince(utterance.submitNanos);
+                }
+                buffer.write(chunk, 0, n);
+                if (tee != null) {
+                    tee.write(chunk, 0, n);
+                    if (tee.size() > PhraseCache.MAX_ENTRY_BYTES) {
+                        tee = null;
+                    }
+                }
+            }
+            buffer.finish();
+            if (tee != null) {
+                phraseCache.put(utterance.cacheKey, response.contentType(), tee.toByteArray());
+            }
+        } catch (IOException e) {
+            if (buffer == null) {
+                utterance.speech.completeExceptionally(e);
+            } else {
+                buffer.fail(e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IOException interrupted = new IOException("XTTS request interrupted");
+            if (buffer == null) {
+                utterance.speech.completeExceptionally(interrupted);
+            } else {
+                buffer.fail(interrupted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("[VoiceGenerator] XTTS synthesis error", e);
+            if (buffer == null) {
+                utterance.speech.completeExceptionally(new IOException(e));
+            } else {
+                buffer.fail(new IOException(e));
+            }
+        }
+    }
+
+    /**
+     * Playback stage, on tts-speaker in strict FIFO order.
+     */
+    private void play(Utterance utterance) {
+        PipelineEvents.ttsDequeued(utterance.queued);
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.ttsStarted();
+        isSpeaking = true;
+        speakingCorrelationId = utterance.correlationId;
+        SpeechBuffer buffer = null;
+        try {
+            ValVoiceConfig config = ConfigManager.get();
+            boolean sapiFallbackEnabled = config == null || config.sapiFallbackEnabled;
+
+            try {
+                awaited = utterance;
+                try {
+                    buffer = utterance.speech.get();
+                } finally {
+                    awaited = null;
+                }
+                if (utterance.narration.stopped) {
+                    return;
+                }
+                if (buffer != null) {
+                    playXttsVoice(utterance, buffer);
                     return;
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("[VoiceGenerator] XTTS streaming interrupted");
+                return;
+            } catch (ExecutionException | IOException e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                metrics.xttsFailure();
+                logger.warn("[VoiceGenerator] XTTS request failed, falling back to inbuilt synthesizer: {}",
+                    cause.getMessage());
+            }
 
-                logger.debug("Starting fallback audio playback");
-                playFallbackVoice(voice, narrationText, rate);
-                logger.debug("Fallback audio playback finished");
+            if (utterance.narration.stopped) {
+                return;
+            }
+            if (!sapiFallbackEnabled) {
+                logger.warn("[VoiceGenerator] XTTS unavailable and SAPI fallback disabled - dropping narration");
+                return;
+            }
 
-            } catch (Exception e) {
-                logger.error("TTS error", e);
-            } finally {
-                releasePtt();
-                isSpeaking = false;
+            if (!synthesizer.isReady()) {
+                logger.warn("InbuiltVoiceSynthesizer not ready - cannot fall back");
+                return;
             }
-        });
+
+            logger.debug("Starting fallback audio playback");
+            playFallbackVoice(utterance);
+            logger.debug("Fallback audio playback finished");
+
+        } catch (Exception e) {
+            logger.error("TTS error", e);
+        } finally {
+            endOfSegment(utterance);
+            if (buffer != null) {
+                buffer.discard();
+            }
+            releaseSlot(utterance);
+            pendingNarrations.decrementAndGet();
+            isSpeaking = false;
+            speakingCorrelationId = 0;
+        }
     }
 
     public void speak(String text) {
         speakVoice(currentVoice, text, currentVoiceRate);
     }
 
+    private boolean speak(String text, long correlationId, String channel) {
+        return speakVoice(currentVoice, text, currentVoiceRate, correlationId, channel);
+    }
+
     /**
      * Queue a message for TTS narration.
      * Uses stored voice and rate settings.
@@ -188,19 +889,21 @@ public class VoiceGenerator {
      *
      * @param msg The message to narrate (uses msg.getContent())
      */
-    public void queueNarration(Message msg) {
+    public boolean queueNarration(Message msg) {
         if (msg == null || msg.getContent() == null || msg.getContent().isEmpty()) {
             logger.debug("queueNarration: null or empty message, skipping");
-            return;
+            return false;
         }
 
-        logger.info("🔊 TTS QUEUED: \"{}\" (voice: {}, rate: {}, PTT: {})",
-            msg.getContent().length() > 50 ? msg.getContent().substring(0, 47) + "..." : msg.getContent(),
-            currentVoice,
-            currentVoiceRate,
-            pttEnabled);
+        if (logger.isDebugEnabled()) {
+            logger.debug("🔊 TTS QUEUED: \"{}\" (voice: {}, rate: {}, PTT: {})",
+                msg.getContent().length() > 50 ? msg.getContent().substring(0, 47) + "..." : msg.getContent(),
+                currentVoice,
+                currentVoiceRate,
+                pttEnabled);
+        }
 
-        speak(msg.getContent());
+        return speak(msg.getContent(), msg.getCorrelationId(), msg.getMessageType());
     }
 
     /**
@@ -213,14 +916,39 @@ public class VoiceGenerator {
      * @param text The text to narrate (must not be null or blank)
      */
     public void queueNarration(String text) {
+        queueNarration(text, 0);
+    }
+
+    /**
+     * Queue plain text for TTS narration, tagging the JFR pipeline events with a correlation id.
+     *
+     * @param text          The text to narrate (must not be null or blank)
+     * @param correlationId PipelineEvents id assigned by the caller (0 = none)
+     * @return false if the narration was rejected by the full queue (NEWEST drop policy)
+     */
+    public boolean queueNarration(String text, long correlationId) {
+        return queueNarration(text, correlationId, null);
+    }
+
+    /**
+     * Queue plain text for TTS narration in the lane of its chat channel.
+     *
+     * @param text          The text to narrate (must not be null or blank)
+     * @param correlationId PipelineEvents id assigned by the caller (0 = none)
+     * @param channel       Chat.TYPE_* the line was read from (null = NORMAL lane)
+     * @return false if the narration was rejected by the full queue
+     */
+    public boolean queueNarration(String text, long correlationId, String channel) {
         if (text == null || text.isBlank()) {
             logger.debug("queueNarration(String): null/blank - skipped");
-            return;
+            return false;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("TTS [OCR] QUEUED: \"{}\": voice={}, rate={}, PTT={}",
+                text.length() > 50 ? text.substring(0, 47) + "..." : text,
+                currentVoice, currentVoiceRate, pttEnabled);
         }
-        logger.info("TTS [OCR] QUEUED: \"{}\": voice={}, rate={}, PTT={}",
-            text.length() > 50 ? text.substring(0, 47) + "..." : text,
-            currentVoice, currentVoiceRate, pttEnabled);
-        speak(text);
+        return speak(text, correlationId, channel);
     }
 
     public void setKeybind(int keyCode) {
@@ -259,6 +987,10 @@ public class VoiceGenerator {
     public void setCurrentVoice(String voice) {
         this.currentVoice = voice;
         saveConfig();
+        PhraseWarmer warmer = phraseWarmer;
+        if (warmer != null) {
+            warmer.rewarm();
+        }
     }
 
     public String getCurrentVoice() {
@@ -292,6 +1024,21 @@ public class VoiceGenerator {
         return isSpeaking;
     }
 
+    /** @return Narrations queued or playing */
+    public int getPendingNarrations() {
+        return pendingNarrations.get();
+    }
+
+    /** @return XTTS language code of new narrations */
+    public String getLanguage() {
+        return resolveLanguage(ConfigManager.get());
+    }
+
+    /** Attach a phrase warmer (tests; production starts one in initialize()). */
+    void setPhraseWarmer(PhraseWarmer warmer) {
+        this.phraseWarmer = warmer;
+    }
+
     /**
      * VN-parity: Load config from Main.getProperties() (Java Properties).
      * Called once at startup. Errors fall back to defaults.
@@ -330,8 +1077,9 @@ public class VoiceGenerator {
 
             logger.info("[VoiceGenerator] Config loaded: voice={}, rate={}, pttKey={}, pttEnabled={}",
                 currentVoice, currentVoiceRate, KeyEvent.getKeyText(keyEvent), pttEnabled);
-        } catch (Exception e) {
-            logger.warn("[VoiceGenerator] Could not load config (using defaults): {}", e.getMessage());
+        } catch (Exception | LinkageError e) {
+            // LinkageError: Main cannot initialize without %APPDATA% (headless replay on Linux)
+            logger.warn("[VoiceGenerator] Could not load config (using defaults): {}", e.toString());
         }
     }
 
@@ -359,70 +1107,44 @@ public class VoiceGenerator {
                     props.store(out, "ValVoice User Configuration");
                 }
                 logger.debug("[VoiceGenerator] Config saved to: {}", Main.getConfigPath());
-            } catch (Exception e) {
-                logger.warn("[VoiceGenerator] Could not save config: {}", e.getMessage());
+            } catch (Exception | LinkageError e) {
+                logger.warn("[VoiceGenerator] Could not save config: {}", e.toString());
             }
         }, "config-saver").start();
     }
 
-    private Robot createRobot() {
-        try {
-            Robot createdRobot = new Robot();
-            createdRobot.setAutoDelay(0);
-            return createdRobot;
-        } catch (AWTException e) {
-            throw new IllegalStateException("Unable to initialize java.awt.Robot for Push-to-Talk", e);
+    private void playXttsVoice(Utterance utterance, SpeechBuffer buffer) throws IOException {
+        try (InputStream speechStream = buffer.newInputStream()) {
+            audioSink.play(speechStream, buffer.getContentType(),
+                new XttsPlaybackListener(utterance, PttRouter.resolveKeyForCurrentState()));
+        } finally {
+            endOfSegment(utterance);
         }
     }
 
-    private void streamXttsVoice(String voice, String text, String language) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(XTTS_API_URL))
-            .timeout(XTTS_REQUEST_TIMEOUT)
-            .header("Content-Type", "application/json; charset=utf-8")
-            .header("Accept", "audio/mpeg")
-            .POST(HttpRequest.BodyPublishers.ofString(buildJsonPayload(voice, text, language)))
-            .build();
-
-        HttpResponse<InputStream> response;
+    private void playFallbackVoice(Utterance utterance) {
+        PipelineEvents.playbackStarted(speakingCorrelationId, "SAPI");
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.sapiUtterance();
+        long startNanos = System.nanoTime();
+        utterance.fallbackPlaying = true;
         try {
-            response = xttsHttpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-        } catch (ConnectException e) {
-            logger.error("[VoiceGenerator] XTTS endpoint unreachable - marking engine as DEGRADED");
-            ValVoiceBackend.getInstance().markDegraded();
-            throw e;
-        }
-
-        if (response.statusCode() != 200) {
-            try (InputStream ignored = response.body()) {
-                // Close the response stream before surfacing the failure.
+            if (utterance.narration.stopped) {
+                // Cancelled before cutOff() could see fallbackPlaying
+                return;
             }
-            throw new IOException("XTTS request failed with status: " + response.statusCode());
-        }
-
-        AdvancedPlayer player = null;
-        try (InputStream speechStream = response.body()) {
-            player = new AdvancedPlayer(
-                speechStream,
-                FactoryRegistry.systemRegistry().createAudioDevice()
-            );
-            player.setPlayBackListener(new CustomPlaybackListener(PttRouter.resolveKeyForCurrentState()));
-            player.play();
-        } catch (JavaLayerException e) {
-            throw new IOException("XTTS streaming playback failed", e);
+            pressPtt(PttRouter.resolveKeyForCurrentState());
+            synthesizer.speak(utterance.voice, utterance.text, utterance.rate);
         } finally {
-            if (player != null) {
-                player.close();
-            }
-            releasePtt();
+            utterance.fallbackPlaying = false;
+            endOfSegment(utterance);
+            metrics.utterance().recordSince(startNanos);
         }
     }
 
-    private void playFallbackVoice(String voice, String text, short rate) {
-        pressPtt(PttRouter.resolveKeyForCurrentState());
-        try {
-            synthesizer.speakInbuiltVoice(voice, text, rate);
-        } finally {
+    /** Release PTT after the last segment of a narration (held across segment boundaries) or once cut off. */
+    private void endOfSegment(Utterance utterance) {
+        if (!utterance.continued || utterance.narration.stopped) {
             releasePtt();
         }
     }
@@ -434,14 +1156,6 @@ public class VoiceGenerator {
         return config.language;
     }
 
-    private String buildJsonPayload(String voice, String text, String language) {
-        Map<String, String> payload = new LinkedHashMap<>();
-        payload.put("agent", voice);
-        payload.put("text", text);
-        payload.put("language", language);
-        return GSON.toJson(payload);
-    }
-
     private void pressPtt(int keyCode) {
         if (!pttEnabled) {
             return;
@@ -452,9 +1166,8 @@ public class VoiceGenerator {
         }
 
         activePttKeyCode.set(keyCode);
-        synchronized (robot) {
-            robot.keyPress(keyCode);
-        }
+        pttSink.press(keyCode);
+        pttHold = PipelineEvents.pttPressed(speakingCorrelationId, keyCode);
         logger.debug("[VoiceGenerator] PTT pressed: {}", KeyEvent.getKeyText(keyCode));
     }
 
@@ -464,27 +1177,40 @@ public class VoiceGenerator {
         }
 
         int keyCode = activePttKeyCode.get();
-        synchronized (robot) {
-            robot.keyRelease(keyCode);
-        }
+        pttSink.release(keyCode);
+        PipelineEvents.pttReleased(pttHold);
+        pttHold = null;
         logger.debug("[VoiceGenerator] PTT released: {}", KeyEvent.getKeyText(keyCode));
     }
 
-    private final class CustomPlaybackListener extends PlaybackListener {
+    private final class XttsPlaybackListener implements AudioSink.Listener {
+        private final Utterance utterance;
         private final int playbackKeyCode;
 
-        private CustomPlaybackListener(int playbackKeyCode) {
+        private XttsPlaybackListener(Utterance utterance, int playbackKeyCode) {
+            this.utterance = utterance;
             this.playbackKeyCode = playbackKeyCode;
         }
 
         @Override
-        public void playbackStarted(PlaybackEvent evt) {
+        public void playbackStarted() {
+            if (utterance.narration.stopped) {
+                // Cut off before the sink had a player to stop
+                audioSink.stop();
+                return;
+            }
+            PipelineEvents.playbackStarted(utterance.correlationId, "XTTS");
+            PipelineMetrics metrics = PipelineMetrics.getInstance();
+            metrics.xttsUtterance();
+            metrics.firstByteToPlayback().recordSince(utterance.firstByteNanos);
+            utterance.playbackStartNanos = System.nanoTime();
             pressPtt(playbackKeyCode);
         }
 
         @Override
-        public void playbackFinished(PlaybackEvent evt) {
-            releasePtt();
+        public void playbackFinished() {
+            endOfSegment(utterance);
+            PipelineMetrics.getInstance().utterance().recordSince(utterance.playbackStartNanos);
         }
     }
 }
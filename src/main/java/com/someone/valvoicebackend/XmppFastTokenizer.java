@@ -0,0 +1,535 @@
+package com.someone.valvoicebackend;
+
+/**
+ * XmppFastTokenizer - Hand-written tokenizer for the few Riot stanza shapes we parse.
+ *
+ * XmppStreamParser's StAX path creates an XMLStreamReader + StringReader per
+ * stanza, lowercases every attribute name and builds a StringBuilder per body.
+ * This tokenizer copies the stanza into a reused char[] window and records
+ * field OFFSETS (from, to, id, type, stamp, jid, carbon target, body, presence
+ * payload). Strings are only materialized for the fields a caller asks for.
+ *
+ * Supported shapes: &lt;message&gt; (incl. XEP-0280 carbons and XEP-0203 delay),
+ * and the &lt;p&gt; payload of &lt;presence&gt;. Roster and archive IQs are routed by
+ * StanzaClassifier and never need a field-level parse here.
+ *
+ * Anything unusual returns false so the caller falls back to StAX:
+ * - CDATA, comments, processing instructions, DOCTYPE
+ * - Mismatched end tags, unbalanced input, content after the root element, duplicate attributes
+ * - Unknown entities, markup inside &lt;body&gt;, tabs/newlines in attribute values
+ * - Carriage returns in body text (XML line-end normalization)
+ * - Nesting deeper than MAX_DEPTH, or a body longer than MAX_BODY_LENGTH
+ *
+ * Thread-safety: NOT thread-safe. XmppStreamParser keeps one instance per thread.
+ */
+public final class XmppFastTokenizer {
+
+    // Field indices for start()/end()/field()
+    public static final int FROM = 0;
+    public static final int TO = 1;
+    public static final int ID = 2;
+    public static final int TYPE = 3;
+    public static final int STAMP = 4;
+    public static final int JID = 5;
+    public static final int CARBON_TO = 6;
+    public static final int BODY = 7;
+    public static final int PRESENCE_PAYLOAD = 8;
+    private static final int FIELD_COUNT = 9;
+
+    /** Must match XmppStreamParser.MAX_BODY_LENGTH */
+    private static final int MAX_BODY_LENGTH = 8 * 1024;
+    private static final int MAX_DEPTH = 32;
+
+    private static final int MODE_MESSAGE = 0;
+    private static final int MODE_PRESENCE = 1;
+
+    private char[] window = new char[4096];
+    private int length;
+
+    private final int[] start = new int[FIELD_COUNT];
+    private final int[] end = new int[FIELD_COUNT];
+    private final boolean[] escaped = new boolean[FIELD_COUNT];
+
+    // Open element name extents (start, end) for end-tag matching
+    private final int[] stack = new int[MAX_DEPTH * 2];
+    // Attribute name extents of the current start tag (duplicate detection)
+    private static final int MAX_ATTRS = 16;
+    private final int[] attrNames = new int[MAX_ATTRS * 2];
+    private final StringBuilder decodeBuf = new StringBuilder(256);
+
+    private boolean foundMessage;
+
+    /**
+     * Tokenize a &lt;message&gt; stanza.
+     *
+     * @return true if the stanza was fully understood and a &lt;message&gt; was found;
+     *         false means "use the StAX path" (not necessarily malformed)
+     */
+    public boolean tokenizeMessage(CharSequence xml) {
+        return load(xml) && scan(MODE_MESSAGE) && foundMessage;
+    }
+
+    /**
+     * Tokenize a &lt;presence&gt; stanza up to its &lt;p&gt; payload.
+     *
+     * @return true if the stanza was understood (payload may still be absent)
+     */
+    public boolean tokenizePresence(CharSequence xml) {
+        return load(xml) && scan(MODE_PRESENCE);
+    }
+
+    /** @return true if the field was present in the last tokenized stanza */
+    public boolean has(int field) {
+        return start[field] >= 0;
+    }
+
+    public int start(int field) {
+        return start[field];
+    }
+
+    public int end(int field) {
+        return end[field];
+    }
+
+    /** @return The reused window holding the last tokenized stanza (offsets index into it) */
+    public char[] window() {
+        return window;
+    }
+
+    /**
+     * Materialize one field as a String (entity-decoded), or null if absent.
+     */
+    public String field(int field) {
+        int s = start[field];
+        if (s < 0) return null;
+        int e = end[field];
+        if (!escaped[field]) {
+            return new String(window, s, e - s);
+        }
+        decodeBuf.setLength(0);
+        decode(s, e, decodeBuf);
+        return decodeBuf.toString();
+    }
+
+    /**
+     * Build the same ParsedMessage the StAX path would produce for this stanza.
+     */
+    public ParsedMessage toParsedMessage(String rawXml) {
+        String body = field(BODY);
+        return ParsedMessage.builder()
+            .rawXml(rawXml)
+            .from(field(FROM))
+            .to(field(TO))
+            .id(field(ID))
+            .type(field(TYPE))
+            .stamp(field(STAMP))
+            .jid(field(JID))
+            .carbonTo(field(CARBON_TO))
+            .body(body)
+            .build();
+    }
+
+    // ========== Scanner ==========
+
+    private boolean load(CharSequence xml) {
+        if (xml == null) return false;
+        length = xml.length();
+        if (length == 0) return false;
+        if (window.length < length) {
+            window = new char[Math.max(length, window.length * 2)];
+        }
+        if (xml instanceof String str) {
+            str.getChars(0, length, window, 0);
+        } else {
+            for (int i = 0; i < length; i++) window[i] = xml.charAt(i);
+        }
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            start[f] = -1;
+            end[f] = -1;
+            escaped[f] = false;
+        }
+        foundMessage = false;
+        return true;
+    }
+
+    private boolean scan(int mode) {
+        final char[] w = window;
+        int i = skipWs(0);
+        if (i >= length || w[i] != '<') return false;
+
+        int depth = 0;
+        boolean rootClosed = false;
+        int messageDepth = 0;
+        boolean inCarbon = false;
+        boolean inForwarded = false;
+        boolean inBody = false;
+        boolean bodyDone = false;
+        boolean inPayload = false;
+
+        while (i < length) {
+            char c = w[i];
+
+            if (c != '<') {
+                // Character data
+                if (rootClosed && c > ' ') return false;
+                int textStart = i;
+                boolean textEscaped = false;
+                while (i < length && w[i] != '<') {
+                    char t = w[i];
+                    if (t == '&') {
+                        int n = entityLength(i);
+                        if (n < 0) return false;
+                        textEscaped = true;
+                        i += n;
+                        continue;
+                    }
+                    if (t == '>' && i >= 2 && w[i - 1] == ']' && w[i - 2] == ']') return false;
+                    if (t == '\r' && (inBody || inPayload)) return false;
+                    i++;
+                }
+                if (inBody) {
+                    if (start[BODY] < 0) start[BODY] = textStart;
+                    end[BODY] = i;
+                    escaped[BODY] |= textEscaped;
+                    if (end[BODY] - start[BODY] > MAX_BODY_LENGTH) return false;
+                } else if (inPayload) {
+                    if (start[PRESENCE_PAYLOAD] < 0) start[PRESENCE_PAYLOAD] = textStart;
+                    end[PRESENCE_PAYLOAD] = i;
+                    escaped[PRESENCE_PAYLOAD] |= textEscaped;
+                }
+                continue;
+            }
+
+            // Markup
+            if (i + 1 >= length) return false;
+            char n = w[i + 1];
+            if (n == '?' || n == '!') return false; // PI / comment / CDATA / DOCTYPE
+
+            if (n == '/') {
+                // End tag
+                int nameStart = i + 2;
+                int nameEnd = nameStart;
+                while (nameEnd < length && isNameChar(w[nameEnd])) nameEnd++;
+                int j = skipWs(nameEnd);
+                if (j >= length || w[j] != '>' || depth == 0) return false;
+                depth--;
+                if (!regionEquals(stack[depth * 2], stack[depth * 2 + 1], nameStart, nameEnd)) return false;
+
+                if (nameIs(nameStart, nameEnd, "body")) {
+                    if (inBody) {
+                        if (start[BODY] < 0) {
+                            start[BODY] = nameStart - 2; // empty body
+                            end[BODY] = nameStart - 2;
+                        }
+                        bodyDone = true;
+                    }
+                    inBody = false;
+                } else if (nameIs(nameStart, nameEnd, "message")) {
+                    messageDepth--;
+                } else if (nameIs(nameStart, nameEnd, "forwarded")) {
+                    inForwarded = false;
+                } else if (inPayload && nameIs(nameStart, nameEnd, "p")) {
+                    // StAX path stops at the first </p>
+                    return true;
+                }
+                if (depth == 0) rootClosed = true;
+                i = j + 1;
+                continue;
+            }
+
+            // Start tag
+            if (rootClosed || inBody || inPayload) return false;
+            int nameStart = i + 1;
+            if (!isNameStart(w[nameStart])) return false;
+            int nameEnd = nameStart;
+            while (nameEnd < length && isNameChar(w[nameEnd])) nameEnd++;
+            if (depth >= MAX_DEPTH) return false;
+            if (indexOf(':', nameStart, nameEnd) >= 0) return false; // prefixed element: let StAX resolve it
+
+            boolean isMessage = mode == MODE_MESSAGE && nameIs(nameStart, nameEnd, "message");
+            boolean isDelay = mode == MODE_MESSAGE && nameIs(nameStart, nameEnd, "delay");
+            boolean isArchived = mode == MODE_MESSAGE
+                && (nameIs(nameStart, nameEnd, "archived") || nameIs(nameStart, nameEnd, "result"));
+            boolean outer = false;
+            if (isMessage) {
+                foundMessage = true;
+                messageDepth++;
+                outer = messageDepth == 1;
+            }
+
+            // Attributes
+            int j = nameEnd;
+            boolean selfClosing = false;
+            boolean delayStampTaken = false;
+            int attrCount = 0;
+            while (true) {
+                int beforeWs = j;
+                j = skipWs(j);
+                if (j >= length) return false;
+                char a = w[j];
+                if (a == '>') { j++; break; }
+                if (a == '/') {
+                    if (j + 1 >= length || w[j + 1] != '>') return false;
+                    selfClosing = true;
+                    j += 2;
+                    break;
+                }
+                // Attributes must be separated from the name / previous value by whitespace
+                if (j == beforeWs || !isNameStart(a)) return false;
+                int attrStart = j;
+                while (j < length && isNameChar(w[j])) j++;
+                int attrEnd = j;
+                if (attrCount >= MAX_ATTRS) return false;
+                for (int k = 0; k < attrCount; k++) {
+                    if (regionEquals(attrNames[k * 2], attrNames[k * 2 + 1], attrStart, attrEnd)) return false;
+                }
+                attrNames[attrCount * 2] = attrStart;
+                attrNames[attrCount * 2 + 1] = attrEnd;
+                attrCount++;
+                j = skipWs(j);
+                if (j >= length || w[j] != '=') return false;
+                j = skipWs(j + 1);
+                if (j >= length) return false;
+                char q = w[j];
+                if (q != '"' && q != '\'') return false;
+                int valueStart = j + 1;
+                int k = valueStart;
+                boolean valueEscaped = false;
+                while (k < length && w[k] != q) {
+                    char v = w[k];
+                    if (v == '<' || v == '\t' || v == '\n' || v == '\r') return false;
+                    if (v == '&') {
+                        int len = entityLength(k);
+                        if (len < 0) return false;
+                        valueEscaped = true;
+                        k += len;
+                        continue;
+                    }
+                    k++;
+                }
+                if (k >= length) return false;
+                int valueEnd = k;
+                j = k + 1;
+
+                if (nameIs(attrStart, attrEnd, "xmlns")) {
+                    if (regionStartsWith(valueStart, valueEnd, "urn:xmpp:carbons")) inCarbon = true;
+                    continue;
+                }
+                if (mode != MODE_MESSAGE) continue;
+                int colon = indexOf(':', attrStart, attrEnd);
+                if (colon >= 0) {
+                    // xmlns:* and xml:lang are irrelevant; a prefixed field name is not (StAX uses local names)
+                    if (isFieldName(colon + 1, attrEnd)) return false;
+                    continue;
+                }
+
+                if (isMessage) {
+                    if (nameIsIgnoreCase(attrStart, attrEnd, "from")) {
+                        setOnce(FROM, valueStart, valueEnd, valueEscaped);
+                    } else if (nameIsIgnoreCase(attrStart, attrEnd, "to")) {
+                        // Carbon copy: inner <forwarded><message to=...> is the real destination
+                        if (!outer && inCarbon && inForwarded) set(CARBON_TO, valueStart, valueEnd, valueEscaped);
+                        setOnce(TO, valueStart, valueEnd, valueEscaped);
+                    } else if (nameIsIgnoreCase(attrStart, attrEnd, "id")) {
+                        setOnce(ID, valueStart, valueEnd, valueEscaped);
+                    } else if (nameIsIgnoreCase(attrStart, attrEnd, "type")) {
+                        setOnce(TYPE, valueStart, valueEnd, valueEscaped);
+                    } else if (nameIsIgnoreCase(attrStart, attrEnd, "stamp")) {
+                        set(STAMP, valueStart, valueEnd, valueEscaped);
+                    } else if (nameIsIgnoreCase(attrStart, attrEnd, "jid")) {
+                        setOnce(JID, valueStart, valueEnd, valueEscaped);
+                    }
+                } else {
+                    if (nameIsIgnoreCase(attrStart, attrEnd, "jid")) {
+                        setOnce(JID, valueStart, valueEnd, valueEscaped);
+                    } else if (nameIsIgnoreCase(attrStart, attrEnd, "stamp")) {
+                        if (isDelay && !delayStampTaken) {
+                            set(STAMP, valueStart, valueEnd, valueEscaped);
+                            delayStampTaken = true;
+                        } else if (isArchived) {
+                            set(STAMP, valueStart, valueEnd, valueEscaped);
+                        }
+                    }
+                }
+            }
+
+            if (selfClosing) {
+                if (isMessage) messageDepth--;
+                if (mode == MODE_MESSAGE && !bodyDone && nameIs(nameStart, nameEnd, "body")) {
+                    // <body/> parses as an empty body
+                    set(BODY, nameStart, nameStart, false);
+                    bodyDone = true;
+                }
+                if (depth == 0) rootClosed = true;
+            } else {
+                stack[depth * 2] = nameStart;
+                stack[depth * 2 + 1] = nameEnd;
+                depth++;
+
+                if (mode == MODE_MESSAGE) {
+                    if (nameIs(nameStart, nameEnd, "body") && !bodyDone) {
+                        inBody = true;
+                    } else if (nameIs(nameStart, nameEnd, "forwarded")) {
+                        inForwarded = true;
+                    }
+                } else if (nameIs(nameStart, nameEnd, "p")) {
+                    inPayload = true;
+                }
+            }
+            i = j;
+        }
+
+        // Presence without <p>, or a fully closed message stanza
+        return depth == 0 && rootClosed;
+    }
+
+    // ========== Helpers ==========
+
+    private void set(int field, int s, int e, boolean esc) {
+        start[field] = s;
+        end[field] = e;
+        escaped[field] = esc;
+    }
+
+    private void setOnce(int field, int s, int e, boolean esc) {
+        if (start[field] < 0) set(field, s, e, esc);
+    }
+
+    private int skipWs(int i) {
+        while (i < length) {
+            char c = window[i];
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') break;
+            i++;
+        }
+        return i;
+    }
+
+    private int indexOf(char c, int s, int e) {
+        for (int k = s; k < e; k++) {
+            if (window[k] == c) return k;
+        }
+        return -1;
+    }
+
+    private boolean isFieldName(int s, int e) {
+        return nameIsIgnoreCase(s, e, "from") || nameIsIgnoreCase(s, e, "to") || nameIsIgnoreCase(s, e, "id")
+            || nameIsIgnoreCase(s, e, "type") || nameIsIgnoreCase(s, e, "stamp") || nameIsIgnoreCase(s, e, "jid");
+    }
+
+    /** XML name characters (ASCII subset; any non-ASCII char is accepted and left to the XML rules it almost always meets). */
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '_' || c == ':' || c == '-' || c == '.' || c > 0x7F;
+    }
+
+    private static boolean isNameStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || c > 0x7F;
+    }
+
+    private boolean regionEquals(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        if (n != bEnd - bStart) return false;
+        for (int k = 0; k < n; k++) {
+            if (window[aStart + k] != window[bStart + k]) return false;
+        }
+        return true;
+    }
+
+    /** Element local name (case-insensitive, matching the StAX path's equalsIgnoreCase). */
+    private boolean nameIs(int s, int e, String lowerName) {
+        return nameIsIgnoreCase(s, e, lowerName);
+    }
+
+    private boolean nameIsIgnoreCase(int s, int e, String lowerName) {
+        int n = lowerName.length();
+        if (e - s != n) return false;
+        for (int k = 0; k < n; k++) {
+            char c = window[s + k];
+            char l = lowerName.charAt(k);
+            if (c != l && Character.toLowerCase(c) != l) return false;
+        }
+        return true;
+    }
+
+    private boolean regionStartsWith(int s, int e, String prefix) {
+        int n = prefix.length();
+        if (e - s < n) return false;
+        for (int k = 0; k < n; k++) {
+            if (window[s + k] != prefix.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return length of the well-formed XML entity reference at i, or -1
+     */
+    private int entityLength(int i) {
+        int semi = -1;
+        for (int k = i + 1; k < length && k <= i + 10; k++) {
+            if (window[k] == ';') { semi = k; break; }
+        }
+        if (semi < 0) return -1;
+        int len = semi - i + 1;
+        if (window[i + 1] == '#') {
+            int cp = parseCharRef(i + 2, semi);
+            return cp >= 0 ? len : -1;
+        }
+        switch (semi - i - 1) {
+            case 2:
+                if ((window[i + 1] == 'l' || window[i + 1] == 'g') && window[i + 2] == 't') return len;
+                return -1;
+            case 3:
+                return (window[i + 1] == 'a' && window[i + 2] == 'm' && window[i + 3] == 'p') ? len : -1;
+            case 4:
+                if (window[i + 1] == 'q' && window[i + 2] == 'u' && window[i + 3] == 'o' && window[i + 4] == 't') return len;
+                if (window[i + 1] == 'a' && window[i + 2] == 'p' && window[i + 3] == 'o' && window[i + 4] == 's') return len;
+                return -1;
+            default:
+                return -1;
+        }
+    }
+
+    private int parseCharRef(int s, int e) {
+        if (s >= e) return -1;
+        int radix = 10;
+        if (window[s] == 'x') {
+            radix = 16;
+            s++;
+            if (s >= e) return -1;
+        }
+        int cp = 0;
+        for (int k = s; k < e; k++) {
+            int d = Character.digit(window[k], radix);
+            if (d < 0) return -1;
+            cp = cp * radix + d;
+            if (cp > Character.MAX_CODE_POINT) return -1;
+        }
+        return (cp == 0 || (cp >= 0xD800 && cp <= 0xDFFF)) ? -1 : cp;
+    }
+
+    /** Decode entity references in window[s, e) (already validated by the scan). */
+    private void decode(int s, int e, StringBuilder out) {
+        int i = s;
+        while (i < e) {
+            char c = window[i];
+            if (c != '&') {
+                out.append(c);
+                i++;
+                continue;
+            }
+            int len = entityLength(i);
+            int semi = i + len - 1;
+            if (window[i + 1] == '#') {
+                out.appendCodePoint(parseCharRef(i + 2, semi));
+            } else {
+                switch (window[i + 1]) {
+                    case 'l' -> out.append('<');
+                    case 'g' -> out.append('>');
+                    case 'q' -> out.append('"');
+                    default -> out.append(window[i + 2] == 'm' ? '&' : '\'');
+                }
+            }
+            i += len;
+        }
+    }
+}
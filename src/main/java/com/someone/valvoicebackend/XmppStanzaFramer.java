@@ -0,0 +1,349 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * XmppStanzaFramer - Incremental, resumable stanza framer for one MITM socket.
+ *
+ * The MITM proxy forwards raw TLS "data" chunks as "incoming" events. A chunk
+ * boundary has nothing to do with stanza boundaries: one stanza may be split
+ * across several chunks, and one chunk may carry several stanzas (very common
+ * during presence floods). This class restores the stanza boundaries.
+ *
+ * Behaviour:
+ * - Keeps ONE buffer per socket (create one framer per socketID)
+ * - Lexer state (depth, tag/quote/CDATA state) survives between chunks, so every
+ *   character is scanned exactly once - no re-parsing, no indexOf re-scans
+ * - Emits only complete top-level &lt;message&gt;, &lt;presence&gt; and &lt;iq&gt; stanzas
+ * - &lt;stream:stream&gt; is treated as the envelope, not as a stanza
+ * - Other top-level elements (stream:features, SASL success, ...) are discarded
+ *
+ * PHASE 1 SECURITY: The pending (incomplete) stanza is capped at
+ * MAX_BUFFERED_CHARS. On overflow the rest of that stanza is skipped (depth is
+ * still tracked, nothing is buffered or emitted) and framing resumes with the next stanza.
+ *
+ * Thread-safety: NOT thread-safe. Each framer is fed from the single mitm-io reader thread.
+ */
+public final class XmppStanzaFramer {
+    private static final Logger logger = LoggerFactory.getLogger(XmppStanzaFramer.class);
+
+    /** Max chars held for an incomplete stanza (large roster IQs can exceed 100KB) */
+    private static final int MAX_BUFFERED_CHARS = 512 * 1024;
+
+    // Lexer states
+    private static final int TEXT = 0;          // Outside any markup
+    private static final int TAG_OPEN = 1;      // Just consumed '<'
+    private static final int START_TAG = 2;     // Inside <name ...>
+    private static final int END_TAG = 3;       // Inside </name ...>
+    private static final int PI = 4;            // Inside <? ... ?>
+    private static final int DECL = 5;          // Inside <! ... > or <![CDATA[ ... ]]>
+
+    private final StringBuilder buffer = new StringBuilder(1024);
+
+    /** Next index in buffer that has not been scanned yet */
+    private int pos = 0;
+    private int state = TEXT;
+    /** Element depth below the stream envelope (0 = between stanzas) */
+    private int depth = 0;
+    /** Buffer index of the '<' that opened the current top-level element, or -1 */
+    private int stanzaStart = -1;
+    /** Whether the current top-level element is one we emit */
+    private boolean emitCurrent = false;
+    /** Set after a buffer overflow: keep tracking depth, but buffer and emit nothing until the stanza ends */
+    private boolean discarding = false;
+
+    // Per-tag scratch state
+    private int tagStart = -1;       // index of '<' for the tag being scanned
+    private int nameStart = -1;      // index of first name char
+    private int nameEnd = -1;        // index one past last name char (-1 while still in name)
+    private char quote = 0;          // active attribute quote char, or 0
+    private char prev = 0;           // previous significant char inside a tag (for "/>" detection)
+
+    private long stanzasEmitted = 0;
+    private long overflowResets = 0;
+
+    /**
+     * Feed the next raw chunk for this socket.
+     *
+     * @param chunk       Raw "data" payload from one MITM "incoming" event
+     * @param stanzaSink  Receives each complete message/presence/iq stanza, in order
+     * @return Number of stanzas emitted for this chunk
+     */
+    public int feed(CharSequence chunk, Consumer<String> stanzaSink) {
+        if (chunk == null || chunk.length() == 0) {
+            return 0;
+        }
+
+        buffer.append(chunk);
+        int emitted = 0;
+        int len = buffer.length();
+
+        while (pos < len) {
+            char c = buffer.charAt(pos);
+
+            switch (state) {
+                case TEXT -> {
+                    if (c == '<') {
+                        tagStart = pos;
+                        state = TAG_OPEN;
+                    }
+                }
+                case TAG_OPEN -> {
+                    if (c == '/') {
+                        state = END_TAG;
+                        nameStart = pos + 1;
+                        nameEnd = -1;
+                    } else if (c == '?') {
+                        state = PI;
+                        prev = 0;
+                    } else if (c == '!') {
+                        state = DECL;
+                    } else {
+                        state = START_TAG;
+                        nameStart = pos;
+                        nameEnd = -1;
+                        quote = 0;
+                        prev = c;
+                        if (depth == 0) {
+                            stanzaStart = tagStart;
+                        }
+                    }
+                }
+                case START_TAG -> {
+                    if (quote != 0) {
+                        if (c == quote) {
+                            quote = 0;
+                        }
+                    } else if (c == '"' || c == '\'') {
+                        markNameEnd();
+                        quote = c;
+                        prev = c;
+                    } else if (c == '>') {
+                        markNameEnd();
+                        boolean selfClosing = prev == '/';
+                        emitted += onStartTagClosed(selfClosing, stanzaSink);
+                        len = buffer.length();
+                        state = TEXT;
+                    } else {
+                        if (isNameTerminator(c)) {
+                            markNameEnd();
+                        }
+                        if (!Character.isWhitespace(c)) {
+                            prev = c;
+                        }
+                    }
+                }
+                case END_TAG -> {
+                    if (isNameTerminator(c) || c == '>') {
+                        markNameEnd();
+                    }
+                    if (c == '>') {
+                        emitted += onEndTagClosed(stanzaSink);
+                        len = buffer.length();
+                        state = TEXT;
+                    }
+                }
+                case PI -> {
+                    if (c == '>' && prev == '?') {
+                        state = TEXT;
+                    }
+                    prev = c;
+                }
+                case DECL -> {
+                    if (c == '>') {
+                        // <![CDATA[ ... ]]> may contain '>' - only "]]>" closes it
+                        boolean cdata = regionEquals(tagStart, "<![CDATA[");
+                        if (!cdata || (pos >= tagStart + 11
+                                && buffer.charAt(pos - 1) == ']' && buffer.charAt(pos - 2) == ']')) {
+                            state = TEXT;
+                        }
+                    }
+                }
+                default -> state = TEXT;
+            }
+
+            pos++;
+        }
+
+        compact();
+        return emitted;
+    }
+
+    /**
+     * Drop all buffered data and lexer state (e.g. on socket close).
+     */
+    public void reset() {
+        buffer.setLength(0);
+        pos = 0;
+        state = TEXT;
+        depth = 0;
+        stanzaStart = -1;
+        emitCurrent = false;
+        discarding = false;
+        tagStart = -1;
+        nameStart = -1;
+        nameEnd = -1;
+        quote = 0;
+        prev = 0;
+    }
+
+    /** @return Number of chars currently buffered for an incomplete stanza */
+    public int bufferedChars() {
+        return buffer.length();
+    }
+
+    /** @return Total stanzas emitted by this framer */
+    public long getStanzasEmitted() {
+        return stanzasEmitted;
+    }
+
+    /** @return Number of times the buffer cap forced a resync */
+    public long getOverflowResets() {
+        return overflowResets;
+    }
+
+    // ========== Internal ==========
+
+    private int onStartTagClosed(boolean selfClosing, Consumer<String> sink) {
+        if (depth == 0) {
+            // The stream envelope never closes per-stanza: do not count it as depth
+            if (nameEquals("stream:stream")) {
+                stanzaStart = -1;
+                return 0;
+            }
+            emitCurrent = !discarding
+                    && (nameEquals("message") || nameEquals("presence") || nameEquals("iq"));
+            if (selfClosing) {
+                return finishStanza(pos + 1, sink);
+            }
+            depth = 1;
+            return 0;
+        }
+        if (!selfClosing) {
+            depth++;
+        }
+        return 0;
+    }
+
+    private int onEndTagClosed(Consumer<String> sink) {
+        if (depth == 0) {
+            // </stream:stream> or stray end tag between stanzas
+            return 0;
+        }
+        depth--;
+        if (depth == 0) {
+            return finishStanza(pos + 1, sink);
+        }
+        return 0;
+    }
+
+    private int finishStanza(int end, Consumer<String> sink) {
+        int emitted = 0;
+        if (emitCurrent && stanzaStart >= 0) {
+            String stanza = buffer.substring(stanzaStart, end);
+            stanzasEmitted++;
+            emitted = 1;
+            try {
+                sink.accept(stanza);
+            } catch (Exception e) {
+                // A failing consumer must never desynchronise the framer
+                logger.debug("[Framer] Stanza consumer failed: {}", e.getMessage());
+            }
+        }
+        stanzaStart = -1;
+        emitCurrent = false;
+        discarding = false;
+
+        // Discard the consumed prefix so the buffer only holds unseen/pending data.
+        // pos ends at -1 so the loop increment resumes at index 0 of the remaining data.
+        shift(end);
+        return emitted;
+    }
+
+    /**
+     * Trim scanned data that can never become part of a stanza, and enforce the buffer cap.
+     */
+    private void compact() {
+        int keepFrom;
+        if (discarding) {
+            keepFrom = buffer.length();
+        } else if (stanzaStart >= 0) {
+            keepFrom = stanzaStart;
+        } else {
+            // Between stanzas: keep only an unfinished tag (e.g. "<pres" at chunk end)
+            keepFrom = (state == TEXT) ? buffer.length() : Math.max(tagStart, 0);
+        }
+        if (keepFrom > 0) {
+            shift(keepFrom);
+        }
+
+        if (buffer.length() > MAX_BUFFERED_CHARS) {
+            overflowResets++;
+            logger.warn("[SECURITY] Dropping oversized pending stanza: buffered={} exceeds max={}",
+                       buffer.length(), MAX_BUFFERED_CHARS);
+            // Keep depth/lexer state so inner elements of the dropped stanza are
+            // never mistaken for top-level stanzas (e.g. archived <message>s in an IQ)
+            discarding = true;
+            emitCurrent = false;
+            stanzaStart = -1;
+            shift(buffer.length());
+        }
+    }
+
+    /**
+     * Remove the first n buffered chars and rebase every index into the buffer.
+     * Indices that fall before the new start become negative (= no longer available).
+     */
+    private void shift(int n) {
+        buffer.delete(0, n);
+        pos -= n;
+        tagStart -= n;
+        nameStart -= n;
+        if (nameEnd >= 0) nameEnd -= n;
+        if (stanzaStart >= 0) stanzaStart -= n;
+    }
+
+    private void markNameEnd() {
+        if (nameEnd < 0) {
+            nameEnd = pos;
+        }
+    }
+
+    private static boolean isNameTerminator(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '/';
+    }
+
+    private boolean nameEquals(String name) {
+        if (nameStart < 0) {
+            return false;
+        }
+        int end = nameEnd >= 0 ? nameEnd : pos;
+        int nameLen = end - nameStart;
+        if (nameLen != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < nameLen; i++) {
+            char a = buffer.charAt(nameStart + i);
+            char b = name.charAt(i);
+            if (a != b && Character.toLowerCase(a) != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean regionEquals(int start, String literal) {
+        if (start < 0 || start + literal.length() > buffer.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.someone.valvoicebackend;
 
+import com.someone.valvoicebackend.config.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +17,7 @@ import java.util.List;
  *
  * ValorantNarrator Reference Architecture:
  * - Uses streaming XML parsing (StAX) for robustness
- * - Extracts: from, to, id, type, stamp, body, jid
+ * - Extracts: from, to, id, type, stamp, body, jid, carbon-copy target
  * - Handles malformed XML gracefully (never crashes MITM)
  * - Returns structured ParsedMessage DTOs
  *
@@ -43,13 +44,13 @@ public class XmppStreamParser {
     // ═══════════════════════════════════════════════════════════════════════════════
 
     /** Max length for entire XMPP stanza XML (32KB should cover any legitimate message) */
-    private static final int MAX_STANZA_LENGTH = 32 * 1024;
+    static final int MAX_STANZA_LENGTH = 32 * 1024;
 
     /** Max length for chat body content (8KB is very generous for chat messages) */
     private static final int MAX_BODY_LENGTH = 8 * 1024;
 
     /** Max length for Base64 presence payload (16KB handles richest presence data) */
-    private static final int MAX_PRESENCE_PAYLOAD_LENGTH = 16 * 1024;
+    static final int MAX_PRESENCE_PAYLOAD_LENGTH = 16 * 1024;
 
     // StAX factory - thread-safe after initialization
     private static final XMLInputFactory XML_INPUT_FACTORY;
@@ -63,6 +64,15 @@ public class XmppStreamParser {
         XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
     }
 
+    // Fast path: hand-written tokenizer for known Riot shapes (reused buffers, one per thread).
+    // Falls back to StAX whenever it meets anything unusual. Toggle: ValVoiceConfig.fastXmppTokenizer
+    private static final ThreadLocal<XmppFastTokenizer> FAST_TOKENIZER =
+        ThreadLocal.withInitial(XmppFastTokenizer::new);
+
+    static boolean isFastTokenizerEnabled() {
+        return ConfigManager.get().fastXmppTokenizer;
+    }
+
     /**
      * Parse a single XMPP message stanza and extract all relevant fields.
      *
@@ -71,6 +81,10 @@ public class XmppStreamParser {
      * - Checks body length against MAX_BODY_LENGTH
      * - Silently drops oversized or malformed payloads (log WARN, return null)
      *
+     * Single pass: everything Message needs (outer from/type, jid, carbon-copy
+     * &lt;forwarded&gt;&lt;message to=...&gt; target, entity-decoded body) is
+     * captured here, so Message is built without re-scanning the XML.
+     *
      * @param xml Raw XML string containing a &lt;message&gt; stanza
      * @return ParsedMessage with extracted fields, or null if parsing fails or payload exceeds limits
      */
@@ -87,6 +101,16 @@ public class XmppStreamParser {
             return null;
         }
 
+        if (isFastTokenizerEnabled()) {
+            XmppFastTokenizer tokenizer = FAST_TOKENIZER.get();
+            if (tokenizer.tokenizeMessage(xml)) {
+                ParsedMessage result = tokenizer.toParsedMessage(xml);
+                logger.debug("[FastTok] Parsed: {}", result);
+                return result;
+            }
+            logger.debug("[FastTok] Unusual stanza shape, falling back to StAX");
+        }
+
         try {
             XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
             ParsedMessage.Builder builder = ParsedMessage.builder().rawXml(xml);
@@ -94,7 +118,15 @@ public class XmppStreamParser {
             String currentElement = null;
             StringBuilder bodyBuilder = null;
             boolean inBody = false;
+            boolean bodyDone = false;
             boolean foundMessage = false;
+            // Nesting of <message> elements: 1 = outer stanza, 2+ = forwarded copy
+            int messageDepth = 0;
+            // Inside a XEP-0280 carbons envelope (<sent>/<received xmlns="urn:xmpp:carbons:2">)
+            boolean inCarbon = false;
+            boolean inForwarded = false;
+            // Fields already taken from the outer stanza; inner messages only fill gaps
+            boolean haveFrom = false, haveTo = false, haveId = false, haveType = false, haveJid = false;
 
             while (reader.hasNext()) {
                 int event = reader.next();
@@ -102,29 +134,52 @@ public class XmppStreamParser {
                 switch (event) {
                     case XMLStreamConstants.START_ELEMENT:
                         currentElement = reader.getLocalName();
+                        String ns = reader.getNamespaceURI();
+                        if (ns != null && ns.startsWith("urn:xmpp:carbons")) {
+                            inCarbon = true;
+                        }
 
                         if ("message".equalsIgnoreCase(currentElement)) {
                             foundMessage = true;
-                            // Extract message attributes
+                            messageDepth++;
+                            boolean outer = messageDepth == 1;
+                            // Extract message attributes (outer stanza wins, inner fills gaps)
                             for (int i = 0; i < reader.getAttributeCount(); i++) {
-                                String attrName = reader.getAttributeLocalName(i).toLowerCase();
+                                String attrName = reader.getAttributeLocalName(i);
                                 String attrValue = reader.getAttributeValue(i);
 
-                                switch (attrName) {
-                                    case "from" -> builder.from(attrValue);
-                                    case "to" -> builder.to(attrValue);
-                                    case "id" -> builder.id(attrValue);
-                                    case "type" -> builder.type(attrValue);
+                                if ("from".equalsIgnoreCase(attrName)) {
+                                    if (!haveFrom) { builder.from(attrValue); haveFrom = true; }
+                                } else if ("to".equalsIgnoreCase(attrName)) {
+                                    // Carbon copy: inner <forwarded><message to=...> is the real destination
+                                    if (!outer && inCarbon && inForwarded) {
+                                        builder.carbonTo(attrValue);
+                                    }
+                                    if (!haveTo) { builder.to(attrValue); haveTo = true; }
+                                } else if ("id".equalsIgnoreCase(attrName)) {
+                                    if (!haveId) { builder.id(attrValue); haveId = true; }
+                                } else if ("type".equalsIgnoreCase(attrName)) {
+                                    if (!haveType) { builder.type(attrValue); haveType = true; }
+                                } else if ("stamp".equalsIgnoreCase(attrName)) {
+                                    // Also check for stamp attribute on message element itself
+                                    builder.stamp(attrValue);
+                                } else if ("jid".equalsIgnoreCase(attrName) && !haveJid) {
+                                    builder.jid(attrValue);
+                                    haveJid = true;
                                 }
                             }
                         } else if ("body".equalsIgnoreCase(currentElement)) {
-                            inBody = true;
-                            bodyBuilder = new StringBuilder();
+                            // First <body> wins (outer body, or the forwarded one in carbons)
+                            if (!bodyDone) {
+                                inBody = true;
+                                bodyBuilder = new StringBuilder();
+                            }
+                        } else if ("forwarded".equalsIgnoreCase(currentElement)) {
+                            inForwarded = true;
                         } else if ("delay".equalsIgnoreCase(currentElement)) {
                             // XEP-0203 Delayed Delivery - extract stamp
                             for (int i = 0; i < reader.getAttributeCount(); i++) {
-                                String attrName = reader.getAttributeLocalName(i).toLowerCase();
-                                if ("stamp".equals(attrName)) {
+                                if ("stamp".equalsIgnoreCase(reader.getAttributeLocalName(i))) {
                                     builder.stamp(reader.getAttributeValue(i));
                                     break;
                                 }
@@ -133,18 +188,19 @@ public class XmppStreamParser {
                                    "result".equalsIgnoreCase(currentElement)) {
                             // MAM archived message - check for stamp
                             for (int i = 0; i < reader.getAttributeCount(); i++) {
-                                String attrName = reader.getAttributeLocalName(i).toLowerCase();
-                                if ("stamp".equals(attrName)) {
+                                if ("stamp".equalsIgnoreCase(reader.getAttributeLocalName(i))) {
                                     builder.stamp(reader.getAttributeValue(i));
                                 }
                             }
                         }
-                        // Also check for stamp attribute on message element itself
-                        if (foundMessage && "message".equalsIgnoreCase(currentElement)) {
+
+                        // 'jid' attribute on any other element (first occurrence)
+                        if (!haveJid && !"message".equalsIgnoreCase(currentElement)) {
                             for (int i = 0; i < reader.getAttributeCount(); i++) {
-                                String attrName = reader.getAttributeLocalName(i).toLowerCase();
-                                if ("stamp".equals(attrName)) {
-                                    builder.stamp(reader.getAttributeValue(i));
+                                if ("jid".equalsIgnoreCase(reader.getAttributeLocalName(i))) {
+                                    builder.jid(reader.getAttributeValue(i));
+                                    haveJid = true;
+                                    break;
                                 }
                             }
                         }
@@ -154,6 +210,7 @@ public class XmppStreamParser {
                     case XMLStreamConstants.CDATA:
                         if (inBody && bodyBuilder != null) {
                             // === PHASE 1 SECURITY: Body length cap (streaming check) ===
+                            // StAX has already decoded entities - this text is final (no second unescape)
                             String text = reader.getText();
                             if (bodyBuilder.length() + text.length() > MAX_BODY_LENGTH) {
                                 logger.warn("[SECURITY] Dropping message with oversized body: length would exceed max={}",
@@ -168,10 +225,15 @@ public class XmppStreamParser {
                     case XMLStreamConstants.END_ELEMENT:
                         String endElement = reader.getLocalName();
                         if ("body".equalsIgnoreCase(endElement)) {
-                            inBody = false;
-                            if (bodyBuilder != null) {
+                            if (inBody && bodyBuilder != null) {
                                 builder.body(bodyBuilder.toString());
+                                bodyDone = true;
                             }
+                            inBody = false;
+                        } else if ("message".equalsIgnoreCase(endElement)) {
+                            messageDepth--;
+                        } else if ("forwarded".equalsIgnoreCase(endElement)) {
+                            inForwarded = false;
                         }
                         break;
                 }
@@ -223,8 +285,8 @@ public class XmppStreamParser {
             return messages;
         }
 
-        // Quick check for message presence
-        if (!xml.toLowerCase().contains("<message")) {
+        // Quick check for message presence (case-insensitive, no lowercased copy)
+        if (StanzaClassifier.indexOfIgnoreCase(xml, "<message", 0) < 0) {
             return messages;
         }
 
@@ -238,13 +300,12 @@ public class XmppStreamParser {
         // If single parse failed or no body, try extracting individual messages
         // This handles concatenated messages from MITM
         int startIdx = 0;
-        String xmlLower = xml.toLowerCase();
 
         while (true) {
-            int msgStart = xmlLower.indexOf("<message", startIdx);
+            int msgStart = StanzaClassifier.indexOfIgnoreCase(xml, "<message", startIdx);
             if (msgStart == -1) break;
 
-            int msgEnd = xmlLower.indexOf("</message>", msgStart);
+            int msgEnd = StanzaClassifier.indexOfIgnoreCase(xml, "</message>", msgStart);
             if (msgEnd == -1) break;
 
             msgEnd += "</message>".length();
@@ -331,8 +392,9 @@ public class XmppStreamParser {
      *
      * PHASE 1 SECURITY: Input validation with length caps.
      *
-     * This method uses a two-phase approach:
-     * 1. First attempts StAX parsing for proper XML handling
+     * This method uses a layered approach:
+     * 0. XmppFastTokenizer for well-formed Riot presence (when enabled in config)
+     * 1. StAX parsing for proper XML handling
      * 2. Falls back to simple string extraction if StAX fails (handles malformed XML)
      *
      * @param xml Raw XML string containing a presence stanza
@@ -351,6 +413,24 @@ public class XmppStreamParser {
             return null;
         }
 
+        // Phase 0: Fast tokenizer (well-formed Riot presence: no StAX reader, no copies)
+        if (isFastTokenizerEnabled()) {
+            XmppFastTokenizer tokenizer = FAST_TOKENIZER.get();
+            if (tokenizer.tokenizePresence(xml)) {
+                String payload = tokenizer.field(XmppFastTokenizer.PRESENCE_PAYLOAD);
+                if (payload == null || (payload = payload.trim()).isEmpty()) {
+                    return null;
+                }
+                // === PHASE 1 SECURITY: Presence payload length cap ===
+                if (payload.length() > MAX_PRESENCE_PAYLOAD_LENGTH) {
+                    logger.warn("[SECURITY] Dropping oversized presence payload: length={} exceeds max={}",
+                               payload.length(), MAX_PRESENCE_PAYLOAD_LENGTH);
+                    return null;
+                }
+                return payload;
+            }
+        }
+
         // Clean the XML: remove BOM and trim whitespace
         String cleanedXml = cleanXmlForParsing(xml);
 
@@ -0,0 +1,270 @@
+package com.someone.valvoicebackend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * XttsCircuitBreaker - Health of the XTTS engine, as seen by HttpSpeechSynthesizer.
+ *
+ *   CLOSED ──(3 failures in a row / ≥ 50% of the last 20 / connection refused)──→ OPEN
+ *   OPEN ──(backoff elapsed and a TCP connect to the engine port succeeds)──→ HALF_OPEN
+ *   HALF_OPEN ──(the one trial request streams to the end)──→ CLOSED
+ *   HALF_OPEN ──(the trial fails)──→ OPEN, backoff doubled (1 s → 8 s)
+ *
+ * While OPEN, isAvailable() is false and VoiceGenerator routes straight to SAPI; in HALF_OPEN
+ * only one request at a time is let through. The probe runs every 500 ms on "xtts-probe"
+ * while OPEN, so narration is back on XTTS within a second or two of the engine answering.
+ *
+ * The first-byte timeout adapts to the engine: 2 × p90 of the recent time-to-first-byte + 1 s,
+ * clamped to [2 s, maxFirstByteTimeout]; the ceiling applies until 5 successes were measured.
+ *
+ * Thread-safety: all methods may be called from any thread; the Listener is called without
+ * the breaker lock held.
+ */
+public final class XttsCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(XttsCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /** State transitions, e.g. to mirror them in ValVoiceBackend's EngineState. */
+    public interface Listener {
+        void opened(String reason);
+
+        void closed();
+    }
+
+    static final int WINDOW = 20;
+    static final int CONSECUTIVE_FAILURES_TO_OPEN = 3;
+    static final int MIN_WINDOW_SAMPLES = 10;
+    static final double FAILURE_RATIO_TO_OPEN = 0.5;
+    static final int MIN_LATENCY_SAMPLES = 5;
+    static final long MIN_FIRST_BYTE_TIMEOUT_MILLIS = 2_000;
+    static final long PROBE_INTERVAL_MILLIS = 500;
+    static final long MIN_BACKOFF_MILLIS = 1_000;
+    static final long MAX_BACKOFF_MILLIS = 8_000;
+
+    private final BooleanSupplier probe;
+    private final LongSupplier nanoClock;
+    private final long maxFirstByteTimeoutMillis;
+    private final Listener listener;
+    private final boolean autoProbe;
+    private ScheduledExecutorService prober;
+
+    // Rolling outcome window (true = failure), cleared when the breaker closes; guarded by this
+    private final boolean[] failures = new boolean[WINDOW];
+    private int outcomes = 0;
+    private int nextOutcome = 0;
+    private int consecutiveFailures = 0;
+    // Time-to-first-byte of the last WINDOW successes (nanos); guarded by this
+    private final long[] firstByteNanos = new long[WINDOW];
+    private int latencies = 0;
+    private int nextLatency = 0;
+
+    private volatile State state = State.CLOSED;
+    private boolean trialInFlight = false;
+    private long backoffNanos = TimeUnit.MILLISECONDS.toNanos(MIN_BACKOFF_MILLIS);
+    private long retryAtNanos = 0;
+
+    /**
+     * @param probe                     Lightweight reachability check (TCP connect), run while OPEN
+     * @param maxFirstByteTimeoutMillis Ceiling of the adaptive first-byte timeout
+     * @param listener                  State transitions, or null
+     */
+    public XttsCircuitBreaker(BooleanSupplier probe, long maxFirstByteTimeoutMillis, Listener listener) {
+        this(probe, maxFirstByteTimeoutMillis, listener, System::nanoTime, true);
+    }
+
+    /** Tests: own clock, probing driven by calling tick(). */
+    XttsCircuitBreaker(BooleanSupplier probe, long maxFirstByteTimeoutMillis, Listener listener,
+                       LongSupplier nanoClock, boolean autoProbe) {
+        this.probe = probe;
+        this.maxFirstByteTimeoutMillis = Math.max(MIN_FIRST_BYTE_TIMEOUT_MILLIS, maxFirstByteTimeoutMillis);
+        this.listener = listener;
+        this.nanoClock = nanoClock;
+        this.autoProbe = autoProbe;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /** @return false while OPEN: do not even try XTTS */
+    public boolean isAvailable() {
+        return state != State.OPEN;
+    }
+
+    /**
+     * Ask to send a request. Every granted request must end in recordSuccess(),
+     * recordFailure() or recordAbandoned().
+     *
+     * @return false if the request must not be sent (OPEN, or the HALF_OPEN trial is taken)
+     */
+    public synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    /** The request streamed its audio to the end. */
+    public void recordSuccess(long firstByteLatencyNanos) {
+        boolean closed = false;
+        synchronized (this) {
+            firstByteNanos[nextLatency] = firstByteLatencyNanos;
+            nextLatency = (nextLatency + 1) % WINDOW;
+            latencies = Math.min(WINDOW, latencies + 1);
+            addOutcome(false);
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                trialInFlight = false;
+                outcomes = 0;
+                backoffNanos = TimeUnit.MILLISECONDS.toNanos(MIN_BACKOFF_MILLIS);
+                closed = true;
+            }
+        }
+        if (closed) {
+            logger.info("[XTTS] Circuit closed - engine answering again");
+            if (listener != null) {
+                listener.closed();
+            }
+        }
+    }
+
+    /**
+     * The request failed (error response, timeout, broken stream).
+     *
+     * @param unreachable The engine refused the connection: open at once
+     */
+    public void recordFailure(String reason, boolean unreachable) {
+        boolean opened = false;
+        synchronized (this) {
+            addOutcome(true);
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+                backoffNanos = Math.min(backoffNanos * 2, TimeUnit.MILLISECONDS.toNanos(MAX_BACKOFF_MILLIS));
+                open();
+                opened = true;
+            } else if (state == State.CLOSED && (unreachable || shouldOpen())) {
+                open();
+                opened = true;
+            }
+        }
+        if (opened) {
+            logger.warn("[XTTS] Circuit open ({}) - narrating with SAPI until the engine answers", reason);
+            if (listener != null) {
+                listener.opened(reason);
+            }
+            startProber();
+        }
+    }
+
+    /** A granted request ended without a verdict (cancelled before any audio arrived). */
+    public synchronized void recordAbandoned() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    /** @return How long to wait for the first (or next) audio byte before giving up */
+    public synchronized long firstByteTimeoutMillis() {
+        if (latencies < MIN_LATENCY_SAMPLES) {
+            return maxFirstByteTimeoutMillis;
+        }
+        long[] sorted = Arrays.copyOf(firstByteNanos, latencies);
+        Arrays.sort(sorted);
+        long p90 = sorted[(int) Math.ceil(latencies * 0.9) - 1];
+        long timeout = 2 * TimeUnit.NANOSECONDS.toMillis(p90) + 1_000;
+        return Math.max(MIN_FIRST_BYTE_TIMEOUT_MILLIS, Math.min(maxFirstByteTimeoutMillis, timeout));
+    }
+
+    /** While OPEN and the backoff has elapsed: probe the engine and go HALF_OPEN if it answers. */
+    void tick() {
+        synchronized (this) {
+            if (state != State.OPEN || nanoClock.getAsLong() < retryAtNanos) {
+                return;
+            }
+        }
+        boolean reachable;
+        try {
+            reachable = probe.getAsBoolean();
+        } catch (RuntimeException e) {
+            reachable = false;
+        }
+        synchronized (this) {
+            if (state != State.OPEN) {
+                return;
+            }
+            if (reachable) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            } else {
+                retryAtNanos = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MILLIS);
+            }
+        }
+        if (reachable) {
+            logger.info("[XTTS] Engine port answers - circuit half-open, next request is the trial");
+        }
+    }
+
+    /** Holds lock. */
+    private void open() {
+        state = State.OPEN;
+        retryAtNanos = nanoClock.getAsLong() + backoffNanos;
+    }
+
+    /** Holds lock. */
+    private void addOutcome(boolean failure) {
+        failures[nextOutcome] = failure;
+        nextOutcome = (nextOutcome + 1) % WINDOW;
+        outcomes = Math.min(WINDOW, outcomes + 1);
+    }
+
+    /** Holds lock. */
+    private boolean shouldOpen() {
+        if (consecutiveFailures >= CONSECUTIVE_FAILURES_TO_OPEN) {
+            return true;
+        }
+        if (outcomes < MIN_WINDOW_SAMPLES) {
+            return false;
+        }
+        int failed = 0;
+        for (int i = 0; i < outcomes; i++) {
+            if (failures[(nextOutcome - 1 - i + WINDOW) % WINDOW]) {
+                failed++;
+            }
+        }
+        return failed >= outcomes * FAILURE_RATIO_TO_OPEN;
+    }
+
+    private synchronized void startProber() {
+        if (!autoProbe || prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "xtts-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        prober.scheduleWithFixedDelay(this::tick, PROBE_INTERVAL_MILLIS, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
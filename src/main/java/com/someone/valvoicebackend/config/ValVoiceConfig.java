@@ -1,5 +1,8 @@
 package com.someone.valvoicebackend.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * ValVoiceConfig - Plain configuration data model.
  *
@@ -20,9 +23,45 @@ public class ValVoiceConfig {
     /** Whether Windows SAPI fallback is enabled when XTTS is unavailable */
     public boolean sapiFallbackEnabled = true;
 
-    /** Playback volume (0.0 to 1.0) */
+    /** XTTS /speak endpoint (loopback only; point at FakeXttsServer for latency tests) */
+    public String xttsUrl = "http://127.0.0.1:5005/speak";
+
+    /** Longest wait for XTTS audio to start (or resume) before SAPI takes over; adapts below this to measured latency */
+    public int xttsFirstByteTimeoutSeconds = 10;
+
+    /** XTTS requests allowed ahead of playback, including the one playing (1 = no pipelining, max 8) */
+    public int ttsLookahead = 2;
+
+    /** Split long messages at sentence / clause boundaries and synthesize the segments in parallel */
+    public boolean sentenceSegmentation = true;
+
+    /** Narrations allowed to wait for playback (max 64); a full queue drops per narrationDropPolicy */
+    public int narrationQueueCapacity = 6;
+
+    /** Drop a narration that cannot start playing within this many seconds of arrival (0 = never) */
+    public int narrationDeadlineSeconds = 8;
+
+    /** Full queue: "OLDEST" evicts the narration waiting longest, "NEWEST" rejects the new one */
+    public String narrationDropPolicy = "OLDEST";
+
+    /** A higher-priority narration (in-round TEAM callout) cuts off a lower-priority one that is playing */
+    public boolean narrationPreemption = true;
+
+    /** Global hotkey that skips the narration playing, Shift + key flushes the queue too ("F8", "PAUSE", "0x05" ... / "" = off) */
+    public String skipNarrationKey = "F8";
+
+    /** Playback volume (0.0 to 1.0), applied to XTTS audio per block and to the SAPI voice per utterance */
     public double playbackVolume = 1.0;
 
+    /** Peak-limit XTTS audio instead of letting it clip */
+    public boolean playbackLimiter = true;
+
+    /** Sample rate of the audio output line; match the device's default format (VB-Cable: 48000) */
+    public int audioOutputSampleRate = 48000;
+
+    /** Channel count of the audio output line (VB-Cable: 2) */
+    public int audioOutputChannels = 2;
+
     /** TTS language code (e.g. "en") */
     public String language = "en";
 
@@ -44,5 +83,68 @@ public class ValVoiceConfig {
 
     /** PTT key for Team voice channel (used during active matches) */
     public String teamPttKey = "V";
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // XMPP PARSING
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Use the hand-written XMPP tokenizer (falls back to StAX on unusual stanzas) */
+    public boolean fastXmppTokenizer = true;
+
+    /** Size the timestamp-gate grace period from measured server clock skew (else fixed 60s) */
+    public boolean adaptiveTimestampGrace = true;
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // DUPLICATE SUPPRESSION
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** How long an XMPP message id (or sender + body) is remembered (covers reconnect replays) */
+    public int xmppDedupWindowSeconds = 600;
+
+    /** How long an OCR chat line is remembered (the same line is re-read on every frame while visible) */
+    public int ocrDedupWindowSeconds = 10;
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Serve latency histograms / counters in Prometheus format on 127.0.0.1 (loopback only) */
+    public boolean metricsEndpointEnabled = true;
+
+    /** Loopback port of the metrics endpoint (http://127.0.0.1:{port}/metrics) */
+    public int metricsPort = 9477;
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // PHRASE CACHE
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Replay recurring short callouts from cached XTTS audio instead of re-synthesizing */
+    public boolean phraseCacheEnabled = true;
+
+    /** In-memory phrase cache size (MB of audio) */
+    public int phraseCacheMemoryMb = 16;
+
+    /** On-disk phrase cache size under %LOCALAPPDATA%\ValVoice\cache (MB, 0 = memory only) */
+    public int phraseCacheDiskMb = 64;
+
+    /** Pre-synthesize prewarmPhrases for the selected voice while idle in menus */
+    public boolean prewarmEnabled = true;
+
+    /** Callouts to pre-warm into the phrase cache (editable; up to 80 characters each) */
+    public List<String> prewarmPhrases = new ArrayList<>(List.of(
+        "rotate A", "rotate B", "rotate C", "one left", "two left", "three left",
+        "nice", "nice one", "gg", "spike down", "planting", "defusing",
+        "push", "fall back", "wait for me", "flash in", "save", "eco round",
+        "full buy", "drop me a gun", "thanks"));
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // MITM CAPTURE
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Record the MITM JSON event stream here for MitmReplay (".gz" = compressed; relative paths
+     * resolve against the config directory; empty = off). Holds chat text and login tokens - never share.
+     */
+    public String mitmCaptureFile = "";
 }
 
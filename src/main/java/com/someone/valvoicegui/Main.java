@@ -1,6 +1,7 @@
 package com.someone.valvoicegui;
 
 import com.someone.valvoicebackend.Chat;
+import com.someone.valvoicebackend.DiagnosticRing;
 import com.someone.valvoicebackend.EnvironmentValidator;
 import com.someone.valvoicebackend.Source;
 import com.someone.valvoicebackend.SystemAudioRouter;
@@ -287,6 +288,8 @@ public class Main {
         // Register global uncaught exception handler to capture fatal crashes
         Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
             logger.error("Uncaught exception in thread: {}", thread.getName(), throwable);
+            // Last pipeline decisions before the crash (rate-limited, never throws)
+            DiagnosticRing.getInstance().dumpOnError("Uncaught exception in thread " + thread.getName());
 
             try {
                 Path crashFile = Paths.get(
@@ -0,0 +1,298 @@
+package com.someone.valvoicegui;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.someone.valvoicebackend.ChatDataHandler;
+import com.someone.valvoicebackend.CountingPttSink;
+import com.someone.valvoicebackend.DiagnosticRing;
+import com.someone.valvoicebackend.FakeXttsServer;
+import com.someone.valvoicebackend.FallbackSynthesizer;
+import com.someone.valvoicebackend.HttpSpeechSynthesizer;
+import com.someone.valvoicebackend.LatencyHistogram;
+import com.someone.valvoicebackend.MitmCaptureReader;
+import com.someone.valvoicebackend.PhraseCache;
+import com.someone.valvoicebackend.PipelineMetrics;
+import com.someone.valvoicebackend.SimulatedAudioSink;
+import com.someone.valvoicebackend.VoiceGenerator;
+import com.someone.valvoicebackend.config.ConfigManager;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MitmReplay - Headless load / regression harness: replays a MITM capture through the backend.
+ *
+ *   java -cp valvoice.jar com.someone.valvoicegui.MitmReplay capture.txt.gz [--speed 1|N|max] [--verbose] [--quiet]
+ *       [--tts [--ttfb ms] [--rtf x] [--fail-rate 0..1] [--drop-rate 0..1]]
+ *
+ * Captures are recorded by the live app when ValVoiceConfig.mitmCaptureFile is set
+ * (MitmCaptureWriter). The capture is fed through ValVoiceBackend.replayMitmOutput(),
+ * i.e. the production decoder, framer, parser, gates and ChatDataHandler filter chain.
+ * Nothing outside the JVM is touched:
+ * - No MITM process, no Riot client, no Windows APIs
+ * - VoiceGenerator (XTTS / SAPI synthesis, PTT key presses, audio output) is replaced
+ *   by a counting ChatDataHandler.NarrationSink, or with --tts runs for real against
+ *   FakeXttsServer, SimulatedAudioSink, CountingPttSink, a memory-only PhraseCache and a
+ *   silent timed fallback voice
+ *   (queueing, fallback and PTT timing under a controlled synthesis speed)
+ * - Message stamps are judged against the capture's clock (ValVoiceBackend.enterReplayMode)
+ * - ValVoiceConfig.ocrPrimary is switched off in memory (never saved) so XMPP chat is narrated
+ *
+ * Report: lines and messages per second, per-stage verdict counts (PipelineMetrics),
+ * ingest-to-dispatch latency, replay lag, and every narrated message in order;
+ * with --tts also the TTS latencies, XTTS/fallback split and PTT hold times.
+ */
+public class MitmReplay {
+
+    /** Max time to wait for in-flight CompletableFuture narrations after the last line */
+    private static final long DRAIN_TIMEOUT_SECONDS = 5;
+    /** --tts: max time to wait for the speech queue to play out after the last narration */
+    private static final long SPEECH_DRAIN_TIMEOUT_SECONDS = 600;
+
+    /** One narration that reached the sink. */
+    private record Narration(long offsetNanos, long correlationId, String text) {
+    }
+
+    /**
+     * Stands in for VoiceGenerator: one narration = one synthesis, one PTT hold, one utterance.
+     * With --tts it records and forwards to the headless VoiceGenerator.
+     */
+    private static final class CountingSink implements ChatDataHandler.NarrationSink {
+        private final long startNanos = System.nanoTime();
+        private final boolean forward;
+        private final AtomicLong narrations = new AtomicLong();
+        private final AtomicLong characters = new AtomicLong();
+        private final ConcurrentLinkedQueue<Narration> narrated = new ConcurrentLinkedQueue<>();
+
+        private CountingSink(boolean forward) {
+            this.forward = forward;
+        }
+
+        @Override
+        public void narrate(String text, long correlationId) {
+            narrations.incrementAndGet();
+            characters.addAndGet(text != null ? text.length() : 0);
+            narrated.add(new Narration(System.nanoTime() - startNanos, correlationId, text));
+            if (forward) {
+                VoiceGenerator.getInstance().queueNarration(text, correlationId);
+            }
+        }
+    }
+
+    /** --tts: the fake synthesis stack VoiceGenerator runs against. */
+    private record HeadlessTts(FakeXttsServer server, SimulatedAudioSink audio, CountingPttSink ptt, PhraseCache cache) {
+
+        static HeadlessTts start(FakeXttsServer.Options options) throws java.io.IOException {
+            FakeXttsServer server = new FakeXttsServer(options);
+            server.start(0);
+            SimulatedAudioSink audio = new SimulatedAudioSink(true);
+            CountingPttSink ptt = new CountingPttSink();
+            // Stands in for SAPI: silent, as long as the fake server's audio for the same text
+            FallbackSynthesizer fallback = new FallbackSynthesizer() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void speak(String voice, String text, short rate) {
+                    LockSupport.parkNanos(server.audioNanosFor(text.length()));
+                }
+
+                @Override
+                public List<String> getAvailableVoices() {
+                    return List.of("Simulated");
+                }
+            };
+            HttpSpeechSynthesizer speech = new HttpSpeechSynthesizer(URI.create(server.getUrl()), () -> true, () -> { });
+            // Memory-only: a replay must not fill the user's disk cache with fake audio
+            PhraseCache cache = new PhraseCache(16L * 1024 * 1024, null, 0);
+            VoiceGenerator.initialize(new VoiceGenerator.Sinks(speech, audio, ptt, fallback, cache));
+            return new HeadlessTts(server, audio, ptt, cache);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path capture = null;
+        double speed = 0;
+        boolean verbose = false;
+        boolean quiet = false;
+        boolean tts = false;
+        FakeXttsServer.Options ttsOptions = new FakeXttsServer.Options();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--speed" -> {
+                    speed = "max".equalsIgnoreCase(value) ? 0 : Double.parseDouble(value.replace("x", ""));
+                    i++;
+                }
+                case "--verbose" -> verbose = true;
+                case "--quiet" -> quiet = true;
+                case "--tts" -> tts = true;
+                case "--ttfb" -> {
+                    ttsOptions.ttfbMillis = Long.parseLong(value);
+                    i++;
+                }
+                case "--rtf" -> {
+                    ttsOptions.realTimeFactor = Double.parseDouble(value);
+                    i++;
+                }
+                case "--fail-rate" -> {
+                    ttsOptions.failureRate = Double.parseDouble(value);
+                    i++;
+                }
+                case "--drop-rate" -> {
+                    ttsOptions.dropRate = Double.parseDouble(value);
+                    i++;
+                }
+                default -> capture = Path.of(args[i]);
+            }
+        }
+        if (capture == null || !Files.isReadable(capture)) {
+            System.err.println("Usage: MitmReplay <capture> [--speed 1|N|max] [--verbose] [--quiet]"
+                + " [--tts [--ttfb ms] [--rtf x] [--fail-rate 0..1] [--drop-rate 0..1]]");
+            System.exit(2);
+            return;
+        }
+
+        // Per-message INFO logging would dominate the measurement
+        Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(verbose ? Level.INFO : Level.WARN);
+
+        ConfigManager.get().ocrPrimary = false;
+        HeadlessTts headless = tts ? HeadlessTts.start(ttsOptions) : null;
+        CountingSink sink = new CountingSink(tts);
+        ChatDataHandler.getInstance().setNarrationSink(sink);
+        ValVoiceBackend backend = ValVoiceBackend.getInstance();
+
+        long lines;
+        long wallNanos;
+        MitmCaptureReader reader = new MitmCaptureReader(capture, speed);
+        try (reader) {
+            backend.enterReplayMode(reader.getCaptureStartMillis(), reader::captureClockMillis);
+            long start = System.nanoTime();
+            lines = backend.replayMitmOutput(reader);
+            awaitDispatched(sink);
+            if (headless != null) {
+                awaitSpoken();
+            }
+            wallNanos = System.nanoTime() - start;
+        } finally {
+            ChatDataHandler.getInstance().setNarrationSink(null);
+        }
+
+        System.out.println(report(capture, reader, speed, lines, wallNanos, sink, quiet));
+        if (headless != null) {
+            System.out.println(ttsReport(headless));
+            headless.server().stop();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Narrations reach the sink on CompletableFuture workers: wait until every DISPATCHED
+     * verdict has arrived (or failed), at most DRAIN_TIMEOUT_SECONDS.
+     */
+    private static void awaitDispatched(CountingSink sink) throws InterruptedException {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline) {
+            long expected = metrics.getVerdictCount(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED)
+                - metrics.getVerdictCount(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.FAILED);
+            if (sink.narrations.get() >= expected) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /** --tts: wait until VoiceGenerator's queue played out, at most SPEECH_DRAIN_TIMEOUT_SECONDS. */
+    private static void awaitSpoken() throws InterruptedException {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        VoiceGenerator voice = VoiceGenerator.getInstance();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SPEECH_DRAIN_TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline && (metrics.getTtsQueueDepth() > 0 || voice.isBusy())) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static String ttsReport(HeadlessTts headless) {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        FakeXttsServer server = headless.server();
+        FakeXttsServer.Options options = server.getOptions();
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(String.format(Locale.ROOT, "fake xtts   : ttfb %d ms, rtf %.1f, fail %.2f, drop %.2f%n",
+            options.ttfbMillis, options.realTimeFactor, options.failureRate, options.dropRate));
+        sb.append(String.format(Locale.ROOT, "requests    : %d (%d failed, %d dropped)%n",
+            server.getRequests(), server.getFailures(), server.getDrops()));
+        sb.append(String.format(Locale.ROOT, "utterances  : %d xtts, %d fallback, %d xtts failures, %.1f s audio%n",
+            metrics.getXttsUtterances(), metrics.getSapiUtterances(), metrics.getXttsFailures(),
+            headless.audio().getAudioNanos() / 1e9));
+        PhraseCache cache = headless.cache();
+        sb.append(String.format(Locale.ROOT, "phrase cache: %d hits, %d misses (%.0f%%), %d KB%n",
+            cache.getHits(), cache.getMisses(), cache.getHitRatio() * 100, cache.getMemoryBytes() / 1024));
+        sb.append("tts→byte    : ").append(metrics.dispatchToFirstByte()).append('\n');
+        sb.append("byte→play   : ").append(metrics.firstByteToPlayback()).append('\n');
+        sb.append("utterance   : ").append(metrics.utterance()).append('\n');
+        CountingPttSink ptt = headless.ptt();
+        sb.append(String.format(Locale.ROOT, "ptt         : %d presses, %d releases%s%n",
+            ptt.getPresses(), ptt.getReleases(), ptt.isHeld() ? " - KEY STILL HELD" : ""));
+        sb.append("ptt hold    : ").append(ptt.getHolds()).append('\n');
+        return sb.toString();
+    }
+
+    private static String report(Path capture, MitmCaptureReader reader, double speed, long lines,
+                                 long wallNanos, CountingSink sink, boolean quiet) {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        double wallSeconds = Math.max(1e-9, wallNanos / 1e9);
+        long received = metrics.getVerdictCount(DiagnosticRing.Stage.XMPP_MESSAGE, DiagnosticRing.Verdict.RECEIVED);
+        long narrations = sink.narrations.get();
+
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("═══════════════════════════════════════════════════════════════\n")
+            .append(" MITM REPLAY: ").append(capture.getFileName()).append('\n')
+            .append("═══════════════════════════════════════════════════════════════\n");
+        sb.append(String.format(Locale.ROOT, "recorded    : %s, %.1f s%n",
+            Instant.ofEpochMilli(reader.getCaptureStartMillis()), reader.getCaptureElapsedMicros() / 1e6));
+        sb.append(String.format(Locale.ROOT, "speed       : %s, wall %.2f s%n",
+            speed > 0 ? speed + "x" : "max", wallSeconds));
+        sb.append(String.format(Locale.ROOT, "lines       : %d (%.0f lines/s)%n", lines, lines / wallSeconds));
+        sb.append(String.format(Locale.ROOT, "messages    : %d received (%.1f msg/s), %d narrated, %d chars%n",
+            received, received / wallSeconds, narrations, sink.characters.get()));
+        sb.append("ingest→tts  : ").append(metrics.ingestToDispatch()).append('\n');
+        if (speed > 0) {
+            LatencyHistogram lag = reader.getLag();
+            sb.append("replay lag  : ").append(lag).append('\n');
+        }
+
+        sb.append("verdicts    :\n");
+        for (DiagnosticRing.Stage stage : DiagnosticRing.Stage.values()) {
+            for (DiagnosticRing.Verdict verdict : DiagnosticRing.Verdict.values()) {
+                long n = metrics.getVerdictCount(stage, verdict);
+                if (n > 0) {
+                    sb.append(String.format(Locale.ROOT, "  %-13s %-16s %8d%n", stage, verdict, n));
+                }
+            }
+        }
+
+        if (!quiet) {
+            List<Narration> narrated = new ArrayList<>(sink.narrated);
+            sb.append("narrated    :").append(narrated.isEmpty() ? " (none)" : "").append('\n');
+            for (Narration n : narrated) {
+                sb.append(String.format(Locale.ROOT, "  +%9.3fs %016x %s%n",
+                    n.offsetNanos() / 1e9, n.correlationId(), n.text()));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -3,6 +3,7 @@ package com.someone.valvoicegui;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.someone.valvoicebackend.ChatDataHandler;
+import com.someone.valvoicebackend.DiagnosticRing;
 import com.someone.valvoicebackend.OcrMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -174,23 +175,28 @@ public class OcrChatClient {
 
                     // ═══════════════════════════════════════════════════════════════
                     // PHASE B DIAGNOSTICS: OCR WIRETAP
-                    // Logs every OCR chat event with sequence number for forensic
-                    // reconstruction of ownership evaluation bugs.
+                    // Records every OCR chat event with its sequence number in the
+                    // diagnostic ring for forensic reconstruction of ownership
+                    // evaluation bugs. The full box is only formatted at DEBUG.
                     // ═══════════════════════════════════════════════════════════════
                     long seq = ocrSeq.incrementAndGet();
-                    logger.info(
-                        "\n=== OCR WIRETAP ===\n" +
-                        "SEQ      : {}\n" +
-                        "RAW JSON : {}\n" +
-                        "SELF REF : '{}'\n" +
-                        "CHANNEL  : '{}'\n" +
-                        "NAME     : '{}'\n" +
-                        "BODY     : '{}'\n" +
-                        "DIRECTION: '{}'\n" +
-                        "OWN      : {}\n" +
-                        "===================",
-                        seq, line, self, channel, name, body, direction, own
-                    );
+                    DiagnosticRing.getInstance().record(DiagnosticRing.Stage.OCR_LINE,
+                        own ? DiagnosticRing.Verdict.PASS : DiagnosticRing.Verdict.NOT_SELF, seq, name, body.length());
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(
+                            "\n=== OCR WIRETAP ===\n" +
+                            "SEQ      : {}\n" +
+                            "RAW JSON : {}\n" +
+                            "SELF REF : '{}'\n" +
+                            "CHANNEL  : '{}'\n" +
+                            "NAME     : '{}'\n" +
+                            "BODY     : '{}'\n" +
+                            "DIRECTION: '{}'\n" +
+                            "OWN      : {}\n" +
+                            "===================",
+                            seq, line, self, channel, name, body, direction, own
+                        );
+                    }
 
                     OcrMessage msg = new OcrMessage(channel, name, body, ts, own);
                     state = OcrState.RUNNING;
@@ -17,7 +17,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -84,19 +83,37 @@ public class ValVoiceBackend {
     // This matches ValorantNarrator reference exactly.
     private static final long GRACE_PERIOD_MS = 60_000; // 60 seconds (ValorantNarrator parity)
 
+    // Stamp parsing + measured clock skew. GRACE_PERIOD_MS is the default until enough
+    // live messages have been seen to size the window from the observed server offset.
+    private volatile TimestampGate timestampGate;
+    // Wall clock the timestamp gate judges stamps against (the capture's clock during MitmReplay)
+    private volatile java.util.function.LongSupplier stampClock = System::currentTimeMillis;
+
 
     // === RECONNECT STABILITY: Duplicate Suppression ===
     // Prevents the same message from triggering TTS multiple times during reconnects.
-    // Uses a bounded LRU cache to avoid memory leaks.
-    // Key = message content hash (body text), Value = timestamp when first seen
-    private static final int DUPLICATE_CACHE_SIZE = 100;
-    private final java.util.Map<String, Long> recentMessageHashes =
-        java.util.Collections.synchronizedMap(new java.util.LinkedHashMap<>(DUPLICATE_CACHE_SIZE, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(java.util.Map.Entry<String, Long> eldest) {
-                return size() > DUPLICATE_CACHE_SIZE;
-            }
-        });
+    // Lock-free ring of 64-bit fingerprints with a time-to-live (ValVoiceConfig.xmppDedupWindowSeconds).
+    // Key = message id, or sender + body when the id is missing
+    private static final int DUPLICATE_CACHE_SIZE = 512;
+    private final DuplicateFilter messageDedup = new DuplicateFilter(DUPLICATE_CACHE_SIZE,
+        () -> com.someone.valvoicebackend.config.ConfigManager.get().xmppDedupWindowSeconds * 1000L);
+
+    // === STANZA FRAMING: One incremental framer per MITM socket ===
+    // "incoming" events carry raw TLS chunks, not whole stanzas. Each socket gets its own
+    // resumable framer so split/coalesced stanzas are reassembled before parsing.
+    // Key = socketID from the MITM event (0 when an older MITM build omits it).
+    private final java.util.Map<Integer, XmppStanzaFramer> stanzaFramers =
+        new java.util.concurrent.ConcurrentHashMap<>();
+
+    // === JFR / metrics: id and arrival time of the MITM line being framed (mitm-io thread only) ===
+    private long currentLineId = 0;
+    private long currentLineNanos = 0;
+
+    // === PRESENCE: Own-PUUID fast path (mitm-io thread only) ===
+    private final PresenceTracker presenceTracker = new PresenceTracker();
+
+    // === METRICS: Loopback Prometheus endpoint (ValVoiceConfig.metricsEndpointEnabled / metricsPort) ===
+    private final MetricsEndpoint metricsEndpoint = new MetricsEndpoint(PipelineMetrics.getInstance());
 
     // === PHASE 1: PUUID Identity Capture ===
     // Pattern to detect Riot RSO-PAS authentication mechanism (kept for auth parsing only)
@@ -177,6 +194,7 @@ public class ValVoiceBackend {
     private ValVoiceBackend() {
         // Capture app start time at construction (immutable for session lifetime)
         this.appStartTime = System.currentTimeMillis();
+        this.timestampGate = new TimestampGate(appStartTime, GRACE_PERIOD_MS);
         logger.info("[ValVoiceBackend] Instance created, appStartTime={}", appStartTime);
     }
 
@@ -214,6 +232,8 @@ public class ValVoiceBackend {
         // Register shutdown hook for TTS engine cleanup (once per app lifecycle)
         registerShutdownHook();
 
+        startMetrics();
+
         // === STARTUP WARM-UP DELAY ===
         // Small delay to let Riot Client networking stack initialize.
         // This reduces early ECONNRESET events (socketID=1,2,3...) that occur
@@ -278,6 +298,34 @@ public class ValVoiceBackend {
         }
     }
 
+    /**
+     * Register the backend's gauges with PipelineMetrics and start the loopback endpoint.
+     * Fail-safe: metrics problems never block startup.
+     */
+    private void startMetrics() {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.registerGauge("valvoice_xmpp_dedup_hit_ratio", "XMPP duplicate gate hit rate",
+            messageDedup::getHitRate);
+        metrics.registerGauge("valvoice_ocr_dedup_hit_ratio", "OCR duplicate gate hit rate",
+            () -> ChatDataHandler.getInstance().getOcrDedup().getHitRate());
+        metrics.registerGauge("valvoice_clock_skew_seconds", "Estimated Riot server clock offset",
+            () -> timestampGate.getEstimatedSkewMs() / 1000.0);
+        metrics.registerGauge("valvoice_timestamp_grace_seconds", "Grace period of the timestamp gate",
+            () -> timestampGate.getEffectiveGraceMs() / 1000.0);
+        metrics.registerGauge("valvoice_presences_seen", "Presence stanzas seen",
+            presenceTracker::getPresencesSeen);
+        metrics.registerGauge("valvoice_presence_payloads_decoded", "Own presence payloads decoded",
+            presenceTracker::getPayloadsDecoded);
+        metrics.registerGauge("valvoice_diagnostic_decisions", "Decisions recorded in the diagnostic ring",
+            () -> DiagnosticRing.getInstance().getRecorded());
+
+        com.someone.valvoicebackend.config.ValVoiceConfig config =
+            com.someone.valvoicebackend.config.ConfigManager.get();
+        if (config != null && config.metricsEndpointEnabled) {
+            metricsEndpoint.start(config.metricsPort);
+        }
+    }
+
     /**
      * Stop the backend services and cleanup resources.
      * VN-parity: Uses destroyForcibly() and runs full process reaper on shutdown.
@@ -292,6 +340,8 @@ public class ValVoiceBackend {
 
         logger.info("[ValVoiceBackend] Stopping backend services...");
 
+        metricsEndpoint.stop();
+
         // Stop Riot Local API poller
         if (riotLocalApiPoller != null) {
             riotLocalApiPoller.stop();
@@ -393,6 +443,13 @@ public class ValVoiceBackend {
         return appStartTime;
     }
 
+    /**
+     * Get the timestamp gate (effective grace period and measured clock skew).
+     */
+    public TimestampGate getTimestampGate() {
+        return timestampGate;
+    }
+
     // ===== VN TTS ENGINE LIFECYCLE (INJECTED) =====
 
     /**
@@ -783,60 +840,24 @@ public class ValVoiceBackend {
         }
 
         // Read output from the MITM proxy process
+        // Streaming decoder: no Gson tree for incoming/outgoing, reused line/data buffers
         mitmIoPool.submit(() -> {
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(mitmProcess.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if (line.isBlank()) continue;
-                    JsonElement parsed;
-                    try {
-                        parsed = JsonParser.parseString(line);
-                        if (!parsed.isJsonObject()) {
-                            // PHASE 3 SECURITY: Truncate non-JSON output for defensive logging
-                            logger.debug("[MITM raw] {}", truncateForLog(line));
-                            continue;
-                        }
-                        JsonObject obj = parsed.getAsJsonObject();
-                        String type = obj.has("type") && !obj.get("type").isJsonNull() ? obj.get("type").getAsString() : "";
-
-                        // PHASE 3 SECURITY: Handle security confirmation messages from MITM
-                        if ("security".equals(type)) {
-                            String message = obj.has("message") && !obj.get("message").isJsonNull()
-                                ? obj.get("message").getAsString()
-                                : "Security event";
-                            logger.info("[MITM:security] {}", message);
-                            continue;
-                        }
-
-                        // Check for fatal error events during startup
-                        if ("error".equals(type)) {
-                            int code = obj.has("code") ? obj.get("code").getAsInt() : 0;
-                            String reason = obj.has("reason") && !obj.get("reason").isJsonNull() ? obj.get("reason").getAsString() : "Unknown error";
-                            logger.error("[MITM:error] code={} reason={}", code, reason);
-                            // Fatal codes: 409=Riot running, 404=Valorant not found, 500=internal
-                            if (code == 409 || code == 404 || code == 500) {
-                                mitmFatalError = true;
-                                mitmFatalReason = reason;
-                            }
-                        } else {
-                            handleMitmEvent(type, obj);
-                        }
-                    } catch (Exception ex) {
-                        // Non-JSON bridge output
-                        // PHASE 3 SECURITY: Truncate for defensive logging
-                        String truncated = truncateForLog(line);
-                        String lower = line.toLowerCase();
-                        if (lower.contains("presence")) {
-                            logger.debug("[MITM presence] {}", truncated);
-                        } else {
-                            logger.info("[MITM log] {}", truncated);
-                        }
-                    }
+            MitmEventDecoder decoder = new MitmEventDecoder(mitmProcess.getInputStream());
+            MitmEventDecoder.Handler handler = newMitmHandler();
+            MitmCaptureWriter capture = openMitmCapture();
+            decoder.setLineTap(capture);
+            try {
+                while (decoder.next(handler)) {
+                    // dispatch happens inside next()
                 }
             } catch (IOException e) {
                 logger.warn("[ValVoiceBackend] MITM proxy stdout reader terminating", e);
             } finally {
-                logger.info("[ValVoiceBackend] MITM proxy output closed");
+                if (capture != null) {
+                    capture.close();
+                }
+                logger.info("[ValVoiceBackend] MITM proxy output closed ({} lines, {} tree fallbacks)",
+                           decoder.getLinesDecoded(), decoder.getTreeFallbacks());
             }
         });
 
@@ -944,25 +965,152 @@ public class ValVoiceBackend {
 
     // ========== MITM Event Handling ==========
 
+    /**
+     * Decoder callbacks shared by the live MITM reader and replayMitmOutput().
+     */
+    private MitmEventDecoder.Handler newMitmHandler() {
+        return new MitmEventDecoder.Handler() {
+            @Override
+            public void onData(String type, int socketID, CharSequence data) {
+                handleMitmData(type, socketID, data);
+            }
+
+            @Override
+            public void onEvent(String type, JsonObject obj) {
+                handleMitmControlEvent(type, obj);
+            }
+
+            @Override
+            public void onRawLine(CharSequence line, boolean presence) {
+                // Non-JSON bridge output
+                // PHASE 3 SECURITY: Truncate for defensive logging
+                if (presence) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("[MITM presence] {}", truncateForLog(line.toString()));
+                    }
+                } else {
+                    logger.info("[MITM log] {}", truncateForLog(line.toString()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Open the capture file named by ValVoiceConfig.mitmCaptureFile.
+     *
+     * @return The writer to tap into the decoder, or null when recording is off or failed
+     */
+    private MitmCaptureWriter openMitmCapture() {
+        String configured = com.someone.valvoicebackend.config.ConfigManager.get().mitmCaptureFile;
+        if (configured == null || configured.isBlank()) {
+            return null;
+        }
+        Path file = Paths.get(configured.trim());
+        if (!file.isAbsolute()) {
+            file = com.someone.valvoicebackend.config.ConfigManager.getConfigPath().getParent().resolve(file);
+        }
+        try {
+            return MitmCaptureWriter.open(file);
+        } catch (IOException e) {
+            logger.warn("[CAPTURE] Cannot record MITM events to {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Judge message stamps against a recorded clock instead of this machine's (MitmReplay).
+     * The timestamp gate is rebuilt with the capture start as its app start time, so
+     * messages that were live while recording are live again on replay. It keeps the
+     * default grace: recorded offsets must not feed the skew estimator.
+     *
+     * @param captureStartMillis Epoch millis the capture was started
+     * @param captureClock       Recorded wall clock of the line being replayed
+     */
+    public void enterReplayMode(long captureStartMillis, java.util.function.LongSupplier captureClock) {
+        this.timestampGate = new TimestampGate(captureStartMillis, GRACE_PERIOD_MS, false);
+        this.stampClock = captureClock;
+        logger.info("[ValVoiceBackend] Replay mode: stamps judged against capture clock (start={})", captureStartMillis);
+    }
+
+    /**
+     * Feed a recorded MITM stdout stream through the same decode/dispatch path as the live proxy.
+     * Runs on the calling thread and returns at end of stream.
+     *
+     * @param output The MITM output to replay (usually a MitmCaptureReader)
+     * @return Lines decoded
+     */
+    public long replayMitmOutput(Reader output) throws IOException {
+        MitmEventDecoder decoder = new MitmEventDecoder(output);
+        MitmEventDecoder.Handler handler = newMitmHandler();
+        while (decoder.next(handler)) {
+            // dispatch happens inside next()
+        }
+        return decoder.getLinesDecoded();
+    }
+
+    /**
+     * Hot path for decoded "incoming"/"outgoing" events (no JSON tree).
+     * data is a reused buffer owned by MitmEventDecoder - copy before keeping it.
+     */
+    private void handleMitmData(String type, int socketID, CharSequence data) {
+        if (data == null || data.length() == 0) return;
+        try {
+            if (MitmEventDecoder.TYPE_INCOMING.equals(type)) {
+                handleIncomingChunk(socketID, data);
+            } else {
+                handleOutgoing(data.toString());
+            }
+        } catch (Exception e) {
+            logger.debug("[MITM:{}] Handler failed: {}", type, e.getMessage());
+        }
+    }
+
+    /**
+     * Control events from the MITM proxy (security, error, open-* and close-* events).
+     */
+    private void handleMitmControlEvent(String type, JsonObject obj) {
+        // PHASE 3 SECURITY: Handle security confirmation messages from MITM
+        if ("security".equals(type)) {
+            String message = obj.has("message") && !obj.get("message").isJsonNull()
+                ? obj.get("message").getAsString()
+                : "Security event";
+            logger.info("[MITM:security] {}", message);
+            return;
+        }
+
+        // Check for fatal error events during startup
+        if ("error".equals(type)) {
+            int code = obj.has("code") ? obj.get("code").getAsInt() : 0;
+            String reason = obj.has("reason") && !obj.get("reason").isJsonNull() ? obj.get("reason").getAsString() : "Unknown error";
+            logger.error("[MITM:error] code={} reason={}", code, reason);
+            // Fatal codes: 409=Riot running, 404=Valorant not found, 500=internal
+            if (code == 409 || code == 404 || code == 500) {
+                mitmFatalError = true;
+                mitmFatalReason = reason;
+            }
+            return;
+        }
+
+        try {
+            handleMitmEvent(type, obj);
+        } catch (Exception e) {
+            logger.debug("[MITM:{}] Handler failed: {}", type, e.getMessage());
+        }
+    }
+
     /**
      * Handle events from the MITM proxy process
      */
     private void handleMitmEvent(String type, JsonObject obj) {
         switch (type) {
             case "incoming" -> {
-                // Raw XML received from Riot server - use ValorantNarrator-style parsing
-                handleIncomingStanza(obj);
+                // Raw TLS chunk received from Riot server - frame into stanzas, then parse
+                handleIncomingChunk(obj);
             }
             case "outgoing" -> {
                 // Raw XML sent to Riot server - check for RSO-PAS auth to capture identity
                 if (obj.has("data") && !obj.get("data").isJsonNull()) {
-                    String data = obj.get("data").getAsString();
-                    // PHASE 3 SECURITY: Truncate outgoing data for defensive logging
-                    logger.info("[MITM:outgoing] {}", truncateForLog(data));
-
-                    // === PHASE 1: PUUID Identity Capture ===
-                    // Detect RSO-PAS authentication mechanism and extract PUUID from JWT
-                    tryExtractPuuidFromAuth(data);
+                    handleOutgoing(obj.get("data").getAsString());
                 }
             }
             case "open-valorant" -> {
@@ -984,6 +1132,7 @@ public class ValVoiceBackend {
                 // PHASE 3: currentUserPuuid (in ChatDataHandler.selfId) is NOT touched here
                 int socketID = obj.has("socketID") ? obj.get("socketID").getAsInt() : 0;
                 logger.info("[MITM:close-riot] socketID={}", socketID);
+                discardFramer(socketID);
                 String currentIdentity = ChatDataHandler.getInstance().getSelfId();
                 logger.debug("[RECONNECT SAFE] Identity preserved after close-riot: {}",
                             currentIdentity != null ? currentIdentity.substring(0, Math.min(8, currentIdentity.length())) + "..." : "(null)");
@@ -994,6 +1143,7 @@ public class ValVoiceBackend {
                 // PHASE 3: currentUserPuuid (in ChatDataHandler.selfId) is NOT touched here
                 int socketID = obj.has("socketID") ? obj.get("socketID").getAsInt() : 0;
                 logger.info("[MITM:close-valorant] socketID={}", socketID);
+                discardFramer(socketID);
                 String currentIdentity = ChatDataHandler.getInstance().getSelfId();
                 logger.debug("[RECONNECT SAFE] Identity preserved after close-valorant: {}",
                             currentIdentity != null ? currentIdentity.substring(0, Math.min(8, currentIdentity.length())) + "..." : "(null)");
@@ -1019,6 +1169,15 @@ public class ValVoiceBackend {
         }
     }
 
+    private void handleOutgoing(String data) {
+        // PHASE 3 SECURITY: Truncate outgoing data for defensive logging
+        logger.info("[MITM:outgoing] {}", truncateForLog(data));
+
+        // === PHASE 1: PUUID Identity Capture ===
+        // Detect RSO-PAS authentication mechanism and extract PUUID from JWT
+        tryExtractPuuidFromAuth(data);
+    }
+
     // ========== PUUID Identity Capture ==========
 
     /**
@@ -1191,7 +1350,41 @@ public class ValVoiceBackend {
     // ========== XMPP Stanza Handling ==========
 
     /**
-     * Handle incoming XMPP stanzas from MITM.
+     * Feed one MITM "incoming" chunk into its socket's stanza framer.
+     *
+     * XmppMITM.ts emits raw TLS "data" chunks: a stanza may be split across
+     * chunks and several stanzas may share one chunk. The framer buffers per
+     * socket and hands each complete message/presence/iq to handleIncomingStanza().
+     */
+    private void handleIncomingChunk(JsonObject obj) {
+        if (!obj.has("data") || obj.get("data").isJsonNull()) return;
+        int socketID = obj.has("socketID") && !obj.get("socketID").isJsonNull()
+            ? obj.get("socketID").getAsInt() : 0;
+        handleIncomingChunk(socketID, obj.get("data").getAsString());
+    }
+
+    private void handleIncomingChunk(int socketID, CharSequence data) {
+        if (data == null || data.length() == 0) return;
+        // Stanzas completed by this chunk refer to it in their JFR events
+        currentLineId = PipelineEvents.lineReceived(socketID, data.length());
+        currentLineNanos = System.nanoTime();
+        XmppStanzaFramer framer = stanzaFramers.computeIfAbsent(socketID, id -> new XmppStanzaFramer());
+        framer.feed(data, this::handleIncomingStanza);
+    }
+
+    /**
+     * Drop the framer (and any partial stanza) for a closed socket.
+     */
+    private void discardFramer(int socketID) {
+        XmppStanzaFramer framer = stanzaFramers.remove(socketID);
+        if (framer != null && framer.bufferedChars() > 0) {
+            logger.debug("[Framer] socketID={} closed with {} chars of incomplete stanza discarded",
+                socketID, framer.bufferedChars());
+        }
+    }
+
+    /**
+     * Handle one complete incoming XMPP stanza (already framed by XmppStanzaFramer).
      *
      * Phase 2B: Production Cutover - Now uses XmppStreamParser (StAX) exclusively.
      * All regex-based message parsing has been removed.
@@ -1210,9 +1403,7 @@ public class ValVoiceBackend {
      * 5. DUPLICATE GATE: Suppress already-processed messages
      * 6. MESSAGE HANDLER: Forward to ChatDataHandler for TTS
      */
-    private void handleIncomingStanza(JsonObject obj) {
-        if (!obj.has("data") || obj.get("data").isJsonNull()) return;
-        String xml = obj.get("data").getAsString();
+    private void handleIncomingStanza(String xml) {
         if (xml == null || xml.isBlank()) return;
 
 
@@ -1231,90 +1422,86 @@ public class ValVoiceBackend {
         //
         // Presence stanzas are processed HERE and NEVER reach the chat pipeline.
         // ═══════════════════════════════════════════════════════════════════════════
-        if (XmppStreamParser.isPresenceStanza(xml)) {
-            handlePresenceStanza(xml);
-            // Presence stanzas are NOT chat messages - do not continue to message parsing
-            return;
-        }
-
-        // === PHASE 3: ROSTER IQ PARSING ===
-        // Parse roster IQ packets to build PUUID→Name mapping for TTS announcements
-        // This must happen BEFORE archive blocking since roster IQs are also type="result"
-        if (Roster.getInstance().isRosterIq(xml)) {
-            int count = Roster.getInstance().parseRosterIq(xml);
-            logger.info("[ROSTER] Parsed {} roster entries from IQ packet", count);
-            // Roster IQs are processed - return immediately to prevent IQ SKIP block
-            return;
-        }
 
-        // === ARCHIVE IQ BLOCK (HARD RULE) ===
-        // If message is embedded inside <iq type="result"> with jabber:iq:riotgames:archive
-        // then NEVER forward to ChatDataHandler, NEVER trigger TTS
-        if (XmppStreamParser.isIqStanza(xml)) {
-            if (XmppStreamParser.isArchiveStanza(xml)) {
-                logger.debug("[ARCHIVE BLOCK] Dropping archive IQ result stanza");
+        // === SINGLE-PASS ROUTING ===
+        // One case-insensitive scan decides the route (no lowercased copies).
+        // Order of precedence matches the original check chain.
+        StanzaClassifier.StanzaKind kind = StanzaClassifier.classify(xml);
+        long correlationId = PipelineEvents.nextId();
+        PipelineEvents.stanzaClassified(correlationId, currentLineId, kind, xml.length());
+        switch (kind) {
+            case PRESENCE -> {
+                handlePresenceStanza(xml);
+                // Presence stanzas are NOT chat messages - do not continue to message parsing
+                return;
+            }
+            case ROSTER_IQ -> {
+                // === PHASE 3: ROSTER IQ PARSING ===
+                // Parse roster IQ packets to build PUUID→Name mapping for TTS announcements
+                // This must happen BEFORE archive blocking since roster IQs are also type="result"
+                // Roster pushes (type="set") apply add/rename/remove deltas to the same map
+                int count = Roster.getInstance().parseRosterIq(xml);
+                logger.info("[ROSTER] Parsed {} roster entries from IQ packet", count);
                 return;
             }
-            // Non-archive IQ results (like roster) don't contain chat messages
-            if (!XmppStreamParser.containsMessageWithBody(xml)) {
+            case ARCHIVE -> {
+                // === ARCHIVE IQ BLOCK (HARD RULE) ===
+                // Archive namespace, or an IQ result wrapping archived messages:
+                // NEVER forward to ChatDataHandler, NEVER trigger TTS
+                logger.debug("[ARCHIVE BLOCK] Dropping archive stanza");
+                return;
+            }
+            case IQ_OTHER -> {
+                // Non-archive IQ results (like roster) don't contain chat messages
                 logger.debug("[IQ SKIP] IQ stanza with no chat messages, skipping");
                 return;
             }
-            // IQ result containing messages - these are archived messages, block them
-            logger.debug("[ARCHIVE BLOCK] Dropping IQ result containing archived messages");
-            return;
-        }
-        if (XmppStreamParser.isArchiveStanza(xml)) {
-            logger.debug("[ARCHIVE BLOCK] Dropping stanza with archive namespace");
-            return;
-        }
-
-        // === QUICK FILTER: Skip non-message stanzas ===
-        if (!XmppStreamParser.containsMessageWithBody(xml)) {
-            return;
+            case OTHER -> {
+                // === QUICK FILTER: Skip non-message stanzas ===
+                return;
+            }
+            default -> {
+                // MESSAGE / CARBON: continue to StAX parsing
+            }
         }
 
         // === STAX PARSING: Extract messages using streaming XML parser ===
         try {
+            PipelineEvents.MessageParsed parseEvent = PipelineEvents.beginParse();
             List<ParsedMessage> messages = XmppStreamParser.parseMessages(xml);
+            PipelineEvents.messageParsed(parseEvent, correlationId, messages.size());
 
             if (messages.isEmpty()) {
                 logger.debug("[StAX] No messages extracted from stanza");
                 return;
             }
 
-            // === DEBUG LOGGING (using parsed data, not regex) ===
+            // === PROCESS EACH MESSAGE ===
+            // Decisions are recorded in the diagnostic ring; the per-message box is DEBUG only
+            DiagnosticRing ring = DiagnosticRing.getInstance();
             for (ParsedMessage parsed : messages) {
-                logger.info("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-                logger.info("📨 PARSED MESSAGE (StAX):");
-                logger.info("FROM: {}", parsed.getFrom());
-                logger.info("TYPE: {}", parsed.getType());
-                logger.info("ID: {}", parsed.getId());
-                logger.info("STAMP: {}", parsed.getStamp());
-                logger.info("BODY: {}", parsed.getBody() != null ?
-                    (parsed.getBody().length() > 100 ? parsed.getBody().substring(0, 97) + "..." : parsed.getBody())
-                    : "(null)");
-
-                // Log MUC classification
-                String from = parsed.getFrom();
-                if (from != null) {
-                    boolean isParty = from.contains("@ares-parties");
-                    boolean isPregame = from.contains("@ares-pregame");
-                    boolean isCoregame = from.contains("@ares-coregame");
-                    logger.info("  - MUC Type: party={}, pregame={}, coregame={}", isParty, isPregame, isCoregame);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("📨 PARSED MESSAGE (StAX): from={} type={} id={} stamp={} body='{}'",
+                        parsed.getFrom(), parsed.getType(), parsed.getId(), parsed.getStamp(),
+                        parsed.getBody() != null
+                            ? (parsed.getBody().length() > 100 ? parsed.getBody().substring(0, 97) + "..." : parsed.getBody())
+                            : "(null)");
                 }
-                logger.info("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-            }
 
-            // === PROCESS EACH MESSAGE ===
-            for (ParsedMessage parsed : messages) {
                 if (!parsed.hasBody()) {
                     continue;
                 }
 
+                ring.record(DiagnosticRing.Stage.XMPP_MESSAGE, DiagnosticRing.Verdict.RECEIVED,
+                    correlationId, parsed.getFrom(), parsed.getBody().length());
+                PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.XMPP_MESSAGE, DiagnosticRing.Verdict.RECEIVED);
+                PipelineEvents.FilterVerdict gateVerdict = PipelineEvents.beginFilters();
+
                 // === TIMESTAMP GATE ===
                 // Check stamp attribute for historical messages
                 if (isHistoricalMessage(parsed.getStamp())) {
+                    gateDrop(gateVerdict, correlationId, DiagnosticRing.Verdict.HISTORICAL,
+                        parsed.getStamp(), timestampGate.getEffectiveGraceMs());
                     logger.debug("[TIMESTAMP GATE] Dropping historical message (stamp={})", parsed.getStamp());
                     continue;
                 }
@@ -1322,32 +1509,41 @@ public class ValVoiceBackend {
                 // === DUPLICATE GATE ===
                 // Suppress messages already processed
                 if (isDuplicateMessage(parsed.getId(), parsed.getFrom(), parsed.getBody())) {
+                    gateDrop(gateVerdict, correlationId, DiagnosticRing.Verdict.DUPLICATE, parsed.getId(), 0);
                     logger.debug("[DUPLICATE GATE] Dropping duplicate message (id={})", parsed.getId());
                     continue;
                 }
 
                 // === FORWARD TO MESSAGE HANDLER ===
                 try {
-                    // Use the raw XML to construct the Message object
-                    // (Message class still needs XML for full parsing)
-                    Message msg = new Message(parsed.getRawXml());
+                    // Build the Message from the StAX result (no second parse of the XML)
+                    Message msg = Message.fromParsed(parsed);
+                    msg.setCorrelationId(correlationId);
+                    msg.setReceivedNanos(currentLineNanos);
                     logger.debug("Forwarding message: type={}, from={}", msg.getMessageType(), msg.getUserId());
                     
                     // PHASE 2.5.3: OCR PRIMARY / MITM CHAT DISABLE
                     com.someone.valvoicebackend.config.ValVoiceConfig config = com.someone.valvoicebackend.config.ConfigManager.get();
                     if (config != null && config.ocrPrimary) {
+                        gateDrop(gateVerdict, correlationId, DiagnosticRing.Verdict.OCR_PRIMARY, parsed.getFrom(), 0);
                         logger.debug("[MITM] Chat message ignored because OCR is primary source");
                     } else {
                         ChatDataHandler.getInstance().message(msg);
                     }
                 } catch (Exception ex) {
                     logger.warn("Failed to create Message object: {}", ex.getMessage());
+                    ring.record(DiagnosticRing.Stage.ERROR, DiagnosticRing.Verdict.FAILED,
+                        correlationId, parsed.getFrom(), 0);
+                    ring.dumpOnError("Message handling failed");
                 }
             }
 
         } catch (Exception e) {
             // Safety: Never crash MITM on parse errors
             logger.debug("[StAX] Error handling incoming stanza: {}", e.getMessage());
+            DiagnosticRing.getInstance().record(DiagnosticRing.Stage.ERROR, DiagnosticRing.Verdict.FAILED,
+                correlationId, null, xml.length());
+            DiagnosticRing.getInstance().dumpOnError("Stanza handling failed");
         }
     }
 
@@ -1373,60 +1569,22 @@ public class ValVoiceBackend {
      * - "PREGAME" : Player is in agent select
      * - "INGAME"  : Player is in an active match
      *
+     * Only the local player's presence is decoded (see PresenceTracker); its
+     * provisioningFlow lets GameStateManager tell custom games from matchmaking.
+     *
      * This method is ADDITIVE - it does NOT affect any existing parsing logic.
      * Presence stanzas NEVER reach the chat message pipeline.
      *
      * @param xml Raw presence stanza XML
      */
     private void handlePresenceStanza(String xml) {
-        // === PHASE 1 SECURITY: Defensive entry guard ===
-        if (xml == null || xml.isEmpty()) {
-            return;
-        }
-
         try {
-            // Quick check: does this presence have a <p> payload?
-            if (!XmppStreamParser.presenceHasPayload(xml)) {
-                logger.debug("[PRESENCE] Stanza has no <p> payload, ignoring");
-                return;
-            }
-
-            // Extract the Base64-encoded payload from <p> element
-            // Note: XmppStreamParser.extractPresencePayload already has length caps
-            String base64Payload = XmppStreamParser.extractPresencePayload(xml);
-            if (base64Payload == null || base64Payload.isEmpty()) {
-                logger.debug("[PRESENCE] Could not extract <p> payload");
-                return;
-            }
-
-            // Decode Base64 to JSON string
-            byte[] decodedBytes;
-            try {
-                decodedBytes = java.util.Base64.getDecoder().decode(base64Payload);
-            } catch (IllegalArgumentException e) {
-                // Base64 decoding failed - not a valid payload
-                logger.debug("[PRESENCE] Failed to decode Base64 payload (malformed): {}", e.getMessage());
-                return;
-            }
-
-            String jsonPayload = new String(decodedBytes, StandardCharsets.UTF_8);
-
-            // Parse JSON and extract sessionLoopState
-            JsonObject payload = JsonParser.parseString(jsonPayload).getAsJsonObject();
-
-            if (payload.has("sessionLoopState") && !payload.get("sessionLoopState").isJsonNull()) {
-                String sessionLoopState = payload.get("sessionLoopState").getAsString();
-                logger.debug("[PRESENCE] sessionLoopState={}", sessionLoopState);
-
-                // Update GameStateManager (thread-safe)
-                GameStateManager.getInstance().updateFromSessionLoopState(sessionLoopState);
-            } else {
-                logger.debug("[PRESENCE] JSON payload does not contain sessionLoopState");
-            }
-
+            // Own-PUUID gate, per-JID unchanged-payload check and streaming field extraction.
+            // Friends' presences and unchanged payloads are dropped before any decoding.
+            presenceTracker.onPresence(xml);
         } catch (Exception e) {
             // === PHASE 1 SECURITY: Fail-safe on any parsing error ===
-            // JSON parsing failed or other error - never crash, silently drop
+            // Never crash, silently drop
             logger.debug("[PRESENCE] Failed to parse presence payload (dropped): {}", e.getMessage());
         }
     }
@@ -1442,30 +1600,22 @@ public class ValVoiceBackend {
      * @return true if message is historical and should be dropped
      */
     private boolean isHistoricalMessage(String stamp) {
-        if (stamp == null || stamp.isEmpty()) {
-            // No stamp = live message, not historical
-            return false;
-        }
-
-        try {
-            long messageEpochMillis = parseStampToEpochMillis(stamp);
-
-            if (messageEpochMillis < (appStartTime - GRACE_PERIOD_MS)) {
-                logger.debug("[TIMESTAMP GATE] Historical: stamp={} < (appStart={} - grace={})",
-                    stamp, appStartTime, GRACE_PERIOD_MS);
-                return true;
-            }
-        } catch (Exception e) {
-            // If we can't parse the stamp, assume it's historical to be safe
-            logger.debug("[TIMESTAMP GATE] Unparseable stamp '{}', treating as historical", stamp);
-            return true;
-        }
-
-        return false;
+        // Exception-free stamp parse; also records the server clock offset of live messages
+        return timestampGate.isHistorical(stamp, stampClock.getAsLong());
     }
 
     // ========== Duplicate Suppression (refactored for StAX) ==========
 
+    /**
+     * Record an XMPP gate drop: diagnostic ring, JFR verdict event and drop counter.
+     */
+    private static void gateDrop(PipelineEvents.FilterVerdict event, long correlationId,
+                                 DiagnosticRing.Verdict verdict, String subject, long value) {
+        DiagnosticRing.getInstance().record(DiagnosticRing.Stage.XMPP_GATE, verdict, correlationId, subject, value);
+        PipelineEvents.filterVerdict(event, correlationId, DiagnosticRing.Stage.XMPP_GATE, verdict);
+        PipelineMetrics.getInstance().countVerdict(DiagnosticRing.Stage.XMPP_GATE, verdict);
+    }
+
     /**
      * Check if a message is a duplicate (already processed).
      *
@@ -1477,25 +1627,17 @@ public class ValVoiceBackend {
      * @return true if this is a duplicate and should be dropped
      */
     private boolean isDuplicateMessage(String id, String from, String body) {
-        String messageKey;
-
-        if (id != null && !id.isEmpty()) {
-            // Use message ID as primary key
-            messageKey = "id:" + id;
-        } else {
-            // Fallback: Use hash of from + body
-            String fromPart = from != null ? from : "";
-            String bodyPart = body != null ? body : "";
-            messageKey = "hash:" + fromPart.hashCode() + ":" + bodyPart.hashCode();
-        }
+        long fingerprint = (id != null && !id.isEmpty())
+            ? DuplicateFilter.fingerprint("id", id)     // Message ID as primary key
+            : DuplicateFilter.fingerprint(from, body);  // Fallback: sender + body
+        return messageDedup.isDuplicate(fingerprint);
+    }
 
-        synchronized (recentMessageHashes) {
-            if (recentMessageHashes.containsKey(messageKey)) {
-                return true;
-            }
-            recentMessageHashes.put(messageKey, System.currentTimeMillis());
-            return false;
-        }
+    /**
+     * Get the XMPP duplicate filter (hit rate for diagnostics).
+     */
+    public DuplicateFilter getMessageDedup() {
+        return messageDedup;
     }
 
     // ========== Utility Methods ==========
@@ -1517,49 +1659,6 @@ public class ValVoiceBackend {
         return payload.substring(0, MAX_LOG_PAYLOAD_LENGTH) + "... [truncated, total=" + payload.length() + "]";
     }
 
-    /**
-     * Parse XMPP stamp attribute to epoch milliseconds.
-     * Handles formats: "YYYY-MM-DD HH:mm:ss" and ISO8601 variants.
-     *
-     * CRITICAL: Riot XMPP servers send timestamps in UTC.
-     * We must parse them as UTC, NOT as local time.
-     * Failure to do this causes a timezone offset (e.g., 5.5 hours for IST)
-     * which makes live messages appear historical and get dropped.
-     */
-    private long parseStampToEpochMillis(String stamp) {
-        // Try common formats - ALL parsed as UTC since Riot sends UTC timestamps
-        java.time.format.DateTimeFormatter[] formatters = {
-            java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-            java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS"),
-            java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"),
-            java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
-            java.time.format.DateTimeFormatter.ISO_DATE_TIME,
-            java.time.format.DateTimeFormatter.ISO_INSTANT
-        };
-
-        for (var formatter : formatters) {
-            try {
-                // Parse as LocalDateTime, then convert to UTC (NOT system default!)
-                // Riot sends timestamps in UTC - this is critical for correct filtering
-                java.time.LocalDateTime ldt = java.time.LocalDateTime.parse(stamp, formatter);
-                return ldt.atZone(java.time.ZoneId.of("UTC")).toInstant().toEpochMilli();
-            } catch (Exception ignored) {}
-
-            try {
-                // Try parsing as ZonedDateTime (already has timezone info)
-                java.time.ZonedDateTime zdt = java.time.ZonedDateTime.parse(stamp, formatter);
-                return zdt.toInstant().toEpochMilli();
-            } catch (Exception ignored) {}
-        }
-
-        // Last resort: try Instant.parse for ISO8601 with Z suffix
-        try {
-            return java.time.Instant.parse(stamp).toEpochMilli();
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Cannot parse stamp: " + stamp, e);
-        }
-    }
-
     // ═══════════════════════════════════════════════════════════════════════════════
     // PHASE 5: EVENT-DRIVEN UI (Reactive Backend)
     // ═══════════════════════════════════════════════════════════════════════════════
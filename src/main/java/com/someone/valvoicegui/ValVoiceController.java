@@ -1,6 +1,8 @@
 package com.someone.valvoicegui;
 
 import com.someone.valvoicebackend.*;
+import com.someone.valvoicebackend.config.ConfigManager;
+import com.someone.valvoicebackend.config.ValVoiceConfig;
 import com.jfoenix.controls.JFXToggleButton;
 import javafx.animation.FadeTransition;
 import javafx.animation.PauseTransition;
@@ -70,6 +72,11 @@ public class ValVoiceController implements ValVoiceBackend.ValVoiceEventListener
     @FXML public Label quotaLabel;
     @FXML public Label messagesSentLabel;
     @FXML public Label charactersNarratedLabel;
+    @FXML public Label timeToAudioLabel;
+    @FXML public Label filteredLabel;
+    @FXML public Label ttsQueueLabel;
+    @FXML public Label sapiFallbackLabel;
+    @FXML public Label phraseCacheLabel;
 
     // Buttons
     @FXML public Button voiceSettingsSync;
@@ -117,6 +124,7 @@ public class ValVoiceController implements ValVoiceBackend.ValVoiceEventListener
     private boolean isLoading = true;
 
     private InbuiltVoiceSynthesizer inbuiltSynth; // persistent System.Speech synthesizer (optional)
+    private NarrationHotkey narrationHotkey; // global skip / flush key (Windows, optional)
 
     // Performance: Use ScheduledExecutorService instead of raw threads with sleep
     private final ScheduledExecutorService scheduledExecutor;
@@ -275,6 +283,12 @@ public class ValVoiceController implements ValVoiceBackend.ValVoiceEventListener
             VoiceGenerator.initialize(inbuiltSynth);
             logger.info("✓ VoiceGenerator initialized with keybind: {}", VoiceGenerator.getInstance().getCurrentKeybind());
 
+            // Global skip / flush key for narration
+            ValVoiceConfig hotkeyConfig = ConfigManager.get();
+            narrationHotkey = new NarrationHotkey(hotkeyConfig != null ? hotkeyConfig.skipNarrationKey : null,
+                VoiceGenerator.getInstance());
+            narrationHotkey.start();
+
             // === UI → VoiceGenerator Propagation Listeners ===
             // Ensure voice selection changes are always synced to VoiceGenerator
             if (voices != null) {
@@ -335,6 +349,7 @@ public class ValVoiceController implements ValVoiceBackend.ValVoiceEventListener
         // Poll VoiceGenerator speaking state every 100ms to update the visual indicator
         // This is UI-only feedback and does not affect TTS pipeline behavior
         startTtsIndicatorPolling();
+        startMetricsPolling();
     }
 
     /**
@@ -351,6 +366,34 @@ public class ValVoiceController implements ValVoiceBackend.ValVoiceEventListener
         }, 500, 100, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Refresh the pipeline metrics row of the stats panel from PipelineMetrics.
+     * Reads are lock-free snapshots; purely visual, no effect on the pipeline.
+     */
+    private void startMetricsPolling() {
+        scheduledExecutor.scheduleAtFixedRate(() -> {
+            if (shutdownRequested) return;
+
+            PipelineMetrics metrics = PipelineMetrics.getInstance();
+            LatencyHistogram firstByte = metrics.dispatchToFirstByte();
+            String timeToAudio = firstByte.getCount() == 0 ? "–"
+                : String.format("%.0f / %.0f ms", firstByte.getQuantileMillis(0.50), firstByte.getQuantileMillis(0.95));
+            String filtered = String.valueOf(metrics.getTotalDrops());
+            String queue = String.valueOf(metrics.getTtsQueueDepth());
+            String sapi = String.format("%.0f%%", metrics.getSapiFallbackRate() * 100);
+            PhraseCache cache = VoiceGenerator.isInitialized() ? VoiceGenerator.getInstance().getPhraseCache() : null;
+            String phrases = cache == null ? "off"
+                : String.format("%.0f%% · %.1f MB", cache.getHitRatio() * 100, cache.getMemoryBytes() / (1024.0 * 1024.0));
+            Platform.runLater(() -> {
+                if (timeToAudioLabel != null) timeToAudioLabel.setText(timeToAudio);
+                if (filteredLabel != null) filteredLabel.setText(filtered);
+                if (ttsQueueLabel != null) ttsQueueLabel.setText(queue);
+                if (sapiFallbackLabel != null) sapiFallbackLabel.setText(sapi);
+                if (phraseCacheLabel != null) phraseCacheLabel.setText(phrases);
+            });
+        }, 1, 2, TimeUnit.SECONDS);
+    }
+
     /**
      * Update the TTS speaking indicator visibility.
      * Shows animated indicator when TTS is actively speaking.
@@ -1507,6 +1550,9 @@ public class ValVoiceController implements ValVoiceBackend.ValVoiceEventListener
             logger.error("Error stopping ValVoiceBackend", e);
         }
 
+        if (narrationHotkey != null) {
+            narrationHotkey.close();
+        }
         if (inbuiltSynth != null) {
             inbuiltSynth.shutdown();
         }
@@ -20,6 +20,8 @@ module com.someone.valvoice {
     // Java modules
     requires java.desktop;
     requires java.net.http;
+    requires jdk.jfr;
+    requires jdk.httpserver;
     requires dev.mccue.jlayer;
 
 
@@ -0,0 +1,92 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the in-memory pipeline flight recorder.
+ */
+class DiagnosticRingTest {
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Recording and snapshot order
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void snapshotReturnsEntriesOldestFirst() {
+        DiagnosticRing ring = new DiagnosticRing(8);
+        ring.record(DiagnosticRing.Stage.XMPP_MESSAGE, DiagnosticRing.Verdict.RECEIVED, 0xABCL, "a@ares-parties", 12);
+        ring.record(DiagnosticRing.Stage.CHAT_FILTER, DiagnosticRing.Verdict.NOT_SELF, 0xABCL, "a@ares-parties", 0);
+
+        List<DiagnosticRing.Entry> entries = ring.snapshot();
+        assertEquals(2, entries.size());
+        assertEquals(DiagnosticRing.Verdict.RECEIVED, entries.get(0).verdict());
+        assertEquals(12, entries.get(0).value());
+        assertEquals(DiagnosticRing.Stage.CHAT_FILTER, entries.get(1).stage());
+        assertEquals("a@ares-parties", entries.get(1).subject());
+        assertTrue(entries.get(0).sequence() < entries.get(1).sequence());
+    }
+
+    @Test
+    void ringKeepsOnlyTheNewestEntries() {
+        DiagnosticRing ring = new DiagnosticRing(8);
+        for (int i = 0; i < 20; i++) {
+            ring.record(DiagnosticRing.Stage.OCR_LINE, DiagnosticRing.Verdict.PASS, i, null, i);
+        }
+        List<DiagnosticRing.Entry> entries = ring.snapshot();
+        assertEquals(8, ring.getCapacity());
+        assertEquals(20, ring.getRecorded());
+        assertEquals(8, entries.size());
+        assertEquals(12, entries.get(0).value());
+        assertEquals(19, entries.get(7).value());
+    }
+
+    @Test
+    void concurrentWritersNeverProduceTornEntries() throws Exception {
+        DiagnosticRing ring = new DiagnosticRing(64);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final long id = t + 1;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    // key and value always match within one record
+                    ring.record(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED, id, null, id);
+                }
+            });
+            writers[t].start();
+        }
+        for (int i = 0; i < 200; i++) {
+            for (DiagnosticRing.Entry e : ring.snapshot()) {
+                assertEquals(e.key(), e.value());
+            }
+        }
+        for (Thread w : writers) {
+            w.join();
+        }
+        assertEquals(80_000, ring.getRecorded());
+        assertEquals(64, ring.snapshot().size());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Dumps
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void formatListsEveryEntry() {
+        DiagnosticRing ring = new DiagnosticRing(4);
+        ring.record(DiagnosticRing.Stage.XMPP_GATE, DiagnosticRing.Verdict.DUPLICATE, 0xFFL, "msg-1", 0);
+        String dump = ring.format("test");
+        assertTrue(dump.startsWith("[DIAGNOSTIC RING] test - last 1 of 1 decisions"));
+        assertTrue(dump.contains("XMPP_GATE DUPLICATE key=ff subject=msg-1"));
+    }
+
+    @Test
+    void errorDumpsAreRateLimited() {
+        DiagnosticRing ring = new DiagnosticRing(4);
+        assertTrue(ring.dumpOnError("first"));
+        assertFalse(ring.dumpOnError("second"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the lock-free time-windowed duplicate filter.
+ */
+class DuplicateFilterTest {
+
+    private static final long MS = 1_000_000L;
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Window and capacity
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void duplicatesAreSuppressedOnlyInsideTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(16, () -> 1_000);
+        long fp = DuplicateFilter.fingerprint("id", "1729012345678:1");
+        long t0 = 5_000 * MS;
+
+        assertFalse(filter.isDuplicate(fp, t0));
+        assertTrue(filter.isDuplicate(fp, t0 + 500 * MS));
+        assertFalse(filter.isDuplicate(fp, t0 + 1_600 * MS), "Expired fingerprint must pass again");
+        assertEquals(3, filter.getLookups());
+        assertEquals(1, filter.getHits());
+        assertEquals(1.0 / 3, filter.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void windowIsReadOnEveryCall() {
+        AtomicInteger windowMs = new AtomicInteger(1_000);
+        DuplicateFilter filter = new DuplicateFilter(16, windowMs::get);
+        filter.isDuplicate(42L, 1_000 * MS);
+        windowMs.set(10_000);
+        assertTrue(filter.isDuplicate(42L, 6_000 * MS));
+    }
+
+    @Test
+    void oldestEntriesAreOverwrittenWhenTheRingWraps() {
+        DuplicateFilter filter = new DuplicateFilter(4, () -> 60_000);
+        for (long fp = 1; fp <= 4; fp++) {
+            assertFalse(filter.isDuplicate(fp, fp * MS));
+        }
+        assertFalse(filter.isDuplicate(5L, 5 * MS));  // overwrites fingerprint 1
+        assertTrue(filter.isDuplicate(4L, 6 * MS));
+        assertFalse(filter.isDuplicate(1L, 7 * MS));
+
+        filter.clear();
+        assertFalse(filter.isDuplicate(4L, 8 * MS));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Fingerprints
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void fingerprintsSeparatePartsAndDoNotCollideOnStringHashCollisions() {
+        assertNotEquals(DuplicateFilter.fingerprint("ab", "c"), DuplicateFilter.fingerprint("a", "bc"));
+        assertEquals(DuplicateFilter.fingerprint(null, "x"), DuplicateFilter.fingerprint("", "x"));
+        // "Aa" and "BB" share String.hashCode() - the old key treated them as the same body
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(DuplicateFilter.fingerprint("from", "Aa"), DuplicateFilter.fingerprint("from", "BB"));
+
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(seen.add(DuplicateFilter.fingerprint("TEAM", "Player", "message " + i)));
+        }
+    }
+
+    @Test
+    void concurrentWritersNeverLoseLaterDuplicates() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(1024, () -> 60_000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int base = t * 100;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    filter.isDuplicate(base + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int fp = 0; fp < 400; fp++) {
+            assertTrue(filter.isDuplicate(fp), "fingerprint " + fp);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram.
+ */
+class LatencyHistogramTest {
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Bucket layout
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void everyValueFallsInsideItsBucketWithinRelativeError() {
+        for (long micros = 0; micros < 5_000_000; micros += 1 + micros / 7) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(micros <= upper, "value " + micros + " above bound " + upper);
+            if (bucket > 0) {
+                assertTrue(micros > LatencyHistogram.upperBoundOf(bucket - 1), "value " + micros + " in wrong bucket");
+            }
+            assertTrue(upper - micros <= Math.max(1, micros / 8), "bucket too wide at " + micros);
+        }
+    }
+
+    @Test
+    void hugeValuesLandInTheLastBucket() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordNanos(Long.MAX_VALUE);
+        h.recordNanos(-5);
+        assertEquals(2, h.getCount());
+        assertEquals(1, h.getCountBelowPowerOfTwo(1));
+        assertEquals(1, h.getCountBelowPowerOfTwo(LatencyHistogram.maxExponent()));  // overflow only counts towards +Inf
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE / 1_000)), h.getQuantileMicros(1.0));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Quantiles and cumulative counts
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void quantilesAreWithinOneBucket() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) {
+            h.recordNanos(ms * 1_000_000L);
+        }
+        assertEquals(100, h.getCount());
+        assertEquals(100_000, h.getMaxMicros());
+        assertEquals(50.0, h.getQuantileMillis(0.50), 50.0 / 8);
+        assertEquals(95.0, h.getQuantileMillis(0.95), 95.0 / 8);
+        assertEquals(100.0, h.getQuantileMillis(1.0), 0.001);
+    }
+
+    @Test
+    void countBelowPowerOfTwoIsCumulative() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordNanos(500_000);      // 500 µs  < 2^9
+        h.recordNanos(1_500_000);    // 1500 µs < 2^11
+        h.recordNanos(3_000_000);    // 3000 µs < 2^12
+        assertEquals(0, h.getCountBelowPowerOfTwo(8));
+        assertEquals(1, h.getCountBelowPowerOfTwo(9));
+        assertEquals(1, h.getCountBelowPowerOfTwo(10));
+        assertEquals(2, h.getCountBelowPowerOfTwo(11));
+        assertEquals(3, h.getCountBelowPowerOfTwo(12));
+        assertEquals(3, h.getCountBelowPowerOfTwo(LatencyHistogram.maxExponent()));
+    }
+
+    @Test
+    void recordSinceIgnoresUnknownStart() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordSince(0);
+        assertEquals(0, h.getCount());
+        h.recordSince(System.nanoTime());
+        assertEquals(1, h.getCount());
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getQuantileMicros(0.5));
+    }
+}
@@ -0,0 +1,343 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.SourceDataLine;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LineAudioSink against FakeLine, a SourceDataLine that plays in real time.
+ */
+class LineAudioSinkTest {
+
+    private static final String PCM_24K = "audio/L16; rate=24000; channels=1";
+
+    private final List<FakeLine> lines = new CopyOnWriteArrayList<>();
+
+    /** Sink on a 24 kHz mono FakeLine, full volume, no limiter. */
+    private LineAudioSink sink() {
+        return new LineAudioSink(format -> {
+            FakeLine line = new FakeLine();
+            lines.add(line);
+            return line;
+        }, LineAudioSink.DEFAULT_FORMAT, () -> 1.0, false);
+    }
+
+    /** Big-endian 16-bit PCM of the given length, a ramp so byte order matters. */
+    private static InputStream pcm(int millis, int rate, int channels) {
+        int samples = rate * channels * millis / 1000;
+        byte[] bytes = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            short s = (short) ((i + 1) * 0x0102);
+            bytes[2 * i] = (byte) (s >> 8);
+            bytes[2 * i + 1] = (byte) s;
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /** Records when playback started and the line position when it finished. */
+    private static final class Recorder implements AudioSink.Listener {
+        private final List<FakeLine> lines;
+        final AtomicLong startedAt = new AtomicLong(-1);
+        final AtomicLong finishedAt = new AtomicLong(-1);
+
+        Recorder(List<FakeLine> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public void playbackStarted() {
+            startedAt.set(System.nanoTime());
+        }
+
+        @Override
+        public void playbackFinished() {
+            finishedAt.set(lines.get(lines.size() - 1).getLongFramePosition());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: One line for back-to-back utterances
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void backToBackUtterancesShareOneOpenLine() throws Exception {
+        LineAudioSink sink = sink();
+        for (int i = 0; i < 3; i++) {
+            sink.play(pcm(150, 24_000, 1), PCM_24K, new Recorder(lines));
+        }
+        assertEquals(1, sink.getOpens());
+        assertEquals(1, lines.size());
+        FakeLine line = lines.get(0);
+        assertTrue(line.isOpen() && line.isRunning(), "line stays open and started between utterances");
+        assertEquals(3 * 3_600, line.framesWritten);
+        assertEquals(LineAudioSink.LINE_BUFFER_MILLIS * 24 * 2, line.bufferBytes);
+        // Converted to signed 16-bit little-endian
+        assertEquals(0x0102, line.firstSample);
+
+        sink.close();
+        assertFalse(line.isOpen());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Callbacks follow the line position
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void playbackFinishesOnlyOnceTheLineHasPlayedEveryFrame() throws Exception {
+        LineAudioSink sink = sink();
+        Recorder recorder = new Recorder(lines);
+        long start = System.nanoTime();
+        sink.play(pcm(300, 24_000, 1), PCM_24K, recorder);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The input was available at once; play() still lasts as long as the audio
+        assertTrue(elapsedMs >= 290, "returned after " + elapsedMs + " ms");
+        assertTrue(recorder.startedAt.get() > 0);
+        assertEquals(7_200, recorder.finishedAt.get(), "finished at the last written frame");
+        sink.close();
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: stop()
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void stopDropsTheBufferedAudioAndKeepsTheLine() throws Exception {
+        LineAudioSink sink = sink();
+        Recorder recorder = new Recorder(lines);
+        Thread stopper = new Thread(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(150));
+            sink.stop();
+        });
+        stopper.start();
+        long start = System.nanoTime();
+        sink.play(pcm(2_000, 24_000, 1), PCM_24K, recorder);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        stopper.join();
+
+        assertTrue(elapsedMs < 500, "stopped after " + elapsedMs + " ms");
+        assertEquals(-1, recorder.finishedAt.get(), "no playbackFinished after stop()");
+        assertTrue(lines.get(0).flushes > 0);
+
+        // The next utterance plays on the same line, position bookkeeping intact
+        Recorder next = new Recorder(lines);
+        sink.play(pcm(100, 24_000, 1), PCM_24K, next);
+        assertEquals(1, sink.getOpens());
+        assertEquals(lines.get(0).getLongFramePosition(), next.finishedAt.get());
+        sink.close();
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: Formats
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void otherFormatsAreConvertedOntoTheOpenLine() throws Exception {
+        LineAudioSink sink = sink();
+        sink.play(pcm(50, 24_000, 1), PCM_24K, new Recorder(lines));
+        Recorder recorder = new Recorder(lines);
+        sink.play(pcm(50, 48_000, 2), "audio/L16; rate=48000; channels=2", recorder);
+
+        assertEquals(1, sink.getOpens());
+        FakeLine line = lines.get(0);
+        assertEquals(LineAudioSink.DEFAULT_FORMAT.toString(), line.getFormat().toString());
+        // 50 ms at 24 kHz each (the resampler may hold back one frame)
+        assertTrue(Math.abs(line.framesWritten - 2_400) <= 1, "wrote " + line.framesWritten + " frames");
+        assertEquals(line.framesWritten, recorder.finishedAt.get());
+        sink.close();
+    }
+
+    @Test
+    void unsupportedTypeIsRejectedBeforeOpeningTheLine() {
+        LineAudioSink sink = sink();
+        assertThrows(IOException.class, () -> sink.play(pcm(50, 24_000, 1), "audio/ogg", new Recorder(lines)));
+        assertTrue(lines.isEmpty());
+        assertTrue(LineAudioSink.isMpeg(null));
+        assertTrue(LineAudioSink.isMpeg("audio/MPEG"));
+        assertFalse(LineAudioSink.isMpeg(PCM_24K));
+    }
+
+    /** SourceDataLine that consumes written frames at the format's rate, with a bounded buffer. */
+    private static final class FakeLine implements SourceDataLine {
+        private AudioFormat format;
+        private boolean open;
+        private boolean running;
+        int bufferBytes;
+        long framesWritten;
+        int flushes;
+        short firstSample = Short.MIN_VALUE;
+        // When the audio written so far will have been played
+        private long playedUntilNanos = System.nanoTime();
+
+        private synchronized long pendingNanos() {
+            return Math.max(0, playedUntilNanos - System.nanoTime());
+        }
+
+        private long nanosPerFrame() {
+            return (long) (1e9 / format.getSampleRate());
+        }
+
+        @Override
+        public void open(AudioFormat format, int bufferSize) {
+            this.format = format;
+            this.bufferBytes = bufferSize;
+            this.open = true;
+        }
+
+        @Override
+        public void open(AudioFormat format) {
+            open(format, (int) format.getSampleRate() / 2 * format.getFrameSize());
+        }
+
+        @Override
+        public void open() {
+            open = true;
+        }
+
+        @Override
+        public int write(byte[] b, int off, int len) {
+            int frameSize = format.getFrameSize();
+            long bufferNanos = bufferBytes / frameSize * nanosPerFrame();
+            int frames = len / frameSize;
+            synchronized (this) {
+                if (firstSample == Short.MIN_VALUE && len >= 2) {
+                    firstSample = (short) ((b[off] & 0xFF) | (b[off + 1] << 8));
+                }
+            }
+            // Wait for room in the buffer; a flush() from another thread ends the wait
+            int flushesBefore = flushes;
+            while (pendingNanos() > bufferNanos && flushes == flushesBefore) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            synchronized (this) {
+                long now = System.nanoTime();
+                playedUntilNanos = Math.max(playedUntilNanos, now) + frames * nanosPerFrame();
+                framesWritten += frames;
+            }
+            return frames * frameSize;
+        }
+
+        @Override
+        public synchronized long getLongFramePosition() {
+            return framesWritten - pendingNanos() / nanosPerFrame();
+        }
+
+        @Override
+        public int getFramePosition() {
+            return (int) getLongFramePosition();
+        }
+
+        @Override
+        public long getMicrosecondPosition() {
+            return getLongFramePosition() * 1_000_000 / (long) format.getSampleRate();
+        }
+
+        @Override
+        public synchronized void flush() {
+            framesWritten = getLongFramePosition();
+            playedUntilNanos = System.nanoTime();
+            flushes++;
+        }
+
+        @Override
+        public void drain() {
+            while (pendingNanos() > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+
+        @Override
+        public void start() {
+            running = true;
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public boolean isActive() {
+            return running && pendingNanos() > 0;
+        }
+
+        @Override
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public int getBufferSize() {
+            return bufferBytes;
+        }
+
+        @Override
+        public int available() {
+            return bufferBytes;
+        }
+
+        @Override
+        public float getLevel() {
+            return AudioSystem.NOT_SPECIFIED;
+        }
+
+        @Override
+        public Line.Info getLineInfo() {
+            return new Line.Info(SourceDataLine.class);
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            running = false;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public Control[] getControls() {
+            return new Control[0];
+        }
+
+        @Override
+        public boolean isControlSupported(Control.Type control) {
+            return false;
+        }
+
+        @Override
+        public Control getControl(Control.Type control) {
+            throw new IllegalArgumentException("No controls");
+        }
+
+        @Override
+        public void addLineListener(LineListener listener) {
+        }
+
+        @Override
+        public void removeLineListener(LineListener listener) {
+        }
+    }
+}
@@ -75,5 +75,22 @@ class MessageTest {
 
         assertDoesNotThrow(() -> new Message(validXml));
     }
-}
 
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: Built from the StAX parse
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void carbonCopyIsClassifiedByForwardedDestination() {
+        String carbon = "<message from='me@jp1.pvp.net' type='chat'>"
+            + "<sent xmlns='urn:xmpp:carbons:2'><forwarded xmlns='urn:xmpp:forward:0'>"
+            + "<message to='party1@ares-parties.jp1.pvp.net' type='groupchat'>"
+            + "<body>rotate &amp; hold</body></message></forwarded></sent></message>";
+
+        Message msg = Message.fromParsed(XmppStreamParser.parseMessage(carbon));
+
+        assertEquals(Chat.TYPE_PARTY, msg.getMessageType());
+        assertEquals("me@jp1.pvp.net", msg.getFrom());
+        assertEquals("rotate & hold", msg.getContent(), "Body must be entity-decoded exactly once");
+    }
+}
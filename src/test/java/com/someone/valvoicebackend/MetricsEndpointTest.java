@@ -0,0 +1,104 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PipelineMetrics and the loopback MetricsEndpoint.
+ */
+class MetricsEndpointTest {
+
+    private static HttpURLConnection open(int port, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + port + path).toURL().openConnection();
+        connection.setConnectTimeout(2_000);
+        connection.setReadTimeout(2_000);
+        return connection;
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Prometheus text
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void prometheusTextHasHistogramsCountersAndGauges() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.dispatchToFirstByte().recordNanos(300_000_000L);
+        metrics.countVerdict(DiagnosticRing.Stage.CHAT_FILTER, DiagnosticRing.Verdict.WHISPER);
+        metrics.countVerdict(DiagnosticRing.Stage.CHAT_FILTER, DiagnosticRing.Verdict.WHISPER);
+        metrics.countVerdict(DiagnosticRing.Stage.TTS_DISPATCH, DiagnosticRing.Verdict.DISPATCHED);
+        metrics.xttsUtterance();
+        metrics.sapiUtterance();
+        metrics.registerGauge("valvoice_test_gauge", "Test", () -> 0.25);
+        metrics.registerGauge("valvoice_broken_gauge", "Throws", () -> { throw new IllegalStateException(); });
+
+        String text = metrics.toPrometheusText();
+        assertTrue(text.contains("# TYPE valvoice_dispatch_to_first_byte_seconds histogram"));
+        assertTrue(text.contains("valvoice_dispatch_to_first_byte_seconds_bucket{le=\"0.262144\"} 0"));
+        assertTrue(text.contains("valvoice_dispatch_to_first_byte_seconds_bucket{le=\"0.524288\"} 1"));
+        assertTrue(text.contains("valvoice_dispatch_to_first_byte_seconds_count 1"));
+        assertTrue(text.contains("valvoice_filter_verdicts_total{stage=\"CHAT_FILTER\",verdict=\"WHISPER\"} 2"));
+        assertTrue(text.contains("valvoice_sapi_fallback_ratio 0.500000"));
+        assertTrue(text.contains("valvoice_test_gauge 0.250000"));
+        assertFalse(text.contains("valvoice_broken_gauge"));
+        assertEquals(2, metrics.getTotalDrops());
+    }
+
+    @Test
+    void queueDepthNeverGoesNegative() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.ttsSubmitted();
+        metrics.ttsStarted();
+        metrics.ttsStarted();
+        assertEquals(0, metrics.getTtsQueueDepth());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Loopback endpoint
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void servesMetricsOnLoopbackOnly() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.countVerdict(DiagnosticRing.Stage.XMPP_GATE, DiagnosticRing.Verdict.DUPLICATE);
+        MetricsEndpoint endpoint = new MetricsEndpoint(metrics);
+        assertEquals(-1, endpoint.getPort());
+        assertTrue(endpoint.start(0));
+        try {
+            int port = endpoint.getPort();
+            assertTrue(port > 0);
+
+            HttpURLConnection ok = open(port, "/metrics");
+            assertEquals(200, ok.getResponseCode());
+            assertTrue(ok.getContentType().startsWith("text/plain"));
+            String body = new String(ok.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(body.contains("valvoice_filter_verdicts_total{stage=\"XMPP_GATE\",verdict=\"DUPLICATE\"} 1"));
+
+            assertEquals(404, open(port, "/metrics/other").getResponseCode());
+
+            HttpURLConnection post = open(port, "/metrics");
+            post.setRequestMethod("POST");
+            assertEquals(405, post.getResponseCode());
+        } finally {
+            endpoint.stop();
+        }
+        assertEquals(-1, endpoint.getPort());
+    }
+
+    @Test
+    void portInUseLeavesEndpointOff() {
+        MetricsEndpoint first = new MetricsEndpoint(new PipelineMetrics());
+        assertTrue(first.start(0));
+        try {
+            MetricsEndpoint second = new MetricsEndpoint(new PipelineMetrics());
+            assertFalse(second.start(first.getPort()));
+            assertEquals(-1, second.getPort());
+        } finally {
+            first.stop();
+        }
+    }
+}
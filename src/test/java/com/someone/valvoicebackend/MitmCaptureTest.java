@@ -0,0 +1,158 @@
+package com.someone.valvoicebackend;
+
+import com.google.gson.JsonObject;
+import com.someone.valvoicebackend.config.ConfigManager;
+import com.someone.valvoicegui.ValVoiceBackend;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MITM capture recording (MitmCaptureWriter) and replay (MitmCaptureReader,
+ * ValVoiceBackend.replayMitmOutput).
+ */
+class MitmCaptureTest {
+
+    private static final String PARTY_ROOM = "5c1f0a8e-2d3b-4e6f-9a1b-7c8d9e0f1a2b@ares-parties.jp1.pvp.net";
+
+    /** The MITM's JSON line for an "incoming" chunk */
+    private static String incoming(int socketID, String xml) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("type", "incoming");
+        obj.addProperty("socketID", socketID);
+        obj.addProperty("data", xml);
+        return obj.toString();
+    }
+
+    /** Record lines through a decoder with the writer tapped in, as the live reader does. */
+    private static void record(Path file, String stdout) throws IOException {
+        try (MitmCaptureWriter writer = MitmCaptureWriter.open(file)) {
+            MitmEventDecoder decoder = new MitmEventDecoder(new StringReader(stdout));
+            decoder.setLineTap(writer);
+            MitmEventDecoder.Handler ignore = new MitmEventDecoder.Handler() {
+                @Override public void onData(String type, int socketID, CharSequence data) { }
+                @Override public void onEvent(String type, JsonObject obj) { }
+                @Override public void onRawLine(CharSequence line, boolean presence) { }
+            };
+            while (decoder.next(ignore)) {
+                // drain
+            }
+        }
+    }
+
+    private static List<String> readAll(MitmCaptureReader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[7];
+        int n;
+        while ((n = reader.read(buf, 0, buf.length)) > 0) {
+            sb.append(buf, 0, n);
+        }
+        List<String> lines = new ArrayList<>(List.of(sb.toString().split("\n")));
+        lines.removeIf(String::isEmpty);
+        return lines;
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Record / read round trip
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void recordsOnlyJsonEventLines() throws Exception {
+        for (String name : List.of("capture.txt", "capture.txt.gz")) {
+            Path dir = Files.createTempDirectory("mitm-capture");
+            Path file = dir.resolve(name);
+            String open = "{\"type\":\"open-riot\",\"socketID\":1}";
+            String chunk = incoming(1, "<message from='a@b' type='chat'><body>hi \"there\"</body></message>");
+            record(file, "[XmppMITM] listening on 5223\n" + open + "\n<presence noise/>\n" + chunk + "\n");
+
+            try (MitmCaptureReader reader = new MitmCaptureReader(file, 0)) {
+                assertEquals(List.of(open, chunk), readAll(reader), name);
+                assertEquals(2, reader.getLines());
+                assertTrue(Math.abs(reader.getCaptureStartMillis() - System.currentTimeMillis()) < 60_000);
+            }
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotCaptures() throws Exception {
+        Path file = Files.createTempFile("not-a-capture", ".txt");
+        Files.writeString(file, "{\"type\":\"incoming\"}\n");
+        assertThrows(IOException.class, () -> new MitmCaptureReader(file, 0));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Pacing and capture clock
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void pacesLinesByRecordedDeltasAndSpeed() throws Exception {
+        Path file = Files.createTempFile("paced", ".txt");
+        long start = 1_700_000_000_000L;
+        Files.writeString(file, MitmCaptureWriter.HEADER_PREFIX + start + "\n"
+            + "0 {\"type\":\"open-riot\"}\n"
+            + "200000 {\"type\":\"close-riot\"}\n", StandardCharsets.UTF_8);
+
+        try (MitmCaptureReader reader = new MitmCaptureReader(file, 2.0)) {
+            long t0 = System.nanoTime();
+            List<String> lines = readAll(reader);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            assertEquals(2, lines.size());
+            assertTrue(elapsedMs >= 95, "200ms of capture at 2x should take ~100ms, took " + elapsedMs);
+            assertEquals(start + 200, reader.captureClockMillis());
+            assertEquals(2, reader.getLag().getCount());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Headless replay through the backend
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void replayNarratesLiveMessagesIntoTheSink() throws Exception {
+        String self = XmppTrafficCorpus.SELF_PUUID;
+        // Stamps in XmppTrafficCorpus are 2026-10-16 12:00:0x (UTC); the capture starts just before
+        long captureStart = Instant.parse("2026-10-16T12:00:00Z").toEpochMilli();
+        String live = XmppTrafficCorpus.partyMessage(self, "replayed callout");
+        String archived = "<message from='" + PARTY_ROOM + "/" + self + "' stamp='2026-10-15 08:00:00.000'"
+            + " id='1729000000000:9' type='groupchat'><body>yesterday</body></message>";
+        Path file = Files.createTempFile("replay", ".txt");
+        Files.writeString(file, MitmCaptureWriter.HEADER_PREFIX + captureStart + "\n"
+            + "0 {\"type\":\"open-riot\",\"socketID\":7}\n"
+            + "1000 " + incoming(7, archived) + "\n"
+            + "1500000 " + incoming(7, live.substring(0, 40)) + "\n"
+            + "10 " + incoming(7, live.substring(40)) + "\n", StandardCharsets.UTF_8);
+
+        ChatDataHandler handler = ChatDataHandler.getInstance();
+        boolean ocrPrimary = ConfigManager.get().ocrPrimary;
+        List<String> narrated = new CopyOnWriteArrayList<>();
+        ConfigManager.get().ocrPrimary = false;
+        handler.setSelfId(self);
+        handler.setNarrationSink((text, correlationId) -> narrated.add(text));
+        try (MitmCaptureReader reader = new MitmCaptureReader(file, 0)) {
+            ValVoiceBackend backend = ValVoiceBackend.getInstance();
+            backend.enterReplayMode(reader.getCaptureStartMillis(), reader::captureClockMillis);
+            assertEquals(4, backend.replayMitmOutput(reader));
+            // Narrations reach the sink on a CompletableFuture worker
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (narrated.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        } finally {
+            handler.setNarrationSink(null);
+            ConfigManager.get().ocrPrimary = ocrPrimary;
+        }
+
+        assertEquals(List.of("replayed callout"), narrated);
+    }
+}
@@ -0,0 +1,186 @@
+package com.someone.valvoicebackend;
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MitmEventDecoder's line assembly and shallow JSON scan.
+ */
+class MitmEventDecoderTest {
+
+    /** Every callback as one string: "data:type:socketID:payload", "event:type", "raw:presence:line" */
+    private static final class Recorder implements MitmEventDecoder.Handler {
+        final List<String> events = new ArrayList<>();
+        final List<JsonObject> trees = new ArrayList<>();
+
+        @Override
+        public void onData(String type, int socketID, CharSequence data) {
+            events.add("data:" + type + ":" + socketID + ":" + data);
+        }
+
+        @Override
+        public void onEvent(String type, JsonObject obj) {
+            events.add("event:" + type);
+            trees.add(obj);
+        }
+
+        @Override
+        public void onRawLine(CharSequence line, boolean presence) {
+            events.add("raw:" + presence + ":" + line);
+        }
+    }
+
+    private static Recorder decode(Reader reader) throws IOException {
+        MitmEventDecoder decoder = new MitmEventDecoder(reader);
+        Recorder recorder = new Recorder();
+        while (decoder.next(recorder)) {
+            // dispatches into the recorder
+        }
+        return recorder;
+    }
+
+    private static Recorder decode(String stdout) throws IOException {
+        return decode(new StringReader(stdout));
+    }
+
+    /** The only event of a one-line input */
+    private static String only(String line) throws IOException {
+        List<String> events = decode(line + "\n").events;
+        assertEquals(1, events.size(), events.toString());
+        return events.get(0);
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: String escapes in "data"
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void standardEscapesAreDecoded() throws IOException {
+        assertEquals("data:incoming:1:<a b=\"c\"/>\\/\b\f\n\r\t",
+            only("{\"type\":\"incoming\",\"socketID\":1,\"data\":\"<a b=\\\"c\\\"/>\\\\\\/\\b\\f\\n\\r\\t\"}"));
+        assertEquals("data:outgoing:2:plain", only("{\"type\":\"outgoing\",\"socketID\":2,\"data\":\"plain\"}"));
+    }
+
+    @Test
+    void unicodeEscapesIncludingSurrogatePairsAreDecoded() throws IOException {
+        assertEquals("data:incoming:1:caf\u00e9 \u4f60\u597d", only("{\"type\":\"incoming\",\"socketID\":1,"
+            + "\"data\":\"caf\\u00e9 \\u4F60\\u597d\"}"));
+        String event = only("{\"type\":\"incoming\",\"socketID\":1,\"data\":\"gg \\ud83d\\ude00\"}");
+        assertEquals("data:incoming:1:gg \uD83D\uDE00", event);
+        assertEquals(0x1F600, event.codePointAt(event.length() - 2));
+    }
+
+    @Test
+    void malformedOrTruncatedEscapesFallBackToARawLine() throws IOException {
+        String[] bad = {
+            "{\"type\":\"incoming\",\"socketID\":1,\"data\":\"a\\xb\"}",
+            "{\"type\":\"incoming\",\"socketID\":1,\"data\":\"a\\u12\"}",
+            "{\"type\":\"incoming\",\"socketID\":1,\"data\":\"a\\u12g4\"}",
+            "{\"type\":\"incoming\",\"socketID\":1,\"data\":\"unterminated\\\"}",
+        };
+        for (String line : bad) {
+            assertEquals("raw:false:" + line, only(line));
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: socketID
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void socketIdIsParsedWhereverItIsAndDefaultsToZero() throws IOException {
+        assertEquals("data:incoming:42:x", only("{\"socketID\": 42 , \"data\":\"x\",\"type\":\"incoming\"}"));
+        assertEquals("data:incoming:-3:x", only("{\"type\":\"incoming\",\"socketID\":-3,\"data\":\"x\"}"));
+        assertEquals("data:incoming:0:x", only("{\"type\":\"incoming\",\"data\":\"x\"}"));
+        assertEquals("data:incoming:0:x", only("{\"type\":\"incoming\",\"socketID\":\"7\",\"data\":\"x\"}"));
+        assertEquals("data:incoming:0:x", only("{\"type\":\"incoming\",\"socketID\":null,\"data\":\"x\"}"));
+        assertEquals("data:incoming:0:x", only("{\"type\":\"incoming\",\"socketID\":abc,\"data\":\"x\"}"));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Non-JSON and presence lines
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void plainTextAndBrokenJsonAreRawLines() throws IOException {
+        assertEquals("raw:false:[XmppMITM] listening on 127.0.0.1:35478",
+            only("  [XmppMITM] listening on 127.0.0.1:35478  "));
+        assertEquals("raw:false:{\"type\":\"incoming\" \"data\":\"x\"}", only("{\"type\":\"incoming\" \"data\":\"x\"}"));
+        assertEquals("raw:false:{\"type\":\"incoming\",\"data\":\"x\"} trailing",
+            only("{\"type\":\"incoming\",\"data\":\"x\"} trailing"));
+        assertEquals("raw:false:{\"type\":\"incoming\",\"data\":{\"x\":1}",
+            only("{\"type\":\"incoming\",\"data\":{\"x\":1}"));
+        assertTrue(decode("\n   \n\r\n").events.isEmpty(), "blank lines are ignored");
+    }
+
+    @Test
+    void rawPresenceLinesAreFlagged() throws IOException {
+        assertEquals("raw:true:<PRESENCE from='a@b'/>", only("<PRESENCE from='a@b'/>"));
+        assertEquals("raw:true:sent presence update", only("sent presence update"));
+        assertEquals("raw:false:sent presenc", only("sent presenc"));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: Line assembly
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void oversizedLinesAreSkippedUpToTheNextNewline() throws IOException {
+        StringBuilder huge = new StringBuilder("{\"type\":\"incoming\",\"data\":\"");
+        while (huge.length() <= MitmEventDecoder.MAX_LINE_CHARS) {
+            huge.append("abcdefghijklmnopqrstuvwxyz0123456789");
+        }
+        huge.append("\"}\n");
+        Recorder recorder = decode(huge + "{\"type\":\"incoming\",\"socketID\":5,\"data\":\"after\"}\n" + huge);
+
+        assertEquals(List.of("data:incoming:5:after"), recorder.events);
+    }
+
+    @Test
+    void lineSplitAcrossReaderFillsIsReassembled() throws IOException {
+        String first = "{\"type\":\"incoming\",\"socketID\":9,\"data\":\"" + "x".repeat(20_000) + "\\u00e9\"}";
+        String second = "{\"type\":\"outgoing\",\"socketID\":9,\"data\":\"tail\"}";
+        // Hands out at most 7 chars per read(), so every line spans many fills
+        Reader trickle = new StringReader(first + "\n" + second) {
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException {
+                return super.read(buf, off, Math.min(len, 7));
+            }
+        };
+        Recorder recorder = decode(trickle);
+
+        assertEquals(List.of("data:incoming:9:" + "x".repeat(20_000) + "\u00e9", "data:outgoing:9:tail"),
+            recorder.events, "final unterminated line is flushed too");
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 5: Control events
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void controlEventsFallBackToAGsonTree() throws IOException {
+        MitmEventDecoder decoder = new MitmEventDecoder(new StringReader(
+            "{\"type\":\"error\",\"time\":1,\"code\":500,\"reason\":\"Riot socket error: \\\"reset\\\"\",\"socketID\":3}\n"
+                + "{\"type\":\"open-valorant\",\"socketID\":4,\"extra\":{\"nested\":[1,{\"a\":\"}\"}]}}\n"
+                + "{\"time\":2}\n"
+                + "{\"type\":\"incoming\",\"socketID\":1,\"data\":\"hot\"}\n"));
+        Recorder recorder = new Recorder();
+        while (decoder.next(recorder)) {
+            // dispatches into the recorder
+        }
+
+        assertEquals(List.of("event:error", "event:open-valorant", "event:", "data:incoming:1:hot"), recorder.events);
+        assertEquals("Riot socket error: \"reset\"", recorder.trees.get(0).get("reason").getAsString());
+        assertEquals(4, recorder.trees.get(1).get("socketID").getAsInt());
+        assertEquals(3, decoder.getTreeFallbacks());
+        assertEquals(4, decoder.getLinesDecoded());
+    }
+}
@@ -0,0 +1,118 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NarrationHotkey key names and event dispatch (the PowerShell watcher is not started).
+ */
+class NarrationHotkeyTest {
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Key names → virtual-key codes
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void lettersDigitsAndFunctionKeys() {
+        assertEquals('A', NarrationHotkey.virtualKey("a"));
+        assertEquals('Z', NarrationHotkey.virtualKey(" Z "));
+        assertEquals('7', NarrationHotkey.virtualKey("7"));
+        assertEquals(0x70, NarrationHotkey.virtualKey("F1"));
+        assertEquals(0x77, NarrationHotkey.virtualKey("f8"));
+        assertEquals(0x87, NarrationHotkey.virtualKey("F24"));
+        assertEquals(0x60, NarrationHotkey.virtualKey("NUMPAD0"));
+        assertEquals(0x69, NarrationHotkey.virtualKey("numpad9"));
+    }
+
+    @Test
+    void namedKeysAcceptSpacesAndAnyCase() {
+        assertEquals(0x13, NarrationHotkey.virtualKey("PAUSE"));
+        assertEquals(0x91, NarrationHotkey.virtualKey("scroll lock"));
+        assertEquals(0x21, NarrationHotkey.virtualKey("Page_Up"));
+        assertEquals(0x22, NarrationHotkey.virtualKey("page down"));
+    }
+
+    @Test
+    void hexCodesCoverUnnamedKeys() {
+        assertEquals(0x05, NarrationHotkey.virtualKey("0x05"));
+        assertEquals(0xB3, NarrationHotkey.virtualKey("0XB3"));
+        assertEquals(0xFE, NarrationHotkey.virtualKey("0xfe"));
+    }
+
+    @Test
+    void blankUnknownAndOutOfRangeNamesAreRejected() {
+        for (String name : new String[]{null, "", "   ", "F0", "F25", "F100", "NUMPAD10", "?", "CTRL", "0x", "0x00",
+            "0xFF", "0x100", "0xZZ"}) {
+            assertEquals(-1, NarrationHotkey.virtualKey(name), String.valueOf(name));
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Watcher events → skip / flush
+    // ═══════════════════════════════════════════════════════════════
+
+    /** Hotkey whose actions append "skip" / "flush" and whose clock the test advances */
+    private static final class Rig {
+        final List<String> actions = new ArrayList<>();
+        final AtomicLong clock = new AtomicLong(1_000_000_000L);
+        final NarrationHotkey hotkey = new NarrationHotkey("F8", () -> actions.add("skip"),
+            () -> actions.add("flush"), clock::get);
+
+        void advanceMillis(long millis) {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    @Test
+    void skipCancelsAndFlushClears() {
+        Rig rig = new Rig();
+        rig.hotkey.dispatch("SKIP");
+        rig.advanceMillis(1_000);
+        rig.hotkey.dispatch("FLUSH");
+        assertEquals(List.of("skip", "flush"), rig.actions);
+    }
+
+    @Test
+    void otherWatcherOutputIsIgnored() {
+        Rig rig = new Rig();
+        for (String line : new String[]{"", "skip", "Add-Type : Cannot add type", "SKIP FLUSH"}) {
+            rig.hotkey.dispatch(line);
+        }
+        assertTrue(rig.actions.isEmpty(), rig.actions.toString());
+    }
+
+    @Test
+    void repeatsWithinTheDebounceWindowAreIgnored() {
+        Rig rig = new Rig();
+        rig.hotkey.dispatch("SKIP");
+        rig.advanceMillis(NarrationHotkey.DEBOUNCE_MILLIS - 1);
+        rig.hotkey.dispatch("SKIP");
+        assertEquals(List.of("skip"), rig.actions, "a bounce skipped a second narration");
+
+        // Shift + key right after a skip still flushes
+        rig.hotkey.dispatch("FLUSH");
+        assertEquals(List.of("skip", "flush"), rig.actions);
+
+        rig.advanceMillis(NarrationHotkey.DEBOUNCE_MILLIS);
+        rig.hotkey.dispatch("FLUSH");
+        rig.hotkey.dispatch("SKIP");
+        assertEquals(List.of("skip", "flush", "flush", "skip"), rig.actions);
+    }
+
+    @Test
+    void failingActionDoesNotStopTheWatcher() {
+        List<String> actions = new ArrayList<>();
+        NarrationHotkey hotkey = new NarrationHotkey("F8", () -> {
+            throw new IllegalStateException("not initialized");
+        }, () -> actions.add("flush"), System::nanoTime);
+        hotkey.dispatch("SKIP");
+        hotkey.dispatch("FLUSH");
+        assertEquals(List.of("flush"), actions);
+    }
+}
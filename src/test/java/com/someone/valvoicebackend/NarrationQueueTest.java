@@ -0,0 +1,165 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NarrationQueue.
+ */
+class NarrationQueueTest {
+
+    private final List<String> dropped = new CopyOnWriteArrayList<>();
+
+    private NarrationQueue<String> queue(int capacity, long deadlineMillis, NarrationQueue.DropPolicy policy) {
+        return new NarrationQueue<>(capacity, deadlineMillis, policy,
+            (item, reason, waited) -> dropped.add(item + ":" + reason));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Capacity and drop policy
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void oldestPolicyEvictsTheHead() throws Exception {
+        NarrationQueue<String> queue = queue(2, 0, NarrationQueue.DropPolicy.OLDEST);
+        long now = System.nanoTime();
+        assertTrue(queue.offer("a", now));
+        assertTrue(queue.offer("b", now));
+        assertTrue(queue.isFull());
+        assertTrue(queue.offer("c", now));
+
+        assertEquals(List.of("a:OVERFLOW"), dropped);
+        assertEquals("b", queue.take());
+        assertEquals("c", queue.take());
+        assertEquals(1, queue.getOverflowDrops());
+    }
+
+    @Test
+    void newestPolicyRejectsTheArrival() throws Exception {
+        NarrationQueue<String> queue = queue(2, 0, NarrationQueue.DropPolicy.NEWEST);
+        long now = System.nanoTime();
+        queue.offer("a", now);
+        queue.offer("b", now);
+        assertFalse(queue.offer("c", now));
+
+        assertEquals(List.of("c:OVERFLOW"), dropped);
+        assertEquals("a", queue.take());
+        assertEquals("b", queue.take());
+        assertEquals(0, queue.size());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Deadline
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void staleItemsAreSkippedAtTheHead() throws Exception {
+        NarrationQueue<String> queue = queue(8, 100, NarrationQueue.DropPolicy.OLDEST);
+        long now = System.nanoTime();
+        queue.offer("stale", now - TimeUnit.MILLISECONDS.toNanos(500));
+        queue.offer("fresh", now);
+
+        assertEquals("fresh", queue.take());
+        assertEquals(List.of("stale:EXPIRED"), dropped);
+        assertEquals(1, queue.getExpiredDrops());
+        assertEquals(1, queue.getWait().getCount());
+    }
+
+    @Test
+    void staleItemsDoNotCostAPlace() {
+        NarrationQueue<String> queue = queue(1, 100, NarrationQueue.DropPolicy.NEWEST);
+        queue.offer("stale", System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(queue.offer("fresh", System.nanoTime()));
+        assertEquals(List.of("stale:EXPIRED"), dropped);
+    }
+
+    @Test
+    void takeBlocksUntilAnOffer() throws Exception {
+        NarrationQueue<String> queue = queue(4, 0, NarrationQueue.DropPolicy.OLDEST);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.offer("late", System.nanoTime());
+        });
+        producer.start();
+        long start = System.nanoTime();
+        assertEquals("late", queue.take());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        producer.join();
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Priority lanes
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void higherLanesAreServedFirst() throws Exception {
+        NarrationQueue<String> queue = queue(8, 0, NarrationQueue.DropPolicy.OLDEST);
+        long now = System.nanoTime();
+        queue.offer("party 1", NarrationLane.NORMAL, now);
+        queue.offer("all", NarrationLane.LOW, now);
+        queue.offer("party 2", NarrationLane.NORMAL, now);
+        queue.offer("team", NarrationLane.URGENT, now);
+
+        assertEquals("team", queue.take());
+        assertEquals("party 1", queue.take());
+        assertEquals("party 2", queue.take());
+        assertEquals("all", queue.take());
+        assertEquals(1, queue.getWait(NarrationLane.URGENT).getCount());
+        assertEquals(2, queue.getWait(NarrationLane.NORMAL).getCount());
+    }
+
+    @Test
+    void fullQueueEvictsTheLowestLaneFirst() throws Exception {
+        NarrationQueue<String> queue = queue(2, 0, NarrationQueue.DropPolicy.NEWEST);
+        long now = System.nanoTime();
+        queue.offer("all", NarrationLane.LOW, now);
+        queue.offer("party", NarrationLane.NORMAL, now);
+
+        assertTrue(queue.wouldAccept(NarrationLane.URGENT));
+        assertFalse(queue.wouldAccept(NarrationLane.LOW));
+        assertTrue(queue.offer("team", NarrationLane.URGENT, now));
+        assertEquals(List.of("all:OVERFLOW"), dropped);
+
+        // Everything queued outranks a LOW arrival: rejected under either policy
+        NarrationQueue<String> oldest = queue(1, 0, NarrationQueue.DropPolicy.OLDEST);
+        oldest.offer("team", NarrationLane.URGENT, now);
+        assertFalse(oldest.offer("all", NarrationLane.LOW, now));
+        assertEquals("team", oldest.take());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: Cancellation
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void removeIfWithdrawsMatchingItemsFromEveryLane() throws Exception {
+        NarrationQueue<String> queue = queue(8, 0, NarrationQueue.DropPolicy.OLDEST);
+        long now = System.nanoTime();
+        queue.offer("party 1", NarrationLane.NORMAL, now);
+        queue.offer("team", NarrationLane.URGENT, now);
+        queue.offer("party 2", NarrationLane.NORMAL, now);
+
+        assertEquals(1, queue.removeIf("party 1"::equals));
+        assertEquals(0, queue.removeIf("missing"::equals));
+        assertEquals(List.of("party 1:CANCELLED"), dropped);
+        assertEquals(2, queue.size());
+
+        assertEquals(2, queue.clear());
+        assertEquals(0, queue.size());
+        assertEquals(3, queue.getCancelledDrops());
+        assertEquals(0, queue.getOverflowDrops());
+
+        // Still usable afterwards
+        queue.offer("after", now);
+        assertEquals("after", queue.take());
+    }
+}
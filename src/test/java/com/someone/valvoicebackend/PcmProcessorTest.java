@@ -0,0 +1,139 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PcmProcessor.
+ */
+class PcmProcessorTest {
+
+    private static short[] sine(int frames, int rate, double hz, double amplitude) {
+        short[] samples = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * hz * i / rate));
+        }
+        return samples;
+    }
+
+    /** Process {@code samples} in blocks of {@code block} samples and concatenate the output. */
+    private static short[] run(PcmProcessor processor, short[] samples, int block, int rate, int channels) {
+        short[] all = new short[samples.length * 8];
+        int total = 0;
+        for (int off = 0; off < samples.length; off += block) {
+            short[] chunk = Arrays.copyOfRange(samples, off, Math.min(samples.length, off + block));
+            int n = processor.process(chunk, chunk.length, rate, channels);
+            System.arraycopy(processor.output(), 0, all, total, n);
+            total += n;
+        }
+        return Arrays.copyOf(all, total);
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Format conversion
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void sameFormatAtFullVolumePassesThrough() {
+        PcmProcessor processor = new PcmProcessor(24_000, 1, () -> 1.0, true);
+        short[] in = sine(1_152, 24_000, 440, 10_000);
+        assertArrayEquals(in, run(processor, in, 1_152, 24_000, 1));
+    }
+
+    @Test
+    void monoIsDuplicatedAndStereoAveraged() {
+        PcmProcessor toStereo = new PcmProcessor(24_000, 2, () -> 1.0, false);
+        int n = toStereo.process(new short[]{100, -200, 300}, 3, 24_000, 1);
+        assertArrayEquals(new short[]{100, 100, -200, -200, 300, 300}, Arrays.copyOf(toStereo.output(), n));
+
+        PcmProcessor toMono = new PcmProcessor(24_000, 1, () -> 1.0, false);
+        n = toMono.process(new short[]{100, 300, -200, -400}, 4, 24_000, 2);
+        assertArrayEquals(new short[]{200, -300}, Arrays.copyOf(toMono.output(), n));
+    }
+
+    @Test
+    void upsamplingIsSeamlessAcrossBlocks() {
+        // XTTS 24 kHz mono → 48 kHz stereo, in MP3-frame sized blocks
+        short[] in = sine(24_000, 24_000, 440, 12_000);
+        short[] whole = run(new PcmProcessor(48_000, 2, () -> 1.0, false), in, in.length, 24_000, 1);
+        short[] blocks = run(new PcmProcessor(48_000, 2, () -> 1.0, false), in, 1_152, 24_000, 1);
+
+        assertTrue(Math.abs(blocks.length - 2 * 48_000) <= 4, "produced " + blocks.length + " samples");
+        assertArrayEquals(Arrays.copyOf(whole, blocks.length), blocks, "block boundaries are invisible");
+        // Compare against the 440 Hz tone sampled at 48 kHz (linear interpolation error stays small)
+        short[] expected = sine(48_000, 48_000, 440, 12_000);
+        for (int i = 0; i < blocks.length / 2; i++) {
+            assertEquals(expected[i], blocks[2 * i], 60, "frame " + i);
+            assertEquals(blocks[2 * i], blocks[2 * i + 1]);
+        }
+    }
+
+    @Test
+    void downsamplingHalvesTheFrames() {
+        short[] in = sine(4_800, 48_000, 440, 12_000);
+        short[] out = run(new PcmProcessor(24_000, 1, () -> 1.0, false), in, 1_000, 48_000, 1);
+        assertTrue(Math.abs(out.length - 2_400) <= 1, "produced " + out.length + " samples");
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Gain and limiter
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void volumeChangesApplyFromTheNextBlock() {
+        AtomicReference<Double> volume = new AtomicReference<>(0.5);
+        PcmProcessor processor = new PcmProcessor(24_000, 1, volume::get, false);
+        short[] block = {10_000, -10_000};
+
+        int n = processor.process(block, 2, 24_000, 1);
+        assertArrayEquals(new short[]{5_000, -5_000}, Arrays.copyOf(processor.output(), n));
+        volume.set(0.25);
+        n = processor.process(block, 2, 24_000, 1);
+        assertArrayEquals(new short[]{2_500, -2_500}, Arrays.copyOf(processor.output(), n));
+        volume.set(7.0);
+        n = processor.process(block, 2, 24_000, 1);
+        assertArrayEquals(block, Arrays.copyOf(processor.output(), n), "clamped to 1");
+    }
+
+    @Test
+    void limiterHoldsPeaksBelowFullScaleAndRecovers() {
+        PcmProcessor processor = new PcmProcessor(24_000, 1, () -> 1.0, true);
+        short[] loud = new short[2_400];
+        for (int i = 0; i < loud.length; i++) {
+            loud[i] = (i / 20) % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+        int n = processor.process(loud, loud.length, 24_000, 1);
+        for (int i = 0; i < n; i++) {
+            assertTrue(Math.abs(processor.output()[i]) <= PcmProcessor.LIMIT + 1, "sample " + i);
+        }
+
+        // After the release time quiet audio is untouched
+        short[] quiet = new short[2_400];
+        Arrays.fill(quiet, (short) 1_000);
+        n = processor.process(quiet, quiet.length, 24_000, 1);
+        assertEquals(1_000, processor.output()[n - 1]);
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Buffer reuse
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void buffersAreReusedOnceTheLargestBlockWasSeen() {
+        PcmProcessor processor = new PcmProcessor(48_000, 2, () -> 0.8, true);
+        short[] block = sine(1_152, 24_000, 440, 8_000);
+        processor.process(block, block.length, 24_000, 1);
+        short[] output = processor.output();
+        for (int i = 0; i < 100; i++) {
+            processor.process(block, block.length, 24_000, 1);
+            assertSame(output, processor.output());
+        }
+        processor.reset();
+        processor.process(block, 576, 22_050, 1);
+        assertSame(output, processor.output(), "a new utterance reuses them too");
+    }
+}
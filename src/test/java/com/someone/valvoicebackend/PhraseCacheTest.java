@@ -0,0 +1,109 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PhraseCache (memory LRU and memory-mapped disk tier).
+ */
+class PhraseCacheTest {
+
+    private static byte[] audio(int size, int fill) {
+        byte[] bytes = new byte[size];
+        java.util.Arrays.fill(bytes, (byte) fill);
+        return bytes;
+    }
+
+    private static long phraseFiles(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".phrase")).count();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Keys
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void keysIgnoreCaseAndWhitespaceButNotVoiceOrLanguage() {
+        assertEquals(PhraseCache.key("Jett", "en", "Rotate  B"), PhraseCache.key("Jett", "en", " rotate b "));
+        assertNotEquals(PhraseCache.key("Jett", "en", "rotate b"), PhraseCache.key("Sage", "en", "rotate b"));
+        assertNotEquals(PhraseCache.key("Jett", "en", "rotate b"), PhraseCache.key("Jett", "fr", "rotate b"));
+        assertTrue(PhraseCache.isCacheable("one left"));
+        assertFalse(PhraseCache.isCacheable("x".repeat(PhraseCache.MAX_PHRASE_CHARS + 1)));
+        assertFalse(PhraseCache.isCacheable("   "));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Memory tier
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void memoryTierEvictsLeastRecentlyUsedByBytes() {
+        PhraseCache cache = new PhraseCache(3000, null, 0);
+        cache.put("a", "audio/mpeg", audio(1000, 1));
+        cache.put("b", "audio/mpeg", audio(1000, 2));
+        cache.put("c", "audio/mpeg", audio(1000, 3));
+        assertNotNull(cache.get("a"));                 // a is now most recent
+        cache.put("d", "audio/mpeg", audio(1000, 4));  // evicts b
+
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a").audio()[0]);
+        assertEquals(3000, cache.getMemoryBytes());
+        assertEquals(3, cache.getMemoryEntries());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2.0 / 3, cache.getHitRatio(), 1e-9);
+
+        cache.put("huge", "audio/mpeg", audio(4000, 5));
+        assertNull(cache.get("huge"), "entries larger than the cache are not stored");
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Disk tier
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void hotEntriesSurviveARestartThroughTheDiskTier() throws Exception {
+        Path dir = Files.createTempDirectory("phrase-cache");
+        PhraseCache cache = new PhraseCache(1 << 20, dir, 1 << 20);
+        String hot = PhraseCache.key("Jett", "en", "one left");
+        String cold = PhraseCache.key("Jett", "en", "nice");
+        cache.put(hot, FakeXttsServer.PCM_CONTENT_TYPE, audio(4800, 7));
+        cache.put(cold, "audio/mpeg", audio(417, 8));
+        assertNotNull(cache.get(hot)); // second use: persisted
+        cache.flush();
+        assertEquals(1, phraseFiles(dir));
+        assertEquals(0, Files.list(dir).filter(p -> p.toString().endsWith(".tmp")).count());
+
+        PhraseCache restarted = new PhraseCache(1 << 20, dir, 1 << 20);
+        assertEquals(1, restarted.getDiskEntries());
+        PhraseCache.Entry entry = restarted.get(hot);
+        assertNotNull(entry);
+        assertEquals(FakeXttsServer.PCM_CONTENT_TYPE, entry.contentType());
+        assertArrayEquals(audio(4800, 7), entry.audio());
+        assertEquals(1, restarted.getDiskHits());
+        assertNull(restarted.get(cold));
+        assertEquals(4800, restarted.getMemoryBytes(), "disk hits are promoted to memory");
+    }
+
+    @Test
+    void diskTierEvictsOldestFilesOverItsLimit() throws Exception {
+        Path dir = Files.createTempDirectory("phrase-cache");
+        PhraseCache cache = new PhraseCache(1 << 20, dir, 5000);
+        for (int i = 0; i < 4; i++) {
+            String key = PhraseCache.key("Jett", "en", "callout " + i);
+            cache.put(key, "audio/mpeg", audio(2000, i));
+            cache.get(key);
+        }
+        cache.flush();
+        assertEquals(2, cache.getDiskEntries());
+        assertTrue(cache.getDiskBytes() <= 5000);
+        assertEquals(2, phraseFiles(dir));
+    }
+}
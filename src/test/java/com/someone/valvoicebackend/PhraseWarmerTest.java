@@ -0,0 +1,171 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PhraseWarmer against FakeXttsServer.
+ */
+class PhraseWarmerTest {
+
+    private static final List<String> CALLOUTS = List.of("rotate B", "one left", "nice");
+
+    private static final FallbackSynthesizer SILENT = new FallbackSynthesizer() {
+        @Override public boolean isReady() { return true; }
+        @Override public void speak(String voice, String text, short rate) { }
+        @Override public List<String> getAvailableVoices() { return List.of(); }
+    };
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private record Rig(FakeXttsServer server, VoiceGenerator voice, PhraseCache cache, PhraseWarmer warmer,
+                       CountingPttSink ptt) {
+        boolean warmedFor(String voiceName) {
+            return CALLOUTS.stream().allMatch(p -> cache.contains(PhraseCache.key(voiceName, voice.getLanguage(), p)));
+        }
+    }
+
+    private static Rig rig(FakeXttsServer.Options options, AtomicBoolean gameIdle) throws Exception {
+        return rig(options, gameIdle, 1 << 20);
+    }
+
+    private static Rig rig(FakeXttsServer.Options options, AtomicBoolean gameIdle, long cacheBytes) throws Exception {
+        FakeXttsServer server = new FakeXttsServer(options);
+        server.start(0);
+        HttpSpeechSynthesizer speech = new HttpSpeechSynthesizer(URI.create(server.getUrl()), () -> true, () -> { });
+        PhraseCache cache = new PhraseCache(cacheBytes, null, 0);
+        CountingPttSink ptt = new CountingPttSink();
+        VoiceGenerator voice = new VoiceGenerator(
+            new VoiceGenerator.Sinks(speech, new SimulatedAudioSink(false), ptt, SILENT, cache));
+        PhraseWarmer warmer = new PhraseWarmer(voice, speech, cache, () -> CALLOUTS, gameIdle::get);
+        voice.setPhraseWarmer(warmer);
+        return new Rig(server, voice, cache, warmer, ptt);
+    }
+
+    private static FakeXttsServer.Options fastServer() {
+        FakeXttsServer.Options options = new FakeXttsServer.Options();
+        options.ttfbMillis = 0;
+        options.realTimeFactor = 0;
+        return options;
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Warms only while idle in menus
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void warmsTheListOnlyWhileTheGameIsIdle() throws Exception {
+        AtomicBoolean gameIdle = new AtomicBoolean(false);
+        Rig rig = rig(fastServer(), gameIdle);
+        try {
+            rig.warmer().start();
+            Thread.sleep(300);
+            assertEquals(0, rig.server().getRequests(), "no warm-up outside MENUS");
+
+            gameIdle.set(true);
+            await(() -> rig.warmer().getWarmed() == CALLOUTS.size());
+            assertTrue(rig.warmedFor(rig.voice().getCurrentVoice()));
+            assertEquals(CALLOUTS.size(), rig.server().getRequests());
+
+            rig.voice().speakVoice(rig.voice().getCurrentVoice(), "One  left", (short) 50);
+            await(() -> rig.ptt().getReleases() == 1 && rig.voice().getPendingNarrations() == 0);
+            assertEquals(CALLOUTS.size(), rig.server().getRequests(), "warmed phrase played from the cache");
+            assertEquals(1, rig.cache().getHits());
+        } finally {
+            rig.voice().shutdown();
+            rig.server().stop();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Real narration cancels the warm-up
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void realNarrationCancelsTheWarmUpInFlight() throws Exception {
+        FakeXttsServer.Options options = fastServer();
+        options.ttfbMillis = 400;
+        AtomicBoolean gameIdle = new AtomicBoolean(true);
+        Rig rig = rig(options, gameIdle);
+        try {
+            rig.warmer().start();
+            await(() -> rig.server().getRequests() == 1);
+            rig.voice().speakVoice("Jett", "enemy spotted long", (short) 50);
+
+            await(() -> rig.warmer().getCancelled() == 1);
+            await(() -> rig.ptt().getReleases() == 1 && rig.voice().getPendingNarrations() == 0);
+            assertEquals(0, rig.warmer().getWarmed());
+
+            // Retried once idle again
+            await(() -> rig.warmer().getWarmed() == CALLOUTS.size());
+        } finally {
+            rig.voice().shutdown();
+            rig.server().stop();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Voice change re-warms
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void rewarmSynthesizesTheListForTheNewVoice() throws Exception {
+        AtomicBoolean gameIdle = new AtomicBoolean(true);
+        Rig rig = rig(fastServer(), gameIdle);
+        try {
+            rig.warmer().start();
+            await(() -> rig.warmer().getWarmed() == CALLOUTS.size());
+
+            String previous = rig.voice().getCurrentVoice();
+            rig.voice().setCurrentVoice("Sage");
+            await(() -> rig.warmer().getWarmed() == 2L * CALLOUTS.size());
+            assertTrue(rig.warmedFor("Sage"));
+            assertTrue(rig.warmedFor(previous));
+        } finally {
+            rig.voice().shutdown();
+            rig.server().stop();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: Uncacheable phrases are not re-sent every idle pass
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void phrasesTheCacheRejectsAreGivenUpUntilTheVoiceChanges() throws Exception {
+        AtomicBoolean gameIdle = new AtomicBoolean(true);
+        // Every phrase's audio is larger than the whole cache
+        Rig rig = rig(fastServer(), gameIdle, 16);
+        try {
+            rig.warmer().start();
+            await(() -> rig.warmer().getGivenUp() == CALLOUTS.size());
+            Thread.sleep(500);
+            assertEquals(CALLOUTS.size(), rig.server().getRequests(), "rejected phrases were synthesized again");
+            assertEquals(0, rig.warmer().getWarmed());
+            assertFalse(rig.warmedFor(rig.voice().getCurrentVoice()));
+
+            // A new voice is a new warm generation: tried once more
+            rig.voice().setCurrentVoice("Sage");
+            await(() -> rig.server().getRequests() == 2L * CALLOUTS.size());
+            await(() -> rig.warmer().getGivenUp() == CALLOUTS.size());
+            Thread.sleep(500);
+            assertEquals(2L * CALLOUTS.size(), rig.server().getRequests());
+        } finally {
+            rig.voice().shutdown();
+            rig.server().stop();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.someone.valvoicebackend;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JFR chat pipeline events.
+ */
+class PipelineEventsTest {
+
+    private static final String PREFIX = "com.someone.valvoice.";
+
+    private static List<RecordedEvent> record(Runnable pipeline) throws Exception {
+        Path file = Files.createTempFile("pipeline-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("LineReceived", "StanzaClassified", "MessageParsed", "FilterVerdict",
+                    "TtsQueued", "XttsRequestSent", "XttsFirstByte", "PlaybackStarted", "PttPressed", "PttReleased")) {
+                recording.enable(PREFIX + name).withoutStackTrace();
+            }
+            recording.start();
+            pipeline.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith(PREFIX))
+                .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Correlation across stages
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void everyStageCarriesTheSameCorrelationId() throws Exception {
+        long[] ids = new long[2];
+        List<RecordedEvent> events = record(() -> {
+            long lineId = PipelineEvents.lineReceived(3, 512);
+            long id = PipelineEvents.nextId();
+            ids[0] = lineId;
+            ids[1] = id;
+            PipelineEvents.stanzaClassified(id, lineId, StanzaClassifier.StanzaKind.MESSAGE, 400);
+            PipelineEvents.messageParsed(PipelineEvents.beginParse(), id, 1);
+            PipelineEvents.filterVerdict(PipelineEvents.beginFilters(), id,
+                DiagnosticRing.Stage.CHAT_FILTER, DiagnosticRing.Verdict.PASS);
+            PipelineEvents.ttsDequeued(PipelineEvents.ttsQueued(id, 8));
+            PipelineEvents.xttsFirstByte(PipelineEvents.xttsRequestSent(id, 8), 200);
+            PipelineEvents.playbackStarted(id, "XTTS");
+            PipelineEvents.pttReleased(PipelineEvents.pttPressed(id, 86));
+        });
+
+        assertEquals(10, events.size());
+        for (RecordedEvent e : events) {
+            if (e.getEventType().getName().endsWith("LineReceived")) {
+                assertEquals(ids[0], e.getLong("lineId"));
+            } else {
+                assertEquals(ids[1], e.getLong("correlationId"), e.getEventType().getName());
+            }
+        }
+        RecordedEvent classified = events.stream()
+            .filter(e -> e.getEventType().getName().endsWith("StanzaClassified")).findFirst().orElseThrow();
+        assertEquals(ids[0], classified.getLong("lineId"));
+        assertEquals("MESSAGE", classified.getString("kind"));
+        RecordedEvent verdict = events.stream()
+            .filter(e -> e.getEventType().getName().endsWith("FilterVerdict")).findFirst().orElseThrow();
+        assertEquals("PASS", verdict.getString("verdict"));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Disabled recording
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void helpersAreSafeWithoutARecording() {
+        long a = PipelineEvents.lineReceived(0, 1);
+        long b = PipelineEvents.nextId();
+        assertTrue(b > a && a > 0);
+        PipelineEvents.pttReleased(null);
+        PipelineEvents.xttsFirstByte(PipelineEvents.xttsRequestSent(b, 1), 200);
+    }
+}
@@ -0,0 +1,116 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the own-PUUID presence fast path.
+ */
+class PresenceTrackerTest {
+
+    private static final String SELF = XmppTrafficCorpus.SELF_PUUID;
+    private static final String FRIEND = "99999999-8888-7777-6666-555555555555";
+
+    private PresenceTracker tracker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        setSelfId(SELF);
+        GameStateManager.getInstance().reset();
+        tracker = new PresenceTracker();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        setSelfId(null);
+        GameStateManager.getInstance().reset();
+    }
+
+    private static void setSelfId(String id) throws Exception {
+        // Bypass setSelfId() listeners/logging: tests only need the raw field
+        java.lang.reflect.Field field = ChatDataHandler.class.getDeclaredField("selfId");
+        field.setAccessible(true);
+        field.set(ChatDataHandler.getInstance(), id);
+    }
+
+    private static String presenceWithJson(String puuid, String json) {
+        String p = Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        return "<presence from='" + puuid + "@jp1.pvp.net/RC-1'><games><valorant><p>" + p
+            + "</p></valorant></games></presence>";
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Own-PUUID gate
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void friendsPresenceNeverDrivesGameState() {
+        assertFalse(tracker.onPresence(XmppTrafficCorpus.presence(FRIEND, "INGAME")));
+        assertEquals(GameStateManager.GameState.UNKNOWN, GameStateManager.getInstance().getCurrentState());
+        assertEquals(1, tracker.getSkippedNotSelf());
+        assertEquals(0, tracker.getPayloadsDecoded());
+    }
+
+    @Test
+    void presenceIsIgnoredUntilOwnPuuidIsKnown() throws Exception {
+        setSelfId(null);
+        assertFalse(tracker.onPresence(XmppTrafficCorpus.presence(SELF, "INGAME")));
+        assertEquals(0, tracker.getPayloadsDecoded());
+    }
+
+    @Test
+    void ownPresenceUpdatesStateIncludingCustomGames() {
+        assertTrue(tracker.onPresence(XmppTrafficCorpus.presence(SELF, "PREGAME")));
+        assertEquals(GameStateManager.GameState.PREGAME, GameStateManager.getInstance().getCurrentState());
+
+        assertTrue(tracker.onPresence(XmppTrafficCorpus.presence(SELF.toUpperCase(), "INGAME", "CustomGame")));
+        assertEquals(GameStateManager.GameState.CUSTOM, GameStateManager.getInstance().getCurrentState());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Change-only decoding
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void unchangedPayloadIsNotDecodedAgain() {
+        String menus = XmppTrafficCorpus.presence(SELF, "MENUS");
+        assertTrue(tracker.onPresence(menus));
+        assertFalse(tracker.onPresence(menus));
+        assertFalse(tracker.onPresence(menus));
+        assertEquals(1, tracker.getPayloadsDecoded());
+        assertEquals(2, tracker.getSkippedUnchanged());
+
+        assertTrue(tracker.onPresence(XmppTrafficCorpus.presence(SELF, "INGAME")));
+        assertEquals(2, tracker.getPayloadsDecoded());
+
+        tracker.reset();
+        assertTrue(tracker.onPresence(XmppTrafficCorpus.presence(SELF, "INGAME")));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Shallow JSON extraction
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void onlyTopLevelFieldsAreRead() {
+        String json = "{\"nested\":{\"sessionLoopState\":\"INGAME\"},\"list\":[1,{\"a\":\"}\"}],"
+            + "\"partyOwnerSessionLoopState\":\"INGAME\", \"sessionLoopState\" : \"PREGAME\", \"n\":null}";
+        assertTrue(tracker.onPresence(presenceWithJson(SELF, json)));
+        assertEquals(GameStateManager.GameState.PREGAME, GameStateManager.getInstance().getCurrentState());
+    }
+
+    @Test
+    void malformedPayloadsAreDropped() {
+        assertFalse(tracker.onPresence("<presence from='" + SELF + "@jp1.pvp.net/RC-1'><p>not base64!</p></presence>"));
+        assertFalse(tracker.onPresence(presenceWithJson(SELF, "{\"sessionLoopState\":\"INGAME\"")));
+        assertFalse(tracker.onPresence(presenceWithJson(SELF, "[\"sessionLoopState\"]")));
+        assertFalse(tracker.onPresence(presenceWithJson(SELF, "{\"isValid\":true}")));
+        assertEquals(GameStateManager.GameState.UNKNOWN, GameStateManager.getInstance().getCurrentState());
+    }
+}
@@ -0,0 +1,87 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming roster parser and roster push (delta) handling.
+ */
+class RosterTest {
+
+    private final Roster roster = Roster.getInstance();
+
+    @BeforeEach
+    void setUp() {
+        roster.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roster.clear();
+    }
+
+    private static String push(String items) {
+        return "<iq type='set' id='push_1'><query xmlns='jabber:iq:riotgames:roster'>" + items + "</query></iq>";
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Full roster results
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void fullRosterUsesRiotIdWhenNameAttributeIsEmpty() {
+        assertEquals(5, roster.parseRosterIq(XmppTrafficCorpus.roster(5)));
+        assertEquals(5, roster.size());
+        assertEquals("Player3", roster.getPlayerName("00000003-0000-4000-8000-000000000003"));
+    }
+
+    @Test
+    void gameNameAttributeWinsOverName() {
+        String xml = "<iq type=\"result\"><query xmlns=\"jabber:iq:riotgames:roster\">"
+            + "<item jid=\"p1@eu1.pvp.net\" name=\"Old\" game_name=\"Tom &amp; Jerry\"/>"
+            + "<item name=\"Second\" jid=\"p2@eu1.pvp.net\"/>"
+            + "</query></iq>";
+        assertEquals(2, roster.parseRosterIq(xml));
+        assertEquals("Tom & Jerry", roster.getPlayerName("p1"));
+        assertEquals("Second", roster.getPlayerName("p2"));
+    }
+
+    @Test
+    void nonRosterIqIsIgnored() {
+        assertEquals(0, roster.parseRosterIq(XmppTrafficCorpus.archive(3)));
+        assertEquals(0, roster.parseRosterIq("<iq type='get'><query xmlns='jabber:iq:riotgames:roster'>"
+            + "<item jid='p1@eu1.pvp.net' name='X'/></query></iq>"));
+        assertEquals(0, roster.size());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Roster pushes
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void pushAddsRenamesAndRemoves() {
+        roster.parseRosterIq(XmppTrafficCorpus.roster(2));
+        String first = "00000000-0000-4000-8000-000000000000";
+        String second = "00000001-0000-4000-8000-000000000001";
+
+        assertEquals(1, roster.parseRosterIq(push("<item jid='new@jp1.pvp.net' name='' subscription='both'>"
+            + "<id name='Newcomer' tagline='EUW'/></item>")));
+        assertEquals("Newcomer", roster.getPlayerName("new"));
+
+        assertEquals(1, roster.parseRosterIq(push("<item jid='" + first + "@jp1.pvp.net' name='Renamed'/>")));
+        assertEquals("Renamed", roster.getPlayerName(first));
+
+        assertEquals(1, roster.parseRosterIq(push("<item jid='" + second + "@jp1.pvp.net' subscription='remove'/>")));
+        assertFalse(roster.hasPlayer(second));
+        assertEquals(2, roster.size());
+    }
+
+    @Test
+    void removingUnknownPlayerIsNoOp() {
+        assertEquals(0, roster.parseRosterIq(push("<item jid='ghost@jp1.pvp.net' subscription='remove'/>")));
+        assertEquals(0, roster.size());
+    }
+}
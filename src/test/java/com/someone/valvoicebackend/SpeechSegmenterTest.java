@@ -0,0 +1,80 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SpeechSegmenter.
+ */
+class SpeechSegmenterTest {
+
+    private static void assertWellFormed(String text, List<String> segments) {
+        assertEquals(text.replaceAll("\\s+", " ").trim(), String.join(" ", segments), "text lost or reordered");
+        assertTrue(segments.get(0).length() <= SpeechSegmenter.FIRST_SEGMENT_CHARS, "first: " + segments.get(0));
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            assertTrue(segment.length() <= SpeechSegmenter.MAX_SEGMENT_CHARS, "too long: " + segment);
+            if (segment.length() < SpeechSegmenter.MIN_SEGMENT_CHARS && i > 0) {
+                // A fragment is left only when its predecessor has no room for it
+                int limit = i == 1 ? SpeechSegmenter.FIRST_SEGMENT_CHARS : SpeechSegmenter.MAX_SEGMENT_CHARS;
+                assertTrue(segments.get(i - 1).length() + 1 + segment.length() > limit, "fragment: " + segment);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Short texts stay whole
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void shortTextsAreNotSplit() {
+        assertEquals(List.of("Rotate B. Now!"), SpeechSegmenter.split("  Rotate B. Now!  "));
+        String limit = "x".repeat(SpeechSegmenter.MIN_SPLIT_CHARS);
+        assertEquals(List.of(limit), SpeechSegmenter.split(limit));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Boundaries
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void splitsAtSentenceEndsButNotInsideNumbers() {
+        String text = "Their Jett has the operator on A main again. Buy 2.5k worth of utility and play retake"
+            + " on B this round! Who is carrying the spike?";
+        List<String> segments = SpeechSegmenter.split(text);
+        assertEquals(List.of(
+            "Their Jett has the operator on A main again.",
+            "Buy 2.5k worth of utility and play retake on B this round!",
+            "Who is carrying the spike?"), segments);
+        assertWellFormed(text, segments);
+    }
+
+    @Test
+    void longFirstSentenceIsCutAtAClause() {
+        String text = "If they push through the long corridor again, we should fall back to site, play for"
+            + " the retake and save the ultimate orbs for the next round";
+        List<String> segments = SpeechSegmenter.split(text);
+        assertEquals("If they push through the long corridor again,", segments.get(0));
+        assertWellFormed(text, segments);
+    }
+
+    @Test
+    void runOnTextWithoutPunctuationIsCutAtSpaces() {
+        String text = "go go go ".repeat(40);
+        List<String> segments = SpeechSegmenter.split(text);
+        assertTrue(segments.size() > 2);
+        assertWellFormed(text, segments);
+    }
+
+    @Test
+    void fragmentsAreMergedIntoANeighbour() {
+        String text = "Ok. Fine. They are all on B right now, rotate through mid and watch the flank from"
+            + " market. Go!";
+        List<String> segments = SpeechSegmenter.split(text);
+        assertEquals("Ok. Fine.", segments.get(0).substring(0, 9));
+        assertWellFormed(text, segments);
+    }
+}
@@ -0,0 +1,73 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the fixed-layout stamp parser used by the timestamp gate.
+ */
+class StampParserTest {
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Riot and ISO layouts
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void parsesRiotAndIsoLayoutsAsUtc() {
+        long expected = Instant.parse("2026-10-16T12:00:01.123Z").toEpochMilli();
+        assertEquals(expected, StampParser.parseEpochMillis("2026-10-16 12:00:01.123"));
+        assertEquals(expected, StampParser.parseEpochMillis("2026-10-16T12:00:01.123"));
+        assertEquals(expected, StampParser.parseEpochMillis("2026-10-16T12:00:01.123Z"));
+        assertEquals(expected, StampParser.parseEpochMillis("2026-10-16T12:00:01.123456789Z"));
+        assertEquals(expected, StampParser.parseEpochMillis("2026-10-16T14:00:01.123+02:00"));
+        assertEquals(expected, StampParser.parseEpochMillis("2026-10-16T06:30:01.123-0530"));
+        assertEquals(expected - 123, StampParser.parseEpochMillis("2026-10-16 12:00:01"));
+        assertEquals(expected - 1123, StampParser.parseEpochMillis("2026-10-16T12:00Z"));
+        assertEquals(expected - 23, StampParser.parseEpochMillis("2026-10-16 12:00:01.1"));
+    }
+
+    @Test
+    void rejectsMalformedStampsWithoutThrowing() {
+        String[] bad = {
+            null, "", "garbage", "2026-10-16", "2026-13-01 00:00:00", "2026-02-29 00:00:00",
+            "2026-10-16 24:00:00", "2026-10-16 12:60:00", "2026-10-16 12:00:60", "2026-10-16X12:00:00",
+            "2026-10-16 12:00:00.", "2026-10-16 12:00:00.1234567890", "2026-10-16 12:00:00 ",
+            " 2026-10-16 12:00:00", "2026-10-16 12:00:00+2", "2026-10-16 12:00:00+02:", "2026-1O-16 12:00:00"
+        };
+        for (String stamp : bad) {
+            assertEquals(StampParser.INVALID, StampParser.parseEpochMillis(stamp), String.valueOf(stamp));
+        }
+        assertNotEquals(StampParser.INVALID, StampParser.parseEpochMillis("2024-02-29 00:00:00"));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Agreement with java.time
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void agreesWithJavaTimeOnRandomInstants() {
+        Random random = new Random(8L);
+        for (int i = 0; i < 20_000; i++) {
+            long millis = random.nextLong(-62_000_000_000_000L, 250_000_000_000_000L);
+            LocalDateTime utc = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+            if (utc.getYear() < 0 || utc.getYear() > 9999) continue;
+
+            String riot = String.format("%04d-%02d-%02d %02d:%02d:%02d.%03d", utc.getYear(), utc.getMonthValue(),
+                utc.getDayOfMonth(), utc.getHour(), utc.getMinute(), utc.getSecond(), utc.getNano() / 1_000_000);
+            assertEquals(millis, StampParser.parseEpochMillis(riot), riot);
+
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(-18 * 4, 18 * 4 + 1)) * 900);
+            String iso = OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), offset).toString();
+            long expected = OffsetDateTime.parse(iso).toInstant().toEpochMilli();
+            assertEquals(expected, StampParser.parseEpochMillis(iso), iso);
+        }
+    }
+}
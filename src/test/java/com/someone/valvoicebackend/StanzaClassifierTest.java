@@ -0,0 +1,70 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StanzaClassifier routing.
+ *
+ * The classifier replaces a chain of toLowerCase()-based checks, so every
+ * stanza shape must still land on the same route as before.
+ */
+class StanzaClassifierTest {
+
+    private static final String PUUID = "11111111-2222-3333-4444-555555555555";
+
+    @Test
+    void routesEveryTrafficShape() {
+        assertEquals(StanzaClassifier.StanzaKind.PRESENCE,
+            StanzaClassifier.classify(XmppTrafficCorpus.presence(PUUID, "MENUS")));
+        assertEquals(StanzaClassifier.StanzaKind.ROSTER_IQ,
+            StanzaClassifier.classify(XmppTrafficCorpus.roster(3)));
+        assertEquals(StanzaClassifier.StanzaKind.ARCHIVE,
+            StanzaClassifier.classify(XmppTrafficCorpus.archive(3)));
+        assertEquals(StanzaClassifier.StanzaKind.IQ_OTHER,
+            StanzaClassifier.classify(XmppTrafficCorpus.ping()));
+        assertEquals(StanzaClassifier.StanzaKind.MESSAGE,
+            StanzaClassifier.classify(XmppTrafficCorpus.partyMessage(PUUID, "rotate B")));
+        assertEquals(StanzaClassifier.StanzaKind.MESSAGE,
+            StanzaClassifier.classify(XmppTrafficCorpus.whisper(PUUID, "hi")));
+        assertEquals(StanzaClassifier.StanzaKind.CARBON,
+            StanzaClassifier.classify(XmppTrafficCorpus.carbon("nice")));
+        assertEquals(StanzaClassifier.StanzaKind.OTHER,
+            StanzaClassifier.classify(XmppTrafficCorpus.chatState(PUUID)));
+    }
+
+    @Test
+    void matchingIsCaseInsensitiveAndAttributeAware() {
+        assertEquals(StanzaClassifier.StanzaKind.MESSAGE,
+            StanzaClassifier.classify("<MESSAGE from='a@b' type='chat'><Body>x</Body></MESSAGE>"));
+        // type="result" inside another attribute value must not count as the IQ type
+        assertEquals(StanzaClassifier.StanzaKind.IQ_OTHER,
+            StanzaClassifier.classify("<iq id=\"type='result'\" type='get'>"
+                + "<query xmlns='jabber:iq:riotgames:roster'/></iq>"));
+        // Roster pushes (type="set") are routed with full roster results
+        assertEquals(StanzaClassifier.StanzaKind.ROSTER_IQ,
+            StanzaClassifier.classify("<iq type='set' id='push1'><query xmlns='jabber:iq:riotgames:roster'>"
+                + "<item jid='a@jp1.pvp.net' subscription='remove'/></query></iq>"));
+        // Non-IQ stanza carrying the archive namespace is still blocked
+        assertEquals(StanzaClassifier.StanzaKind.ARCHIVE,
+            StanzaClassifier.classify("<message><result xmlns='jabber:iq:riotgames:archive'/><body>x</body></message>"));
+    }
+
+    @Test
+    void agreesWithLegacyCheckChainOnMixedTraffic() {
+        for (String xml : XmppTrafficCorpus.mixed(500, 42L)) {
+            StanzaClassifier.StanzaKind kind = StanzaClassifier.classify(xml);
+            boolean legacyPresence = XmppStreamParser.isPresenceStanza(xml);
+            boolean legacyRoster = !legacyPresence && Roster.getInstance().isRosterIq(xml);
+            boolean legacyChat = !legacyPresence && !legacyRoster
+                && !XmppStreamParser.isIqStanza(xml)
+                && !XmppStreamParser.isArchiveStanza(xml)
+                && XmppStreamParser.containsMessageWithBody(xml);
+
+            assertEquals(legacyPresence, kind == StanzaClassifier.StanzaKind.PRESENCE, xml);
+            assertEquals(legacyRoster, kind == StanzaClassifier.StanzaKind.ROSTER_IQ, xml);
+            assertEquals(legacyChat, kind.isChat(), xml);
+        }
+    }
+}
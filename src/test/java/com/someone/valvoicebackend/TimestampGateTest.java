@@ -0,0 +1,82 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the timestamp gate and its clock-skew measurement.
+ */
+class TimestampGateTest {
+
+    private static final long APP_START = Instant.parse("2026-10-16T12:00:00Z").toEpochMilli();
+    private static final long DEFAULT_GRACE = 60_000;
+
+    private static String stamp(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).toString().replace('T', ' ').replace("Z", "");
+    }
+
+    @Test
+    void defaultGraceAppliesUntilSkewIsMeasured() {
+        TimestampGate gate = new TimestampGate(APP_START, DEFAULT_GRACE);
+        assertFalse(gate.isHistorical(null, APP_START));
+        assertFalse(gate.isHistorical(stamp(APP_START - 30_000), APP_START));
+        assertTrue(gate.isHistorical(stamp(APP_START - 90_000), APP_START));
+        assertTrue(gate.isHistorical("not a stamp", APP_START));
+        assertEquals(1, gate.getUnparseableStamps());
+        assertEquals(DEFAULT_GRACE, gate.getEffectiveGraceMs());
+    }
+
+    @Test
+    void graceShrinksWhenClocksAgree() {
+        TimestampGate gate = new TimestampGate(APP_START, DEFAULT_GRACE);
+        for (int i = 1; i <= 3; i++) {
+            long sent = APP_START + i * 10_000L;
+            gate.isHistorical(stamp(sent), sent + 150);
+        }
+        assertEquals(150, gate.getEstimatedSkewMs());
+        assertEquals(5_150, gate.getEffectiveGraceMs());
+        // A message from 30s before start is now recognised as history
+        assertTrue(gate.isHistorical(stamp(APP_START - 30_000), APP_START + 40_000));
+    }
+
+    @Test
+    void graceGrowsWhenServerClockIsBehind() {
+        TimestampGate gate = new TimestampGate(APP_START, DEFAULT_GRACE);
+        long serverBehind = 120_000;
+        for (int i = 1; i <= 3; i++) {
+            long localNow = APP_START + serverBehind + i * 1_000L;
+            gate.isHistorical(stamp(localNow - serverBehind), localNow);
+        }
+        // A live message stamped by the lagging server just after start is kept
+        assertFalse(gate.isHistorical(stamp(APP_START - 100_000), APP_START + 20_000));
+        assertEquals(serverBehind + 5_000, gate.getEffectiveGraceMs());
+    }
+
+    @Test
+    void replayedMessagesDoNotInflateTheSkewEstimate() {
+        TimestampGate gate = new TimestampGate(APP_START, DEFAULT_GRACE);
+        long now = APP_START + 600_000;
+        gate.isHistorical(stamp(now - 200), now);
+        // Reconnect replay: old (post-start) stamps received much later
+        for (int i = 1; i <= 10; i++) {
+            gate.isHistorical(stamp(APP_START + i * 1_000L), now);
+        }
+        assertEquals(200, gate.getEstimatedSkewMs());
+        assertEquals(11, gate.getSkewSamples());
+    }
+
+    @Test
+    void replayGateKeepsTheDefaultGrace() {
+        TimestampGate gate = new TimestampGate(APP_START, DEFAULT_GRACE, false);
+        // A capture spanning a reconnect: every stamp is minutes behind the recorded clock
+        for (int i = 1; i <= 10; i++) {
+            gate.isHistorical(stamp(APP_START + i * 1_000L), APP_START + 600_000);
+        }
+        assertEquals(0, gate.getSkewSamples());
+        assertEquals(DEFAULT_GRACE, gate.getEffectiveGraceMs());
+        assertTrue(gate.isHistorical(stamp(APP_START - 90_000), APP_START + 600_000));
+    }
+}
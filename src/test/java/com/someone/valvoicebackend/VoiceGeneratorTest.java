@@ -0,0 +1,569 @@
+package com.someone.valvoicebackend;
+
+import com.someone.valvoicebackend.config.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for VoiceGenerator on headless sinks: FakeXttsServer, SimulatedAudioSink, CountingPttSink.
+ */
+class VoiceGeneratorTest {
+
+    /** Three segments, ~4 s of audio */
+    private static final String LONG_CHATTER = "We should queue again after this one, it is getting late though."
+        + " Did anyone see the new skin bundle in the store today, it looks pretty good actually."
+        + " I might buy it later if the price is right, we will see about that tomorrow.";
+
+    /** Records fallback narrations instead of speaking through SAPI */
+    private static final class RecordingFallback implements FallbackSynthesizer {
+        final List<String> spoken = new CopyOnWriteArrayList<>();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void speak(String voice, String text, short rate) {
+            spoken.add(text);
+        }
+
+        @Override
+        public List<String> getAvailableVoices() {
+            return List.of("Test Voice");
+        }
+    }
+
+    /** Records the size of every utterance played, in order, then delegates */
+    private static final class RecordingAudioSink implements AudioSink {
+        final List<Integer> played = new CopyOnWriteArrayList<>();
+        private final AudioSink delegate;
+
+        RecordingAudioSink(AudioSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void play(InputStream audio, String contentType, Listener listener) throws IOException {
+            int[] bytes = {0};
+            InputStream counting = new java.io.FilterInputStream(audio) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    bytes[0] += Math.max(0, n);
+                    return n;
+                }
+            };
+            delegate.play(counting, contentType, listener);
+            played.add(bytes[0]);
+        }
+
+        @Override
+        public void stop() {
+            delegate.stop();
+        }
+    }
+
+    /** Shared fake server; tests change the options they care about (read per request) */
+    private FakeXttsServer.Options options;
+    private FakeXttsServer server;
+    private ValVoiceConfigBackup backup;
+    private final List<VoiceGenerator> generators = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        options = new FakeXttsServer.Options();
+        options.format = FakeXttsServer.Format.PCM;
+        options.ttfbMillis = 20;
+        options.realTimeFactor = 0;
+        options.charsPerSecond = 100;
+        server = new FakeXttsServer(options);
+        server.start(0);
+        backup = new ValVoiceConfigBackup();
+    }
+
+    @AfterEach
+    void stopServer() {
+        generators.forEach(VoiceGenerator::shutdown);
+        server.stop();
+        backup.restore();
+        GameStateManager.getInstance().reset();
+    }
+
+    private HttpSpeechSynthesizer speech() {
+        return new HttpSpeechSynthesizer(URI.create(server.getUrl()), () -> true, () -> { });
+    }
+
+    /** A VoiceGenerator on the shared server, shut down after the test */
+    private VoiceGenerator voiceGenerator(VoiceGenerator.Sinks sinks) {
+        VoiceGenerator voice = new VoiceGenerator(sinks);
+        generators.add(voice);
+        return voice;
+    }
+
+    private VoiceGenerator voiceGenerator(AudioSink audio, PttSink ptt, FallbackSynthesizer fallback) {
+        return voiceGenerator(new VoiceGenerator.Sinks(speech(), audio, ptt, fallback));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: XTTS path - PTT held exactly around playback
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void xttsPlaybackHoldsPttForTheAudioDuration() throws Exception {
+        options.ttfbMillis = 50;
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingFallback fallback = new RecordingFallback();
+        SimulatedAudioSink audio = new SimulatedAudioSink(true);
+        VoiceGenerator voice = voiceGenerator(audio, ptt, fallback);
+
+        voice.speakVoice("Jett", "push B, rotate through mid please", (short) 50);
+        await(() -> ptt.getReleases() > 0 && !voice.isBusy());
+
+        assertEquals(1, ptt.getPresses());
+        assertFalse(ptt.isHeld());
+        // 33 chars at 100 chars/s in 20 ms chunks = 340 ms of audio
+        List<SimulatedAudioSink.Playback> playbacks = audio.getPlaybacks();
+        assertEquals(1, playbacks.size());
+        SimulatedAudioSink.Playback playback = playbacks.get(0);
+        assertFalse(playback.stopped());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(340), audio.getAudioNanos());
+        long press = ptt.getPressNanos().get(0);
+        long release = ptt.getReleaseNanos().get(0);
+        assertTrue(playback.startNanos() <= press, "PTT pressed before the first byte arrived");
+        assertTrue(press < playback.endNanos() && playback.endNanos() <= release, "PTT released before the audio ended");
+        assertEquals(1, server.getCompleted());
+        assertEquals(1, audio.getUtterances());
+        assertTrue(fallback.spoken.isEmpty());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Fault injection - fallback voice
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void injectedFailuresFallBackToTheInbuiltVoice() throws Exception {
+        options.ttfbMillis = 0;
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingFallback fallback = new RecordingFallback();
+        VoiceGenerator voice = voiceGenerator(new SimulatedAudioSink(false), ptt, fallback);
+
+        options.failureRate = 1.0;
+        voice.speakVoice("Jett", "failed request", (short) 50);
+        await(() -> fallback.spoken.size() == 1 && !voice.isBusy());
+        assertEquals(1, server.getFailures());
+
+        options.failureRate = 0.0;
+        options.dropRate = 1.0;
+        voice.speakVoice("Jett", "dropped mid stream", (short) 50);
+        await(() -> fallback.spoken.size() == 2 && !voice.isBusy());
+        assertEquals(1, server.getDrops());
+
+        assertEquals(List.of("failed request", "dropped mid stream"), fallback.spoken);
+        assertEquals(ptt.getPresses(), ptt.getReleases());
+        assertFalse(ptt.isHeld());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Pipelined synthesis - next request overlaps current playback
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void synthesisRunsAheadWhilePlaybackStaysFifo() throws Exception {
+        options.ttfbMillis = 250;
+        ConfigManager.get().ttsLookahead = 3;
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingAudioSink audio = new RecordingAudioSink(new SimulatedAudioSink(true));
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+
+        // 30 / 50 / 40 chars = 300 / 500 / 400 ms of audio
+        long start = System.nanoTime();
+        voice.speakVoice("Jett", "a".repeat(30), (short) 50);
+        voice.speakVoice("Jett", "b".repeat(50), (short) 50);
+        voice.speakVoice("Jett", "c".repeat(40), (short) 50);
+        await(() -> ptt.getReleases() == 3 && !voice.isBusy());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 24 kHz 16-bit mono: 48 bytes per ms
+        assertEquals(List.of(300 * 48, 500 * 48, 400 * 48), audio.played);
+        // Serial: 3 x 250 ms TTFB + 1200 ms of audio = 1950 ms; pipelined: one TTFB + audio = 1450 ms
+        assertTrue(elapsedMs < 1700, "TTFB not hidden behind playback: " + elapsedMs + " ms");
+        assertTrue(server.getMaxInFlight() >= 2);
+    }
+
+    @Test
+    void lookaheadOfOneSendsRequestsOneAtATime() throws Exception {
+        options.ttfbMillis = 50;
+        ConfigManager.get().ttsLookahead = 1;
+        CountingPttSink ptt = new CountingPttSink();
+        VoiceGenerator voice = voiceGenerator(new SimulatedAudioSink(true), ptt, new RecordingFallback());
+        for (int i = 0; i < 4; i++) {
+            voice.speakVoice("Jett", "callout " + i, (short) 50);
+        }
+        await(() -> ptt.getReleases() == 4 && !voice.isBusy());
+        assertEquals(4, server.getCompleted());
+        assertEquals(1, server.getMaxInFlight());
+    }
+
+    @Test
+    void speechBufferStreamsThenSurfacesTheFailure() throws Exception {
+        SpeechBuffer buffer = new SpeechBuffer("audio/mpeg");
+        InputStream in = buffer.newInputStream();
+        buffer.write(new byte[]{1, 2, 3}, 0, 3);
+        byte[] buf = new byte[8];
+        assertEquals(3, in.read(buf, 0, buf.length));
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                buffer.write(new byte[]{4}, 0, 1);
+                buffer.fail(new IOException("reset"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        assertEquals(1, in.read(buf, 0, buf.length), "read blocks until more audio arrives");
+        assertEquals(4, buf[0]);
+        assertThrows(IOException.class, () -> in.read(buf, 0, buf.length));
+        writer.join();
+
+        buffer.discard();
+        assertThrows(IOException.class, () -> buffer.write(new byte[1], 0, 1));
+    }
+
+    @Test
+    void repeatedPhrasesPlayFromThePhraseCache() throws Exception {
+        options.ttfbMillis = 200;
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingAudioSink audio = new RecordingAudioSink(new SimulatedAudioSink(false));
+        PhraseCache cache = new PhraseCache(1 << 20, null, 0);
+        VoiceGenerator voice = voiceGenerator(
+            new VoiceGenerator.Sinks(speech(), audio, ptt, new RecordingFallback(), cache));
+
+        voice.speakVoice("Jett", "Rotate B", (short) 50);
+        await(() -> ptt.getReleases() == 1 && !voice.isBusy());
+        long start = System.nanoTime();
+        voice.speakVoice("Jett", "rotate  b", (short) 50);
+        await(() -> ptt.getPresses() == 2);
+        long hitMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        await(() -> ptt.getReleases() == 2 && !voice.isBusy());
+
+        assertEquals(1, server.getRequests());
+        assertEquals(1, cache.getHits());
+        assertEquals(audio.played.get(0), audio.played.get(1));
+        assertTrue(hitMs < options.ttfbMillis, "cache hit waited for synthesis: " + hitMs + " ms");
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: Fake server pacing and formats
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void fakeServerStreamsAtTheConfiguredRealTimeFactor() throws Exception {
+        options.ttfbMillis = 0;
+        options.realTimeFactor = 2.0;
+        options.charsPerSecond = 10;
+        HttpSpeechSynthesizer speech = speech();
+        long start = System.nanoTime();
+        long bytes;
+        String contentType;
+        try (SpeechSynthesizer.Speech result = speech.synthesize("Jett", "0123456789", "en")) {
+            contentType = result.contentType();
+            bytes = result.audio().readAllBytes().length;
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(FakeXttsServer.PCM_CONTENT_TYPE, contentType);
+        // 10 chars at 10 chars/s = 1 s of 24 kHz 16-bit mono, produced at 2x real time
+        assertEquals(48_000, bytes);
+        assertTrue(elapsedMs >= 450, "1 s of audio at 2x should take ~500 ms, took " + elapsedMs);
+        long audioMs = TimeUnit.NANOSECONDS.toMillis(
+            SimulatedAudioSink.durationNanos(contentType, bytes, new byte[0], 0));
+        assertEquals(1000, audioMs);
+    }
+
+    @Test
+    void mp3DurationFollowsTheFrameHeaderBitrate() {
+        byte[] frame = FakeXttsServer.mp3SilenceFrame();
+        long nanos = SimulatedAudioSink.durationNanos("audio/mpeg", 16_000, frame, 4);
+        assertEquals(1000, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 5: Endpoint validation
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void nonLoopbackXttsUrlIsRejected() {
+        assertEquals(URI.create(HttpSpeechSynthesizer.DEFAULT_URL),
+            HttpSpeechSynthesizer.forLoopback("http://10.1.2.3:5005/speak", () -> true, () -> { }).getEndpoint());
+        assertEquals(URI.create(HttpSpeechSynthesizer.DEFAULT_URL),
+            HttpSpeechSynthesizer.forLoopback("file:///etc/passwd", () -> true, () -> { }).getEndpoint());
+        assertEquals(URI.create("http://127.0.0.1:5999/speak"),
+            HttpSpeechSynthesizer.forLoopback("http://127.0.0.1:5999/speak", () -> true, () -> { }).getEndpoint());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 6: Sentence segmentation - one narration, one PTT hold
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void longMessagesPlaySegmentsInOrderUnderOnePttHold() throws Exception {
+        options.ttfbMillis = 100;
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingAudioSink audio = new RecordingAudioSink(new SimulatedAudioSink(true));
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+
+        String text = "They are stacking A main right now. Two of them have the operator and one more"
+            + " is lurking in the tree, so hold your angles and wait for the flash before you peek."
+            + " If they push through, fall back to site and play for the retake together.";
+        List<String> segments = SpeechSegmenter.split(text);
+        assertTrue(segments.size() >= 3, "segments: " + segments);
+
+        voice.speakVoice("Jett", text, (short) 50);
+        await(() -> ptt.getReleases() > 0 && !voice.isBusy());
+
+        // 100 chars/s in 20 ms chunks of 24 kHz 16-bit mono (960 bytes)
+        List<Integer> expected = segments.stream().map(s -> (s.length() + 1) / 2 * 960).toList();
+        assertEquals(expected, audio.played);
+        assertEquals(1, ptt.getPresses());
+        assertEquals(1, ptt.getReleases());
+        assertEquals(segments.size(), server.getCompleted());
+        assertTrue(server.getMaxInFlight() >= 2, "segments were not synthesized in parallel");
+    }
+
+    @Test
+    void segmentationCanBeSwitchedOff() throws Exception {
+        ConfigManager.get().sentenceSegmentation = false;
+        CountingPttSink ptt = new CountingPttSink();
+        VoiceGenerator voice = voiceGenerator(new SimulatedAudioSink(false), ptt, new RecordingFallback());
+        voice.speakVoice("Jett", "Rotate to B now. ".repeat(8), (short) 50);
+        await(() -> ptt.getReleases() > 0 && !voice.isBusy());
+        assertEquals(1, server.getRequests());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 7: Bounded narration queue - latency stays bounded under spam
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void chatSpamIsDroppedInsteadOfReadOutLate() throws Exception {
+        ConfigManager.get().narrationQueueCapacity = 3;
+        ConfigManager.get().narrationDeadlineSeconds = 1;
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingAudioSink audio = new RecordingAudioSink(new SimulatedAudioSink(true));
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+
+        // 30 messages of 300 ms audio each: 9 s if all were read
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            assertTrue(voice.speakVoice("Jett", "spam " + (char) ('a' + i % 26) + " ".repeat(20) + "go now",
+                (short) 50, 0));
+        }
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        NarrationQueue<?> queue = voice.getNarrationQueue();
+        assertTrue(elapsedMs < 2500, "spam drained in " + elapsedMs + " ms");
+        assertEquals(30, audio.played.size() + queue.getOverflowDrops() + queue.getExpiredDrops());
+        assertTrue(queue.getOverflowDrops() > 0);
+        assertTrue(queue.getWait().getMaxMicros() <= 1_000_000, "waited " + queue.getWait().getMaxMicros() + " us");
+        assertEquals(ptt.getPresses(), ptt.getReleases());
+
+        // Dropped narrations gave their lookahead slots back
+        voice.speakVoice("Jett", "after the spam", (short) 50);
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+        assertEquals(audio.played.size(), ptt.getReleases());
+    }
+
+    @Test
+    void newestPolicyRejectsAndSignalsBackpressure() throws Exception {
+        options.ttfbMillis = 300;
+        ConfigManager.get().narrationQueueCapacity = 1;
+        ConfigManager.get().narrationDropPolicy = "NEWEST";
+        CountingPttSink ptt = new CountingPttSink();
+        VoiceGenerator voice = voiceGenerator(new SimulatedAudioSink(false), ptt, new RecordingFallback());
+
+        assertTrue(voice.speakVoice("Jett", "first", (short) 50, 0));
+        await(() -> voice.getNarrationQueue().size() == 0);
+        assertTrue(voice.speakVoice("Jett", "second", (short) 50, 0));
+        assertFalse(voice.isAcceptingNarrations());
+        assertFalse(voice.speakVoice("Jett", "third", (short) 50, 0));
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+
+        assertTrue(voice.isAcceptingNarrations());
+        assertEquals(2, ptt.getReleases());
+        assertEquals(2, server.getRequests());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 8: Priority lanes and preemption
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void inRoundTeamCalloutOvertakesQueuedPartyChatter() throws Exception {
+        ConfigManager.get().narrationPreemption = false;
+        GameStateManager.getInstance().setCurrentState(GameStateManager.GameState.INGAME);
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingAudioSink audio = new RecordingAudioSink(new SimulatedAudioSink(true));
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+
+        // 30 / 40 / 60 / 50 chars: the sizes identify the utterances
+        voice.speakVoice("Jett", "a".repeat(30), (short) 50, 0, Chat.TYPE_PARTY);
+        await(ptt::isHeld);
+        voice.speakVoice("Jett", "b".repeat(40), (short) 50, 0, Chat.TYPE_PARTY);
+        voice.speakVoice("Jett", "c".repeat(60), (short) 50, 0, Chat.TYPE_PARTY);
+        voice.speakVoice("Jett", "d".repeat(50), (short) 50, 0, Chat.TYPE_TEAM);
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+
+        assertEquals(List.of(300 * 48, 500 * 48, 400 * 48, 600 * 48), audio.played);
+        assertEquals(1, voice.getNarrationQueue().getWait(NarrationLane.URGENT).getCount());
+    }
+
+    @Test
+    void urgentCalloutCutsOffPlayingPartyNarration() throws Exception {
+        GameStateManager.getInstance().setCurrentState(GameStateManager.GameState.INGAME);
+        CountingPttSink ptt = new CountingPttSink();
+        SimulatedAudioSink sink = new SimulatedAudioSink(true);
+        RecordingAudioSink audio = new RecordingAudioSink(sink);
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+
+        assertTrue(SpeechSegmenter.split(LONG_CHATTER).size() >= 3);
+        voice.speakVoice("Jett", LONG_CHATTER, (short) 50, 0, Chat.TYPE_PARTY);
+        await(ptt::isHeld);
+        Thread.sleep(100);
+
+        voice.speakVoice("Jett", "one B long, he is one shot, push now", (short) 50, 0, Chat.TYPE_TEAM);
+        await(() -> ptt.getPresses() == 2);
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+
+        // The chatter was cut off mid-segment, not played out, before the callout started
+        List<SimulatedAudioSink.Playback> playbacks = sink.getPlaybacks();
+        assertEquals(2, playbacks.size());
+        assertTrue(playbacks.get(0).stopped(), "callout waited for the chatter to finish");
+        assertFalse(playbacks.get(1).stopped());
+        assertEquals(1, sink.getStopped());
+        // PTT released between the two narrations, nothing left held
+        assertEquals(2, ptt.getReleases());
+        assertFalse(ptt.isHeld());
+        long chatterReleased = ptt.getReleaseNanos().get(0);
+        long calloutPressed = ptt.getPressNanos().get(1);
+        assertTrue(playbacks.get(0).endNanos() <= chatterReleased && chatterReleased <= calloutPressed);
+        assertTrue(playbacks.get(1).startNanos() <= calloutPressed);
+        // The cut-off segment, then the callout; the rest of the chatter was skipped
+        assertEquals(2, audio.played.size());
+        assertEquals(18 * 960, (int) audio.played.get(1));
+        assertTrue(PipelineMetrics.getInstance().getVerdictCount(
+            DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.PREEMPTED) > 0);
+
+        // Slots of the skipped segments were returned
+        voice.speakVoice("Jett", "after", (short) 50, 0, Chat.TYPE_TEAM);
+        await(() -> ptt.getReleases() == 3 && !voice.isBusy());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 9: Cancel API (skip hotkey)
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void cancelCurrentStopsPlaybackAndReleasesPttAtOnce() throws Exception {
+        CountingPttSink ptt = new CountingPttSink();
+        SimulatedAudioSink sink = new SimulatedAudioSink(true);
+        RecordingAudioSink audio = new RecordingAudioSink(sink);
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+
+        assertFalse(voice.cancelCurrent());
+        voice.speakVoice("Jett", LONG_CHATTER, (short) 50, 0);
+        await(ptt::isHeld);
+        Thread.sleep(100);
+
+        assertTrue(voice.cancelCurrent());
+        // Released by the caller, not when the speaker gets round to it
+        assertFalse(ptt.isHeld());
+        assertFalse(voice.cancelCurrent());
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+
+        assertEquals(1, sink.getStopped());
+        assertEquals(1, audio.played.size());
+        assertEquals(1, ptt.getReleases());
+
+        // The next narration plays normally
+        voice.speakVoice("Jett", "next", (short) 50, 0);
+        await(() -> ptt.getReleases() == 2 && !voice.isBusy());
+        assertEquals(2, audio.played.size());
+    }
+
+    @Test
+    void flushAndCancelByIdWithdrawQueuedNarrations() throws Exception {
+        CountingPttSink ptt = new CountingPttSink();
+        RecordingAudioSink audio = new RecordingAudioSink(new SimulatedAudioSink(true));
+        VoiceGenerator voice = voiceGenerator(audio, ptt, new RecordingFallback());
+        long cancelled = PipelineMetrics.getInstance().getVerdictCount(
+            DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.CANCELLED);
+
+        // 30 / 40 / 60 chars: the sizes identify the utterances
+        voice.speakVoice("Jett", "a".repeat(30), (short) 50, 11);
+        await(ptt::isHeld);
+        voice.speakVoice("Jett", "b".repeat(40), (short) 50, 12);
+        voice.speakVoice("Jett", "c".repeat(60), (short) 50, 13);
+        assertTrue(voice.cancel(12));
+        assertFalse(voice.cancel(12));
+        assertFalse(voice.cancel(0));
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+        assertEquals(List.of(300 * 48, 600 * 48), audio.played);
+
+        voice.speakVoice("Jett", LONG_CHATTER, (short) 50, 21);
+        await(ptt::isHeld);
+        voice.speakVoice("Jett", "d".repeat(50), (short) 50, 22);
+        voice.speakVoice("Jett", "e".repeat(50), (short) 50, 23);
+        assertEquals(3, voice.flush());
+        assertFalse(ptt.isHeld());
+        await(() -> voice.getPendingNarrations() == 0 && !voice.isBusy());
+
+        assertEquals(3, audio.played.size());
+        assertEquals(0, voice.getNarrationQueue().size());
+        assertEquals(cancelled + 4, PipelineMetrics.getInstance().getVerdictCount(
+            DiagnosticRing.Stage.TTS_QUEUE, DiagnosticRing.Verdict.CANCELLED));
+        assertEquals(ptt.getPresses(), ptt.getReleases());
+    }
+
+    /** Restores the VoiceGenerator settings changed by a test */
+    private static final class ValVoiceConfigBackup {
+        private final int capacity = ConfigManager.get().narrationQueueCapacity;
+        private final int deadline = ConfigManager.get().narrationDeadlineSeconds;
+        private final String policy = ConfigManager.get().narrationDropPolicy;
+        private final int lookahead = ConfigManager.get().ttsLookahead;
+        private final boolean segmentation = ConfigManager.get().sentenceSegmentation;
+        private final boolean preemption = ConfigManager.get().narrationPreemption;
+
+        void restore() {
+            ConfigManager.get().narrationQueueCapacity = capacity;
+            ConfigManager.get().narrationDeadlineSeconds = deadline;
+            ConfigManager.get().narrationDropPolicy = policy;
+            ConfigManager.get().ttsLookahead = lookahead;
+            ConfigManager.get().sentenceSegmentation = segmentation;
+            ConfigManager.get().narrationPreemption = preemption;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.someone.valvoicebackend;
+
+import com.someone.valvoicebackend.config.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for XmppFastTokenizer.
+ *
+ * The tokenizer must either produce exactly what the StAX path produces,
+ * or decline (return false) so the caller falls back to StAX.
+ */
+class XmppFastTokenizerTest {
+
+    @AfterEach
+    void restoreDefault() {
+        ConfigManager.get().fastXmppTokenizer = true;
+    }
+
+    private static String fields(ParsedMessage p) {
+        if (p == null) return "null";
+        return String.join("|", p.getFrom(), p.getTo(), p.getId(), p.getType(),
+            p.getStamp(), p.getJid(), p.getCarbonTo(), p.getBody());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Same result as StAX on realistic traffic
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void matchesStaxOnMixedTraffic() {
+        for (String xml : XmppTrafficCorpus.mixed(400, 99L)) {
+            ConfigManager.get().fastXmppTokenizer = false;
+            String stax = fields(XmppStreamParser.parseMessage(xml));
+            String staxPayload = XmppStreamParser.extractPresencePayload(xml);
+
+            ConfigManager.get().fastXmppTokenizer = true;
+            assertEquals(stax, fields(XmppStreamParser.parseMessage(xml)), xml);
+            assertEquals(staxPayload, XmppStreamParser.extractPresencePayload(xml), xml);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Field extraction
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void decodesEntitiesAndCarbonTarget() {
+        XmppFastTokenizer tokenizer = new XmppFastTokenizer();
+        assertTrue(tokenizer.tokenizeMessage(XmppTrafficCorpus.carbon("a &amp; b &#65;")));
+
+        assertEquals("a & b A", tokenizer.field(XmppFastTokenizer.BODY));
+        assertEquals("5c1f0a8e-2d3b-4e6f-9a1b-7c8d9e0f1a2b@ares-parties.jp1.pvp.net",
+            tokenizer.field(XmppFastTokenizer.CARBON_TO));
+        assertEquals("chat", tokenizer.field(XmppFastTokenizer.TYPE), "Outer stanza type wins");
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Unusual input is declined, not guessed
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void declinesShapesItDoesNotHandle() {
+        XmppFastTokenizer tokenizer = new XmppFastTokenizer();
+        assertFalse(tokenizer.tokenizeMessage("<message from='a@b'><body><![CDATA[x]]></body></message>"));
+        assertFalse(tokenizer.tokenizeMessage("<message from='a@b'><body>a &nbsp; b</body></message>"));
+        assertFalse(tokenizer.tokenizeMessage("<message from='a@b'><body>x</bodyy></message>"));
+        assertFalse(tokenizer.tokenizeMessage("<message from='a@b' from='c@d'><body>x</body></message>"));
+        assertFalse(tokenizer.tokenizeMessage("<message from='a@b'><body>x</body></message><message/>"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.someone.valvoicebackend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for XmppStanzaFramer chunk reassembly.
+ *
+ * MITM "incoming" events are raw TLS chunks, so the framer must produce the
+ * same stanzas no matter where the chunk boundaries fall.
+ */
+class XmppStanzaFramerTest {
+
+    private static final String STREAM =
+        "<?xml version='1.0'?>" +
+        "<stream:stream xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams'>" +
+        "<stream:features><bind/></stream:features>" +
+        "<presence from='a@ares.pvp.net/RC'><show>chat</show></presence>" +
+        "<message from='b@ares.pvp.net' type='chat'><body>rotate &gt; B</body></message>" +
+        "<iq type='result' id='archive'><query><message><body>old</body></message></query></iq>" +
+        "<presence from='c@ares.pvp.net/RC'/>" +
+        "<message from='d@ares.pvp.net' type='chat' data='x>y'><body><![CDATA[a</message>b]]></body></message>";
+
+    private static List<String> frame(String stream, int chunkSize) {
+        XmppStanzaFramer framer = new XmppStanzaFramer();
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < stream.length(); i += chunkSize) {
+            framer.feed(stream.substring(i, Math.min(stream.length(), i + chunkSize)), out::add);
+        }
+        assertEquals(0, framer.bufferedChars(), "Nothing should remain buffered between stanzas");
+        return out;
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Chunk boundaries do not change the output
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void framesIdenticallyForEveryChunkSize() {
+        List<String> whole = frame(STREAM, STREAM.length());
+        assertEquals(5, whole.size());
+        for (int size : new int[] {1, 2, 3, 7, 13, 64}) {
+            assertEquals(whole, frame(STREAM, size), "chunkSize=" + size);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Only top-level stanzas are emitted
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void archivedInnerMessagesStayInsideTheirIq() {
+        List<String> stanzas = frame(STREAM, 5);
+        assertTrue(stanzas.get(0).startsWith("<presence"));
+        assertTrue(stanzas.get(1).startsWith("<message"));
+        assertTrue(stanzas.get(2).startsWith("<iq") && stanzas.get(2).endsWith("</iq>"));
+        assertEquals("<presence from='c@ares.pvp.net/RC'/>", stanzas.get(3));
+        assertTrue(stanzas.get(4).endsWith("]]></body></message>"));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Incomplete stanza is held until the rest arrives
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void holdsPartialStanzaUntilComplete() {
+        XmppStanzaFramer framer = new XmppStanzaFramer();
+        List<String> out = new ArrayList<>();
+
+        assertEquals(0, framer.feed("<message type='chat'><bo", out::add));
+        assertTrue(framer.bufferedChars() > 0);
+        assertEquals(1, framer.feed("dy>hi</body></message><pre", out::add));
+        assertEquals("<message type='chat'><body>hi</body></message>", out.get(0));
+
+        framer.reset();
+        assertEquals(0, framer.bufferedChars());
+    }
+}
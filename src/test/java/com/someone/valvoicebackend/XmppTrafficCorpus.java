@@ -0,0 +1,129 @@
+package com.someone.valvoicebackend;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic but realistic Riot XMPP traffic for tests and benchmarks.
+ *
+ * Shapes follow what the MITM sees in a lobby/agent-select session:
+ * presence floods dominate, with party/team/whisper chat, carbons,
+ * a roster result and archive replays mixed in.
+ */
+final class XmppTrafficCorpus {
+
+    static final String SELF_PUUID = "8a3e1c2f-0b6d-4f51-9e77-3c5d2a10b4e9";
+
+    private XmppTrafficCorpus() {
+    }
+
+    static String presence(String puuid, String sessionLoopState) {
+        return presence(puuid, sessionLoopState, "Matchmaking");
+    }
+
+    static String presence(String puuid, String sessionLoopState, String provisioningFlow) {
+        String json = "{\"isValid\":true,\"sessionLoopState\":\"" + sessionLoopState + "\","
+            + "\"partyOwnerSessionLoopState\":\"" + sessionLoopState + "\",\"customGameName\":\"\","
+            + "\"customGameTeam\":\"\",\"partyOwnerMatchMap\":\"\",\"partyOwnerMatchCurrentTeam\":\"\","
+            + "\"partyOwnerMatchScoreAllyTeam\":0,\"partyOwnerMatchScoreEnemyTeam\":0,"
+            + "\"partyOwnerProvisioningFlow\":\"" + provisioningFlow + "\",\"provisioningFlow\":\"" + provisioningFlow + "\","
+            + "\"matchMap\":\"\",\"partyId\":\"5c1f0a8e-2d3b-4e6f-9a1b-7c8d9e0f1a2b\",\"isPartyOwner\":true,"
+            + "\"partyState\":\"DEFAULT\",\"partyAccessibility\":\"CLOSED\",\"maxPartySize\":5,"
+            + "\"queueId\":\"competitive\",\"partyLFM\":false,\"partyClientVersion\":\"release-09.08-shipping-20-2762398\","
+            + "\"partySize\":1,\"tournamentId\":\"\",\"rosterId\":\"\",\"partyVersion\":1729012345678,"
+            + "\"queueEntryTime\":\"0001.01.01-00.00.00\",\"playerCardId\":\"9fb348bc-41a0-91ad-8a3e-818035c4e561\","
+            + "\"playerTitleId\":\"d13e579c-435e-44d4-cec2-6eae5a3c5ed4\",\"preferredLevelBorderId\":\"\","
+            + "\"accountLevel\":142,\"competitiveTier\":14,\"leaderboardPosition\":0,\"isIdle\":false}";
+        String p = Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        return "<presence from='" + puuid + "@jp1.pvp.net/RC-2139548393' id='presence_27'>"
+            + "<games><keystone><st>chat</st><s.t>1729012345678</s.t><m/><s.p>riot</s.p><pty/></keystone>"
+            + "<valorant><st>chat</st><s.t>1729012345678</s.t><m/><s.p>valorant</s.p><s.r>PC</s.r>"
+            + "<p>" + p + "</p><pty/></valorant></games><show>chat</show><platform>riot</platform><status/></presence>";
+    }
+
+    static String partyMessage(String puuid, String body) {
+        return "<message from='5c1f0a8e-2d3b-4e6f-9a1b-7c8d9e0f1a2b@ares-parties.jp1.pvp.net/" + puuid + "'"
+            + " stamp='2026-10-16 12:00:01.123' id='1729012345678:1' type='groupchat'>"
+            + "<body>" + body + "</body></message>";
+    }
+
+    static String teamMessage(String puuid, String body) {
+        return "<message from='0b8e2f4c-blue@ares-coregame.jp1.pvp.net/" + puuid + "'"
+            + " stamp='2026-10-16 12:00:02.456' id='1729012345680:4' type='groupchat'>"
+            + "<body>" + body + "</body></message>";
+    }
+
+    static String whisper(String puuid, String body) {
+        return "<message from='" + puuid + "@jp1.pvp.net/RC-2139548393' stamp='2026-10-16 12:00:03'"
+            + " id='1729012345690:0' type='chat'><body>" + body + "</body></message>";
+    }
+
+    static String carbon(String body) {
+        return "<message from='" + SELF_PUUID + "@jp1.pvp.net' to='" + SELF_PUUID + "@jp1.pvp.net/RC-2139548393'"
+            + " type='chat'><sent xmlns='urn:xmpp:carbons:2'><forwarded xmlns='urn:xmpp:forward:0'>"
+            + "<message to='5c1f0a8e-2d3b-4e6f-9a1b-7c8d9e0f1a2b@ares-parties.jp1.pvp.net' type='groupchat'"
+            + " id='1729012345700:2'><body>" + body + "</body></message></forwarded></sent></message>";
+    }
+
+    static String roster(int friends) {
+        StringBuilder sb = new StringBuilder("<iq from='" + SELF_PUUID + "@jp1.pvp.net/RC-2139548393' id='_xmpp_bind1'"
+            + " type='result'><query xmlns='jabber:iq:riotgames:roster'>");
+        for (int i = 0; i < friends; i++) {
+            String puuid = String.format("%08x-0000-4000-8000-%012d", i, i);
+            sb.append("<item jid='").append(puuid).append("@jp1.pvp.net' name='' subscription='both' puuid='")
+              .append(puuid).append("'><group priority='9999'>ungrouped</group><state>online</state>")
+              .append("<id name='Player").append(i).append("' tagline='").append(1000 + i).append("'/>")
+              .append("<lol name='Player").append(i).append("'/><platforms><riot name='Player").append(i)
+              .append("' tagline='").append(1000 + i).append("'/></platforms></item>");
+        }
+        return sb.append("</query></iq>").toString();
+    }
+
+    static String archive(int messages) {
+        StringBuilder sb = new StringBuilder("<iq type='result' id='get_archive_3'>"
+            + "<query xmlns='jabber:iq:riotgames:archive'>");
+        for (int i = 0; i < messages; i++) {
+            sb.append("<message id='1729000000000:").append(i).append("' stamp='2026-10-15 22:14:0").append(i % 10)
+              .append("' from='").append(SELF_PUUID).append("@jp1.pvp.net' to='friend@jp1.pvp.net' type='chat'>")
+              .append("<body>old message ").append(i).append("</body></message>");
+        }
+        return sb.append("</query></iq>").toString();
+    }
+
+    static String ping() {
+        return "<iq type='get' id='ping_1' from='jp1.pvp.net'><ping xmlns='urn:xmpp:ping'/></iq>";
+    }
+
+    static String chatState(String puuid) {
+        return "<message from='" + puuid + "@jp1.pvp.net/RC-2139548393' type='chat'>"
+            + "<composing xmlns='http://jabber.org/protocol/chatstates'/></message>";
+    }
+
+    /**
+     * Weighted lobby/agent-select traffic mix: ~80% presence, ~12% chat,
+     * the rest carbons, chat states, pings, archive and one roster.
+     */
+    static List<String> mixed(int size, long seed) {
+        Random rnd = new Random(seed);
+        String[] bodies = {"rotate B", "one left", "nice", "eco this round?", "they&apos;re stacking A &amp; mid", "gg"};
+        List<String> out = new ArrayList<>(size);
+        out.add(roster(200));
+        for (int i = 1; i < size; i++) {
+            String puuid = String.format("%08x-0000-4000-8000-%012d", rnd.nextInt(200), i % 200);
+            String body = bodies[rnd.nextInt(bodies.length)];
+            int roll = rnd.nextInt(100);
+            if (roll < 80) out.add(presence(puuid, roll < 40 ? "MENUS" : "PREGAME"));
+            else if (roll < 85) out.add(partyMessage(puuid, body));
+            else if (roll < 89) out.add(teamMessage(puuid, body));
+            else if (roll < 92) out.add(whisper(puuid, body));
+            else if (roll < 94) out.add(carbon(body));
+            else if (roll < 97) out.add(chatState(puuid));
+            else if (roll < 99) out.add(ping());
+            else out.add(archive(10));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,243 @@
+package com.someone.valvoicebackend;
+
+import com.someone.valvoicebackend.config.ConfigManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for XttsCircuitBreaker, and HttpSpeechSynthesizer against FakeXttsServer.
+ */
+class XttsCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final AtomicBoolean reachable = new AtomicBoolean(false);
+    private final List<String> transitions = new CopyOnWriteArrayList<>();
+
+    private XttsCircuitBreaker breaker() {
+        return new XttsCircuitBreaker(reachable::get, 10_000, new XttsCircuitBreaker.Listener() {
+            @Override
+            public void opened(String reason) {
+                transitions.add("opened");
+            }
+
+            @Override
+            public void closed() {
+                transitions.add("closed");
+            }
+        }, clock::get, false);
+    }
+
+    private void advanceMillis(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 1: Opening
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void consecutiveFailuresOpenTheCircuit() {
+        XttsCircuitBreaker breaker = breaker();
+        for (int i = 0; i < XttsCircuitBreaker.CONSECUTIVE_FAILURES_TO_OPEN - 1; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure("HTTP 500", false);
+        }
+        assertEquals(XttsCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.recordFailure("HTTP 500", false);
+
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isAvailable());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(List.of("opened"), transitions);
+    }
+
+    @Test
+    void refusedConnectionOpensAtOnce() {
+        XttsCircuitBreaker breaker = breaker();
+        breaker.recordFailure("unreachable", true);
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void failureRatioOverTheWindowOpensTheCircuit() {
+        XttsCircuitBreaker breaker = breaker();
+        // Alternating: never 3 in a row, but half of the window fails
+        for (int i = 0; i < XttsCircuitBreaker.MIN_WINDOW_SAMPLES - 1; i++) {
+            if (i % 2 == 0) {
+                breaker.recordFailure("HTTP 500", false);
+            } else {
+                breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(200));
+            }
+        }
+        assertEquals(XttsCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(200));
+        breaker.recordFailure("HTTP 500", false);
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 2: Half-open probing and recovery
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void probeLetsOneTrialThroughAndItsSuccessCloses() {
+        XttsCircuitBreaker breaker = breaker();
+        breaker.recordFailure("unreachable", true);
+
+        // Backoff not elapsed yet, then the port is still closed
+        reachable.set(true);
+        breaker.tick();
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState());
+        reachable.set(false);
+        advanceMillis(XttsCircuitBreaker.MIN_BACKOFF_MILLIS);
+        breaker.tick();
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState());
+
+        reachable.set(true);
+        advanceMillis(XttsCircuitBreaker.PROBE_INTERVAL_MILLIS);
+        breaker.tick();
+        assertEquals(XttsCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.isAvailable());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only one trial at a time");
+
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals(XttsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of("opened", "closed"), transitions);
+        // The window restarted: one failure does not reopen
+        breaker.recordFailure("HTTP 500", false);
+        assertEquals(XttsCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedTrialReopensWithLongerBackoff() {
+        XttsCircuitBreaker breaker = breaker();
+        reachable.set(true);
+        breaker.recordFailure("unreachable", true);
+        advanceMillis(XttsCircuitBreaker.MIN_BACKOFF_MILLIS);
+        breaker.tick();
+        assertTrue(breaker.tryAcquire());
+        breaker.recordFailure("no response", false);
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState());
+
+        advanceMillis(XttsCircuitBreaker.MIN_BACKOFF_MILLIS);
+        breaker.tick();
+        assertEquals(XttsCircuitBreaker.State.OPEN, breaker.getState(), "backoff doubled");
+        advanceMillis(XttsCircuitBreaker.MIN_BACKOFF_MILLIS);
+        breaker.tick();
+        assertEquals(XttsCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // An abandoned trial frees the slot for the next request
+        assertTrue(breaker.tryAcquire());
+        breaker.recordAbandoned();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 3: Adaptive first-byte timeout
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void firstByteTimeoutFollowsMeasuredLatency() {
+        XttsCircuitBreaker breaker = breaker();
+        assertEquals(10_000, breaker.firstByteTimeoutMillis(), "ceiling until measured");
+        for (int i = 0; i < XttsCircuitBreaker.MIN_LATENCY_SAMPLES; i++) {
+            breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(1_500));
+        }
+        assertEquals(4_000, breaker.firstByteTimeoutMillis());
+        for (int i = 0; i < XttsCircuitBreaker.WINDOW; i++) {
+            breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(XttsCircuitBreaker.MIN_FIRST_BYTE_TIMEOUT_MILLIS, breaker.firstByteTimeoutMillis());
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // TEST 4: HttpSpeechSynthesizer against FakeXttsServer
+    // ═══════════════════════════════════════════════════════════════
+
+    @Test
+    void hungEngineCostsAtMostTheFirstByteTimeout() throws Exception {
+        FakeXttsServer.Options options = new FakeXttsServer.Options();
+        options.ttfbMillis = 30_000;
+        FakeXttsServer server = new FakeXttsServer(options);
+        server.start(0);
+        int configured = ConfigManager.get().xttsFirstByteTimeoutSeconds;
+        try {
+            ConfigManager.get().xttsFirstByteTimeoutSeconds = 1;
+            HttpSpeechSynthesizer speech = new HttpSpeechSynthesizer(URI.create(server.getUrl()), () -> true, () -> { });
+
+            // No response headers
+            long start = System.nanoTime();
+            assertThrows(HttpTimeoutException.class, () -> speech.synthesize("Jett", "hello there", "en"));
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMs < 3_000, "waited " + elapsedMs + " ms");
+
+            // Headers, then the audio stalls (one 20 ms chunk every 4 s)
+            options.ttfbMillis = 0;
+            options.format = FakeXttsServer.Format.PCM;
+            options.realTimeFactor = 0.005;
+            start = System.nanoTime();
+            try (SpeechSynthesizer.Speech response = speech.synthesize("Jett", "hello there", "en")) {
+                InputStream audio = response.audio();
+                assertThrows(HttpTimeoutException.class, () -> {
+                    while (audio.read(new byte[4096]) >= 0) {
+                        // drain until the watchdog gives up
+                    }
+                });
+            }
+            elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMs < 4_000, "stalled for " + elapsedMs + " ms");
+            assertEquals(XttsCircuitBreaker.State.CLOSED, speech.getCircuitBreaker().getState());
+        } finally {
+            ConfigManager.get().xttsFirstByteTimeoutSeconds = configured;
+            server.stop();
+        }
+    }
+
+    @Test
+    void narrationReturnsToXttsWhenTheEngineComesBack() throws Exception {
+        FakeXttsServer.Options options = new FakeXttsServer.Options();
+        options.ttfbMillis = 10;
+        options.realTimeFactor = 0;
+        FakeXttsServer server = new FakeXttsServer(options);
+        server.start(0);
+        int port = server.getPort();
+        URI url = URI.create(server.getUrl());
+        server.stop();
+        AtomicLong degraded = new AtomicLong();
+        AtomicLong recovered = new AtomicLong();
+        HttpSpeechSynthesizer speech = new HttpSpeechSynthesizer(url, () -> true,
+            degraded::incrementAndGet, recovered::incrementAndGet);
+        try {
+            assertThrows(IOException.class, () -> speech.synthesize("Jett", "anyone there", "en"));
+            assertFalse(speech.isReady());
+            assertEquals(1, degraded.get());
+            assertThrows(IOException.class, () -> speech.synthesize("Jett", "circuit is open", "en"));
+
+            server.start(port);
+            long start = System.nanoTime();
+            while (!speech.isReady()) {
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "probe never succeeded");
+                Thread.sleep(20);
+            }
+            try (SpeechSynthesizer.Speech response = speech.synthesize("Jett", "back again", "en")) {
+                assertTrue(response.audio().readAllBytes().length > 0);
+            }
+            assertEquals(XttsCircuitBreaker.State.CLOSED, speech.getCircuitBreaker().getState());
+            assertEquals(1, recovered.get());
+        } finally {
+            server.stop();
+        }
+    }
+}